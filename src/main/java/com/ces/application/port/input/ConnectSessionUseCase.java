@@ -0,0 +1,44 @@
+package com.ces.application.port.input;
+
+import com.ces.domain.model.ResumeCursor;
+import com.ces.domain.model.SessionId;
+
+/**
+ * Input port for WebSocket connection lifecycle of registered sessions.
+ * Marks sessions connected or disconnected and replays messages queued while
+ * the client was away.
+ */
+public interface ConnectSessionUseCase {
+
+    /**
+     * Marks a session as connected and delivers the messages queued for it.
+     * Must be called once the client's WebSocket connection is able to receive messages.
+     *
+     * @param sessionId the session ID
+     * @return the number of queued messages delivered
+     * @throws com.ces.domain.model.SessionNotFoundException if the session is not registered
+     */
+    int connect(SessionId sessionId);
+
+    /**
+     * Marks a session as connected and delivers only the messages the client missed
+     * after the message the cursor points at. Falls back to the offline queue when
+     * the cursor is older than the recent events kept for the session.
+     * Must be called once the client's WebSocket connection is able to receive messages.
+     *
+     * @param sessionId the session ID
+     * @param cursor the last message the client received
+     * @return the number of missed messages delivered
+     * @throws com.ces.domain.model.SessionNotFoundException if the session is not registered
+     */
+    int resume(SessionId sessionId, ResumeCursor cursor);
+
+    /**
+     * Marks a session as disconnected; messages addressed to it are queued until it reconnects.
+     * A session that has moved to another node is left connected there.
+     *
+     * @param sessionId the session ID
+     * @throws com.ces.domain.model.SessionNotFoundException if the session is not registered
+     */
+    void disconnect(SessionId sessionId);
+}
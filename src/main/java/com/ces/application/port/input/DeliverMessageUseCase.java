@@ -9,12 +9,22 @@ import com.ces.domain.model.EventMessage;
 public interface DeliverMessageUseCase {
 
     /**
-     * Delivers a message to the target session.
+     * Delivers a message to its target: one session, or every connected member of
+     * an account, tenant or of all sessions.
      *
      * @param message the event message to deliver
      */
     void deliver(EventMessage message);
 
+    /**
+     * Delivers a message another node forwarded to a session connected, or
+     * migrating, to this node. If the session has moved to another node since, the
+     * message is forwarded there.
+     *
+     * @param message the forwarded message, addressed to one session
+     */
+    void deliverForwarded(EventMessage message);
+
     /**
      * Delivers a message to all active sessions.
      *
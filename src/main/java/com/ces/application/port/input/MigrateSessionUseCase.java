@@ -0,0 +1,34 @@
+package com.ces.application.port.input;
+
+import com.ces.domain.model.EventMessage;
+import com.ces.domain.model.SessionId;
+
+import java.util.List;
+
+/**
+ * Input port for moving connected sessions between nodes without losing messages.
+ * The node holding a session's WebSocket hands the session's recent events to the
+ * target node, switches delivery to it and asks the client to reconnect there.
+ */
+public interface MigrateSessionUseCase {
+
+    /**
+     * Moves a session connected to this node to another node.
+     *
+     * @param sessionId the session ID
+     * @param targetNodeId the node to move the session to
+     * @param targetWebSocketBaseUrl the WebSocket base URL of that node
+     * @return true if the client was asked to reconnect, false if the session is not
+     *         connected to this node or the target node cannot be reached
+     * @throws com.ces.domain.model.SessionNotFoundException if the session is not registered
+     */
+    boolean migrate(SessionId sessionId, int targetNodeId, String targetWebSocketBaseUrl);
+
+    /**
+     * Records the recent events of sessions migrating to this node, so their clients
+     * can resume here from the cursor they were given.
+     *
+     * @param recentEvents recent events of one session, oldest first
+     */
+    void prewarm(List<EventMessage> recentEvents);
+}
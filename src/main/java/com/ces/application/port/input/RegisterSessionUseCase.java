@@ -1,6 +1,11 @@
 package com.ces.application.port.input;
 
 import com.ces.domain.model.SessionId;
+import com.google.protobuf.FieldMask;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header.MessageType;
+
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Input port for session registration use case.
@@ -15,7 +20,76 @@ public interface RegisterSessionUseCase {
      * @return the registered session information
      * @throws com.ces.domain.model.InvalidSessionException if the session ID is invalid
      */
-    SessionRegistrationResult register(SessionId sessionId);
+    default SessionRegistrationResult register(SessionId sessionId) {
+        return register(SessionRegistrationRequest.of(sessionId));
+    }
+
+    /**
+     * Registers a new session that belongs to an account and tenant, making it a
+     * member of their delivery groups once it connects.
+     *
+     * @param request the registration request
+     * @return the registered session information
+     * @throws com.ces.domain.model.InvalidSessionException if the session ID is invalid
+     */
+    SessionRegistrationResult register(SessionRegistrationRequest request);
+
+    /**
+     * Request to register a session. It names the account and tenant the session
+     * belongs to, the message types and content it subscribes to, and the payload
+     * fields it receives; all of them are optional.
+     *
+     * @param sessionId the session ID to register
+     * @param accountId the account of the session, or 0 if unknown
+     * @param tenant the tenant ({@code Header.SystemRef.tenant}) of the session, or null
+     * @param messageTypes the message types the session receives; empty for all
+     * @param contentFilter the content filter expression messages must pass, or null;
+     *                      see {@code docs/content-filters.md}
+     * @param fieldMasks the payload fields the session receives, per message type;
+     *                   types without a mask are sent in full
+     */
+    record SessionRegistrationRequest(
+            SessionId sessionId,
+            long accountId,
+            String tenant,
+            Set<MessageType> messageTypes,
+            String contentFilter,
+            Map<MessageType, FieldMask> fieldMasks
+    ) {
+        public SessionRegistrationRequest {
+            messageTypes = messageTypes != null ? Set.copyOf(messageTypes) : Set.of();
+            fieldMasks = fieldMasks != null ? Map.copyOf(fieldMasks) : Map.of();
+        }
+
+        public static SessionRegistrationRequest of(SessionId sessionId) {
+            return new SessionRegistrationRequest(sessionId, 0L, null, Set.of(), null, Map.of());
+        }
+
+        public SessionRegistrationRequest withAccountId(long accountId) {
+            return new SessionRegistrationRequest(
+                    sessionId, accountId, tenant, messageTypes, contentFilter, fieldMasks);
+        }
+
+        public SessionRegistrationRequest withTenant(String tenant) {
+            return new SessionRegistrationRequest(
+                    sessionId, accountId, tenant, messageTypes, contentFilter, fieldMasks);
+        }
+
+        public SessionRegistrationRequest withMessageTypes(Set<MessageType> messageTypes) {
+            return new SessionRegistrationRequest(
+                    sessionId, accountId, tenant, messageTypes, contentFilter, fieldMasks);
+        }
+
+        public SessionRegistrationRequest withContentFilter(String contentFilter) {
+            return new SessionRegistrationRequest(
+                    sessionId, accountId, tenant, messageTypes, contentFilter, fieldMasks);
+        }
+
+        public SessionRegistrationRequest withFieldMasks(Map<MessageType, FieldMask> fieldMasks) {
+            return new SessionRegistrationRequest(
+                    sessionId, accountId, tenant, messageTypes, contentFilter, fieldMasks);
+        }
+    }
 
     /**
      * Result of a session registration operation.
@@ -1,6 +1,9 @@
 package com.ces.application.port.output;
 
+import com.ces.domain.filter.FieldProjection;
 import com.ces.domain.model.EventMessage;
+import com.ces.domain.model.ResumeCursor;
+import com.ces.domain.model.SessionGroup;
 import com.ces.domain.model.SessionId;
 
 /**
@@ -18,6 +21,27 @@ public interface MessageSender {
      */
     boolean sendToSession(SessionId sessionId, EventMessage message);
 
+    /**
+     * Sends a message to a specific session, with only the payload fields selected
+     * by the session's field projection.
+     *
+     * @param sessionId the target session ID
+     * @param message the message to send
+     * @param projection the session's field projection, or null to send all fields
+     * @return true if the message was sent successfully
+     */
+    boolean sendToSession(SessionId sessionId, EventMessage message, FieldProjection projection);
+
+    /**
+     * Sends one message to the members of a group that subscribed to its type,
+     * encoding it once for all of them, or once per distinct field projection.
+     *
+     * @param group the target sessions, their subscriptions and projections; not modified
+     * @param message the message to send
+     * @return the number of sessions the message was queued for
+     */
+    int sendToAll(SessionGroup group, EventMessage message);
+
     /**
      * Sends a message to all connected sessions.
      *
@@ -25,6 +49,18 @@ public interface MessageSender {
      */
     void broadcastToAll(EventMessage message);
 
+    /**
+     * Asks a session's client to reconnect to another node, after the messages
+     * already queued for it.
+     *
+     * @param sessionId the session ID
+     * @param webSocketUrl the WebSocket URL to reconnect to
+     * @param cursor the last message queued for the session, to resume from, or
+     *               null if the client should connect without one
+     * @return true if the request was queued
+     */
+    boolean redirect(SessionId sessionId, String webSocketUrl, ResumeCursor cursor);
+
     /**
      * Checks if a session has an active WebSocket connection.
      *
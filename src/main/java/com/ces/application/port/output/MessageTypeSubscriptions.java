@@ -0,0 +1,23 @@
+package com.ces.application.port.output;
+
+/**
+ * Output port tracking the union of the message-type subscriptions of the sessions
+ * registered on this node, so the ingest stage can drop types nobody here receives.
+ * See {@link com.ces.domain.model.MessageTypeMask}.
+ */
+public interface MessageTypeSubscriptions {
+
+    /**
+     * Adds a registered session's subscription to the union.
+     *
+     * @param subscriptionMask the session's subscription mask
+     */
+    void add(long subscriptionMask);
+
+    /**
+     * Returns the union of all subscriptions added so far.
+     *
+     * @return the mask of message types at least one session subscribed to
+     */
+    long unionMask();
+}
@@ -0,0 +1,55 @@
+package com.ces.application.port.output;
+
+import com.ces.domain.model.EventMessage;
+import com.ces.domain.model.SessionId;
+
+import java.util.function.Consumer;
+
+/**
+ * Output port for queuing messages addressed to temporarily disconnected sessions.
+ * Implementations keep messages per session in arrival order, bounded by a
+ * time-to-live and a per-session size cap (FR-004).
+ */
+public interface OfflineMessageStore {
+
+    /**
+     * Queues a message for its target session. When the session queue is full the
+     * oldest queued message is dropped.
+     *
+     * @param message the message to queue
+     */
+    void store(EventMessage message);
+
+    /**
+     * Removes all queued, unexpired messages of a session and hands them to the
+     * consumer in the order they were stored.
+     *
+     * @param sessionId the session ID
+     * @param consumer receives each queued message
+     * @return the number of messages handed to the consumer
+     */
+    int drain(SessionId sessionId, Consumer<EventMessage> consumer);
+
+    /**
+     * Discards all queued messages of a session.
+     *
+     * @param sessionId the session ID
+     */
+    void discard(SessionId sessionId);
+
+    /**
+     * Counts the messages currently queued for a session, including expired ones
+     * that have not been purged yet.
+     *
+     * @param sessionId the session ID
+     * @return the queue length
+     */
+    int size(SessionId sessionId);
+
+    /**
+     * Removes messages whose time-to-live has elapsed.
+     *
+     * @return the number of messages removed
+     */
+    int purgeExpired();
+}
@@ -0,0 +1,47 @@
+package com.ces.application.port.output;
+
+import com.ces.domain.model.EventMessage;
+import com.ces.domain.model.ResumeCursor;
+import com.ces.domain.model.SessionId;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Output port for the bounded ring of recent events kept per session, used to
+ * replay only the gap a client missed when it resumes from a cursor.
+ */
+public interface RecentEventBuffer {
+
+    /**
+     * Records a message delivered or queued for its target session.
+     *
+     * @param message the message to record
+     */
+    void append(EventMessage message);
+
+    /**
+     * Returns the recorded messages that followed the message the cursor points at.
+     *
+     * @param sessionId the session ID
+     * @param cursor the last message the client received
+     * @return the messages after the cursor, oldest first, or empty if the cursor
+     *         is no longer in the ring and the gap cannot be replayed from it
+     */
+    Optional<List<EventMessage>> eventsAfter(SessionId sessionId, ResumeCursor cursor);
+
+    /**
+     * Returns all recorded messages of a session.
+     *
+     * @param sessionId the session ID
+     * @return the messages in the session's ring, oldest first; empty if it has none
+     */
+    List<EventMessage> recent(SessionId sessionId);
+
+    /**
+     * Drops the rings of sessions that have not received a message within the retention period.
+     *
+     * @return the number of rings removed
+     */
+    int purgeIdle();
+}
@@ -0,0 +1,46 @@
+package com.ces.application.port.output;
+
+import com.ces.domain.model.EventMessage;
+import com.ces.domain.model.Session;
+
+import java.util.List;
+
+/**
+ * Output port handing messages for sessions connected to another node to that node.
+ * The receiving node delivers them with
+ * {@link com.ces.application.port.input.DeliverMessageUseCase#deliverForwarded}, and
+ * records the recent events of sessions migrating to it with
+ * {@link com.ces.application.port.input.MigrateSessionUseCase#prewarm}.
+ */
+public interface SessionForwarder {
+
+    /**
+     * Forwards a message if its session is connected, or migrating, to another node.
+     *
+     * @param session the target session, as stored in the session registry
+     * @param message the message to forward
+     * @return true if the message was handed off for the session's node, false if
+     *         the session is held by this node or by no known node, or the message
+     *         cannot be handed off, and it must be delivered here
+     */
+    boolean forward(Session session, EventMessage message);
+
+    /**
+     * Hands the recent events of a session to the node it is about to migrate to,
+     * ahead of any message forwarded there for the session afterwards.
+     *
+     * @param nodeId the node the session migrates to
+     * @param recentEvents the session's recent events, oldest first
+     * @return true if the events were handed off, false if the node cannot be reached
+     */
+    default boolean prewarm(int nodeId, List<EventMessage> recentEvents) {
+        return false;
+    }
+
+    /**
+     * A forwarder that delivers every message on the node that consumed it.
+     */
+    static SessionForwarder none() {
+        return (session, message) -> false;
+    }
+}
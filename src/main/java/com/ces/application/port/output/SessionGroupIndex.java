@@ -0,0 +1,51 @@
+package com.ces.application.port.output;
+
+import com.ces.domain.model.DeliveryTarget;
+import com.ces.domain.model.Session;
+import com.ces.domain.model.SessionGroup;
+import com.ces.domain.model.SessionId;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Output port indexing connected sessions by the groups they belong to, so that a
+ * {@link DeliveryTarget} resolves to its members without scanning every session.
+ */
+public interface SessionGroupIndex {
+
+    /**
+     * Adds a connected session to the groups of its account and tenant and to the
+     * group of all sessions.
+     *
+     * @param session the session
+     */
+    void add(Session session);
+
+    /**
+     * Removes a session from all of its groups.
+     *
+     * @param session the session
+     */
+    void remove(Session session);
+
+    /**
+     * Removes every session that is no longer active, such as sessions that expired
+     * from the registry without disconnecting. All indexed sessions are checked with
+     * one call, so the registry can look them up in a batch. A session added again
+     * while they are checked is kept.
+     *
+     * @param findActive returns those of the given sessions that are still active
+     * @return the number of sessions removed
+     */
+    int removeInactive(Function<Collection<SessionId>, Set<SessionId>> findActive);
+
+    /**
+     * Resolves a target to its current members and their subscription masks.
+     *
+     * @param target the delivery target
+     * @return a snapshot of the members; shared between callers and must not be modified
+     */
+    SessionGroup members(DeliveryTarget target);
+}
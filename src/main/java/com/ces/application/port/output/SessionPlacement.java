@@ -0,0 +1,23 @@
+package com.ces.application.port.output;
+
+/**
+ * Output port deciding which node a new session should connect to, so that the
+ * node holding a player's WebSocket is the one consuming the player's events.
+ */
+public interface SessionPlacement {
+
+    /**
+     * Returns the WebSocket base URL of the node that should hold a session.
+     *
+     * @param accountId the account of the session, 0 if unknown
+     * @return the base URL, or null to let the session connect to this node
+     */
+    String webSocketBaseUrl(long accountId);
+
+    /**
+     * A placement that keeps every session on the node it registered with.
+     */
+    static SessionPlacement local() {
+        return accountId -> null;
+    }
+}
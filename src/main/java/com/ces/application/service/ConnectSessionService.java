@@ -0,0 +1,192 @@
+package com.ces.application.service;
+
+import com.ces.application.port.input.ConnectSessionUseCase;
+import com.ces.application.port.output.MessageSender;
+import com.ces.application.port.output.OfflineMessageStore;
+import com.ces.application.port.output.RecentEventBuffer;
+import com.ces.application.port.output.SessionGroupIndex;
+import com.ces.domain.model.EventMessage;
+import com.ces.domain.model.ResumeCursor;
+import com.ces.domain.model.Session;
+import com.ces.domain.model.SessionId;
+import com.ces.domain.model.SessionNotFoundException;
+import com.ces.domain.service.SessionRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Application service implementing the session connection use case.
+ * Replays the messages a client missed when it (re)connects: the gap after its
+ * resume cursor from the recent-event ring when possible, otherwise the messages
+ * queued in the offline store. Connected sessions are members of the delivery
+ * groups of their account and tenant until they disconnect, and record the ID of
+ * this node so messages consumed elsewhere can be forwarded here. A session that
+ * has moved to another node stays connected there when its WebSocket on this node
+ * closes.
+ */
+public class ConnectSessionService implements ConnectSessionUseCase {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectSessionService.class);
+
+    private final SessionRegistry sessionRegistry;
+    private final MessageSender messageSender;
+    private final OfflineMessageStore offlineMessageStore;
+    private final RecentEventBuffer recentEventBuffer;
+    private final SessionGroupIndex sessionGroupIndex;
+    private final int nodeId;
+
+    public ConnectSessionService(
+            SessionRegistry sessionRegistry,
+            MessageSender messageSender,
+            OfflineMessageStore offlineMessageStore,
+            RecentEventBuffer recentEventBuffer,
+            SessionGroupIndex sessionGroupIndex) {
+        this(sessionRegistry, messageSender, offlineMessageStore, recentEventBuffer, sessionGroupIndex,
+                Session.NO_NODE);
+    }
+
+    /**
+     * @param nodeId ID of this node, recorded in connected sessions, or {@link Session#NO_NODE}
+     */
+    public ConnectSessionService(
+            SessionRegistry sessionRegistry,
+            MessageSender messageSender,
+            OfflineMessageStore offlineMessageStore,
+            RecentEventBuffer recentEventBuffer,
+            SessionGroupIndex sessionGroupIndex,
+            int nodeId) {
+        this.sessionRegistry = Objects.requireNonNull(sessionRegistry, "Session registry cannot be null");
+        this.messageSender = Objects.requireNonNull(messageSender, "Message sender cannot be null");
+        this.offlineMessageStore = Objects.requireNonNull(offlineMessageStore, "Offline message store cannot be null");
+        this.recentEventBuffer = Objects.requireNonNull(recentEventBuffer, "Recent event buffer cannot be null");
+        this.sessionGroupIndex = Objects.requireNonNull(sessionGroupIndex, "Session group index cannot be null");
+        this.nodeId = nodeId;
+    }
+
+    @Override
+    public int connect(SessionId sessionId) {
+        return replayAndConnect(findSession(sessionId), null);
+    }
+
+    @Override
+    public int resume(SessionId sessionId, ResumeCursor cursor) {
+        Objects.requireNonNull(cursor, "Resume cursor cannot be null");
+        return replayAndConnect(findSession(sessionId), cursor);
+    }
+
+    @Override
+    public void disconnect(SessionId sessionId) {
+        Session session = findSession(sessionId);
+        if (nodeId != Session.NO_NODE && session.getNodeId() != Session.NO_NODE && session.getNodeId() != nodeId) {
+            // The session migrated; its old WebSocket closing must not disconnect it on the new node
+            sessionGroupIndex.remove(session);
+            logger.info("Session {} closed its WebSocket here after moving to node {}", sessionId, session.getNodeId());
+            return;
+        }
+        session.disconnect();
+        sessionRegistry.update(session);
+        sessionGroupIndex.remove(session);
+        logger.info("Session disconnected: {}", sessionId);
+    }
+
+    /**
+     * Messages are recorded in the ring before they are queued offline, so once the
+     * offline queue has been taken every queued message is also in the ring. If the
+     * cursor is still in the ring, the gap after it covers the queue as well as
+     * messages that were sent to a connection the client had already lost.
+     * If the connection closes during the replay, the queued messages that were not
+     * sent go back to the offline queue and the session stays disconnected.
+     */
+    private int replayAndConnect(Session session, ResumeCursor cursor) {
+        SessionId sessionId = session.getSessionId();
+
+        List<EventMessage> queued = new ArrayList<>();
+        offlineMessageStore.drain(sessionId, queued::add);
+
+        List<EventMessage> replay = queued;
+        if (cursor != null) {
+            Optional<List<EventMessage>> gap = recentEventBuffer.eventsAfter(sessionId, cursor);
+            if (gap.isPresent()) {
+                replay = gap.get();
+            } else {
+                logger.info("Resume cursor {} of session {} is no longer buffered, replaying offline queue",
+                        cursor, sessionId);
+            }
+        }
+
+        // Replay the backlog before live delivery resumes so the client sees it first
+        Set<String> replayed = new HashSet<>();
+        for (EventMessage message : replay) {
+            if (!SessionMessages.send(messageSender, session, message)) {
+                requeue(sessionId, queued.stream()
+                        .filter(unsent -> !replayed.contains(unsent.getMessageId()))
+                        .toList());
+                logger.info("Session {} closed during replay, {} of {} missed messages delivered",
+                        sessionId, replayed.size(), replay.size());
+                return replayed.size();
+            }
+            replayed.add(message.getMessageId());
+        }
+
+        // Live messages wait for the lock, so they follow the messages queued during the switch
+        int delivered = replayed.size();
+        ReentrantLock lock = SessionMessages.lockFor(sessionId);
+        lock.lock();
+        try {
+            session.connect(nodeId);
+            sessionRegistry.update(session);
+
+            // Pick up messages queued while the session was being switched over
+            List<EventMessage> switched = new ArrayList<>();
+            offlineMessageStore.drain(sessionId, message -> {
+                if (!replayed.contains(message.getMessageId())) {
+                    switched.add(message);
+                }
+            });
+            for (int i = 0; i < switched.size(); i++) {
+                if (!SessionMessages.send(messageSender, session, switched.get(i))) {
+                    requeue(sessionId, switched.subList(i, switched.size()));
+                    break;
+                }
+                delivered++;
+            }
+
+            // Group deliveries reach the session only once the switched messages are sent
+            sessionGroupIndex.add(session);
+        } finally {
+            lock.unlock();
+        }
+
+        logger.info("Session connected: {} ({} missed messages delivered)", sessionId, delivered);
+        return delivered;
+    }
+
+    /**
+     * Puts messages that could not be sent back at the head of the offline queue,
+     * ahead of anything queued since they were taken.
+     */
+    private void requeue(SessionId sessionId, List<EventMessage> unsent) {
+        if (unsent.isEmpty()) {
+            return;
+        }
+        List<EventMessage> queuedSince = new ArrayList<>();
+        offlineMessageStore.drain(sessionId, queuedSince::add);
+        unsent.forEach(offlineMessageStore::store);
+        queuedSince.forEach(offlineMessageStore::store);
+        logger.debug("Re-queued {} unsent messages for session: {}", unsent.size(), sessionId);
+    }
+
+    private Session findSession(SessionId sessionId) {
+        Objects.requireNonNull(sessionId, "Session ID cannot be null");
+        return sessionRegistry.findById(sessionId)
+                .orElseThrow(() -> new SessionNotFoundException(sessionId));
+    }
+}
@@ -2,18 +2,40 @@ package com.ces.application.service;
 
 import com.ces.application.port.input.DeliverMessageUseCase;
 import com.ces.application.port.output.MessageSender;
+import com.ces.application.port.output.OfflineMessageStore;
+import com.ces.application.port.output.RecentEventBuffer;
+import com.ces.application.port.output.SessionForwarder;
+import com.ces.application.port.output.SessionGroupIndex;
+import com.ces.domain.model.DeliveryTarget;
 import com.ces.domain.model.EventMessage;
 import com.ces.domain.model.Session;
+import com.ces.domain.model.SessionGroup;
 import com.ces.domain.model.SessionNotFoundException;
 import com.ces.domain.service.SessionRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Application service implementing message delivery use case.
  * Routes messages to appropriate sessions via WebSocket connections.
+ * Messages for sessions that are temporarily disconnected are queued in the
+ * offline store and replayed when the session reconnects. Every message is also
+ * recorded in the session's recent-event ring so clients can resume from a cursor.
+ * Once a message has been handed off, its decoded FeedMessage is released so only
+ * the encoded envelope stays in the ring and the offline store.
+ * Messages for a group target are resolved through the {@link SessionGroupIndex}
+ * and sent once to all connected members; they are not queued offline.
+ * Messages of a type the session (or no group member) subscribed to, or that fail
+ * the session's content filter, are dropped before they are recorded, queued or encoded.
+ * Messages for connected sessions held by another node, and for sessions migrating
+ * to another node, are handed to the {@link SessionForwarder}; that node records and
+ * sends or queues them when they are delivered there with
+ * {@link #deliverForwarded(EventMessage)}. A forwarded message whose session moved
+ * to yet another node before it arrived is forwarded again, rather than queued on a
+ * node the client no longer connects to.
  */
 public class DeliverMessageService implements DeliverMessageUseCase {
 
@@ -21,12 +43,34 @@ public class DeliverMessageService implements DeliverMessageUseCase {
 
     private final SessionRegistry sessionRegistry;
     private final MessageSender messageSender;
+    private final OfflineMessageStore offlineMessageStore;
+    private final RecentEventBuffer recentEventBuffer;
+    private final SessionGroupIndex sessionGroupIndex;
+    private final SessionForwarder sessionForwarder;
 
     public DeliverMessageService(
             SessionRegistry sessionRegistry,
-            MessageSender messageSender) {
+            MessageSender messageSender,
+            OfflineMessageStore offlineMessageStore,
+            RecentEventBuffer recentEventBuffer,
+            SessionGroupIndex sessionGroupIndex) {
+        this(sessionRegistry, messageSender, offlineMessageStore, recentEventBuffer, sessionGroupIndex,
+                SessionForwarder.none());
+    }
+
+    public DeliverMessageService(
+            SessionRegistry sessionRegistry,
+            MessageSender messageSender,
+            OfflineMessageStore offlineMessageStore,
+            RecentEventBuffer recentEventBuffer,
+            SessionGroupIndex sessionGroupIndex,
+            SessionForwarder sessionForwarder) {
         this.sessionRegistry = Objects.requireNonNull(sessionRegistry, "Session registry cannot be null");
         this.messageSender = Objects.requireNonNull(messageSender, "Message sender cannot be null");
+        this.offlineMessageStore = Objects.requireNonNull(offlineMessageStore, "Offline message store cannot be null");
+        this.recentEventBuffer = Objects.requireNonNull(recentEventBuffer, "Recent event buffer cannot be null");
+        this.sessionGroupIndex = Objects.requireNonNull(sessionGroupIndex, "Session group index cannot be null");
+        this.sessionForwarder = Objects.requireNonNull(sessionForwarder, "Session forwarder cannot be null");
     }
 
     @Override
@@ -34,19 +78,19 @@ public class DeliverMessageService implements DeliverMessageUseCase {
         Objects.requireNonNull(message, "Message cannot be null");
 
         try {
-            // Find target session
-            Session session = sessionRegistry.findById(message.getTargetSessionId())
-                    .orElseThrow(() -> new SessionNotFoundException(message.getTargetSessionId()));
-
-            // Check if session is active
-            if (!session.isActive()) {
-                logger.warn("Cannot deliver message to inactive session: {}", message.getTargetSessionId());
+            if (!(message.getTarget() instanceof DeliveryTarget.ToSession)) {
+                deliverToGroup(message);
                 return;
             }
 
-            // Send message via WebSocket
-            messageSender.sendToSession(message.getTargetSessionId(), message);
-            logger.debug("Message delivered to session: {}", message.getTargetSessionId());
+            // Ordered with the session's connection, which drains the offline queue
+            ReentrantLock lock = SessionMessages.lockFor(message.getTargetSessionId());
+            lock.lock();
+            try {
+                deliverToSession(message);
+            } finally {
+                lock.unlock();
+            }
 
         } catch (SessionNotFoundException e) {
             logger.error("Session not found for message delivery: {}", message.getTargetSessionId(), e);
@@ -54,7 +98,60 @@ public class DeliverMessageService implements DeliverMessageUseCase {
         } catch (Exception e) {
             logger.error("Failed to deliver message to session: {}", message.getTargetSessionId(), e);
             throw new RuntimeException("Message delivery failed", e);
+        } finally {
+            message.releaseFeedMessage();
+        }
+    }
+
+    private void deliverToSession(EventMessage message) {
+        // Find target session
+        Session session = sessionRegistry.findById(message.getTargetSessionId())
+                .orElseThrow(() -> new SessionNotFoundException(message.getTargetSessionId()));
+
+        // Subscription and content filter, before anything is recorded or encoded
+        if (!session.accepts(message)) {
+            logger.debug("Message {} filtered out for session {}", message.getMessageId(), session.getSessionId());
+            return;
+        }
+
+        // The node holding the session's WebSocket, or about to, records and sends the message;
+        // a forwarded message whose session moved on meanwhile follows it there
+        if ((session.isActive() || session.isMigrating())
+                && sessionForwarder.forward(session, message)) {
+            logger.debug("Message {} forwarded to node {} of session {}",
+                    message.getMessageId(), session.getNodeId(), session.getSessionId());
+            return;
+        }
+
+        // Record before queuing; resuming clients rely on queued messages being in the ring
+        recentEventBuffer.append(message);
+
+        // Queue the message until an inactive session reconnects
+        if (!session.isActive()) {
+            offlineMessageStore.store(message);
+            logger.debug("Message queued for inactive session: {}", message.getTargetSessionId());
+            return;
+        }
+
+        // Send message via WebSocket
+        SessionMessages.send(messageSender, session, message);
+        logger.debug("Message delivered to session: {}", message.getTargetSessionId());
+    }
+
+    @Override
+    public void deliverForwarded(EventMessage message) {
+        deliver(message);
+    }
+
+    private void deliverToGroup(EventMessage message) {
+        SessionGroup members = sessionGroupIndex.members(message.getTarget());
+        if (!members.accepts(message.getMessageType())) {
+            logger.debug("No connected sessions subscribed to {} for target: {}",
+                    message.getMessageType(), message.getTarget());
+            return;
         }
+        int queued = messageSender.sendToAll(members, message);
+        logger.debug("Message delivered to {} sessions of target: {}", queued, message.getTarget());
     }
 
     @Override
@@ -69,6 +166,8 @@ public class DeliverMessageService implements DeliverMessageUseCase {
         } catch (Exception e) {
             logger.error("Failed to broadcast message", e);
             throw new RuntimeException("Message broadcast failed", e);
+        } finally {
+            message.releaseFeedMessage();
         }
     }
 }
@@ -0,0 +1,105 @@
+package com.ces.application.service;
+
+import com.ces.application.port.input.MigrateSessionUseCase;
+import com.ces.application.port.output.MessageSender;
+import com.ces.application.port.output.RecentEventBuffer;
+import com.ces.application.port.output.SessionForwarder;
+import com.ces.application.port.output.SessionGroupIndex;
+import com.ces.domain.model.EventMessage;
+import com.ces.domain.model.ResumeCursor;
+import com.ces.domain.model.Session;
+import com.ces.domain.model.SessionId;
+import com.ces.domain.model.SessionNotFoundException;
+import com.ces.domain.service.SessionRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Application service implementing the session migration use case.
+ * A session moves in three steps. Its recent-event ring is handed to the target node
+ * ahead of anything forwarded there for it. The session is then marked migrating to
+ * the target, so every node forwards its messages there, where they are recorded and
+ * queued offline until the client connects. Last, the client is asked to reconnect
+ * to the target with a cursor pointing at the last message recorded here: if the
+ * target's ring has that message the client resumes from it, otherwise the gap is
+ * exactly the target's offline queue.
+ */
+public class MigrateSessionService implements MigrateSessionUseCase {
+
+    private static final Logger logger = LoggerFactory.getLogger(MigrateSessionService.class);
+
+    private final SessionRegistry sessionRegistry;
+    private final MessageSender messageSender;
+    private final RecentEventBuffer recentEventBuffer;
+    private final SessionGroupIndex sessionGroupIndex;
+    private final SessionForwarder sessionForwarder;
+    private final int nodeId;
+
+    /**
+     * @param nodeId ID of this node, or {@link Session#NO_NODE} if it has none
+     */
+    public MigrateSessionService(
+            SessionRegistry sessionRegistry,
+            MessageSender messageSender,
+            RecentEventBuffer recentEventBuffer,
+            SessionGroupIndex sessionGroupIndex,
+            SessionForwarder sessionForwarder,
+            int nodeId) {
+        this.sessionRegistry = Objects.requireNonNull(sessionRegistry, "Session registry cannot be null");
+        this.messageSender = Objects.requireNonNull(messageSender, "Message sender cannot be null");
+        this.recentEventBuffer = Objects.requireNonNull(recentEventBuffer, "Recent event buffer cannot be null");
+        this.sessionGroupIndex = Objects.requireNonNull(sessionGroupIndex, "Session group index cannot be null");
+        this.sessionForwarder = Objects.requireNonNull(sessionForwarder, "Session forwarder cannot be null");
+        this.nodeId = nodeId;
+    }
+
+    @Override
+    public boolean migrate(SessionId sessionId, int targetNodeId, String targetWebSocketBaseUrl) {
+        Objects.requireNonNull(sessionId, "Session ID cannot be null");
+        Objects.requireNonNull(targetWebSocketBaseUrl, "Target WebSocket base URL cannot be null");
+        Session session = sessionRegistry.findById(sessionId)
+                .orElseThrow(() -> new SessionNotFoundException(sessionId));
+        if (nodeId == Session.NO_NODE || targetNodeId == nodeId
+                || !session.isActive() || session.getNodeId() != nodeId) {
+            return false;
+        }
+
+        if (!sessionForwarder.prewarm(targetNodeId, recentEventBuffer.recent(sessionId))) {
+            logger.debug("Node {} cannot be reached, keeping session {}", targetNodeId, sessionId);
+            return false;
+        }
+
+        session.migrate(targetNodeId);
+        sessionRegistry.update(session);
+        sessionGroupIndex.remove(session);
+
+        // Read after the switch: anything recorded here since was sent ahead of the redirect
+        ResumeCursor cursor = lastCursor(recentEventBuffer.recent(sessionId));
+        messageSender.redirect(sessionId, targetWebSocketBaseUrl + "/" + sessionId.getValue(), cursor);
+        logger.info("Session {} migrating to node {} (resume cursor {})", sessionId, targetNodeId, cursor);
+        return true;
+    }
+
+    @Override
+    public void prewarm(List<EventMessage> recentEvents) {
+        for (EventMessage message : recentEvents) {
+            recentEventBuffer.append(message);
+        }
+    }
+
+    private static ResumeCursor lastCursor(List<EventMessage> recent) {
+        if (recent.isEmpty()) {
+            return null;
+        }
+        EventMessage last = recent.get(recent.size() - 1);
+        try {
+            return ResumeCursor.of(last.getSequencingKey(), last.getSequenceId());
+        } catch (IllegalArgumentException e) {
+            // Not sequenced; the client connects without a cursor and gets the offline queue
+            return null;
+        }
+    }
+}
@@ -1,8 +1,16 @@
 package com.ces.application.service;
 
 import com.ces.application.port.input.RegisterSessionUseCase;
+import com.ces.application.port.output.MessageTypeSubscriptions;
+import com.ces.application.port.output.SessionPlacement;
 import com.ces.application.port.output.SessionRepository;
+import com.ces.domain.filter.ContentFilter;
+import com.ces.domain.filter.ContentFilterCompiler;
+import com.ces.domain.filter.FieldProjection;
+import com.ces.domain.filter.FieldProjectionCompiler;
+import com.ces.domain.filter.InvalidFilterException;
 import com.ces.domain.model.InvalidSessionException;
+import com.ces.domain.model.MessageTypeMask;
 import com.ces.domain.model.Session;
 import com.ces.domain.model.SessionId;
 import com.ces.domain.service.SessionRegistry;
@@ -12,29 +20,67 @@ import java.util.Objects;
 /**
  * Application service implementing session registration use case.
  * Coordinates between domain services and repositories.
+ * Each session's message-type subscription is added to the node-wide union that
+ * the ingest stage filters on. Content filter expressions and field masks are
+ * compiled once and shared between sessions supplying the same ones.
+ * The returned WebSocket URL points at the node the {@link SessionPlacement} picks
+ * for the session's account, or at this node when it has no preference.
  */
 public class RegisterSessionService implements RegisterSessionUseCase {
 
     private final SessionRegistry sessionRegistry;
     private final SessionRepository sessionRepository;
+    private final MessageTypeSubscriptions messageTypeSubscriptions;
+    private final ContentFilterCompiler contentFilterCompiler;
+    private final FieldProjectionCompiler fieldProjectionCompiler;
     private final String websocketBaseUrl;
+    private final SessionPlacement sessionPlacement;
 
     public RegisterSessionService(
             SessionRegistry sessionRegistry,
             SessionRepository sessionRepository,
+            MessageTypeSubscriptions messageTypeSubscriptions,
+            ContentFilterCompiler contentFilterCompiler,
+            FieldProjectionCompiler fieldProjectionCompiler,
             String websocketBaseUrl) {
+        this(sessionRegistry, sessionRepository, messageTypeSubscriptions, contentFilterCompiler,
+                fieldProjectionCompiler, websocketBaseUrl, SessionPlacement.local());
+    }
+
+    public RegisterSessionService(
+            SessionRegistry sessionRegistry,
+            SessionRepository sessionRepository,
+            MessageTypeSubscriptions messageTypeSubscriptions,
+            ContentFilterCompiler contentFilterCompiler,
+            FieldProjectionCompiler fieldProjectionCompiler,
+            String websocketBaseUrl,
+            SessionPlacement sessionPlacement) {
         this.sessionRegistry = Objects.requireNonNull(sessionRegistry, "Session registry cannot be null");
         this.sessionRepository = Objects.requireNonNull(sessionRepository, "Session repository cannot be null");
+        this.messageTypeSubscriptions = Objects.requireNonNull(
+                messageTypeSubscriptions, "Message type subscriptions cannot be null");
+        this.contentFilterCompiler = Objects.requireNonNull(
+                contentFilterCompiler, "Content filter compiler cannot be null");
+        this.fieldProjectionCompiler = Objects.requireNonNull(
+                fieldProjectionCompiler, "Field projection compiler cannot be null");
         this.websocketBaseUrl = Objects.requireNonNull(websocketBaseUrl, "WebSocket base URL cannot be null");
+        this.sessionPlacement = Objects.requireNonNull(sessionPlacement, "Session placement cannot be null");
     }
 
     @Override
-    public SessionRegistrationResult register(SessionId sessionId) {
+    public SessionRegistrationResult register(SessionRegistrationRequest request) {
+        SessionId sessionId = request != null ? request.sessionId() : null;
         try {
             validateSessionId(sessionId);
 
-            // Create new session
-            Session session = new Session(sessionId);
+            ContentFilter contentFilter = request.contentFilter() != null
+                    ? contentFilterCompiler.compile(request.contentFilter())
+                    : null;
+            FieldProjection fieldProjection = fieldProjectionCompiler.compile(request.fieldMasks());
+
+            // Create new session, indexed by account and tenant once it connects
+            Session session = new Session(sessionId, request.accountId(), request.tenant(),
+                    MessageTypeMask.of(request.messageTypes()), contentFilter, fieldProjection);
 
             // Register in domain registry
             sessionRegistry.register(session);
@@ -42,8 +88,11 @@ public class RegisterSessionService implements RegisterSessionUseCase {
             // Persist in repository
             sessionRepository.save(session);
 
-            // Build WebSocket URL
-            String websocketUrl = buildWebSocketUrl(sessionId);
+            // Widen the node-wide subscription before messages for the session arrive
+            messageTypeSubscriptions.add(session.getSubscriptionMask());
+
+            // Build WebSocket URL on the node that consumes the account's events
+            String websocketUrl = buildWebSocketUrl(sessionId, request.accountId());
 
             return new SessionRegistrationResult(
                     sessionId,
@@ -59,6 +108,13 @@ public class RegisterSessionService implements RegisterSessionUseCase {
                     false,
                     "Invalid session: " + e.getMessage()
             );
+        } catch (InvalidFilterException e) {
+            return new SessionRegistrationResult(
+                    sessionId,
+                    null,
+                    false,
+                    e.getMessage()
+            );
         } catch (Exception e) {
             return new SessionRegistrationResult(
                     sessionId,
@@ -80,7 +136,8 @@ public class RegisterSessionService implements RegisterSessionUseCase {
         }
     }
 
-    private String buildWebSocketUrl(SessionId sessionId) {
-        return websocketBaseUrl + "/" + sessionId.getValue();
+    private String buildWebSocketUrl(SessionId sessionId, long accountId) {
+        String baseUrl = sessionPlacement.webSocketBaseUrl(accountId);
+        return (baseUrl != null ? baseUrl : websocketBaseUrl) + "/" + sessionId.getValue();
     }
 }
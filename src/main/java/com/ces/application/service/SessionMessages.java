@@ -0,0 +1,52 @@
+package com.ces.application.service;
+
+import com.ces.application.port.output.MessageSender;
+import com.ces.domain.filter.FieldProjection;
+import com.ces.domain.model.EventMessage;
+import com.ces.domain.model.Session;
+import com.ces.domain.model.SessionId;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Sends messages to a single session with its field projection applied.
+ *
+ * <p>Delivery to a session and its switch to connected hold the same
+ * {@link #lockFor lock}, so a message is either queued offline before the
+ * connection drains the queue, or sent live after the drained messages.</p>
+ */
+final class SessionMessages {
+
+    private static final int LOCK_STRIPES = 64;
+    private static final ReentrantLock[] LOCKS = new ReentrantLock[LOCK_STRIPES];
+
+    static {
+        for (int stripe = 0; stripe < LOCK_STRIPES; stripe++) {
+            LOCKS[stripe] = new ReentrantLock();
+        }
+    }
+
+    private SessionMessages() {
+    }
+
+    /**
+     * The lock that orders deliveries to a session with its connection.
+     */
+    static ReentrantLock lockFor(SessionId sessionId) {
+        return LOCKS[Math.floorMod(sessionId.hashCode(), LOCK_STRIPES)];
+    }
+
+    /**
+     * Sends a message to a session, with only the payload fields selected by its
+     * field projection, if it has one.
+     *
+     * @return true if the message was sent successfully
+     */
+    static boolean send(MessageSender messageSender, Session session, EventMessage message) {
+        FieldProjection projection = session.getFieldProjection();
+        if (projection == null) {
+            return messageSender.sendToSession(session.getSessionId(), message);
+        }
+        return messageSender.sendToSession(session.getSessionId(), message, projection);
+    }
+}
@@ -0,0 +1,47 @@
+package com.ces.domain.filter;
+
+import com.lnw.expressway.messages.v1.FeedMessageProto.FeedMessage;
+
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * A compiled content filter over the fields of a FeedMessage.
+ *
+ * <p>Filters are created by the {@link ContentFilterCompiler}, which returns the
+ * same instance for every expression with the same canonical form, so sessions
+ * sharing a filter can be grouped by identity and the filter evaluated once per
+ * message.</p>
+ */
+public final class ContentFilter {
+
+    private final String expression;
+    private final Predicate<FeedMessage> predicate;
+
+    ContentFilter(String expression, Predicate<FeedMessage> predicate) {
+        this.expression = Objects.requireNonNull(expression, "Expression cannot be null");
+        this.predicate = Objects.requireNonNull(predicate, "Predicate cannot be null");
+    }
+
+    /**
+     * Evaluates the filter.
+     *
+     * @param feedMessage the message
+     * @return true if the message passes the filter
+     */
+    public boolean matches(FeedMessage feedMessage) {
+        return predicate.test(feedMessage);
+    }
+
+    /**
+     * The canonical form of the expression the filter was compiled from.
+     */
+    public String expression() {
+        return expression;
+    }
+
+    @Override
+    public String toString() {
+        return "ContentFilter{" + expression + '}';
+    }
+}
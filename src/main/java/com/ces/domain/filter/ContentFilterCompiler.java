@@ -0,0 +1,595 @@
+package com.ces.domain.filter;
+
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.EnumValueDescriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+import com.lnw.expressway.messages.v1.FeedMessageProto.FeedMessage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Compiles content filter expressions into {@link ContentFilter}s.
+ *
+ * <p>An expression compares FeedMessage fields, addressed by their protobuf names,
+ * with literals and combines the comparisons with {@code and}, {@code or},
+ * {@code not} and parentheses, e.g.
+ * {@code trans_payload.delta_cash > 100 and trans_payload.currency == "EUR"}.
+ * Field paths are resolved against the FeedMessage descriptor at compile time and
+ * every comparison is specialized for its field type, so evaluating a filter walks
+ * precomputed field descriptors without any parsing or name lookups. A comparison
+ * on a field that is not set, e.g. the payload of another message type, is false.
+ * See {@code docs/content-filters.md}.</p>
+ *
+ * <p>Compiled filters are cached by expression text and deduplicated by their
+ * canonical form, so equivalent expressions supplied by different sessions share
+ * one instance.</p>
+ */
+public class ContentFilterCompiler {
+
+    /**
+     * Longest expression accepted.
+     */
+    public static final int MAX_EXPRESSION_LENGTH = 1024;
+
+    private static final int DEFAULT_MAX_CACHED = 4096;
+
+    private final int maxCached;
+    private final Map<String, ContentFilter> byText = new ConcurrentHashMap<>();
+    private final Map<String, ContentFilter> byCanonicalForm = new ConcurrentHashMap<>();
+
+    public ContentFilterCompiler() {
+        this(DEFAULT_MAX_CACHED);
+    }
+
+    /**
+     * @param maxCached distinct expressions kept in the cache; further expressions
+     *                  are still compiled, but only shared when already cached
+     */
+    public ContentFilterCompiler(int maxCached) {
+        if (maxCached < 1) {
+            throw new IllegalArgumentException("Filter cache must hold at least one filter");
+        }
+        this.maxCached = maxCached;
+    }
+
+    /**
+     * Compiles an expression, or returns the cached filter for it.
+     *
+     * @param expression the filter expression
+     * @return the compiled filter
+     * @throws InvalidFilterException if the expression is malformed or refers to
+     *                                unknown fields or values
+     */
+    public ContentFilter compile(String expression) {
+        if (expression == null || expression.isBlank()) {
+            throw new InvalidFilterException("Filter expression cannot be empty");
+        }
+        if (expression.length() > MAX_EXPRESSION_LENGTH) {
+            throw new InvalidFilterException("Filter expression longer than " + MAX_EXPRESSION_LENGTH + " characters");
+        }
+        ContentFilter cached = byText.get(expression);
+        if (cached != null) {
+            return cached;
+        }
+
+        Predicate<FeedMessage> predicate = new Parser(expression).parse();
+        String canonicalForm = predicate.toString();
+        ContentFilter filter = byCanonicalForm.get(canonicalForm);
+        if (filter == null) {
+            filter = new ContentFilter(canonicalForm, predicate);
+            if (byCanonicalForm.size() < maxCached) {
+                ContentFilter existing = byCanonicalForm.putIfAbsent(canonicalForm, filter);
+                filter = existing != null ? existing : filter;
+            }
+        }
+        if (byText.size() < maxCached) {
+            byText.putIfAbsent(expression, filter);
+        }
+        return filter;
+    }
+
+    /**
+     * Number of distinct filters currently cached.
+     */
+    public int cachedFilters() {
+        return byCanonicalForm.size();
+    }
+
+    private enum TokenType { IDENTIFIER, NUMBER, STRING, OPERATOR, DOT, LEFT_PAREN, RIGHT_PAREN, END }
+
+    private record Token(TokenType type, String text, int position) {
+    }
+
+    private enum Operator {
+        EQ("=="), NE("!="), GT(">"), GE(">="), LT("<"), LE("<=");
+
+        private final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        static Operator of(String symbol) {
+            for (Operator operator : values()) {
+                if (operator.symbol.equals(symbol)) {
+                    return operator;
+                }
+            }
+            return null;
+        }
+
+        boolean isEquality() {
+            return this == EQ || this == NE;
+        }
+
+        boolean test(int comparison) {
+            return switch (this) {
+                case EQ -> comparison == 0;
+                case NE -> comparison != 0;
+                case GT -> comparison > 0;
+                case GE -> comparison >= 0;
+                case LT -> comparison < 0;
+                case LE -> comparison <= 0;
+            };
+        }
+    }
+
+    /**
+     * Recursive-descent parser producing the predicate tree.
+     * <pre>
+     * or         := and ( ("or" | "||") and )*
+     * and        := unary ( ("and" | "&&") unary )*
+     * unary      := ("not" | "!") unary | "(" or ")" | comparison
+     * comparison := path operator literal
+     * </pre>
+     */
+    private static final class Parser {
+
+        private final String expression;
+        private final List<Token> tokens;
+        private int next;
+
+        Parser(String expression) {
+            this.expression = expression;
+            this.tokens = tokenize(expression);
+        }
+
+        Predicate<FeedMessage> parse() {
+            Predicate<FeedMessage> predicate = parseOr();
+            expect(TokenType.END, "end of expression");
+            return predicate;
+        }
+
+        private Predicate<FeedMessage> parseOr() {
+            List<Predicate<FeedMessage>> operands = new ArrayList<>();
+            operands.add(parseAnd());
+            while (acceptKeyword("or", "||")) {
+                operands.add(parseAnd());
+            }
+            return operands.size() == 1 ? operands.get(0) : new Or(List.copyOf(operands));
+        }
+
+        private Predicate<FeedMessage> parseAnd() {
+            List<Predicate<FeedMessage>> operands = new ArrayList<>();
+            operands.add(parseUnary());
+            while (acceptKeyword("and", "&&")) {
+                operands.add(parseUnary());
+            }
+            return operands.size() == 1 ? operands.get(0) : new And(List.copyOf(operands));
+        }
+
+        private Predicate<FeedMessage> parseUnary() {
+            if (acceptKeyword("not", "!")) {
+                return new Not(parseUnary());
+            }
+            if (peek().type() == TokenType.LEFT_PAREN) {
+                next++;
+                Predicate<FeedMessage> inner = parseOr();
+                expect(TokenType.RIGHT_PAREN, "')'");
+                return inner;
+            }
+            return parseComparison();
+        }
+
+        private Predicate<FeedMessage> parseComparison() {
+            FieldPath path = parsePath();
+            Token operatorToken = expect(TokenType.OPERATOR, "comparison operator");
+            Operator operator = Operator.of(operatorToken.text());
+            if (operator == null) {
+                throw error(operatorToken, "unknown operator '" + operatorToken.text() + "'");
+            }
+            Token literal = next();
+            FieldDescriptor leaf = path.leaf();
+            return switch (leaf.getJavaType()) {
+                case INT, LONG -> new IntegralComparison(path, operator, integralLiteral(literal, leaf), isUnsigned(leaf));
+                case FLOAT, DOUBLE -> new FloatingComparison(path, operator, floatingLiteral(literal));
+                case STRING -> new StringComparison(path, operator, stringLiteral(literal));
+                case BOOLEAN -> new BooleanComparison(path, requireEquality(operator, operatorToken),
+                        booleanLiteral(literal));
+                case ENUM -> new EnumComparison(path, requireEquality(operator, operatorToken),
+                        enumLiteral(literal, leaf));
+                default -> throw error(operatorToken, "field '" + path.name() + "' cannot be compared");
+            };
+        }
+
+        private FieldPath parsePath() {
+            Token segment = expect(TokenType.IDENTIFIER, "field name");
+            StringBuilder name = new StringBuilder(segment.text());
+            List<FieldDescriptor> fields = new ArrayList<>();
+            Descriptor descriptor = FeedMessage.getDescriptor();
+            while (true) {
+                FieldDescriptor field = descriptor.findFieldByName(segment.text());
+                if (field == null || field.isRepeated()) {
+                    throw error(segment, "unknown field '" + name + "'");
+                }
+                fields.add(field);
+                if (peek().type() != TokenType.DOT) {
+                    if (field.getJavaType() == FieldDescriptor.JavaType.MESSAGE) {
+                        throw error(segment, "field '" + name + "' is a message, not a value");
+                    }
+                    return new FieldPath(fields.toArray(FieldDescriptor[]::new), name.toString());
+                }
+                if (field.getJavaType() != FieldDescriptor.JavaType.MESSAGE) {
+                    throw error(segment, "field '" + name + "' has no subfields");
+                }
+                next++;
+                descriptor = field.getMessageType();
+                segment = expect(TokenType.IDENTIFIER, "field name");
+                name.append('.').append(segment.text());
+            }
+        }
+
+        private long integralLiteral(Token literal, FieldDescriptor field) {
+            if (literal.type() != TokenType.NUMBER) {
+                throw error(literal, "expected an integer for field '" + field.getName() + "'");
+            }
+            try {
+                return isUnsigned(field) && field.getJavaType() == FieldDescriptor.JavaType.LONG
+                        ? Long.parseUnsignedLong(literal.text())
+                        : Long.parseLong(literal.text());
+            } catch (NumberFormatException e) {
+                throw error(literal, "expected an integer for field '" + field.getName() + "'");
+            }
+        }
+
+        private double floatingLiteral(Token literal) {
+            if (literal.type() == TokenType.NUMBER) {
+                try {
+                    return Double.parseDouble(literal.text());
+                } catch (NumberFormatException e) {
+                    // reported below
+                }
+            }
+            throw error(literal, "expected a number");
+        }
+
+        private String stringLiteral(Token literal) {
+            if (literal.type() != TokenType.STRING) {
+                throw error(literal, "expected a quoted string");
+            }
+            return literal.text();
+        }
+
+        private boolean booleanLiteral(Token literal) {
+            if (literal.type() == TokenType.IDENTIFIER
+                    && (literal.text().equals("true") || literal.text().equals("false"))) {
+                return Boolean.parseBoolean(literal.text());
+            }
+            throw error(literal, "expected true or false");
+        }
+
+        private EnumValueDescriptor enumLiteral(Token literal, FieldDescriptor field) {
+            EnumValueDescriptor value = switch (literal.type()) {
+                case IDENTIFIER -> field.getEnumType().findValueByName(literal.text());
+                case NUMBER -> {
+                    try {
+                        yield field.getEnumType().findValueByNumber(Integer.parseInt(literal.text()));
+                    } catch (NumberFormatException e) {
+                        yield null;
+                    }
+                }
+                default -> null;
+            };
+            if (value == null) {
+                throw error(literal, "unknown " + field.getEnumType().getName() + " value '" + literal.text() + "'");
+            }
+            return value;
+        }
+
+        private Operator requireEquality(Operator operator, Token token) {
+            if (!operator.isEquality()) {
+                throw error(token, "only == and != apply to this field");
+            }
+            return operator;
+        }
+
+        private boolean acceptKeyword(String keyword, String symbol) {
+            Token token = peek();
+            if ((token.type() == TokenType.IDENTIFIER && token.text().equalsIgnoreCase(keyword))
+                    || (token.type() == TokenType.OPERATOR && token.text().equals(symbol))) {
+                next++;
+                return true;
+            }
+            return false;
+        }
+
+        private Token expect(TokenType type, String description) {
+            Token token = next();
+            if (token.type() != type) {
+                throw error(token, "expected " + description);
+            }
+            return token;
+        }
+
+        private Token peek() {
+            return tokens.get(next);
+        }
+
+        private Token next() {
+            Token token = tokens.get(next);
+            if (token.type() != TokenType.END) {
+                next++;
+            }
+            return token;
+        }
+
+        private InvalidFilterException error(Token token, String message) {
+            return new InvalidFilterException(
+                    "Invalid filter '" + expression + "' at position " + token.position() + ": " + message);
+        }
+
+        private List<Token> tokenize(String text) {
+            List<Token> result = new ArrayList<>();
+            int position = 0;
+            while (position < text.length()) {
+                char c = text.charAt(position);
+                int start = position;
+                if (Character.isWhitespace(c)) {
+                    position++;
+                } else if (Character.isLetter(c) || c == '_') {
+                    while (position < text.length()
+                            && (Character.isLetterOrDigit(text.charAt(position)) || text.charAt(position) == '_')) {
+                        position++;
+                    }
+                    result.add(new Token(TokenType.IDENTIFIER, text.substring(start, position), start));
+                } else if (Character.isDigit(c)
+                        || (c == '-' && position + 1 < text.length() && Character.isDigit(text.charAt(position + 1)))) {
+                    position++;
+                    while (position < text.length() && isNumberPart(text, position)) {
+                        position++;
+                    }
+                    result.add(new Token(TokenType.NUMBER, text.substring(start, position), start));
+                } else if (c == '"' || c == '\'') {
+                    StringBuilder value = new StringBuilder();
+                    position++;
+                    while (position < text.length() && text.charAt(position) != c) {
+                        if (text.charAt(position) == '\\' && position + 1 < text.length()) {
+                            position++;
+                        }
+                        value.append(text.charAt(position++));
+                    }
+                    if (position == text.length()) {
+                        throw new InvalidFilterException(
+                                "Invalid filter '" + expression + "' at position " + start + ": unterminated string");
+                    }
+                    position++;
+                    result.add(new Token(TokenType.STRING, value.toString(), start));
+                } else if (c == '.') {
+                    position++;
+                    result.add(new Token(TokenType.DOT, ".", start));
+                } else if (c == '(' || c == ')') {
+                    position++;
+                    result.add(new Token(c == '(' ? TokenType.LEFT_PAREN : TokenType.RIGHT_PAREN,
+                            String.valueOf(c), start));
+                } else if ("=!<>&|".indexOf(c) >= 0) {
+                    position++;
+                    char second = c == '&' || c == '|' ? c : '=';
+                    if (position < text.length() && text.charAt(position) == second) {
+                        position++;
+                    }
+                    result.add(new Token(TokenType.OPERATOR, text.substring(start, position), start));
+                } else {
+                    throw new InvalidFilterException(
+                            "Invalid filter '" + expression + "' at position " + start + ": unexpected '" + c + "'");
+                }
+            }
+            result.add(new Token(TokenType.END, "", text.length()));
+            return result;
+        }
+
+        private static boolean isNumberPart(String text, int position) {
+            char c = text.charAt(position);
+            if (Character.isDigit(c) || c == '.' || c == 'e' || c == 'E') {
+                return true;
+            }
+            char previous = text.charAt(position - 1);
+            return (c == '-' || c == '+') && (previous == 'e' || previous == 'E');
+        }
+
+        private static boolean isUnsigned(FieldDescriptor field) {
+            return switch (field.getType()) {
+                case UINT32, FIXED32, UINT64, FIXED64 -> true;
+                default -> false;
+            };
+        }
+    }
+
+    /**
+     * A field resolved from its dotted name to the descriptors leading to it.
+     */
+    private record FieldPath(FieldDescriptor[] descriptors, String name) {
+
+        FieldDescriptor leaf() {
+            return descriptors[descriptors.length - 1];
+        }
+
+        /**
+         * Reads the value, or null if any field on the way is not set.
+         */
+        Object valueIn(Message message) {
+            Message current = message;
+            int last = descriptors.length - 1;
+            for (int i = 0; i < last; i++) {
+                if (!current.hasField(descriptors[i])) {
+                    return null;
+                }
+                current = (Message) current.getField(descriptors[i]);
+            }
+            FieldDescriptor leaf = descriptors[last];
+            if (leaf.hasPresence() && !current.hasField(leaf)) {
+                return null;
+            }
+            return current.getField(leaf);
+        }
+    }
+
+    private record IntegralComparison(
+            FieldPath path, Operator operator, long literal, boolean unsigned)
+            implements Predicate<FeedMessage> {
+
+        @Override
+        public boolean test(FeedMessage message) {
+            Object value = path.valueIn(message);
+            if (value == null) {
+                return false;
+            }
+            if (value instanceof Integer intValue) {
+                long widened = unsigned ? Integer.toUnsignedLong(intValue) : intValue;
+                return operator.test(Long.compare(widened, literal));
+            }
+            long longValue = (Long) value;
+            return operator.test(unsigned ? Long.compareUnsigned(longValue, literal) : Long.compare(longValue, literal));
+        }
+
+        @Override
+        public String toString() {
+            return path.name() + " " + operator.symbol + " " + (unsigned ? Long.toUnsignedString(literal) : literal);
+        }
+    }
+
+    private record FloatingComparison(FieldPath path, Operator operator, double literal)
+            implements Predicate<FeedMessage> {
+
+        @Override
+        public boolean test(FeedMessage message) {
+            Object value = path.valueIn(message);
+            return value != null && operator.test(Double.compare(((Number) value).doubleValue(), literal));
+        }
+
+        @Override
+        public String toString() {
+            return path.name() + " " + operator.symbol + " " + literal;
+        }
+    }
+
+    private record StringComparison(FieldPath path, Operator operator, String literal)
+            implements Predicate<FeedMessage> {
+
+        @Override
+        public boolean test(FeedMessage message) {
+            Object value = path.valueIn(message);
+            return value != null && operator.test(((String) value).compareTo(literal));
+        }
+
+        @Override
+        public String toString() {
+            return path.name() + " " + operator.symbol + " \"" + literal.replace("\\", "\\\\").replace("\"", "\\\"") + '"';
+        }
+    }
+
+    private record BooleanComparison(FieldPath path, Operator operator, boolean literal)
+            implements Predicate<FeedMessage> {
+
+        @Override
+        public boolean test(FeedMessage message) {
+            Object value = path.valueIn(message);
+            return value != null && operator.test(Boolean.compare((Boolean) value, literal));
+        }
+
+        @Override
+        public String toString() {
+            return path.name() + " " + operator.symbol + " " + literal;
+        }
+    }
+
+    private record EnumComparison(FieldPath path, Operator operator, EnumValueDescriptor literal)
+            implements Predicate<FeedMessage> {
+
+        @Override
+        public boolean test(FeedMessage message) {
+            Object value = path.valueIn(message);
+            return value != null
+                    && operator.test(Integer.compare(((EnumValueDescriptor) value).getNumber(), literal.getNumber()));
+        }
+
+        @Override
+        public String toString() {
+            return path.name() + " " + operator.symbol + " " + literal.getName();
+        }
+    }
+
+    private record And(List<Predicate<FeedMessage>> operands) implements Predicate<FeedMessage> {
+
+        @Override
+        public boolean test(FeedMessage message) {
+            for (Predicate<FeedMessage> operand : operands) {
+                if (!operand.test(message)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public String toString() {
+            return join(operands, " and ");
+        }
+    }
+
+    private record Or(List<Predicate<FeedMessage>> operands) implements Predicate<FeedMessage> {
+
+        @Override
+        public boolean test(FeedMessage message) {
+            for (Predicate<FeedMessage> operand : operands) {
+                if (operand.test(message)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public String toString() {
+            return join(operands, " or ");
+        }
+    }
+
+    private record Not(Predicate<FeedMessage> operand) implements Predicate<FeedMessage> {
+
+        @Override
+        public boolean test(FeedMessage message) {
+            return !operand.test(message);
+        }
+
+        @Override
+        public String toString() {
+            return "not (" + operand + ")";
+        }
+    }
+
+    private static String join(List<Predicate<FeedMessage>> operands, String separator) {
+        StringBuilder builder = new StringBuilder("(");
+        for (int i = 0; i < operands.size(); i++) {
+            if (i > 0) {
+                builder.append(separator);
+            }
+            builder.append(operands.get(i));
+        }
+        return builder.append(')').toString();
+    }
+}
@@ -0,0 +1,50 @@
+package com.ces.domain.filter;
+
+import com.google.protobuf.FieldMask;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header.MessageType;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The field masks a session declared, one {@link PayloadProjection} per message type.
+ * Types without a mask are sent in full. Projections are created by the
+ * {@link FieldProjectionCompiler}, which returns the same instance for sessions
+ * declaring the same masks.
+ */
+public final class FieldProjection {
+
+    private final Map<MessageType, PayloadProjection> byType;
+
+    FieldProjection(Map<MessageType, PayloadProjection> byType) {
+        this.byType = Objects.requireNonNull(byType, "Projections cannot be null");
+    }
+
+    /**
+     * Returns the projection for a message type.
+     *
+     * @param messageType the message type
+     * @return the projection, or null if the type is sent in full
+     */
+    public PayloadProjection forType(MessageType messageType) {
+        return byType.get(messageType);
+    }
+
+    /**
+     * The field masks the projection was compiled from, in canonical form. Compiling
+     * them again yields an equivalent projection.
+     */
+    public Map<MessageType, FieldMask> fieldMasks() {
+        Map<MessageType, FieldMask> fieldMasks = new EnumMap<>(MessageType.class);
+        byType.forEach((messageType, projection) -> fieldMasks.put(messageType,
+                FieldMask.newBuilder().addAllPaths(List.of(projection.canonicalForm().split(","))).build()));
+        return fieldMasks;
+    }
+
+    @Override
+    public String toString() {
+        return "FieldProjection" + byType.values();
+    }
+}
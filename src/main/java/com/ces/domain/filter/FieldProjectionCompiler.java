@@ -0,0 +1,182 @@
+package com.ces.domain.filter;
+
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.FieldMask;
+import com.lnw.expressway.messages.v1.FeedMessageProto.FeedMessage;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header.MessageType;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Compiles per-message-type protobuf {@link FieldMask}s into {@link FieldProjection}s.
+ *
+ * <p>Mask paths are relative to the payload of their message type, e.g.
+ * {@code delta_cash} or {@code property_map} for {@code WalletTransaction}, and
+ * nested fields are addressed with dots. A path also covering a shorter one is
+ * redundant and dropped. Paths are resolved to field descriptors here, once.</p>
+ *
+ * <p>Compiled projections are deduplicated by their canonical form, per type and
+ * as a whole, so sessions declaring the same masks share one instance and, through
+ * it, the projected encoding of every message.</p>
+ */
+public class FieldProjectionCompiler {
+
+    private static final int DEFAULT_MAX_CACHED = 4096;
+
+    private final int maxCached;
+    private final Map<String, PayloadProjection> payloadProjections = new ConcurrentHashMap<>();
+    private final Map<String, FieldProjection> projections = new ConcurrentHashMap<>();
+
+    public FieldProjectionCompiler() {
+        this(DEFAULT_MAX_CACHED);
+    }
+
+    /**
+     * @param maxCached distinct projections kept in the cache; further ones are still
+     *                  compiled, but only shared when already cached
+     */
+    public FieldProjectionCompiler(int maxCached) {
+        if (maxCached < 1) {
+            throw new IllegalArgumentException("Projection cache must hold at least one projection");
+        }
+        this.maxCached = maxCached;
+    }
+
+    /**
+     * Compiles the field masks of a session.
+     *
+     * @param fieldMasks the mask per message type; types without a mask are sent in full
+     * @return the compiled projection, or null if no masks were given
+     * @throws InvalidFilterException if a mask refers to an unknown type or field
+     */
+    public FieldProjection compile(Map<MessageType, FieldMask> fieldMasks) {
+        if (fieldMasks == null || fieldMasks.isEmpty()) {
+            return null;
+        }
+        Map<MessageType, PayloadProjection> byType = new EnumMap<>(MessageType.class);
+        StringBuilder canonicalForm = new StringBuilder();
+        for (Map.Entry<MessageType, FieldMask> entry : new TreeMap<>(fieldMasks).entrySet()) {
+            PayloadProjection projection = compile(entry.getKey(), entry.getValue());
+            byType.put(entry.getKey(), projection);
+            canonicalForm.append(entry.getKey().name()).append('{').append(projection.canonicalForm()).append('}');
+        }
+        return cached(projections, canonicalForm.toString(), () -> new FieldProjection(byType));
+    }
+
+    /**
+     * Number of distinct projections currently cached.
+     */
+    public int cachedProjections() {
+        return projections.size();
+    }
+
+    private PayloadProjection compile(MessageType messageType, FieldMask fieldMask) {
+        FieldDescriptor payloadField = messageType == MessageType.UNRECOGNIZED
+                ? null
+                : FeedMessage.getDescriptor().findFieldByNumber(messageType.getNumber());
+        if (payloadField == null || payloadField.getContainingOneof() == null) {
+            throw new InvalidFilterException("No payload for message type " + messageType);
+        }
+        if (fieldMask == null || fieldMask.getPathsCount() == 0) {
+            throw new InvalidFilterException("Field mask for " + messageType + " has no paths");
+        }
+
+        // Nested map of path segments; an empty map marks a whole field
+        TreeMap<String, TreeMap<String, ?>> tree = new TreeMap<>();
+        for (String path : fieldMask.getPathsList()) {
+            addPath(tree, path.split("\\.", -1), messageType);
+        }
+        Node[] nodes = resolve(payloadField.getMessageType(), tree, "", messageType);
+        String canonicalForm = render(tree, "");
+        return cached(payloadProjections, messageType.name() + ':' + canonicalForm,
+                () -> new PayloadProjection(payloadField, nodes, canonicalForm));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void addPath(TreeMap<String, TreeMap<String, ?>> tree, String[] segments, MessageType messageType) {
+        TreeMap<String, TreeMap<String, ?>> level = tree;
+        for (int i = 0; i < segments.length; i++) {
+            if (segments[i].isEmpty()) {
+                throw new InvalidFilterException("Empty segment in field mask path for " + messageType);
+            }
+            TreeMap<String, TreeMap<String, ?>> child = (TreeMap<String, TreeMap<String, ?>>) level.get(segments[i]);
+            boolean last = i == segments.length - 1;
+            if (child != null && child.isEmpty()) {
+                return; // a shorter path already covers the whole field
+            }
+            if (child == null || last) {
+                child = new TreeMap<>();
+                level.put(segments[i], child);
+            }
+            if (last) {
+                return;
+            }
+            level = child;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static PayloadProjection.Node[] resolve(
+            Descriptor descriptor, TreeMap<String, TreeMap<String, ?>> level, String prefix, MessageType messageType) {
+        List<PayloadProjection.Node> nodes = new ArrayList<>();
+        for (Map.Entry<String, TreeMap<String, ?>> entry : level.entrySet()) {
+            String path = prefix + entry.getKey();
+            FieldDescriptor field = descriptor.findFieldByName(entry.getKey());
+            if (field == null) {
+                throw new InvalidFilterException("Unknown field '" + path + "' in field mask for " + messageType);
+            }
+            PayloadProjection.Node[] children = null;
+            if (!entry.getValue().isEmpty()) {
+                if (field.isRepeated() || field.getJavaType() != FieldDescriptor.JavaType.MESSAGE) {
+                    throw new InvalidFilterException(
+                            "Field '" + path + "' in field mask for " + messageType + " has no subfields");
+                }
+                children = resolve(field.getMessageType(), (TreeMap<String, TreeMap<String, ?>>) entry.getValue(),
+                        path + '.', messageType);
+            }
+            nodes.add(new PayloadProjection.Node(field, children));
+        }
+        return nodes.toArray(PayloadProjection.Node[]::new);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String render(TreeMap<String, TreeMap<String, ?>> level, String prefix) {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, TreeMap<String, ?>> entry : level.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                if (!builder.isEmpty()) {
+                    builder.append(',');
+                }
+                builder.append(prefix).append(entry.getKey());
+            } else {
+                String nested = render((TreeMap<String, TreeMap<String, ?>>) entry.getValue(),
+                        prefix + entry.getKey() + '.');
+                if (!builder.isEmpty()) {
+                    builder.append(',');
+                }
+                builder.append(nested);
+            }
+        }
+        return builder.toString();
+    }
+
+    private <T> T cached(Map<String, T> cache, String key, Supplier<T> factory) {
+        T existing = cache.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        T created = factory.get();
+        if (cache.size() >= maxCached) {
+            return created;
+        }
+        T raced = cache.putIfAbsent(key, created);
+        return raced != null ? raced : created;
+    }
+}
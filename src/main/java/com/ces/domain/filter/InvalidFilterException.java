@@ -0,0 +1,11 @@
+package com.ces.domain.filter;
+
+/**
+ * Exception thrown when a content filter expression or field mask cannot be compiled.
+ */
+public class InvalidFilterException extends RuntimeException {
+
+    public InvalidFilterException(String message) {
+        super(message);
+    }
+}
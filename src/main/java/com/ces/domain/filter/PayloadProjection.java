@@ -0,0 +1,82 @@
+package com.ces.domain.filter;
+
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+import com.lnw.expressway.messages.v1.FeedMessageProto.FeedMessage;
+
+import java.util.Objects;
+
+/**
+ * A compiled field mask over the payload of one message type.
+ *
+ * <p>Projecting a FeedMessage keeps its header and copies only the masked payload
+ * fields, walking field descriptors resolved when the mask was compiled. Projections
+ * are created by the {@link FieldProjectionCompiler}, which returns the same
+ * instance for equal masks, so projected encodings can be shared by identity.</p>
+ */
+public final class PayloadProjection {
+
+    private final FieldDescriptor payloadField;
+    private final Node[] nodes;
+    private final String canonicalForm;
+
+    PayloadProjection(FieldDescriptor payloadField, Node[] nodes, String canonicalForm) {
+        this.payloadField = Objects.requireNonNull(payloadField, "Payload field cannot be null");
+        this.nodes = Objects.requireNonNull(nodes, "Nodes cannot be null");
+        this.canonicalForm = Objects.requireNonNull(canonicalForm, "Canonical form cannot be null");
+    }
+
+    /**
+     * Projects a message onto the mask.
+     *
+     * @param feedMessage the full message
+     * @return the message with its header and the masked payload fields only, or the
+     *         message itself if it carries another payload
+     */
+    public FeedMessage project(FeedMessage feedMessage) {
+        if (!feedMessage.hasField(payloadField)) {
+            return feedMessage;
+        }
+        Message payload = (Message) feedMessage.getField(payloadField);
+        return feedMessage.toBuilder()
+                .setField(payloadField, projectFields(payload, nodes))
+                .build();
+    }
+
+    /**
+     * The sorted field paths of the mask.
+     */
+    public String canonicalForm() {
+        return canonicalForm;
+    }
+
+    private static Message projectFields(Message message, Node[] nodes) {
+        Message.Builder builder = message.newBuilderForType();
+        for (Node node : nodes) {
+            FieldDescriptor field = node.field();
+            if (field.isRepeated()) {
+                if (message.getRepeatedFieldCount(field) > 0) {
+                    builder.setField(field, message.getField(field));
+                }
+            } else if (!field.hasPresence() || message.hasField(field)) {
+                Object value = message.getField(field);
+                if (node.children() != null) {
+                    value = projectFields((Message) value, node.children());
+                }
+                builder.setField(field, value);
+            }
+        }
+        return builder.build();
+    }
+
+    @Override
+    public String toString() {
+        return "PayloadProjection{" + payloadField.getName() + ": " + canonicalForm + '}';
+    }
+
+    /**
+     * A masked field; its children are the masked subfields, or null for the whole field.
+     */
+    record Node(FieldDescriptor field, Node[] children) {
+    }
+}
@@ -0,0 +1,66 @@
+package com.ces.domain.model;
+
+import java.util.Objects;
+
+/**
+ * Value object naming the recipients of a message: one session, every session of
+ * an account, every session of a tenant, or every session.
+ * Group targets are resolved to precomputed member snapshots at delivery time, so a
+ * group message is a single envelope however many sessions receive it.
+ */
+public sealed interface DeliveryTarget {
+
+    static DeliveryTarget session(SessionId sessionId) {
+        return new ToSession(sessionId);
+    }
+
+    static DeliveryTarget account(long accountId) {
+        return new ToAccount(accountId);
+    }
+
+    static DeliveryTarget tenant(String tenant) {
+        return new ToTenant(tenant);
+    }
+
+    static DeliveryTarget all() {
+        return ToAll.INSTANCE;
+    }
+
+    /**
+     * A single session.
+     */
+    record ToSession(SessionId sessionId) implements DeliveryTarget {
+        public ToSession {
+            Objects.requireNonNull(sessionId, "Target session ID cannot be null");
+        }
+    }
+
+    /**
+     * All sessions opened for an account, e.g. one per device.
+     */
+    record ToAccount(long accountId) implements DeliveryTarget {
+        public ToAccount {
+            if (accountId <= 0) {
+                throw new IllegalArgumentException("Account ID must be positive");
+            }
+        }
+    }
+
+    /**
+     * All sessions of one tenant ({@code Header.SystemRef.tenant}).
+     */
+    record ToTenant(String tenant) implements DeliveryTarget {
+        public ToTenant {
+            if (tenant == null || tenant.isBlank()) {
+                throw new IllegalArgumentException("Tenant cannot be null or blank");
+            }
+        }
+    }
+
+    /**
+     * Every session.
+     */
+    record ToAll() implements DeliveryTarget {
+        private static final ToAll INSTANCE = new ToAll();
+    }
+}
@@ -1,41 +1,171 @@
 package com.ces.domain.model;
 
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
 import com.lnw.expressway.messages.v1.FeedMessageProto.FeedMessage;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header.Identifier;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header.Identifier.SequencingKey;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header.MessageType;
+import lombok.AccessLevel;
 import lombok.Getter;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.util.Objects;
-import java.util.UUID;
 
 /**
  * Domain entity representing a message event from Kafka to be delivered to clients.
  * Contains a FeedMessage from the OPS-Events-schema Protobuf definition.
+ * Consumers on the hot path supply the ID and timestamp themselves (see
+ * {@link MessageIdGenerator#idFor(FeedMessage)}); the short constructor generates both.
+ *
+ * <p>The message is a slim envelope: the encoded FeedMessage plus the header fields
+ * needed for routing, ordering and correlation. The decoded FeedMessage is only a
+ * cache, built on first use and dropped by {@link #releaseFeedMessage()}, so messages
+ * waiting in rings and offline queues retain little more than their bytes. Messages
+ * created from encoded bytes, such as consumed records, are not decoded until the
+ * payload is first needed.</p>
+ *
+ * <p>A message is addressed to a {@link DeliveryTarget}. Messages for a group have
+ * no target session ID; they are delivered live to the group's connected members.</p>
  */
 @Getter
 public class EventMessage {
 
+    private static final int HEADER_TAG = (FeedMessage.HEADER_FIELD_NUMBER << 3) | 2;
+
     private final String messageId;
+    private final DeliveryTarget target;
     private final SessionId targetSessionId;
-    private final FeedMessage feedMessage;
     private final String source;
     private final Instant timestamp;
+    private final MessageType messageType;
+    private final SequencingKey sequencingKey;
+    private final long sequenceId;
+    private final String reference;
+
+    @Getter(AccessLevel.NONE)
+    private final byte[] encoded;
+
+    @Getter(AccessLevel.NONE)
+    private volatile FeedMessage decoded;
 
     public EventMessage(SessionId targetSessionId, FeedMessage feedMessage, String source) {
-        this.messageId = UUID.randomUUID().toString();
-        this.targetSessionId = Objects.requireNonNull(targetSessionId, "Target session ID cannot be null");
-        this.feedMessage = Objects.requireNonNull(feedMessage, "FeedMessage cannot be null");
-        this.source = Objects.requireNonNull(source, "Message source cannot be null");
-        this.timestamp = Instant.now();
+        this(MessageIdGenerator.local().nextId(), targetSessionId, feedMessage, source, Instant.now());
     }
 
     public EventMessage(String messageId, SessionId targetSessionId, FeedMessage feedMessage, String source, Instant timestamp) {
+        this(messageId, DeliveryTarget.session(targetSessionId), feedMessage, source, timestamp);
+    }
+
+    /**
+     * Creates a message for any target, e.g. every session of an account.
+     */
+    public EventMessage(String messageId, DeliveryTarget target, FeedMessage feedMessage, String source, Instant timestamp) {
         this.messageId = Objects.requireNonNull(messageId, "Message ID cannot be null");
-        this.targetSessionId = Objects.requireNonNull(targetSessionId, "Target session ID cannot be null");
-        this.feedMessage = Objects.requireNonNull(feedMessage, "FeedMessage cannot be null");
+        this.target = Objects.requireNonNull(target, "Delivery target cannot be null");
+        this.targetSessionId = target instanceof DeliveryTarget.ToSession toSession ? toSession.sessionId() : null;
+        this.decoded = Objects.requireNonNull(feedMessage, "FeedMessage cannot be null");
         this.source = Objects.requireNonNull(source, "Message source cannot be null");
         this.timestamp = Objects.requireNonNull(timestamp, "Timestamp cannot be null");
+        this.encoded = feedMessage.toByteArray();
+
+        Header header = feedMessage.getHeader();
+        Identifier identifier = header.getIdentifier();
+        this.messageType = header.getMessageType();
+        this.sequencingKey = identifier.getKey();
+        this.sequenceId = identifier.getSequenceId();
+        this.reference = identifier.getReference();
+    }
+
+    private EventMessage(
+            String messageId,
+            DeliveryTarget target,
+            byte[] encoded,
+            Header header,
+            String source,
+            Instant timestamp) {
+        this.messageId = Objects.requireNonNull(messageId, "Message ID cannot be null");
+        this.target = Objects.requireNonNull(target, "Delivery target cannot be null");
+        this.targetSessionId = target instanceof DeliveryTarget.ToSession toSession ? toSession.sessionId() : null;
+        this.encoded = Objects.requireNonNull(encoded, "Encoded FeedMessage cannot be null");
+        this.source = Objects.requireNonNull(source, "Message source cannot be null");
+        this.timestamp = Objects.requireNonNull(timestamp, "Timestamp cannot be null");
+
+        Identifier identifier = header.getIdentifier();
+        this.messageType = header.getMessageType();
+        this.sequencingKey = identifier.getKey();
+        this.sequenceId = identifier.getSequenceId();
+        this.reference = identifier.getReference();
+    }
+
+    /**
+     * Rebuilds a message from its encoded FeedMessage, decoding only the header.
+     *
+     * @param encoded the encoded FeedMessage; kept as is, must not be modified afterwards
+     * @throws IllegalArgumentException if the bytes are not a valid FeedMessage
+     */
+    public static EventMessage fromEncoded(
+            String messageId,
+            SessionId targetSessionId,
+            byte[] encoded,
+            String source,
+            Instant timestamp) {
+        Objects.requireNonNull(targetSessionId, "Target session ID cannot be null");
+        Objects.requireNonNull(encoded, "Encoded FeedMessage cannot be null");
+        return new EventMessage(
+                messageId, DeliveryTarget.session(targetSessionId), encoded, decodeHeader(encoded), source, timestamp);
     }
-    
+
+    /**
+     * Creates a message from an encoded FeedMessage whose header was already decoded,
+     * e.g. a consumed Kafka record. Neither the bytes nor the payload are decoded.
+     *
+     * @param encoded the encoded FeedMessage; kept as is, must not be modified afterwards
+     * @param header the header of the encoded FeedMessage
+     */
+    public static EventMessage fromEncoded(
+            String messageId,
+            DeliveryTarget target,
+            byte[] encoded,
+            Header header,
+            String source,
+            Instant timestamp) {
+        Objects.requireNonNull(header, "Header cannot be null");
+        return new EventMessage(messageId, target, encoded, header, source, timestamp);
+    }
+
+    /**
+     * The encoded FeedMessage. The array is shared and must not be modified.
+     */
+    public byte[] getEncoded() {
+        return encoded;
+    }
+
+    /**
+     * The decoded FeedMessage, decoded from the envelope bytes if it is not cached.
+     */
+    public FeedMessage getFeedMessage() {
+        FeedMessage feedMessage = decoded;
+        if (feedMessage == null) {
+            try {
+                feedMessage = FeedMessage.parseFrom(encoded);
+            } catch (InvalidProtocolBufferException e) {
+                throw new IllegalStateException("Encoded FeedMessage is corrupt: " + messageId, e);
+            }
+            decoded = feedMessage;
+        }
+        return feedMessage;
+    }
+
+    /**
+     * Drops the cached FeedMessage. Later calls to {@link #getFeedMessage()} decode it again.
+     */
+    public void releaseFeedMessage() {
+        decoded = null;
+    }
+
     /**
      * Gets the message data as a JSON string for serialization/delivery.
      * Converts the Protobuf FeedMessage to JSON format.
@@ -43,7 +173,23 @@ public class EventMessage {
     public String getData() {
         // For now, return the Protobuf text format
         // In production, you might want to use JsonFormat.printer().print(feedMessage)
-        return feedMessage.toString();
+        return getFeedMessage().toString();
+    }
+
+    private static Header decodeHeader(byte[] encoded) {
+        try {
+            CodedInputStream input = CodedInputStream.newInstance(encoded);
+            int tag;
+            while ((tag = input.readTag()) != 0) {
+                if (tag == HEADER_TAG) {
+                    return Header.parseFrom(input.readBytes());
+                }
+                input.skipField(tag);
+            }
+            return Header.getDefaultInstance();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid encoded FeedMessage", e);
+        }
     }
 
     @Override
@@ -64,6 +210,7 @@ public class EventMessage {
         return "EventMessage{" +
                 "messageId='" + messageId + '\'' +
                 ", targetSessionId=" + targetSessionId +
+                ", target=" + target +
                 ", source='" + source + '\'' +
                 ", timestamp=" + timestamp +
                 '}';
@@ -0,0 +1,105 @@
+package com.ces.domain.model;
+
+import com.lnw.expressway.messages.v1.FeedMessageProto.FeedMessage;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header.Identifier;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header.Identifier.SequencingKey;
+
+import java.util.HexFormat;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Creates message IDs cheaply, without drawing on the shared SecureRandom.
+ *
+ * <p>A FeedMessage whose {@code Header.Identifier} carries a sequencing key is
+ * identified by it, in the {@link ResumeCursor} form {@code <key>:<sequence_id>}, so
+ * the same event keeps its ID on every node and across replays. Other messages get
+ * a Snowflake-style ID of 16 hex digits: milliseconds since 2024-01-01 (41 bits),
+ * the node ID (10 bits) and a per-millisecond counter (12 bits). When the counter
+ * runs out within a millisecond, the generator borrows the next one, so generated
+ * IDs are unique per node and strictly increasing.</p>
+ */
+public final class MessageIdGenerator {
+
+    public static final int MAX_NODE_ID = 1023;
+
+    private static final long EPOCH_MILLIS = 1_704_067_200_000L;
+    private static final int NODE_SHIFT = 12;
+    private static final int TIME_SHIFT = 22;
+    private static final long SEQUENCE_MASK = (1L << NODE_SHIFT) - 1;
+    private static final HexFormat HEX = HexFormat.of();
+
+    private static final MessageIdGenerator LOCAL =
+            new MessageIdGenerator(new SplittableRandom().nextInt(MAX_NODE_ID + 1));
+
+    private final long nodeBits;
+    private final AtomicLong last = new AtomicLong();
+
+    /**
+     * @param nodeId ID of this node, unique within the cluster (0-1023)
+     */
+    public MessageIdGenerator(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node ID must be between 0 and " + MAX_NODE_ID);
+        }
+        this.nodeBits = (long) nodeId << NODE_SHIFT;
+    }
+
+    /**
+     * A generator with a node ID picked at random when the class is loaded,
+     * for callers that have no configured node ID.
+     */
+    public static MessageIdGenerator local() {
+        return LOCAL;
+    }
+
+    /**
+     * Returns the ID for a FeedMessage: derived from its identifier when it has a
+     * sequencing key, generated otherwise.
+     */
+    public String idFor(FeedMessage feedMessage) {
+        return idFor(feedMessage.getHeader().getIdentifier());
+    }
+
+    /**
+     * Returns the ID for the identifier of a FeedMessage header.
+     *
+     * @see #idFor(FeedMessage)
+     */
+    public String idFor(Identifier identifier) {
+        SequencingKey key = identifier.getKey();
+        if (key == SequencingKey.UnknownKey || key == SequencingKey.UNRECOGNIZED) {
+            return nextId();
+        }
+        return key.name() + ":" + Long.toUnsignedString(identifier.getSequenceId());
+    }
+
+    /**
+     * Generates the next ID as 16 hex digits, which sort in generation order.
+     */
+    public String nextId() {
+        return HEX.toHexDigits(next());
+    }
+
+    /**
+     * Generates the next ID.
+     */
+    public long next() {
+        long now = (System.currentTimeMillis() - EPOCH_MILLIS) << TIME_SHIFT | nodeBits;
+        while (true) {
+            long previous = last.get();
+            long candidate;
+            if (now > previous) {
+                candidate = now;
+            } else if ((previous & SEQUENCE_MASK) < SEQUENCE_MASK) {
+                candidate = previous + 1;
+            } else {
+                // Counter exhausted within this millisecond: borrow the next one
+                candidate = ((previous >>> TIME_SHIFT) + 1) << TIME_SHIFT | nodeBits;
+            }
+            if (last.compareAndSet(previous, candidate)) {
+                return candidate;
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.ces.domain.model;
+
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header.MessageType;
+
+import java.util.Collection;
+
+/**
+ * 64-bit masks over {@code Header.MessageType}s, used as per-session subscriptions.
+ *
+ * <p>Message type {@code 100 + n} maps to bit {@code n}, so the current types
+ * (101..120) and up to 63 future ones each get their own bit. Bit 0 collects unknown,
+ * unrecognized and out-of-range types, which only {@link #ALL} accepts. Checking a
+ * message against a subscription is a single AND.</p>
+ */
+public final class MessageTypeMask {
+
+    /**
+     * Mask accepting every message type, including unknown ones.
+     */
+    public static final long ALL = -1L;
+
+    /**
+     * Mask accepting no message type.
+     */
+    public static final long NONE = 0L;
+
+    private static final int FIRST_TYPE_NUMBER = 100;
+    private static final long UNKNOWN_BIT = 1L;
+
+    private MessageTypeMask() {
+    }
+
+    /**
+     * Returns the bit of a message type.
+     *
+     * @param messageType the message type, may be null
+     * @return a mask with exactly the type's bit set
+     */
+    public static long bit(MessageType messageType) {
+        if (messageType == null || messageType == MessageType.UNRECOGNIZED) {
+            return UNKNOWN_BIT;
+        }
+        int offset = messageType.getNumber() - FIRST_TYPE_NUMBER;
+        return offset > 0 && offset < Long.SIZE ? 1L << offset : UNKNOWN_BIT;
+    }
+
+    /**
+     * Builds the mask of a set of message types.
+     *
+     * @param messageTypes the subscribed types; null or empty subscribes to all
+     * @return the subscription mask
+     */
+    public static long of(Collection<MessageType> messageTypes) {
+        if (messageTypes == null || messageTypes.isEmpty()) {
+            return ALL;
+        }
+        long mask = NONE;
+        for (MessageType messageType : messageTypes) {
+            mask |= bit(messageType);
+        }
+        return mask;
+    }
+
+    /**
+     * Checks whether a mask accepts a message type.
+     *
+     * @param mask the subscription mask
+     * @param messageType the message type
+     * @return true if the type's bit is set
+     */
+    public static boolean accepts(long mask, MessageType messageType) {
+        return (mask & bit(messageType)) != 0;
+    }
+}
@@ -0,0 +1,102 @@
+package com.ces.domain.model;
+
+import com.lnw.expressway.messages.v1.FeedMessageProto.FeedMessage;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header.Identifier;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header.Identifier.SequencingKey;
+
+import java.util.Objects;
+
+/**
+ * Value object identifying the last FeedMessage a client received, by its
+ * {@code Header.Identifier} key and sequence ID. Clients present it when they
+ * reconnect so only the messages they missed are replayed.
+ * The textual form is {@code <key>:<sequence_id>}, e.g. {@code OPS_Account:42}.
+ */
+public final class ResumeCursor {
+
+    private final SequencingKey key;
+    private final long sequenceId;
+
+    private ResumeCursor(SequencingKey key, long sequenceId) {
+        if (key == null || key == SequencingKey.UnknownKey || key == SequencingKey.UNRECOGNIZED) {
+            throw new IllegalArgumentException("Resume cursor requires a known sequencing key");
+        }
+        this.key = key;
+        this.sequenceId = sequenceId;
+    }
+
+    public static ResumeCursor of(SequencingKey key, long sequenceId) {
+        return new ResumeCursor(key, sequenceId);
+    }
+
+    /**
+     * Creates the cursor pointing at the given message.
+     */
+    public static ResumeCursor of(FeedMessage feedMessage) {
+        Identifier identifier = feedMessage.getHeader().getIdentifier();
+        return new ResumeCursor(identifier.getKey(), identifier.getSequenceId());
+    }
+
+    /**
+     * Parses the textual form {@code <key>:<sequence_id>}.
+     *
+     * @throws IllegalArgumentException if the value is malformed
+     */
+    public static ResumeCursor parse(String value) {
+        if (value == null || value.isBlank()) {
+            throw new IllegalArgumentException("Resume cursor cannot be null or blank");
+        }
+        int separator = value.lastIndexOf(':');
+        if (separator <= 0 || separator == value.length() - 1) {
+            throw new IllegalArgumentException("Resume cursor must be <key>:<sequence_id>: " + value);
+        }
+        try {
+            return new ResumeCursor(
+                    SequencingKey.valueOf(value.substring(0, separator)),
+                    Long.parseUnsignedLong(value.substring(separator + 1)));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid resume cursor: " + value, e);
+        }
+    }
+
+    /**
+     * Checks whether the cursor points at the given message.
+     */
+    public boolean matches(FeedMessage feedMessage) {
+        Identifier identifier = feedMessage.getHeader().getIdentifier();
+        return identifier.getSequenceId() == sequenceId && identifier.getKey() == key;
+    }
+
+    /**
+     * Checks whether the cursor points at the given message, using its envelope fields.
+     */
+    public boolean matches(EventMessage message) {
+        return message.getSequenceId() == sequenceId && message.getSequencingKey() == key;
+    }
+
+    public SequencingKey getKey() {
+        return key;
+    }
+
+    public long getSequenceId() {
+        return sequenceId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        ResumeCursor that = (ResumeCursor) o;
+        return sequenceId == that.sequenceId && key == that.key;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(key, sequenceId);
+    }
+
+    @Override
+    public String toString() {
+        return key.name() + ":" + Long.toUnsignedString(sequenceId);
+    }
+}
@@ -1,5 +1,9 @@
 package com.ces.domain.model;
 
+import com.ces.domain.filter.ContentFilter;
+import com.ces.domain.filter.FieldProjection;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header.MessageType;
+
 import java.io.Serializable;
 import java.time.Instant;
 import java.util.Objects;
@@ -7,24 +11,141 @@ import java.util.Objects;
 /**
  * Domain entity representing a client session.
  * Tracks session lifecycle, connection status, and heartbeat information.
+ * The optional account ID and tenant make the session a member of the matching
+ * {@link DeliveryTarget} groups while it is connected. Its subscription mask
+ * ({@link MessageTypeMask}) selects the message types it receives, and its optional
+ * {@link ContentFilter} the messages of those types. Its optional {@link FieldProjection}
+ * selects the payload fields it is sent. While connected, the session records the
+ * ID of the node holding its WebSocket, so other nodes can route its messages there.
  */
 public class Session implements Serializable {
     
     private static final long serialVersionUID = 1L;
 
+    /**
+     * Node ID of sessions not connected to a known node.
+     */
+    public static final int NO_NODE = -1;
+
     private final SessionId sessionId;
+    private final long accountId;
+    private final String tenant;
+    private final long subscriptionMask;
+    // Compiled filters and projections are shared and not serialized
+    private final transient ContentFilter contentFilter;
+    private final transient FieldProjection fieldProjection;
     private SessionStatus status;
+    private int nodeId = NO_NODE;
     private final Instant createdAt;
     private Instant lastHeartbeatAt;
     private Instant disconnectedAt;
 
     public Session(SessionId sessionId) {
+        this(sessionId, 0L, null);
+    }
+
+    /**
+     * @param sessionId the session ID
+     * @param accountId the account the session belongs to, or 0 if unknown
+     * @param tenant the tenant the session belongs to, or null if unknown
+     */
+    public Session(SessionId sessionId, long accountId, String tenant) {
+        this(sessionId, accountId, tenant, MessageTypeMask.ALL);
+    }
+
+    /**
+     * @param sessionId the session ID
+     * @param accountId the account the session belongs to, or 0 if unknown
+     * @param tenant the tenant the session belongs to, or null if unknown
+     * @param subscriptionMask the message types the session receives, see {@link MessageTypeMask}
+     */
+    public Session(SessionId sessionId, long accountId, String tenant, long subscriptionMask) {
+        this(sessionId, accountId, tenant, subscriptionMask, null);
+    }
+
+    /**
+     * @param sessionId the session ID
+     * @param accountId the account the session belongs to, or 0 if unknown
+     * @param tenant the tenant the session belongs to, or null if unknown
+     * @param subscriptionMask the message types the session receives, see {@link MessageTypeMask}
+     * @param contentFilter the filter messages must pass, or null for none
+     */
+    public Session(
+            SessionId sessionId, long accountId, String tenant, long subscriptionMask, ContentFilter contentFilter) {
+        this(sessionId, accountId, tenant, subscriptionMask, contentFilter, null);
+    }
+
+    /**
+     * @param sessionId the session ID
+     * @param accountId the account the session belongs to, or 0 if unknown
+     * @param tenant the tenant the session belongs to, or null if unknown
+     * @param subscriptionMask the message types the session receives, see {@link MessageTypeMask}
+     * @param contentFilter the filter messages must pass, or null for none
+     * @param fieldProjection the payload fields sent per message type, or null for all
+     */
+    public Session(
+            SessionId sessionId,
+            long accountId,
+            String tenant,
+            long subscriptionMask,
+            ContentFilter contentFilter,
+            FieldProjection fieldProjection) {
+        this(sessionId, accountId, tenant, subscriptionMask, contentFilter, fieldProjection, Instant.now());
+    }
+
+    private Session(
+            SessionId sessionId,
+            long accountId,
+            String tenant,
+            long subscriptionMask,
+            ContentFilter contentFilter,
+            FieldProjection fieldProjection,
+            Instant createdAt) {
         this.sessionId = Objects.requireNonNull(sessionId, "Session ID cannot be null");
+        if (accountId < 0) {
+            throw new IllegalArgumentException("Account ID cannot be negative");
+        }
+        this.accountId = accountId;
+        this.tenant = tenant == null || tenant.isBlank() ? null : tenant;
+        this.subscriptionMask = subscriptionMask;
+        this.contentFilter = contentFilter;
+        this.fieldProjection = fieldProjection;
         this.status = SessionStatus.REGISTERED;
-        this.createdAt = Instant.now();
+        this.createdAt = Objects.requireNonNull(createdAt, "Creation time cannot be null");
         this.lastHeartbeatAt = Instant.now();
     }
 
+    /**
+     * Recreates a stored session in the state it was stored in. The content filter
+     * and field projection are not stored with it and must be compiled again.
+     *
+     * @param status the session status
+     * @param nodeId the node holding the session's WebSocket, or {@link #NO_NODE}
+     * @param createdAt when the session was registered
+     * @param lastHeartbeatAt the last heartbeat, or null if unknown
+     * @param disconnectedAt when the session disconnected, or null if it has not
+     */
+    public static Session restore(
+            SessionId sessionId,
+            long accountId,
+            String tenant,
+            long subscriptionMask,
+            ContentFilter contentFilter,
+            FieldProjection fieldProjection,
+            SessionStatus status,
+            int nodeId,
+            Instant createdAt,
+            Instant lastHeartbeatAt,
+            Instant disconnectedAt) {
+        Session session = new Session(
+                sessionId, accountId, tenant, subscriptionMask, contentFilter, fieldProjection, createdAt);
+        session.status = Objects.requireNonNull(status, "Status cannot be null");
+        session.nodeId = nodeId;
+        session.lastHeartbeatAt = lastHeartbeatAt;
+        session.disconnectedAt = disconnectedAt;
+        return session;
+    }
+
     public void connect() {
         if (status == SessionStatus.DISCONNECTED) {
             this.status = SessionStatus.CONNECTED;
@@ -34,9 +155,33 @@ public class Session implements Serializable {
         }
     }
 
+    /**
+     * Connects the session to the node holding its WebSocket.
+     *
+     * @param nodeId the node ID, or {@link #NO_NODE} if unknown
+     */
+    public void connect(int nodeId) {
+        connect();
+        this.nodeId = nodeId;
+    }
+
     public void disconnect() {
         this.status = SessionStatus.DISCONNECTED;
         this.disconnectedAt = Instant.now();
+        this.nodeId = NO_NODE;
+    }
+
+    /**
+     * Disconnects the session from this node while its client moves to another.
+     * Until the client connects there, messages for the session are queued on the
+     * target node rather than on the node that consumed them.
+     *
+     * @param nodeId the node the client was asked to reconnect to
+     */
+    public void migrate(int nodeId) {
+        this.status = SessionStatus.DISCONNECTED;
+        this.disconnectedAt = Instant.now();
+        this.nodeId = nodeId;
     }
 
     public void updateHeartbeat() {
@@ -47,6 +192,32 @@ public class Session implements Serializable {
         return status == SessionStatus.CONNECTED;
     }
 
+    /**
+     * Whether the session's client was asked to reconnect to another node and has
+     * not connected there yet.
+     */
+    public boolean isMigrating() {
+        return status == SessionStatus.DISCONNECTED && nodeId != NO_NODE;
+    }
+
+    /**
+     * Checks whether the session subscribed to a message type.
+     */
+    public boolean accepts(MessageType messageType) {
+        return MessageTypeMask.accepts(subscriptionMask, messageType);
+    }
+
+    /**
+     * Checks whether the session receives a message: its type must be subscribed
+     * and it must pass the content filter. The payload is only decoded for the filter.
+     */
+    public boolean accepts(EventMessage message) {
+        if (!accepts(message.getMessageType())) {
+            return false;
+        }
+        return contentFilter == null || contentFilter.matches(message.getFeedMessage());
+    }
+
     public boolean isExpired(long timeoutSeconds) {
         if (lastHeartbeatAt == null) {
             return false;
@@ -59,10 +230,53 @@ public class Session implements Serializable {
         return sessionId;
     }
 
+    /**
+     * The account the session belongs to, or 0 if unknown.
+     */
+    public long getAccountId() {
+        return accountId;
+    }
+
+    /**
+     * The tenant the session belongs to, or null if unknown.
+     */
+    public String getTenant() {
+        return tenant;
+    }
+
+    /**
+     * The message types the session receives, see {@link MessageTypeMask}.
+     */
+    public long getSubscriptionMask() {
+        return subscriptionMask;
+    }
+
+    /**
+     * The filter messages must pass, or null for none.
+     */
+    public ContentFilter getContentFilter() {
+        return contentFilter;
+    }
+
+    /**
+     * The payload fields sent per message type, or null for all.
+     */
+    public FieldProjection getFieldProjection() {
+        return fieldProjection;
+    }
+
     public SessionStatus getStatus() {
         return status;
     }
 
+    /**
+     * The node holding the session's WebSocket, or the node a migrating session is
+     * moving to, or {@link #NO_NODE} if unknown.
+     */
+    public int getNodeId() {
+        return nodeId;
+    }
+
     public Instant getCreatedAt() {
         return createdAt;
     }
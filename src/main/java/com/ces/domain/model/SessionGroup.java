@@ -0,0 +1,254 @@
+package com.ces.domain.model;
+
+import com.ces.domain.filter.ContentFilter;
+import com.ces.domain.filter.FieldProjection;
+import com.lnw.expressway.messages.v1.FeedMessageProto.FeedMessage;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header.MessageType;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * Snapshot of the connected members of a {@link DeliveryTarget}, with the
+ * subscription mask of each member at the same index and the union of all of them.
+ * A message type no member subscribed to is rejected by {@link #accepts} before it
+ * is encoded; otherwise each member is checked with a single AND.
+ *
+ * <p>Content filters and field projections are held once per distinct instance, and
+ * each member refers to its own by slot ({@code -1} for none).
+ * {@link #evaluateFilters} runs every distinct filter once per message, however many
+ * members share it, and senders encode each distinct projection once.</p>
+ *
+ * <p>The arrays are shared between callers and must not be modified.</p>
+ *
+ * @param sessionIds the member session IDs
+ * @param subscriptionMasks the subscription mask of each member
+ * @param filterSlots the slot in {@code filters} of each member's content filter, or -1
+ * @param filters the distinct content filters of the members
+ * @param projectionSlots the slot in {@code projections} of each member's field projection, or -1
+ * @param projections the distinct field projections of the members
+ * @param unionMask the OR of all subscription masks
+ */
+public record SessionGroup(
+        SessionId[] sessionIds,
+        long[] subscriptionMasks,
+        int[] filterSlots,
+        ContentFilter[] filters,
+        int[] projectionSlots,
+        FieldProjection[] projections,
+        long unionMask) {
+
+    private static final ContentFilter[] NO_FILTERS = new ContentFilter[0];
+    private static final FieldProjection[] NO_PROJECTIONS = new FieldProjection[0];
+    private static final boolean[] NO_RESULTS = new boolean[0];
+    private static final SessionGroup EMPTY = new SessionGroup(new SessionId[0], new long[0], MessageTypeMask.NONE);
+
+    public SessionGroup {
+        int size = sessionIds.length;
+        if (subscriptionMasks.length != size || filterSlots.length != size || projectionSlots.length != size) {
+            throw new IllegalArgumentException("Every member needs a subscription mask, filter and projection slot");
+        }
+    }
+
+    /**
+     * A group whose members have no content filters or field projections.
+     */
+    public SessionGroup(SessionId[] sessionIds, long[] subscriptionMasks, long unionMask) {
+        this(sessionIds, subscriptionMasks, noSlots(sessionIds.length), NO_FILTERS,
+                noSlots(sessionIds.length), NO_PROJECTIONS, unionMask);
+    }
+
+    public static SessionGroup empty() {
+        return EMPTY;
+    }
+
+    /**
+     * A group of one session without a content filter or field projection.
+     */
+    public static SessionGroup of(SessionId sessionId, long subscriptionMask) {
+        return new SessionGroup(new SessionId[] {sessionId}, new long[] {subscriptionMask}, subscriptionMask);
+    }
+
+    public int size() {
+        return sessionIds.length;
+    }
+
+    public boolean isEmpty() {
+        return sessionIds.length == 0;
+    }
+
+    /**
+     * Checks whether any member subscribed to a message type.
+     */
+    public boolean accepts(MessageType messageType) {
+        return MessageTypeMask.accepts(unionMask, messageType);
+    }
+
+    /**
+     * Evaluates each distinct content filter once. The message is only obtained,
+     * and so decoded, when the group has content filters.
+     *
+     * @param feedMessage supplies the message
+     * @return the result of each filter, by slot
+     */
+    public boolean[] evaluateFilters(Supplier<FeedMessage> feedMessage) {
+        if (filters.length == 0) {
+            return NO_RESULTS;
+        }
+        FeedMessage message = feedMessage.get();
+        boolean[] results = new boolean[filters.length];
+        for (int slot = 0; slot < filters.length; slot++) {
+            results[slot] = filters[slot].matches(message);
+        }
+        return results;
+    }
+
+    /**
+     * Checks whether a member receives a message.
+     *
+     * @param member the member index
+     * @param typeBit the {@link MessageTypeMask#bit} of the message type
+     * @param filterResults the result of {@link #evaluateFilters} for the message
+     * @return true if the member subscribed to the type and passes its filter
+     */
+    public boolean accepts(int member, long typeBit, boolean[] filterResults) {
+        if ((subscriptionMasks[member] & typeBit) == 0) {
+            return false;
+        }
+        int slot = filterSlots[member];
+        return slot < 0 || filterResults[slot];
+    }
+
+    /**
+     * Returns a copy of the group with a session added, or this group if the session
+     * is already a member.
+     */
+    public SessionGroup with(
+            SessionId sessionId, long subscriptionMask, ContentFilter filter, FieldProjection projection) {
+        for (SessionId member : sessionIds) {
+            if (member.equals(sessionId)) {
+                return this;
+            }
+        }
+        int size = sessionIds.length;
+        SessionId[] updatedIds = Arrays.copyOf(sessionIds, size + 1);
+        updatedIds[size] = sessionId;
+        long[] updatedMasks = Arrays.copyOf(subscriptionMasks, size + 1);
+        updatedMasks[size] = subscriptionMask;
+        int[] updatedFilterSlots = Arrays.copyOf(filterSlots, size + 1);
+        int[] updatedProjectionSlots = Arrays.copyOf(projectionSlots, size + 1);
+        return new SessionGroup(
+                updatedIds,
+                updatedMasks,
+                updatedFilterSlots,
+                withSlot(filters, filter, updatedFilterSlots, size),
+                updatedProjectionSlots,
+                withSlot(projections, projection, updatedProjectionSlots, size),
+                unionMask | subscriptionMask);
+    }
+
+    /**
+     * Returns a copy of the group without a session, this group if the session is
+     * not a member, or null when no members remain.
+     */
+    public SessionGroup without(SessionId sessionId) {
+        int index = -1;
+        for (int i = 0; i < sessionIds.length; i++) {
+            if (sessionIds[i].equals(sessionId)) {
+                index = i;
+                break;
+            }
+        }
+        if (index < 0) {
+            return this;
+        }
+        int size = sessionIds.length - 1;
+        if (size == 0) {
+            return null;
+        }
+        SessionId[] updatedIds = new SessionId[size];
+        long[] updatedMasks = new long[size];
+        long union = MessageTypeMask.NONE;
+        for (int from = 0, to = 0; from < sessionIds.length; from++) {
+            if (from != index) {
+                updatedIds[to] = sessionIds[from];
+                updatedMasks[to++] = subscriptionMasks[from];
+                union |= subscriptionMasks[from];
+            }
+        }
+        int[] updatedFilterSlots = new int[size];
+        int[] updatedProjectionSlots = new int[size];
+        return new SessionGroup(
+                updatedIds,
+                updatedMasks,
+                updatedFilterSlots,
+                withoutSlot(filters, filterSlots, index, updatedFilterSlots),
+                updatedProjectionSlots,
+                withoutSlot(projections, projectionSlots, index, updatedProjectionSlots),
+                union);
+    }
+
+    /**
+     * Assigns the new member at {@code member} the slot of its value, adding the
+     * value if no other member shares it.
+     */
+    private static <T> T[] withSlot(T[] values, T value, int[] slots, int member) {
+        if (value == null) {
+            slots[member] = -1;
+            return values;
+        }
+        int slot = slotOf(values, values.length, value);
+        if (slot >= 0) {
+            slots[member] = slot;
+            return values;
+        }
+        T[] updated = Arrays.copyOf(values, values.length + 1);
+        updated[values.length] = value;
+        slots[member] = values.length;
+        return updated;
+    }
+
+    /**
+     * Fills the slots of the remaining members and renumbers the values still in use,
+     * so values only the removed member referred to are dropped.
+     */
+    private static <T> T[] withoutSlot(T[] values, int[] slots, int removed, int[] updatedSlots) {
+        if (values.length == 0) {
+            Arrays.fill(updatedSlots, -1);
+            return values;
+        }
+        T[] updated = Arrays.copyOf(values, values.length);
+        int count = 0;
+        for (int from = 0, to = 0; from < slots.length; from++) {
+            if (from == removed) {
+                continue;
+            }
+            int slot = slots[from];
+            if (slot >= 0) {
+                int updatedSlot = slotOf(updated, count, values[slot]);
+                if (updatedSlot < 0) {
+                    updatedSlot = count;
+                    updated[count++] = values[slot];
+                }
+                slot = updatedSlot;
+            }
+            updatedSlots[to++] = slot;
+        }
+        return Arrays.copyOf(updated, count);
+    }
+
+    private static <T> int slotOf(T[] values, int count, T value) {
+        for (int slot = 0; slot < count; slot++) {
+            if (values[slot] == value) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private static int[] noSlots(int size) {
+        int[] slots = new int[size];
+        Arrays.fill(slots, -1);
+        return slots;
+    }
+}
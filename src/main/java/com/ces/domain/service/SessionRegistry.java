@@ -3,7 +3,10 @@ package com.ces.domain.service;
 import com.ces.domain.model.Session;
 import com.ces.domain.model.SessionId;
 
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.Optional;
+import java.util.Set;
 
 /**
  * Domain service interface for managing session registry.
@@ -35,6 +38,32 @@ public interface SessionRegistry {
      */
     boolean isActive(SessionId sessionId);
 
+    /**
+     * Checks which of many sessions exist and are active, in as few lookups as the
+     * registry allows.
+     *
+     * @param sessionIds the session IDs
+     * @return the IDs of the sessions that exist and are active
+     */
+    default Set<SessionId> findActive(Collection<SessionId> sessionIds) {
+        Set<SessionId> active = new HashSet<>();
+        for (SessionId sessionId : sessionIds) {
+            if (isActive(sessionId)) {
+                active.add(sessionId);
+            }
+        }
+        return active;
+    }
+
+    /**
+     * Stores the current state of an already registered session,
+     * e.g. after it connected or disconnected.
+     *
+     * @param session the session to update
+     * @throws com.ces.domain.model.SessionNotFoundException if the session is not registered
+     */
+    void update(Session session);
+
     /**
      * Updates the heartbeat timestamp for a session.
      *
@@ -0,0 +1,27 @@
+package com.ces.infrastructure.adapter;
+
+import com.ces.application.port.output.MessageTypeSubscriptions;
+import com.ces.domain.model.MessageTypeMask;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory implementation of MessageTypeSubscriptions.
+ * The union is a single atomic long: registering ORs the session's mask in, and the
+ * ingest stage reads it with one volatile load per consumed record. Sessions are not
+ * unregistered, so the union only ever widens.
+ */
+public class InMemoryMessageTypeSubscriptions implements MessageTypeSubscriptions {
+
+    private final AtomicLong union = new AtomicLong(MessageTypeMask.NONE);
+
+    @Override
+    public void add(long subscriptionMask) {
+        union.accumulateAndGet(subscriptionMask, (current, mask) -> current | mask);
+    }
+
+    @Override
+    public long unionMask() {
+        return union.get();
+    }
+}
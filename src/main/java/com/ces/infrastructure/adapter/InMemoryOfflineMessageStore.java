@@ -0,0 +1,110 @@
+package com.ces.infrastructure.adapter;
+
+import com.ces.application.port.output.OfflineMessageStore;
+import com.ces.domain.model.EventMessage;
+import com.ces.domain.model.SessionId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * In-memory implementation of OfflineMessageStore for local development.
+ * Queued messages are lost when the node restarts.
+ */
+public class InMemoryOfflineMessageStore implements OfflineMessageStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryOfflineMessageStore.class);
+
+    private final Map<SessionId, ArrayDeque<QueuedMessage>> queues = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+    private final int maxMessagesPerSession;
+    private final Clock clock;
+
+    public InMemoryOfflineMessageStore(Duration ttl, int maxMessagesPerSession) {
+        this(ttl, maxMessagesPerSession, Clock.systemUTC());
+    }
+
+    public InMemoryOfflineMessageStore(Duration ttl, int maxMessagesPerSession, Clock clock) {
+        if (ttl.isNegative() || ttl.isZero() || maxMessagesPerSession < 1) {
+            throw new IllegalArgumentException("TTL and queue size must be positive");
+        }
+        this.ttlMillis = ttl.toMillis();
+        this.maxMessagesPerSession = maxMessagesPerSession;
+        this.clock = Objects.requireNonNull(clock, "Clock cannot be null");
+    }
+
+    @Override
+    public void store(EventMessage message) {
+        long now = clock.millis();
+        queues.compute(message.getTargetSessionId(), (sessionId, queue) -> {
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+            }
+            if (queue.size() >= maxMessagesPerSession) {
+                queue.pollFirst();
+                logger.debug("Offline queue full, dropped oldest message for session: {}", sessionId);
+            }
+            queue.addLast(new QueuedMessage(message, now));
+            return queue;
+        });
+    }
+
+    @Override
+    public int drain(SessionId sessionId, Consumer<EventMessage> consumer) {
+        ArrayDeque<QueuedMessage> queue = queues.remove(sessionId);
+        if (queue == null) {
+            return 0;
+        }
+        long expiredBefore = clock.millis() - ttlMillis;
+        int drained = 0;
+        for (QueuedMessage queued : queue) {
+            if (queued.storedAt() >= expiredBefore) {
+                consumer.accept(queued.message());
+                drained++;
+            }
+        }
+        return drained;
+    }
+
+    @Override
+    public void discard(SessionId sessionId) {
+        queues.remove(sessionId);
+    }
+
+    @Override
+    public int size(SessionId sessionId) {
+        int[] size = new int[1];
+        queues.computeIfPresent(sessionId, (id, queue) -> {
+            size[0] = queue.size();
+            return queue;
+        });
+        return size[0];
+    }
+
+    @Override
+    public int purgeExpired() {
+        long expiredBefore = clock.millis() - ttlMillis;
+        int[] purged = new int[1];
+        for (SessionId sessionId : queues.keySet()) {
+            queues.computeIfPresent(sessionId, (id, queue) -> {
+                // Messages are queued in time order, so expired ones are at the head
+                while (!queue.isEmpty() && queue.peekFirst().storedAt() < expiredBefore) {
+                    queue.pollFirst();
+                    purged[0]++;
+                }
+                return queue.isEmpty() ? null : queue;
+            });
+        }
+        return purged[0];
+    }
+
+    private record QueuedMessage(EventMessage message, long storedAt) {
+    }
+}
@@ -0,0 +1,136 @@
+package com.ces.infrastructure.adapter;
+
+import com.ces.application.port.output.RecentEventBuffer;
+import com.ces.domain.model.EventMessage;
+import com.ces.domain.model.ResumeCursor;
+import com.ces.domain.model.SessionId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory implementation of RecentEventBuffer.
+ * Keeps a fixed-size ring of the most recent messages per session; rings of
+ * sessions that stay idle for longer than the retention period are dropped.
+ */
+public class InMemoryRecentEventBuffer implements RecentEventBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(InMemoryRecentEventBuffer.class);
+
+    private final Map<SessionId, Ring> rings = new ConcurrentHashMap<>();
+    private final int capacity;
+    private final long retentionMillis;
+    private final Clock clock;
+
+    public InMemoryRecentEventBuffer(int capacity, Duration retention) {
+        this(capacity, retention, Clock.systemUTC());
+    }
+
+    public InMemoryRecentEventBuffer(int capacity, Duration retention, Clock clock) {
+        if (capacity < 1 || retention.isNegative() || retention.isZero()) {
+            throw new IllegalArgumentException("Ring capacity and retention must be positive");
+        }
+        this.capacity = capacity;
+        this.retentionMillis = retention.toMillis();
+        this.clock = Objects.requireNonNull(clock, "Clock cannot be null");
+    }
+
+    @Override
+    public void append(EventMessage message) {
+        long now = clock.millis();
+        rings.compute(message.getTargetSessionId(), (sessionId, ring) -> {
+            if (ring == null) {
+                ring = new Ring(capacity);
+            }
+            ring.add(message, now);
+            return ring;
+        });
+    }
+
+    @Override
+    public Optional<List<EventMessage>> eventsAfter(SessionId sessionId, ResumeCursor cursor) {
+        Ring ring = rings.get(sessionId);
+        if (ring == null) {
+            return Optional.empty();
+        }
+        return ring.eventsAfter(cursor);
+    }
+
+    @Override
+    public List<EventMessage> recent(SessionId sessionId) {
+        Ring ring = rings.get(sessionId);
+        return ring == null ? List.of() : ring.entries();
+    }
+
+    @Override
+    public int purgeIdle() {
+        long idleBefore = clock.millis() - retentionMillis;
+        int purged = 0;
+        for (SessionId sessionId : rings.keySet()) {
+            if (rings.computeIfPresent(sessionId, (id, ring) -> ring.lastAppendedAt() < idleBefore ? null : ring) == null) {
+                purged++;
+            }
+        }
+        if (purged > 0) {
+            logger.debug("Dropped {} idle recent-event rings", purged);
+        }
+        return purged;
+    }
+
+    /**
+     * Fixed-size ring overwriting its oldest entry.
+     */
+    private static final class Ring {
+
+        private final EventMessage[] entries;
+        private int next;
+        private int size;
+        private long lastAppendedAt;
+
+        private Ring(int capacity) {
+            this.entries = new EventMessage[capacity];
+        }
+
+        private synchronized void add(EventMessage message, long now) {
+            entries[next] = message;
+            next = (next + 1) % entries.length;
+            size = Math.min(size + 1, entries.length);
+            lastAppendedAt = now;
+        }
+
+        private synchronized long lastAppendedAt() {
+            return lastAppendedAt;
+        }
+
+        private synchronized List<EventMessage> entries() {
+            List<EventMessage> recent = new ArrayList<>(size);
+            for (int age = size - 1; age >= 0; age--) {
+                recent.add(entries[Math.floorMod(next - 1 - age, entries.length)]);
+            }
+            return recent;
+        }
+
+        private synchronized Optional<List<EventMessage>> eventsAfter(ResumeCursor cursor) {
+            // Search from the newest entry backwards; clients usually missed only a few messages
+            for (int age = 0; age < size; age++) {
+                int index = Math.floorMod(next - 1 - age, entries.length);
+                if (cursor.matches(entries[index])) {
+                    List<EventMessage> missed = new ArrayList<>(age);
+                    for (int newer = age - 1; newer >= 0; newer--) {
+                        missed.add(entries[Math.floorMod(next - 1 - newer, entries.length)]);
+                    }
+                    return Optional.of(missed);
+                }
+            }
+            return Optional.empty();
+        }
+    }
+}
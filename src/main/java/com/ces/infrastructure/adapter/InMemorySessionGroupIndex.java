@@ -0,0 +1,120 @@
+package com.ces.infrastructure.adapter;
+
+import com.ces.application.port.output.SessionGroupIndex;
+import com.ces.domain.model.DeliveryTarget;
+import com.ces.domain.model.MessageTypeMask;
+import com.ces.domain.model.Session;
+import com.ces.domain.model.SessionGroup;
+import com.ces.domain.model.SessionId;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * In-memory implementation of SessionGroupIndex.
+ * Each group is held as an immutable {@link SessionGroup} that is replaced on every
+ * change (copy-on-write). Sessions join and leave far less often than group messages
+ * are delivered, so resolving a target is a lock-free lookup that allocates nothing.
+ * The members' subscription masks, their union and their distinct content filters
+ * and field projections are kept alongside, so senders filter and project without
+ * looking sessions up.
+ * Each member's session is kept with it, so sessions that expired without
+ * disconnecting can be swept out of every group by {@link #removeInactive}.
+ */
+public class InMemorySessionGroupIndex implements SessionGroupIndex {
+
+    private final Map<Long, SessionGroup> byAccount = new ConcurrentHashMap<>();
+    private final Map<String, SessionGroup> byTenant = new ConcurrentHashMap<>();
+    private volatile SessionGroup all = SessionGroup.empty();
+
+    /**
+     * The session of each member; a new membership on every add. Guarded by this.
+     */
+    private final Map<SessionId, Membership> memberships = new HashMap<>();
+
+    @Override
+    public synchronized void add(Session session) {
+        memberships.put(session.getSessionId(), new Membership(session));
+        all = with(all, session);
+        if (session.getAccountId() > 0) {
+            byAccount.compute(session.getAccountId(), (account, members) -> with(members, session));
+        }
+        if (session.getTenant() != null) {
+            byTenant.compute(session.getTenant(), (tenant, members) -> with(members, session));
+        }
+    }
+
+    @Override
+    public synchronized void remove(Session session) {
+        SessionId sessionId = session.getSessionId();
+        memberships.remove(sessionId);
+        SessionGroup remaining = all.without(sessionId);
+        all = remaining != null ? remaining : SessionGroup.empty();
+        if (session.getAccountId() > 0) {
+            byAccount.computeIfPresent(session.getAccountId(), (account, members) -> members.without(sessionId));
+        }
+        if (session.getTenant() != null) {
+            byTenant.computeIfPresent(session.getTenant(), (tenant, members) -> members.without(sessionId));
+        }
+    }
+
+    @Override
+    public int removeInactive(Function<Collection<SessionId>, Set<SessionId>> findActive) {
+        List<Membership> snapshot;
+        synchronized (this) {
+            snapshot = List.copyOf(memberships.values());
+        }
+        if (snapshot.isEmpty()) {
+            return 0;
+        }
+        // The lookup may query the session registry, so it runs outside the lock
+        Set<SessionId> active = findActive.apply(
+                snapshot.stream().map(membership -> membership.session().getSessionId()).toList());
+        List<Membership> stale = new ArrayList<>();
+        for (Membership membership : snapshot) {
+            if (!active.contains(membership.session().getSessionId())) {
+                stale.add(membership);
+            }
+        }
+        int removed = 0;
+        synchronized (this) {
+            for (Membership membership : stale) {
+                Session session = membership.session();
+                if (memberships.get(session.getSessionId()) == membership) {
+                    remove(session);
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    @Override
+    public SessionGroup members(DeliveryTarget target) {
+        SessionGroup members = switch (target) {
+            case DeliveryTarget.ToSession toSession -> SessionGroup.of(toSession.sessionId(), MessageTypeMask.ALL);
+            case DeliveryTarget.ToAccount toAccount -> byAccount.get(toAccount.accountId());
+            case DeliveryTarget.ToTenant toTenant -> byTenant.get(toTenant.tenant());
+            case DeliveryTarget.ToAll toAll -> all;
+        };
+        return members != null ? members : SessionGroup.empty();
+    }
+
+    /**
+     * A session's membership; compared by identity to tell whether the session
+     * was added again.
+     */
+    private record Membership(Session session) {
+    }
+
+    private static SessionGroup with(SessionGroup members, Session session) {
+        return (members != null ? members : SessionGroup.empty()).with(session.getSessionId(),
+                session.getSubscriptionMask(), session.getContentFilter(), session.getFieldProjection());
+    }
+}
@@ -2,6 +2,7 @@ package com.ces.infrastructure.adapter;
 
 import com.ces.domain.model.Session;
 import com.ces.domain.model.SessionId;
+import com.ces.domain.model.SessionNotFoundException;
 import com.ces.domain.service.SessionRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,6 +45,17 @@ public class InMemorySessionRegistry implements SessionRegistry {
                 .orElse(false);
     }
 
+    @Override
+    public void update(Session session) {
+        if (session == null) {
+            throw new IllegalArgumentException("Session cannot be null");
+        }
+        if (sessions.replace(session.getSessionId(), session) == null) {
+            throw new SessionNotFoundException(session.getSessionId());
+        }
+        logger.debug("Session updated: {} ({})", session.getSessionId(), session.getStatus());
+    }
+
     @Override
     public void updateHeartbeat(SessionId sessionId) {
         Session session = sessions.get(sessionId);
@@ -1,91 +1,208 @@
 package com.ces.infrastructure.adapter;
 
 import com.ces.application.port.input.DeliverMessageUseCase;
+import com.ces.domain.model.DeliveryTarget;
 import com.ces.domain.model.EventMessage;
+import com.ces.domain.model.MessageIdGenerator;
 import com.ces.domain.model.SessionId;
+import com.ces.infrastructure.kafka.AccountKeys;
+import com.ces.infrastructure.kafka.FeedMessageDeserializer;
+import com.ces.infrastructure.kafka.FeedRecord;
+import com.ces.infrastructure.kafka.LoadShedder;
+import com.ces.infrastructure.kafka.MessageTypeFilter;
+import com.ces.infrastructure.kafka.SequenceDeduplicator;
+import com.ces.infrastructure.kafka.SequenceReorderer;
+import com.lnw.expressway.messages.v1.FeedMessageProto;
 import com.lnw.expressway.messages.v1.FeedMessageProto.FeedMessage;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header.Identifier;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
 import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.Payload;
 import org.springframework.stereotype.Component;
 
+import java.time.Instant;
+
 /**
  * Kafka consumer adapter that listens to configured topics and delivers messages
  * to registered sessions through the domain layer.
  * This adapter bridges the Kafka infrastructure with the application's hexagonal architecture.
- * Consumes Protobuf FeedMessage events from the OPS-Events-schema.
+ * Consumes Protobuf FeedMessage events from the OPS-Events-schema as {@link FeedRecord}s:
+ * the filters below work on the decoded header, the session is found from the
+ * account_id read off the wire, and the record bytes become the envelope's encoded
+ * form, so the payload is neither parsed nor re-encoded on the way in.
+ * Duplicates caused by offset resets, rebalances and producer retries are dropped
+ * before any session lookup or encoding. When enabled, messages are released in
+ * sequence order per sequencing key.
+ * Message IDs come from the FeedMessage identifier and timestamps from the Kafka
+ * record, so building an EventMessage needs neither a random UUID nor a clock read.
+ * Operator-wide events (block lists) carry no account and are delivered to all
+ * sessions of their tenant ({@code Header.SystemRef.tenant}).
+ * When the {@link MessageTypeFilter} is enabled, message types no session on this
+ * node subscribed to are dropped first. While the node is overloaded, the
+ * {@link LoadShedder} then drops low-value and stale messages. Records the
+ * {@link FeedMessageDeserializer} skipped while catching up on a backlog arrive
+ * with only their header and are dropped as well. The sequence IDs of skipped,
+ * filtered and shed messages are reported to the reorderer as skipped, so they do
+ * not open gaps.
+ * Each record is acknowledged once it has been delivered or dropped; a record held
+ * by the reorderer is acknowledged when it is released, so its offset is not
+ * committed while the message exists only in memory.
  */
 @Component
 public class KafkaMessageConsumerAdapter {
-    
+
+    /**
+     * Id of the listener container, which backpressure pauses and resumes.
+     */
+    public static final String LISTENER_ID = "ces-feed-listener";
+
     private static final Logger logger = LoggerFactory.getLogger(KafkaMessageConsumerAdapter.class);
     
     private final DeliverMessageUseCase deliverMessageUseCase;
+    private final SequenceDeduplicator sequenceDeduplicator;
+    private final SequenceReorderer sequenceReorderer;
+    private final MessageIdGenerator messageIdGenerator;
+    private final MessageTypeFilter messageTypeFilter;
+    private final LoadShedder loadShedder;
     
-    public KafkaMessageConsumerAdapter(DeliverMessageUseCase deliverMessageUseCase) {
+    public KafkaMessageConsumerAdapter(
+            DeliverMessageUseCase deliverMessageUseCase,
+            SequenceDeduplicator sequenceDeduplicator,
+            SequenceReorderer sequenceReorderer,
+            MessageIdGenerator messageIdGenerator,
+            MessageTypeFilter messageTypeFilter,
+            LoadShedder loadShedder) {
         this.deliverMessageUseCase = deliverMessageUseCase;
+        this.sequenceDeduplicator = sequenceDeduplicator;
+        this.sequenceReorderer = sequenceReorderer;
+        this.messageIdGenerator = messageIdGenerator;
+        this.messageTypeFilter = messageTypeFilter;
+        this.loadShedder = loadShedder;
     }
     
     /**
      * Consumes Protobuf FeedMessage from configured Kafka topics.
-     * The topics are configured in application.yml under ces.kafka.topics.
+     * The topics are configured in application.yml under ces.kafka.topics, or are
+     * the account-keyed topic when ces.kafka.repartition is enabled.
      * 
-     * @param feedMessage the Protobuf FeedMessage payload from Kafka
+     * @param record the FeedMessage record from Kafka
      * @param topic the topic from which the message was received
      * @param sessionIdValue the session ID from custom Kafka header (if present)
+     * @param recordTimestamp the record timestamp in epoch milliseconds, negative if absent
+     * @param acknowledgment acknowledges the record once its message has been handled
      */
-    @KafkaListener(topics = "#{'${ces.kafka.topics}'}")
+    @KafkaListener(id = LISTENER_ID, idIsGroup = false, topics = "#{@kafkaConsumerProperties.listenerTopics}")
     public void consume(
-            @Payload FeedMessage feedMessage,
+            @Payload FeedRecord record,
             @Header(KafkaHeaders.RECEIVED_TOPIC) String topic,
-            @Header(value = "sessionId", required = false) String sessionIdValue) {
-        
-        logger.debug("Received FeedMessage from topic: {} with message type: {}", 
-                     topic, feedMessage.getHeader().getMessageType());
-        
-        // Extract session ID from header or derive from account_id in the payload
-        SessionId sessionId = determineSessionId(sessionIdValue, feedMessage);
-            
-        EventMessage eventMessage = new EventMessage(sessionId, feedMessage, topic);
-        deliverMessageUseCase.deliver(eventMessage);
+            @Header(value = "sessionId", required = false) String sessionIdValue,
+            @Header(KafkaHeaders.RECEIVED_TIMESTAMP) long recordTimestamp,
+            Acknowledgment acknowledgment) {
+
+        FeedMessageProto.Header header = record.header();
+        logger.debug("Received FeedMessage from topic: {} with message type: {}", topic, header.getMessageType());
+
+        if (record.isSkipped() || !accepts(header)) {
+            // The sequence ID still takes its turn, so it does not hold back its successors
+            Identifier identifier = header.getIdentifier();
+            sequenceReorderer.skip(identifier.getKey(), identifier.getSequenceId(), acknowledgment::acknowledge);
+            return;
+        }
+
+        if (sequenceDeduplicator.isDuplicate(header)) {
+            logger.debug("Dropping duplicate FeedMessage from topic: {}", topic);
+            acknowledgment.acknowledge();
+            return;
+        }
+
+        try {
+            EventMessage eventMessage = toEventMessage(record, header, topic, sessionIdValue, recordTimestamp);
+            if (sequenceReorderer.isEnabled()) {
+                sequenceReorderer.offer(eventMessage, acknowledgment::acknowledge);
+            } else {
+                deliverMessageUseCase.deliver(eventMessage);
+                acknowledgment.acknowledge();
+            }
+        } catch (RuntimeException e) {
+            // Not delivered; the redelivered record must not be dropped as a duplicate
+            sequenceDeduplicator.forget(header);
+            throw e;
+        }
+    }
+
+    /**
+     * Checks whether the message passes the type filter and the load shedder.
+     */
+    private boolean accepts(FeedMessageProto.Header header) {
+        if (!messageTypeFilter.accepts(header)) {
+            logger.debug("Dropping unsubscribed FeedMessage type: {}", header.getMessageType());
+            return false;
+        }
+        if (!loadShedder.accepts(header)) {
+            logger.debug("Shedding FeedMessage type {} under overload", header.getMessageType());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Builds the envelope of a consumed record.
+     */
+    private EventMessage toEventMessage(
+            FeedRecord record,
+            FeedMessageProto.Header header,
+            String topic,
+            String sessionIdValue,
+            long recordTimestamp) {
+        DeliveryTarget target = determineTarget(sessionIdValue, record);
+        Instant timestamp = Instant.ofEpochMilli(recordTimestamp >= 0 ? recordTimestamp : System.currentTimeMillis());
+        return EventMessage.fromEncoded(
+                messageIdGenerator.idFor(header.getIdentifier()), target, record.data(), header, topic, timestamp);
     }
     
     /**
-     * Determines the session ID from header or from the FeedMessage payload.
-     * Many message types contain an account_id that can be used as session identifier.
+     * Determines the delivery target: the session from the header, else the session
+     * of the payload's account_id, else the tenant for operator-wide events.
+     * Only records without an account have their payload parsed.
      */
-    private SessionId determineSessionId(String sessionIdValue, FeedMessage feedMessage) {
+    private DeliveryTarget determineTarget(String sessionIdValue, FeedRecord record) {
         if (sessionIdValue != null) {
-            return SessionId.of(sessionIdValue);
+            return DeliveryTarget.session(SessionId.of(sessionIdValue));
         }
-        
-        // Try to extract account_id from various payload types
-        try {
-            return switch (feedMessage.getPayloadCase()) {
-                case TRANS_PAYLOAD -> SessionId.of(String.valueOf(feedMessage.getTransPayload().getAccountId()));
-                case LOGIN_PAYLOAD -> SessionId.of(String.valueOf(feedMessage.getLoginPayload().getAccountId()));
-                case LOGOUT_PAYLOAD -> SessionId.of(String.valueOf(feedMessage.getLogoutPayload().getAccountId()));
-                case REGISTRATION_PAYLOAD ->
-                        SessionId.of(String.valueOf(feedMessage.getRegistrationPayload().getAccountId()));
-                case ACCOUNT_CREATION_PAYLOAD ->
-                        SessionId.of(String.valueOf(feedMessage.getAccountCreationPayload().getAccountId()));
-                case PAYMENT_TRANS_PAYLOAD ->
-                        SessionId.of(String.valueOf(feedMessage.getPaymentTransPayload().getAccountId()));
-                case UPDATE_ACCOUNT_PAYLOAD ->
-                        SessionId.of(String.valueOf(feedMessage.getUpdateAccountPayload().getAccountId()));
-                case EXTEND_SESSION_PAYLOAD ->
-                        SessionId.of(String.valueOf(feedMessage.getExtendSessionPayload().getAccountId()));
-                default -> {
-                    logger.warn("Unknown payload type: {}, generating random session ID", feedMessage.getPayloadCase());
-                    yield SessionId.generate();
-                }
-            };
-        } catch (Exception e) {
-            logger.warn("Error extracting account_id from FeedMessage, generating random session ID", e);
-            return SessionId.generate();
+        long accountId = record.accountId();
+        if (accountId > 0) {
+            return DeliveryTarget.session(SessionId.of(AccountKeys.key(accountId)));
+        }
+        FeedMessage feedMessage = record.feedMessage();
+        String tenant = operatorWideTenant(feedMessage);
+        if (tenant != null) {
+            return DeliveryTarget.tenant(tenant);
+        }
+        logger.warn("No account_id in payload type: {}, generating random session ID", feedMessage.getPayloadCase());
+        return DeliveryTarget.session(SessionId.generate());
+    }
+
+    /**
+     * Returns the tenant of an operator-wide event, falling back to the payload's
+     * operator_name, or null if the message is not operator-wide.
+     */
+    private String operatorWideTenant(FeedMessage feedMessage) {
+        String operatorName = switch (feedMessage.getPayloadCase()) {
+            case BLOCK_LIST_PAYLOAD -> feedMessage.getBlockListPayload().getOperatorName();
+            case BLOCK_LIST_LOG_PAYLOAD -> feedMessage.getBlockListLogPayload().getOperatorName();
+            default -> null;
+        };
+        if (operatorName == null) {
+            return null;
+        }
+        String tenant = feedMessage.getHeader().getSystemRef().getTenant();
+        if (!tenant.isBlank()) {
+            return tenant;
         }
+        return operatorName.isBlank() ? null : operatorName;
     }
 }
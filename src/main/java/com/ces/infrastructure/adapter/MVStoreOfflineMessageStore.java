@@ -0,0 +1,320 @@
+package com.ces.infrastructure.adapter;
+
+import com.ces.application.port.output.OfflineMessageStore;
+import com.ces.domain.model.EventMessage;
+import com.ces.domain.model.SessionId;
+import org.h2.mvstore.Cursor;
+import org.h2.mvstore.MVMap;
+import org.h2.mvstore.MVStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Durable OfflineMessageStore backed by an H2 MVStore file.
+ *
+ * <p>Queued messages live in a single on-disk map keyed by
+ * {@code <session id>/<sequence>}, with the sequence zero-padded so a session's
+ * messages are adjacent and sorted in arrival order. Only the page cache and a
+ * small cursor per session are kept on the heap, so the store absorbs the full
+ * ingest rate without heap growth. Sequences are node-wide and never reused;
+ * the session cursors are rebuilt from the keys when the store is reopened, so
+ * queued messages survive a restart. Writes are committed in the background by
+ * the MVStore and on {@link #close()}.</p>
+ *
+ * <p>Each session's cursor is also its lock. The map of cursors is only used to
+ * look them up, so no map operation waits on the file; a drained cursor is marked
+ * removed and writers that still hold it start over with a new one.</p>
+ */
+public class MVStoreOfflineMessageStore implements OfflineMessageStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(MVStoreOfflineMessageStore.class);
+    private static final int SEQUENCE_DIGITS = 16;
+
+    private final MVStore store;
+    private final MVMap<String, byte[]> messages;
+    private final Map<String, SessionQueue> queues = new ConcurrentHashMap<>();
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final long ttlMillis;
+    private final int maxMessagesPerSession;
+    private final Clock clock;
+
+    public MVStoreOfflineMessageStore(Path file, int cacheSizeMb, Duration ttl, int maxMessagesPerSession) {
+        this(file, cacheSizeMb, ttl, maxMessagesPerSession, Clock.systemUTC());
+    }
+
+    public MVStoreOfflineMessageStore(
+            Path file,
+            int cacheSizeMb,
+            Duration ttl,
+            int maxMessagesPerSession,
+            Clock clock) {
+        if (ttl.isNegative() || ttl.isZero() || maxMessagesPerSession < 1) {
+            throw new IllegalArgumentException("TTL and queue size must be positive");
+        }
+        this.ttlMillis = ttl.toMillis();
+        this.maxMessagesPerSession = maxMessagesPerSession;
+        this.clock = Objects.requireNonNull(clock, "Clock cannot be null");
+        this.store = new MVStore.Builder()
+                .fileName(file.toString())
+                .cacheSize(cacheSizeMb)
+                .open();
+        this.messages = store.openMap("offline-messages");
+        recoverQueues();
+    }
+
+    @Override
+    public void store(EventMessage message) {
+        byte[] value = encode(message, clock.millis());
+        String sessionKey = message.getTargetSessionId().getValue();
+        while (true) {
+            SessionQueue queue = queues.computeIfAbsent(sessionKey, key -> new SessionQueue());
+            synchronized (queue) {
+                if (queue.removed) {
+                    continue;
+                }
+                long sequence = nextSequence.getAndIncrement();
+                if (queue.count == 0) {
+                    queue.head = sequence;
+                }
+                if (queue.count >= maxMessagesPerSession) {
+                    removeOldest(sessionKey, queue);
+                    logger.debug("Offline queue full, dropped oldest message for session: {}", sessionKey);
+                }
+                messages.put(messageKey(sessionKey, sequence), value);
+                queue.count++;
+                return;
+            }
+        }
+    }
+
+    @Override
+    public int drain(SessionId sessionId, Consumer<EventMessage> consumer) {
+        Objects.requireNonNull(consumer, "Consumer cannot be null");
+        return removeQueued(sessionId, consumer);
+    }
+
+    @Override
+    public void discard(SessionId sessionId) {
+        removeQueued(sessionId, null);
+    }
+
+    @Override
+    public int size(SessionId sessionId) {
+        SessionQueue queue = queues.get(sessionId.getValue());
+        if (queue == null) {
+            return 0;
+        }
+        synchronized (queue) {
+            return queue.removed ? 0 : queue.count;
+        }
+    }
+
+    @Override
+    public int purgeExpired() {
+        long expiredBefore = clock.millis() - ttlMillis;
+        int purged = 0;
+        for (Map.Entry<String, SessionQueue> entry : queues.entrySet()) {
+            String sessionKey = entry.getKey();
+            SessionQueue queue = entry.getValue();
+            synchronized (queue) {
+                if (queue.removed) {
+                    continue;
+                }
+                // Sequences grow with time, so expired messages are at the head
+                Cursor<String, byte[]> cursor = messages.cursor(messageKey(sessionKey, queue.head));
+                while (queue.count > 0 && cursor.hasNext()) {
+                    String messageKey = cursor.next();
+                    if (!belongsTo(messageKey, sessionKey) || storedAt(cursor.getValue()) >= expiredBefore) {
+                        break;
+                    }
+                    messages.remove(messageKey);
+                    queue.head = sequenceOf(messageKey) + 1;
+                    queue.count--;
+                    purged++;
+                }
+                if (queue.count == 0) {
+                    queue.removed = true;
+                    queues.remove(sessionKey, queue);
+                }
+            }
+        }
+        if (purged > 0) {
+            logger.info("Purged {} expired offline messages", purged);
+        }
+        return purged;
+    }
+
+    /**
+     * Commits pending writes and closes the store file.
+     */
+    public void close() {
+        store.close();
+    }
+
+    /**
+     * Removes the messages queued for a session, handing unexpired ones to the
+     * consumer unless it is null.
+     */
+    private int removeQueued(SessionId sessionId, Consumer<EventMessage> consumer) {
+        String sessionKey = sessionId.getValue();
+
+        SessionQueue queue = queues.get(sessionKey);
+        if (queue == null) {
+            return 0;
+        }
+
+        // Claim the queued range; messages stored from now on get higher sequences
+        long head;
+        long end;
+        synchronized (queue) {
+            if (queue.removed) {
+                return 0;
+            }
+            queue.removed = true;
+            queues.remove(sessionKey, queue);
+            head = queue.head;
+            end = nextSequence.get();
+        }
+
+        long expiredBefore = clock.millis() - ttlMillis;
+        int drained = 0;
+        Cursor<String, byte[]> cursor = messages.cursor(messageKey(sessionKey, head));
+        while (cursor.hasNext()) {
+            String key = cursor.next();
+            if (!belongsTo(key, sessionKey) || sequenceOf(key) >= end) {
+                break;
+            }
+            byte[] value = cursor.getValue();
+            messages.remove(key);
+            if (consumer != null && storedAt(value) >= expiredBefore) {
+                EventMessage message = decode(sessionId, value);
+                if (message != null) {
+                    consumer.accept(message);
+                    drained++;
+                }
+            }
+        }
+        return drained;
+    }
+
+    private void recoverQueues() {
+        long maxSequence = -1;
+        Iterator<String> keys = messages.keyIterator(null);
+        while (keys.hasNext()) {
+            String key = keys.next();
+            long sequence = sequenceOf(key);
+            SessionQueue queue = queues.computeIfAbsent(sessionOf(key), sessionKey -> new SessionQueue());
+            if (queue.count == 0) {
+                queue.head = sequence;
+            }
+            queue.count++;
+            maxSequence = Math.max(maxSequence, sequence);
+        }
+        nextSequence.set(maxSequence + 1);
+        logger.info("Offline message store opened with {} queued messages for {} sessions",
+                messages.size(), queues.size());
+    }
+
+    private void removeOldest(String sessionKey, SessionQueue queue) {
+        String oldest = messages.ceilingKey(messageKey(sessionKey, queue.head));
+        if (oldest != null && belongsTo(oldest, sessionKey)) {
+            messages.remove(oldest);
+            queue.head = sequenceOf(oldest) + 1;
+            queue.count--;
+        }
+    }
+
+    private static String messageKey(String sessionKey, long sequence) {
+        String hex = Long.toHexString(sequence);
+        StringBuilder key = new StringBuilder(sessionKey.length() + 1 + SEQUENCE_DIGITS)
+                .append(sessionKey)
+                .append('/');
+        for (int i = hex.length(); i < SEQUENCE_DIGITS; i++) {
+            key.append('0');
+        }
+        return key.append(hex).toString();
+    }
+
+    private static boolean belongsTo(String key, String sessionKey) {
+        return key.length() == sessionKey.length() + 1 + SEQUENCE_DIGITS
+                && key.startsWith(sessionKey)
+                && key.charAt(sessionKey.length()) == '/';
+    }
+
+    private static String sessionOf(String key) {
+        return key.substring(0, key.length() - SEQUENCE_DIGITS - 1);
+    }
+
+    private static long sequenceOf(String key) {
+        return Long.parseUnsignedLong(key.substring(key.length() - SEQUENCE_DIGITS), 16);
+    }
+
+    /**
+     * Value layout: stored-at millis, timestamp seconds and nanos, then the
+     * length-prefixed UTF-8 message ID and source, then the encoded FeedMessage.
+     */
+    private static byte[] encode(EventMessage message, long storedAt) {
+        byte[] messageId = message.getMessageId().getBytes(StandardCharsets.UTF_8);
+        byte[] source = message.getSource().getBytes(StandardCharsets.UTF_8);
+        byte[] feedMessage = message.getEncoded();
+        ByteBuffer buffer = ByteBuffer.allocate(
+                Long.BYTES * 2 + Integer.BYTES * 3 + messageId.length + source.length + feedMessage.length);
+        buffer.putLong(storedAt)
+                .putLong(message.getTimestamp().getEpochSecond())
+                .putInt(message.getTimestamp().getNano())
+                .putInt(messageId.length).put(messageId)
+                .putInt(source.length).put(source)
+                .put(feedMessage);
+        return buffer.array();
+    }
+
+    private static long storedAt(byte[] value) {
+        return ByteBuffer.wrap(value).getLong();
+    }
+
+    private static EventMessage decode(SessionId sessionId, byte[] value) {
+        ByteBuffer buffer = ByteBuffer.wrap(value);
+        buffer.getLong();
+        Instant timestamp = Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+        String messageId = readString(buffer);
+        String source = readString(buffer);
+        byte[] feedMessage = new byte[buffer.remaining()];
+        buffer.get(feedMessage);
+        try {
+            return EventMessage.fromEncoded(messageId, sessionId, feedMessage, source, timestamp);
+        } catch (IllegalArgumentException e) {
+            logger.error("Dropping unreadable offline message {} for session: {}", messageId, sessionId, e);
+            return null;
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Per-session cursor: the lowest sequence that may still be queued, the queue
+     * length and whether the cursor has been taken out of the map. Guarded by itself.
+     */
+    private static final class SessionQueue {
+
+        private long head;
+        private int count;
+        private boolean removed;
+    }
+}
@@ -2,6 +2,7 @@ package com.ces.infrastructure.adapter;
 
 import com.ces.domain.model.Session;
 import com.ces.domain.model.SessionId;
+import com.ces.domain.model.SessionNotFoundException;
 import com.ces.domain.service.SessionRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,7 +11,12 @@ import org.springframework.data.redis.core.ScanOptions;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -23,6 +29,7 @@ public class RedisSessionRegistry implements SessionRegistry {
     private static final Logger logger = LoggerFactory.getLogger(RedisSessionRegistry.class);
     private static final String SESSION_KEY_PREFIX = "ces:session:";
     private static final long DEFAULT_TTL_HOURS = 24;
+    private static final int LOOKUP_BATCH_SIZE = 500;
     
     private final RedisTemplate<String, Session> redisTemplate;
 
@@ -63,6 +70,54 @@ public class RedisSessionRegistry implements SessionRegistry {
                 .orElse(false);
     }
 
+    /**
+     * Reads the sessions with one MGET per {@value #LOOKUP_BATCH_SIZE} IDs.
+     */
+    @Override
+    public Set<SessionId> findActive(Collection<SessionId> sessionIds) {
+        Set<SessionId> active = new HashSet<>();
+        List<SessionId> batch = new ArrayList<>(Math.min(sessionIds.size(), LOOKUP_BATCH_SIZE));
+        for (SessionId sessionId : sessionIds) {
+            batch.add(sessionId);
+            if (batch.size() == LOOKUP_BATCH_SIZE) {
+                collectActive(batch, active);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            collectActive(batch, active);
+        }
+        return active;
+    }
+
+    private void collectActive(List<SessionId> batch, Set<SessionId> active) {
+        List<Session> sessions = redisTemplate.opsForValue().multiGet(batch.stream().map(this::buildKey).toList());
+        if (sessions == null) {
+            return;
+        }
+        for (int i = 0; i < sessions.size(); i++) {
+            Session session = sessions.get(i);
+            if (session != null && session.isActive()) {
+                active.add(batch.get(i));
+            }
+        }
+    }
+
+    @Override
+    public void update(Session session) {
+        if (session == null) {
+            throw new IllegalArgumentException("Session cannot be null");
+        }
+
+        // Only overwrite sessions that are still registered, refreshing the TTL
+        String key = buildKey(session.getSessionId());
+        Boolean updated = redisTemplate.opsForValue().setIfPresent(key, session, DEFAULT_TTL_HOURS, TimeUnit.HOURS);
+        if (!Boolean.TRUE.equals(updated)) {
+            throw new SessionNotFoundException(session.getSessionId());
+        }
+        logger.debug("Session updated in Redis: {} ({})", session.getSessionId(), session.getStatus());
+    }
+
     @Override
     public void updateHeartbeat(SessionId sessionId) {
         String key = buildKey(sessionId);
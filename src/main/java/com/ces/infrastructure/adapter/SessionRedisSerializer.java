@@ -0,0 +1,144 @@
+package com.ces.infrastructure.adapter;
+
+import com.ces.domain.filter.ContentFilter;
+import com.ces.domain.filter.ContentFilterCompiler;
+import com.ces.domain.filter.FieldProjection;
+import com.ces.domain.filter.FieldProjectionCompiler;
+import com.ces.domain.filter.InvalidFilterException;
+import com.ces.domain.model.Session;
+import com.ces.domain.model.SessionId;
+import com.ces.domain.model.SessionStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.google.protobuf.FieldMask;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header.MessageType;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Serializes sessions to JSON for the {@link RedisSessionRegistry}.
+ *
+ * <p>Compiled content filters and field projections are not serializable, so a
+ * session is stored with the canonical expression of its filter and the canonical
+ * paths of its field masks, which are compiled again when the session is read.
+ * Sessions read on any node therefore filter and project messages as they did on
+ * the node that registered them, and share compiled filters and projections with
+ * that node's sessions.</p>
+ */
+public class SessionRedisSerializer implements RedisSerializer<Session> {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private final ContentFilterCompiler contentFilterCompiler;
+    private final FieldProjectionCompiler fieldProjectionCompiler;
+
+    public SessionRedisSerializer(
+            ContentFilterCompiler contentFilterCompiler, FieldProjectionCompiler fieldProjectionCompiler) {
+        this.contentFilterCompiler = Objects.requireNonNull(
+                contentFilterCompiler, "Content filter compiler cannot be null");
+        this.fieldProjectionCompiler = Objects.requireNonNull(
+                fieldProjectionCompiler, "Field projection compiler cannot be null");
+    }
+
+    @Override
+    public byte[] serialize(Session session) {
+        if (session == null) {
+            return null;
+        }
+        ContentFilter contentFilter = session.getContentFilter();
+        FieldProjection fieldProjection = session.getFieldProjection();
+        StoredSession stored = new StoredSession(
+                session.getSessionId().getValue(),
+                session.getAccountId(),
+                session.getTenant(),
+                session.getSubscriptionMask(),
+                contentFilter == null ? null : contentFilter.expression(),
+                fieldProjection == null ? null : toPaths(fieldProjection),
+                session.getStatus(),
+                session.getNodeId(),
+                session.getCreatedAt(),
+                session.getLastHeartbeatAt(),
+                session.getDisconnectedAt());
+        try {
+            return objectMapper.writeValueAsBytes(stored);
+        } catch (IOException e) {
+            throw new SerializationException("Cannot serialize session " + session.getSessionId(), e);
+        }
+    }
+
+    @Override
+    public Session deserialize(byte[] bytes) {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        StoredSession stored;
+        try {
+            stored = objectMapper.readValue(bytes, StoredSession.class);
+        } catch (IOException e) {
+            throw new SerializationException("Cannot deserialize session", e);
+        }
+        ContentFilter contentFilter;
+        FieldProjection fieldProjection;
+        try {
+            contentFilter = stored.contentFilter() == null
+                    ? null
+                    : contentFilterCompiler.compile(stored.contentFilter());
+            fieldProjection = stored.fieldMasks() == null
+                    ? null
+                    : fieldProjectionCompiler.compile(toFieldMasks(stored.fieldMasks()));
+        } catch (InvalidFilterException | IllegalArgumentException e) {
+            throw new SerializationException(
+                    "Cannot compile content filter or field masks of session " + stored.sessionId(), e);
+        }
+        return Session.restore(
+                SessionId.of(stored.sessionId()),
+                stored.accountId(),
+                stored.tenant(),
+                stored.subscriptionMask(),
+                contentFilter,
+                fieldProjection,
+                stored.status(),
+                stored.nodeId(),
+                stored.createdAt(),
+                stored.lastHeartbeatAt(),
+                stored.disconnectedAt());
+    }
+
+    private static Map<String, List<String>> toPaths(FieldProjection fieldProjection) {
+        Map<String, List<String>> paths = new TreeMap<>();
+        fieldProjection.fieldMasks().forEach((messageType, fieldMask) ->
+                paths.put(messageType.name(), fieldMask.getPathsList()));
+        return paths;
+    }
+
+    private static Map<MessageType, FieldMask> toFieldMasks(Map<String, List<String>> paths) {
+        Map<MessageType, FieldMask> fieldMasks = new EnumMap<>(MessageType.class);
+        paths.forEach((messageType, typePaths) -> fieldMasks.put(MessageType.valueOf(messageType),
+                FieldMask.newBuilder().addAllPaths(typePaths).build()));
+        return fieldMasks;
+    }
+
+    /**
+     * The stored form of a session.
+     */
+    record StoredSession(
+            String sessionId,
+            long accountId,
+            String tenant,
+            long subscriptionMask,
+            String contentFilter,
+            Map<String, List<String>> fieldMasks,
+            SessionStatus status,
+            int nodeId,
+            Instant createdAt,
+            Instant lastHeartbeatAt,
+            Instant disconnectedAt) {
+    }
+}
@@ -1,39 +1,230 @@
 package com.ces.infrastructure.adapter;
 
 import com.ces.application.port.output.MessageSender;
+import com.ces.domain.filter.FieldProjection;
+import com.ces.domain.filter.PayloadProjection;
 import com.ces.domain.model.EventMessage;
+import com.ces.domain.model.MessageTypeMask;
+import com.ces.domain.model.ResumeCursor;
+import com.ces.domain.model.SessionGroup;
 import com.ces.domain.model.SessionId;
+import com.ces.infrastructure.websocket.BatchSettings;
+import com.ces.infrastructure.websocket.ConflationPolicy;
+import com.ces.infrastructure.websocket.CorrelationSettings;
+import com.ces.infrastructure.websocket.FrameCompressor;
+import com.ces.infrastructure.websocket.GradientConcurrencyLimiter;
+import com.ces.infrastructure.websocket.OutboundBacklog;
+import com.ces.infrastructure.websocket.OutboundChannel;
+import com.ces.infrastructure.websocket.OutboundMessage;
+import com.ces.infrastructure.websocket.PriorityLanes;
+import com.ces.infrastructure.websocket.WebSocketConnection;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * WebSocket-based implementation of MessageSender.
  * Manages WebSocket connections and message delivery.
+ * Messages are queued on a per-connection {@link OutboundChannel} and written
+ * as micro-batched frames by a shared pool of flush threads. Message types
+ * covered by the {@link ConflationPolicy} are replaced in place while queued,
+ * and frames are compressed by the {@link FrameCompressor} on the flush threads.
+ * With {@link CorrelationSettings} enabled, messages sharing an
+ * {@code Identifier.reference} are merged into one correlated frame.
+ * Group messages are encoded once, and only if a member subscribed to their
+ * type; each distinct content filter of the group is evaluated once, and each
+ * distinct field projection encoded once, so sessions sharing a mask share bytes.
+ * Groups larger than one fan-out shard are enqueued in parallel, one shard of
+ * member connections per task, on a dedicated fan-out pool; the sending thread
+ * enqueues the first shard itself, and any shard the pool has no room for.
+ * All channels report what they hold to one {@link OutboundBacklog}.
+ * Messages are queued in the {@link PriorityLanes} lane of their type; when lanes
+ * are enabled, channels holding {@code HIGH} messages are flushed by a separate
+ * pool so they never wait behind bulk flushes. The {@link GradientConcurrencyLimiter}
+ * bounds how many connections the shared flush pool writes to at once.
  */
 public class WebSocketMessageSender implements MessageSender {
 
     private static final Logger logger = LoggerFactory.getLogger(WebSocketMessageSender.class);
-    private final Map<SessionId, Object> connections = new ConcurrentHashMap<>();
+    private static final int FAN_OUT_QUEUED_SHARDS_PER_THREAD = 16;
+    private static final long SHUTDOWN_TIMEOUT_MILLIS = 1000;
+    private final Map<SessionId, OutboundChannel> connections = new ConcurrentHashMap<>();
+    private final BatchSettings batchSettings;
+    private final ConflationPolicy conflationPolicy;
+    private final FrameCompressor frameCompressor;
+    private final CorrelationSettings correlationSettings;
+    private final int fanOutShardSize;
+    private final ExecutorService fanOutExecutor;
+    private final ScheduledExecutorService flushExecutor;
+    private final OutboundBacklog outboundBacklog;
+    private final PriorityLanes priorityLanes;
+    private final ScheduledExecutorService priorityFlushExecutor;
+    private final GradientConcurrencyLimiter writeLimiter;
+
+    public WebSocketMessageSender(
+            BatchSettings batchSettings,
+            ConflationPolicy conflationPolicy,
+            FrameCompressor frameCompressor,
+            CorrelationSettings correlationSettings,
+            int flushThreads,
+            int fanOutThreads,
+            int fanOutShardSize,
+            OutboundBacklog outboundBacklog,
+            PriorityLanes priorityLanes) {
+        this(batchSettings, conflationPolicy, frameCompressor, correlationSettings, flushThreads, fanOutThreads,
+                fanOutShardSize, outboundBacklog, priorityLanes, GradientConcurrencyLimiter.unlimited());
+    }
+
+    public WebSocketMessageSender(
+            BatchSettings batchSettings,
+            ConflationPolicy conflationPolicy,
+            FrameCompressor frameCompressor,
+            CorrelationSettings correlationSettings,
+            int flushThreads,
+            int fanOutThreads,
+            int fanOutShardSize,
+            OutboundBacklog outboundBacklog,
+            PriorityLanes priorityLanes,
+            GradientConcurrencyLimiter writeLimiter) {
+        this.batchSettings = Objects.requireNonNull(batchSettings, "Batch settings cannot be null");
+        this.conflationPolicy = Objects.requireNonNull(conflationPolicy, "Conflation policy cannot be null");
+        this.frameCompressor = Objects.requireNonNull(frameCompressor, "Frame compressor cannot be null");
+        this.correlationSettings = Objects.requireNonNull(correlationSettings, "Correlation settings cannot be null");
+        if (flushThreads < 1) {
+            throw new IllegalArgumentException("Flush threads must be at least 1");
+        }
+        if (fanOutThreads < 1) {
+            throw new IllegalArgumentException("Fan-out threads must be at least 1");
+        }
+        if (fanOutShardSize < 1) {
+            throw new IllegalArgumentException("Fan-out shard size must be at least 1");
+        }
+        this.fanOutShardSize = fanOutShardSize;
+        this.outboundBacklog = Objects.requireNonNull(outboundBacklog, "Outbound backlog cannot be null");
+        this.priorityLanes = Objects.requireNonNull(priorityLanes, "Priority lanes cannot be null");
+        this.writeLimiter = Objects.requireNonNull(writeLimiter, "Write limiter cannot be null");
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.flushExecutor = Executors.newScheduledThreadPool(flushThreads, runnable -> {
+            Thread thread = new Thread(runnable, "ces-ws-flush-" + threadCounter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger fanOutThreadCounter = new AtomicInteger();
+        this.fanOutExecutor = new ThreadPoolExecutor(fanOutThreads, fanOutThreads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(fanOutThreads * FAN_OUT_QUEUED_SHARDS_PER_THREAD),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "ces-ws-fanout-" + fanOutThreadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                // Run rejected shards on the sending thread so a full or stopped pool never loses one
+                (runnable, executor) -> runnable.run());
+        if (priorityLanes.isEnabled()) {
+            AtomicInteger priorityThreadCounter = new AtomicInteger();
+            this.priorityFlushExecutor = Executors.newScheduledThreadPool(priorityLanes.flushThreads(), runnable -> {
+                Thread thread = new Thread(runnable, "ces-ws-priority-flush-"
+                        + priorityThreadCounter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.priorityFlushExecutor = flushExecutor;
+        }
+    }
 
     @Override
     public boolean sendToSession(SessionId sessionId, EventMessage message) {
+        return sendToSession(sessionId, message, null);
+    }
+
+    @Override
+    public boolean sendToSession(SessionId sessionId, EventMessage message, FieldProjection projection) {
         if (sessionId == null || message == null) {
             logger.warn("Cannot send message: sessionId or message is null");
             return false;
         }
 
         // Check if connection exists
-        if (!connections.containsKey(sessionId)) {
+        OutboundChannel channel = connections.get(sessionId);
+        if (channel == null) {
             logger.warn("No WebSocket connection for session: {}", sessionId);
             return false;
         }
 
-        // TODO: Implement actual WebSocket message sending
-        logger.debug("Message sent to session {}: {}", sessionId, message);
-        return true;
+        PayloadProjection payloadProjection = projection != null ? projection.forType(message.getMessageType()) : null;
+        boolean queued = channel.enqueue(toOutboundMessage(message, payloadProjection));
+        logger.debug("Message queued for session {}: {}", sessionId, message);
+        return queued;
+    }
+
+    @Override
+    public int sendToAll(SessionGroup group, EventMessage message) {
+        if (group == null || message == null) {
+            logger.warn("Cannot send message: group or message is null");
+            return 0;
+        }
+        if (!group.accepts(message.getMessageType())) {
+            return 0;
+        }
+
+        // Encode once per distinct projection and share the payloads across all subscribed recipients
+        OutboundMessage outboundMessage = toOutboundMessage(message, null);
+        OutboundMessage[] projected = projectAll(group.projections(), message, outboundMessage);
+        long typeBit = MessageTypeMask.bit(message.getMessageType());
+        boolean[] filterResults = group.evaluateFilters(message::getFeedMessage);
+        int size = group.size();
+        int queued;
+        if (size <= fanOutShardSize) {
+            queued = enqueueAll(group, typeBit, filterResults, 0, size, outboundMessage, projected);
+        } else {
+            int shards = (size + fanOutShardSize - 1) / fanOutShardSize;
+            List<CompletableFuture<Integer>> tasks = new ArrayList<>(shards - 1);
+            for (int shard = 1; shard < shards; shard++) {
+                int from = shard * fanOutShardSize;
+                int to = Math.min(size, from + fanOutShardSize);
+                tasks.add(CompletableFuture.supplyAsync(
+                        () -> enqueueAll(group, typeBit, filterResults, from, to, outboundMessage, projected),
+                        fanOutExecutor));
+            }
+            queued = enqueueAll(group, typeBit, filterResults, 0, fanOutShardSize, outboundMessage, projected);
+            for (CompletableFuture<Integer> task : tasks) {
+                queued += task.join();
+            }
+        }
+        logger.debug("Message queued for {} of {} sessions", queued, size);
+        return queued;
+    }
+
+    private int enqueueAll(
+            SessionGroup group, long typeBit, boolean[] filterResults, int from, int to,
+            OutboundMessage outboundMessage, OutboundMessage[] projected) {
+        SessionId[] sessionIds = group.sessionIds();
+        int[] projectionSlots = group.projectionSlots();
+        int queued = 0;
+        for (int i = from; i < to; i++) {
+            if (!group.accepts(i, typeBit, filterResults)) {
+                continue;
+            }
+            OutboundChannel channel = connections.get(sessionIds[i]);
+            OutboundMessage payload = projectionSlots[i] < 0 ? outboundMessage : projected[projectionSlots[i]];
+            if (channel != null && channel.enqueue(payload)) {
+                queued++;
+            }
+        }
+        return queued;
     }
 
     @Override
@@ -44,35 +235,143 @@ public class WebSocketMessageSender implements MessageSender {
         }
 
         logger.debug("Broadcasting message to {} sessions", connections.size());
-        
-        for (SessionId sessionId : connections.keySet()) {
-            sendToSession(sessionId, message);
+
+        // Encode once and share the payload across all channels
+        OutboundMessage outboundMessage = toOutboundMessage(message, null);
+        for (OutboundChannel channel : connections.values()) {
+            channel.enqueue(outboundMessage);
+        }
+    }
+
+    @Override
+    public boolean redirect(SessionId sessionId, String webSocketUrl, ResumeCursor cursor) {
+        OutboundChannel channel = connections.get(sessionId);
+        if (channel == null) {
+            logger.warn("No WebSocket connection to redirect for session: {}", sessionId);
+            return false;
         }
+        return channel.enqueue(OutboundMessage.reconnect(webSocketUrl, cursor != null ? cursor.toString() : null));
     }
 
     @Override
     public boolean isConnected(SessionId sessionId) {
-        return connections.containsKey(sessionId);
+        OutboundChannel channel = connections.get(sessionId);
+        return channel != null && channel.isOpen();
+    }
+
+    /**
+     * Number of WebSocket connections registered on this node.
+     */
+    public int connectionCount() {
+        return connections.size();
+    }
+
+    /**
+     * Returns up to the given number of sessions with an open WebSocket connection
+     * on this node.
+     *
+     * @param limit the maximum number of session IDs
+     */
+    public List<SessionId> connectedSessionIds(int limit) {
+        List<SessionId> sessionIds = new ArrayList<>(Math.min(limit, connections.size()));
+        for (Map.Entry<SessionId, OutboundChannel> connection : connections.entrySet()) {
+            if (sessionIds.size() >= limit) {
+                break;
+            }
+            if (connection.getValue().isOpen()) {
+                sessionIds.add(connection.getKey());
+            }
+        }
+        return sessionIds;
     }
 
     /**
      * Registers a WebSocket connection for a session.
-     * 
+     *
      * @param sessionId the session ID
-     * @param connection the WebSocket connection object
+     * @param connection the WebSocket connection
      */
-    public void registerConnection(SessionId sessionId, Object connection) {
-        connections.put(sessionId, connection);
+    public void registerConnection(SessionId sessionId, WebSocketConnection connection) {
+        OutboundChannel channel = new OutboundChannel(
+                sessionId, connection, batchSettings, frameCompressor, correlationSettings, flushExecutor,
+                outboundBacklog, priorityLanes, priorityFlushExecutor, writeLimiter);
+        OutboundChannel previous = connections.put(sessionId, channel);
+        if (previous != null) {
+            previous.close();
+        }
         logger.debug("WebSocket connection registered for session: {}", sessionId);
     }
 
     /**
      * Removes a WebSocket connection for a session.
-     * 
+     *
      * @param sessionId the session ID
      */
     public void removeConnection(SessionId sessionId) {
-        connections.remove(sessionId);
+        OutboundChannel channel = connections.remove(sessionId);
+        if (channel != null) {
+            channel.close();
+        }
         logger.debug("WebSocket connection removed for session: {}", sessionId);
     }
+
+    /**
+     * Builds the outbound message of each distinct projection in a group. Projections
+     * sharing a payload mask for the message's type share one encoding; those
+     * without one share the full message.
+     */
+    private OutboundMessage[] projectAll(
+            FieldProjection[] projections, EventMessage message, OutboundMessage outboundMessage) {
+        OutboundMessage[] projected = new OutboundMessage[projections.length];
+        PayloadProjection[] payloadProjections = new PayloadProjection[projections.length];
+        for (int slot = 0; slot < projections.length; slot++) {
+            PayloadProjection payloadProjection = projections[slot].forType(message.getMessageType());
+            payloadProjections[slot] = payloadProjection;
+            if (payloadProjection == null) {
+                projected[slot] = outboundMessage;
+                continue;
+            }
+            for (int earlier = 0; earlier < slot; earlier++) {
+                if (payloadProjections[earlier] == payloadProjection) {
+                    projected[slot] = projected[earlier];
+                    break;
+                }
+            }
+            if (projected[slot] == null) {
+                projected[slot] = toOutboundMessage(message, payloadProjection);
+            }
+        }
+        return projected;
+    }
+
+    private OutboundMessage toOutboundMessage(EventMessage message, PayloadProjection payloadProjection) {
+        // Only conflatable types need the decoded payload; everything else uses the envelope
+        String conflationKey = conflationPolicy.appliesTo(message.getMessageType())
+                ? conflationPolicy.conflationKey(message.getFeedMessage())
+                : null;
+        String reference = correlationSettings.isEnabled() && !message.getReference().isEmpty()
+                ? message.getReference()
+                : null;
+        byte[] payload = payloadProjection != null
+                ? payloadProjection.project(message.getFeedMessage()).toByteArray()
+                : message.getEncoded();
+        return new OutboundMessage(payload, conflationKey, reference,
+                priorityLanes.laneOf(message.getMessageType()), message.getTimestamp().toEpochMilli());
+    }
+
+    /**
+     * Stops the flush and fan-out threads. Queued frames that have not been written are dropped.
+     * Waits briefly for frames being written, so the frame compressor is not closed under them.
+     */
+    public void shutdown() {
+        fanOutExecutor.shutdownNow();
+        flushExecutor.shutdownNow();
+        priorityFlushExecutor.shutdownNow();
+        try {
+            flushExecutor.awaitTermination(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            priorityFlushExecutor.awaitTermination(SHUTDOWN_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
@@ -0,0 +1,239 @@
+package com.ces.infrastructure.cluster;
+
+import com.ces.application.port.input.MigrateSessionUseCase;
+import com.ces.domain.model.SessionId;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+/**
+ * Moves connected sessions off this node while it holds more connections than its
+ * share, going by the load reports of all nodes.
+ *
+ * <p>Every interval, this node's connections are compared with the mean over the
+ * nodes with fresh reports. Above the mean by more than the tolerance, or above it
+ * at all while this node is hot, the surplus is migrated to the nodes below the mean
+ * that are not hot, the emptiest first, without filling any of them beyond the mean.
+ * Each node only moves its own sessions, so nodes never trade sessions back and
+ * forth.</p>
+ *
+ * <p>At most {@code maxPerRound} sessions move per round. After a round that moved
+ * sessions, rounds pause for the settle time, until the moved clients have
+ * reconnected and the reports show it; acting on the older reports would move the
+ * same surplus twice.</p>
+ */
+public class ConnectionRebalancer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionRebalancer.class);
+
+    /**
+     * When and how fast sessions are moved.
+     *
+     * @param interval time between two rounds
+     * @param tolerance share above the mean connections, e.g. 0.1 for 10%, a node
+     *                  may hold before it moves sessions
+     * @param maxPerRound sessions moved per round at most
+     * @param settleTime pause after a round that moved sessions
+     */
+    public record Settings(Duration interval, double tolerance, int maxPerRound, Duration settleTime) {
+
+        public Settings {
+            if (interval.isNegative() || interval.isZero()) {
+                throw new IllegalArgumentException("Rebalancing interval must be positive");
+            }
+            if (tolerance < 0) {
+                throw new IllegalArgumentException("Rebalancing tolerance cannot be negative");
+            }
+            if (maxPerRound < 1) {
+                throw new IllegalArgumentException("Rebalancing max sessions per round must be positive");
+            }
+            if (settleTime.isNegative()) {
+                throw new IllegalArgumentException("Rebalancing settle time cannot be negative");
+            }
+        }
+    }
+
+    private static final class Target {
+
+        private final NodeLoad load;
+        private int room;
+
+        private Target(NodeLoad load, int room) {
+            this.load = load;
+            this.room = room;
+        }
+    }
+
+    private final MigrateSessionUseCase migrateSessionUseCase;
+    private final int localNodeId;
+    private final IntFunction<List<SessionId>> localSessions;
+    private final LoadAwarePlacement.Settings loadSettings;
+    private final Settings settings;
+    private final Clock clock;
+    private final Counter migrated;
+    private final Counter skipped;
+    private final Counter failed;
+    private final AtomicInteger surplus = new AtomicInteger();
+    private final ScheduledExecutorService rebalancer;
+    private volatile List<NodeLoad> reports = List.of();
+    private long pausedUntilMillis;
+
+    /**
+     * @param migrateSessionUseCase moves one session to another node
+     * @param localNodeId ID of this node
+     * @param localSessions returns up to the given number of sessions connected to this node
+     * @param loadSettings report age and hot node limits, as used for placement
+     * @param settings interval, tolerance and rate of the rebalancing
+     * @param clock clock the report times are compared against
+     * @param meterRegistry registry for the migration meters
+     */
+    public ConnectionRebalancer(
+            MigrateSessionUseCase migrateSessionUseCase,
+            int localNodeId,
+            IntFunction<List<SessionId>> localSessions,
+            LoadAwarePlacement.Settings loadSettings,
+            Settings settings,
+            Clock clock,
+            MeterRegistry meterRegistry) {
+        this.migrateSessionUseCase = Objects.requireNonNull(migrateSessionUseCase, "Migrate use case cannot be null");
+        this.localSessions = Objects.requireNonNull(localSessions, "Local sessions cannot be null");
+        this.loadSettings = Objects.requireNonNull(loadSettings, "Load balancing settings cannot be null");
+        this.settings = Objects.requireNonNull(settings, "Rebalancing settings cannot be null");
+        this.clock = Objects.requireNonNull(clock, "Clock cannot be null");
+        if (localNodeId < 0) {
+            throw new IllegalArgumentException("Rebalancing requires a node ID (ces.node.id)");
+        }
+        this.localNodeId = localNodeId;
+
+        this.migrated = Counter.builder("ces.migration.sessions")
+                .description("Sessions the rebalancer tried to move to another node, by outcome")
+                .tag("outcome", "migrated")
+                .register(meterRegistry);
+        this.skipped = Counter.builder("ces.migration.sessions")
+                .description("Sessions the rebalancer tried to move to another node, by outcome")
+                .tag("outcome", "skipped")
+                .register(meterRegistry);
+        this.failed = Counter.builder("ces.migration.sessions")
+                .description("Sessions the rebalancer tried to move to another node, by outcome")
+                .tag("outcome", "failed")
+                .register(meterRegistry);
+        Gauge.builder("ces.migration.surplus", surplus, AtomicInteger::get)
+                .description("Connections this node holds above the cluster mean")
+                .register(meterRegistry);
+
+        this.rebalancer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ces-rebalance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = settings.interval().toMillis();
+        rebalancer.scheduleWithFixedDelay(this::rebalance, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Replaces the load reports of all nodes.
+     */
+    public void update(List<NodeLoad> reports) {
+        this.reports = List.copyOf(reports);
+    }
+
+    /**
+     * Moves this node's surplus sessions, up to the per-round limit.
+     */
+    void rebalance() {
+        try {
+            long now = clock.millis();
+            if (now < pausedUntilMillis) {
+                return;
+            }
+            List<NodeLoad> fresh = new ArrayList<>();
+            NodeLoad local = null;
+            long connections = 0;
+            for (NodeLoad report : reports) {
+                if (loadSettings.isFresh(report, now)) {
+                    fresh.add(report);
+                    connections += report.connections();
+                    if (report.nodeId() == localNodeId) {
+                        local = report;
+                    }
+                }
+            }
+            if (local == null || fresh.size() < 2) {
+                surplus.set(0);
+                return;
+            }
+
+            double mean = (double) connections / fresh.size();
+            surplus.set((int) Math.max(0, Math.floor(local.connections() - mean)));
+            double limit = loadSettings.isHot(local) ? mean : mean * (1 + settings.tolerance());
+            if (local.connections() <= limit || surplus.get() == 0) {
+                return;
+            }
+
+            List<Target> targets = new ArrayList<>();
+            for (NodeLoad report : fresh) {
+                int room = (int) Math.floor(mean - report.connections());
+                if (report.nodeId() != localNodeId && room > 0 && !loadSettings.isHot(report)) {
+                    targets.add(new Target(report, room));
+                }
+            }
+            if (targets.isEmpty()) {
+                return;
+            }
+
+            int moved = migrate(Math.min(surplus.get(), settings.maxPerRound()), targets);
+            if (moved > 0) {
+                pausedUntilMillis = now + settings.settleTime().toMillis();
+                logger.info("Moved {} of {} surplus sessions to other nodes (mean {} connections)",
+                        moved, surplus.get(), Math.round(mean));
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Rebalancing round failed", e);
+        }
+    }
+
+    private int migrate(int count, List<Target> targets) {
+        Comparator<Target> mostRoom = Comparator.comparingInt(target -> target.room);
+        int moved = 0;
+        for (SessionId sessionId : localSessions.apply(count)) {
+            Target target = targets.stream().filter(t -> t.room > 0).max(mostRoom).orElse(null);
+            if (target == null) {
+                break;
+            }
+            try {
+                if (migrateSessionUseCase.migrate(sessionId, target.load.nodeId(), target.load.webSocketBaseUrl())) {
+                    target.room--;
+                    moved++;
+                    migrated.increment();
+                } else {
+                    skipped.increment();
+                }
+            } catch (RuntimeException e) {
+                failed.increment();
+                logger.warn("Failed to move session {} to node {}", sessionId, target.load.nodeId(), e);
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * Stops rebalancing.
+     */
+    public void close() {
+        rebalancer.shutdownNow();
+    }
+}
@@ -0,0 +1,78 @@
+package com.ces.infrastructure.cluster;
+
+import com.ces.domain.model.EventMessage;
+import com.ces.domain.model.SessionId;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A batch of messages forwarded to one node in a single stream entry.
+ *
+ * <p>Binary layout: a version byte, the forwarding time in epoch milliseconds and
+ * the message count, then per message its session ID, message ID, source, timestamp
+ * and encoded FeedMessage. The FeedMessage is forwarded as encoded and only its
+ * header is decoded on the receiving node.</p>
+ *
+ * @param forwardedAtMillis when the batch was sent, for the forwarding latency
+ * @param messages the messages, each addressed to one session
+ */
+record ForwardFrame(long forwardedAtMillis, List<EventMessage> messages) {
+
+    private static final byte VERSION = 1;
+
+    byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + messages.size() * 256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeLong(forwardedAtMillis);
+            out.writeInt(messages.size());
+            for (EventMessage message : messages) {
+                out.writeUTF(message.getTargetSessionId().getValue());
+                out.writeUTF(message.getMessageId());
+                out.writeUTF(message.getSource());
+                out.writeLong(message.getTimestamp().toEpochMilli());
+                byte[] encoded = message.getEncoded();
+                out.writeInt(encoded.length);
+                out.write(encoded);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the bytes are not a frame of this version
+     */
+    static ForwardFrame decode(byte[] frame) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(frame))) {
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported forward frame version: " + version);
+            }
+            long forwardedAtMillis = in.readLong();
+            int count = in.readInt();
+            List<EventMessage> messages = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                SessionId sessionId = SessionId.of(in.readUTF());
+                String messageId = in.readUTF();
+                String source = in.readUTF();
+                Instant timestamp = Instant.ofEpochMilli(in.readLong());
+                byte[] encoded = new byte[in.readInt()];
+                in.readFully(encoded);
+                messages.add(EventMessage.fromEncoded(messageId, sessionId, encoded, source, timestamp));
+            }
+            return new ForwardFrame(forwardedAtMillis, messages);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Truncated forward frame", e);
+        }
+    }
+}
@@ -0,0 +1,257 @@
+package com.ces.infrastructure.cluster;
+
+import com.ces.application.port.input.DeliverMessageUseCase;
+import com.ces.application.port.input.MigrateSessionUseCase;
+import com.ces.application.port.output.OfflineMessageStore;
+import com.ces.domain.model.EventMessage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.stream.ByteRecord;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads the inbox stream of this node and delivers the messages other nodes
+ * forwarded with the {@link RedisStreamSessionForwarder}.
+ *
+ * <p>A single thread blocks on the stream for up to the poll timeout at a time.
+ * The ID of the last entry delivered is stored next to the stream after every read,
+ * and reading resumes after it when the node restarts, so messages forwarded to
+ * sessions migrating to this node while it restarted are queued for them. Entries
+ * trimmed from the stream meanwhile are lost; without a stored ID, reading starts at
+ * the end of the stream. The forwarding latency is measured
+ * from the flush on the sending node, so it includes clock skew between nodes.
+ * Entries with the recent events of a session migrating to this node are recorded
+ * for the session rather than delivered.</p>
+ *
+ * <p>A message whose delivery fails is retried a few times and then queued in the
+ * offline store for its session, before the stored ID moves past its entry. An
+ * entry that cannot be handled is skipped with a warning rather than holding back
+ * the entries after it.</p>
+ */
+public class ForwardedMessageReceiver {
+
+    private static final Logger logger = LoggerFactory.getLogger(ForwardedMessageReceiver.class);
+
+    private static final int READ_COUNT = 64;
+    private static final int DELIVERY_ATTEMPTS = 3;
+    private static final long RETRY_DELAY_MILLIS = 50;
+
+    private final RedisConnectionFactory connectionFactory;
+    private final byte[] inboxKey;
+    private final byte[] offsetKey;
+    private final DeliverMessageUseCase deliverMessageUseCase;
+    private final MigrateSessionUseCase migrateSessionUseCase;
+    private final OfflineMessageStore offlineMessageStore;
+    private final Duration pollTimeout;
+    private final Counter received;
+    private final Counter undeliverable;
+    private final Counter prewarmed;
+    private final Timer latency;
+    private final Thread reader;
+    private volatile boolean running = true;
+    // Read from the stored offset by the first poll
+    private ReadOffset offset;
+
+    /**
+     * @param connectionFactory connections to the Redis holding the inbox streams
+     * @param localNodeId ID of this node, whose inbox is read
+     * @param deliverMessageUseCase delivers the forwarded messages
+     * @param migrateSessionUseCase records the recent events of migrating sessions
+     * @param offlineMessageStore queues the messages that could not be delivered
+     * @param pollTimeout longest time a read blocks on the stream
+     * @param meterRegistry registry for the forwarding meters
+     */
+    public ForwardedMessageReceiver(
+            RedisConnectionFactory connectionFactory,
+            int localNodeId,
+            DeliverMessageUseCase deliverMessageUseCase,
+            MigrateSessionUseCase migrateSessionUseCase,
+            OfflineMessageStore offlineMessageStore,
+            Duration pollTimeout,
+            MeterRegistry meterRegistry) {
+        this.connectionFactory = Objects.requireNonNull(connectionFactory, "Redis connection factory cannot be null");
+        this.deliverMessageUseCase = Objects.requireNonNull(deliverMessageUseCase, "Deliver use case cannot be null");
+        this.migrateSessionUseCase = Objects.requireNonNull(migrateSessionUseCase, "Migrate use case cannot be null");
+        this.offlineMessageStore = Objects.requireNonNull(offlineMessageStore, "Offline message store cannot be null");
+        this.pollTimeout = Objects.requireNonNull(pollTimeout, "Poll timeout cannot be null");
+        if (localNodeId < 0) {
+            throw new IllegalArgumentException("Forwarding requires a node ID (ces.node.id)");
+        }
+        if (pollTimeout.isNegative() || pollTimeout.isZero()) {
+            throw new IllegalArgumentException("Forwarding poll timeout must be positive");
+        }
+        this.inboxKey = RedisStreamSessionForwarder.inboxKey(localNodeId);
+        this.offsetKey = RedisStreamSessionForwarder.inboxOffsetKey(localNodeId);
+
+        this.received = Counter.builder("ces.forward.received")
+                .description("Messages received from other nodes")
+                .register(meterRegistry);
+        this.undeliverable = Counter.builder("ces.forward.undeliverable")
+                .description("Forwarded messages that could neither be delivered nor queued on this node")
+                .register(meterRegistry);
+        this.prewarmed = Counter.builder("ces.migration.prewarmed")
+                .description("Recent events received for sessions migrating to this node")
+                .register(meterRegistry);
+        this.latency = Timer.builder("ces.forward.latency")
+                .description("Time from the sending node's flush to delivery on this node")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+
+        this.reader = new Thread(this::run, "ces-forward-receive");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                poll();
+            } catch (RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                logger.warn("Failed to read forwarded messages, retrying in {}", pollTimeout, e);
+                try {
+                    Thread.sleep(pollTimeout.toMillis());
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the next entries of the inbox, waiting up to the poll timeout, delivers
+     * their messages and stores the ID of the last one.
+     */
+    void poll() {
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            if (offset == null) {
+                byte[] stored = connection.stringCommands().get(offsetKey);
+                offset = stored == null
+                        ? ReadOffset.latest()
+                        : ReadOffset.from(new String(stored, StandardCharsets.UTF_8));
+            }
+            List<ByteRecord> records = connection.streamCommands().xRead(
+                    StreamReadOptions.empty().count(READ_COUNT).block(pollTimeout),
+                    StreamOffset.create(inboxKey, offset));
+            if (records == null || records.isEmpty()) {
+                return;
+            }
+            for (ByteRecord record : records) {
+                offset = ReadOffset.from(record.getId());
+                for (Map.Entry<byte[], byte[]> field : record.getValue().entrySet()) {
+                    try {
+                        if (Arrays.equals(RedisStreamSessionForwarder.PREWARM_FIELD, field.getKey())) {
+                            prewarm(field.getValue());
+                        } else {
+                            receive(field.getValue());
+                        }
+                    } catch (RuntimeException e) {
+                        logger.warn("Skipping forwarded entry {} that could not be handled", record.getId(), e);
+                    }
+                }
+            }
+            connection.stringCommands().set(offsetKey, offset.getOffset().getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Delivers the messages of one frame.
+     */
+    void receive(byte[] bytes) {
+        ForwardFrame frame;
+        try {
+            frame = ForwardFrame.decode(bytes);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Dropping malformed forward frame", e);
+            return;
+        }
+        long latencyMillis = Math.max(0, System.currentTimeMillis() - frame.forwardedAtMillis());
+        for (EventMessage message : frame.messages()) {
+            received.increment();
+            latency.record(latencyMillis, TimeUnit.MILLISECONDS);
+            deliver(message);
+        }
+    }
+
+    /**
+     * Delivers a forwarded message, retrying a failed delivery and finally queuing
+     * the message offline for its session.
+     */
+    private void deliver(EventMessage message) {
+        RuntimeException failure = null;
+        for (int attempt = 1; attempt <= DELIVERY_ATTEMPTS; attempt++) {
+            try {
+                deliverMessageUseCase.deliverForwarded(message);
+                return;
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            if (attempt < DELIVERY_ATTEMPTS && !pause(RETRY_DELAY_MILLIS * attempt)) {
+                break;
+            }
+        }
+        try {
+            offlineMessageStore.store(message);
+            logger.warn("Could not deliver forwarded message {}, queued it for session {}",
+                    message.getMessageId(), message.getTargetSessionId(), failure);
+        } catch (RuntimeException e) {
+            undeliverable.increment();
+            failure.addSuppressed(e);
+            logger.warn("Could not deliver or queue forwarded message {}", message.getMessageId(), failure);
+        }
+    }
+
+    private static boolean pause(long millis) {
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Records the recent events of a session migrating to this node.
+     */
+    void prewarm(byte[] bytes) {
+        ForwardFrame frame;
+        try {
+            frame = ForwardFrame.decode(bytes);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Dropping malformed prewarm frame", e);
+            return;
+        }
+        migrateSessionUseCase.prewarm(frame.messages());
+        prewarmed.increment(frame.messages().size());
+    }
+
+    /**
+     * Stops reading once the current poll returns.
+     */
+    public void close() {
+        running = false;
+        try {
+            reader.join(pollTimeout.toMillis() + 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.ces.infrastructure.cluster;
+
+import com.ces.application.port.output.SessionPlacement;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Places new sessions on the least loaded node, going by the load reports the
+ * {@link LoadReporter}s of all nodes publish to the shared session store.
+ *
+ * <p>Nodes whose process CPU load or queued outbound bytes are above their maximum
+ * are hot and only considered when every node is. Among the others two are drawn at
+ * random and the one with fewer connections wins, ties going to the lower CPU load.
+ * Comparing two random nodes rather than picking the least loaded one keeps the nodes
+ * registering sessions from all sending the sessions of one report interval to the
+ * same node; the sessions this node placed since a report are added to its count for
+ * the same reason.</p>
+ *
+ * <p>Reports older than the maximum age are ignored. Without a fresh report, no node
+ * is preferred and sessions stay on the node they registered with, the one the load
+ * balancer in front of the cluster picked.</p>
+ */
+public class LoadAwarePlacement implements SessionPlacement {
+
+    /**
+     * When a node's report is usable and when the node is hot.
+     *
+     * @param maxAge age beyond which a report is ignored
+     * @param maxCpuLoad process CPU load, 0 to 1, above which a node is hot
+     * @param maxQueuedBytes queued outbound bytes above which a node is hot
+     */
+    public record Settings(Duration maxAge, double maxCpuLoad, long maxQueuedBytes) {
+
+        public Settings {
+            if (maxAge.isNegative() || maxAge.isZero()) {
+                throw new IllegalArgumentException("Load report max age must be positive");
+            }
+            if (maxCpuLoad <= 0) {
+                throw new IllegalArgumentException("Load balancing max CPU load must be positive");
+            }
+            if (maxQueuedBytes < 1) {
+                throw new IllegalArgumentException("Load balancing max queued bytes must be positive");
+            }
+        }
+
+        /**
+         * Whether a report is recent enough to be used.
+         */
+        public boolean isFresh(NodeLoad load, long nowMillis) {
+            return load.reportedAtMillis() >= nowMillis - maxAge.toMillis();
+        }
+
+        /**
+         * Whether a node should not take more sessions.
+         */
+        public boolean isHot(NodeLoad load) {
+            return load.cpuLoad() > maxCpuLoad || load.queuedBytes() > maxQueuedBytes;
+        }
+    }
+
+    private record Candidate(NodeLoad load, AtomicInteger placed) {
+
+        int connections() {
+            return load.connections() + placed.get();
+        }
+    }
+
+    private final int localNodeId;
+    private final Settings settings;
+    private final Clock clock;
+    private final Counter localPlacements;
+    private final Counter remotePlacements;
+    private final Counter unplaced;
+    private volatile List<Candidate> candidates = List.of();
+
+    /**
+     * @param localNodeId ID of this node
+     * @param settings report age and hot node limits
+     * @param clock clock the report times are compared against
+     * @param meterRegistry registry for the placement meters
+     */
+    public LoadAwarePlacement(int localNodeId, Settings settings, Clock clock, MeterRegistry meterRegistry) {
+        this.settings = Objects.requireNonNull(settings, "Load balancing settings cannot be null");
+        this.clock = Objects.requireNonNull(clock, "Clock cannot be null");
+        if (localNodeId < 0) {
+            throw new IllegalArgumentException("Load balancing requires a node ID (ces.node.id)");
+        }
+        this.localNodeId = localNodeId;
+
+        this.localPlacements = Counter.builder("ces.placement.sessions")
+                .description("Sessions placed by load, by whether they stayed on the registering node")
+                .tag("target", "local")
+                .register(meterRegistry);
+        this.remotePlacements = Counter.builder("ces.placement.sessions")
+                .description("Sessions placed by load, by whether they stayed on the registering node")
+                .tag("target", "remote")
+                .register(meterRegistry);
+        this.unplaced = Counter.builder("ces.placement.unplaced")
+                .description("Sessions left on the registering node for lack of fresh load reports")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Replaces the load reports of all nodes, and forgets the sessions placed since
+     * the previous ones.
+     */
+    public void update(List<NodeLoad> reports) {
+        List<Candidate> updated = new ArrayList<>(reports.size());
+        for (NodeLoad report : reports) {
+            updated.add(new Candidate(report, new AtomicInteger()));
+        }
+        this.candidates = List.copyOf(updated);
+    }
+
+    @Override
+    public String webSocketBaseUrl(long accountId) {
+        long now = clock.millis();
+        List<Candidate> fresh = new ArrayList<>();
+        List<Candidate> cool = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            if (!settings.isFresh(candidate.load(), now)) {
+                continue;
+            }
+            fresh.add(candidate);
+            if (!settings.isHot(candidate.load())) {
+                cool.add(candidate);
+            }
+        }
+        if (fresh.isEmpty()) {
+            unplaced.increment();
+            return null;
+        }
+
+        Candidate chosen = choose(cool.isEmpty() ? fresh : cool);
+        chosen.placed().incrementAndGet();
+        if (chosen.load().nodeId() == localNodeId) {
+            localPlacements.increment();
+        } else {
+            remotePlacements.increment();
+        }
+        return chosen.load().webSocketBaseUrl();
+    }
+
+    private static Candidate choose(List<Candidate> pool) {
+        if (pool.size() == 1) {
+            return pool.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(pool.size());
+        int second = random.nextInt(pool.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        Candidate a = pool.get(first);
+        Candidate b = pool.get(second);
+        int byConnections = Integer.compare(a.connections(), b.connections());
+        if (byConnections != 0) {
+            return byConnections < 0 ? a : b;
+        }
+        return a.load().cpuLoad() <= b.load().cpuLoad() ? a : b;
+    }
+}
@@ -0,0 +1,149 @@
+package com.ces.infrastructure.cluster;
+
+import com.ces.infrastructure.websocket.OutboundBacklog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+
+/**
+ * Publishes the load of this node to the shared session store and reads the load
+ * of all nodes back, every report interval.
+ *
+ * <p>Reports are the fields of one Redis hash, keyed by node ID, so publishing and
+ * reading them is one round trip each whatever the size of the cluster. A node
+ * removes its report when it shuts down; the report of a node that died stays
+ * until it is older than any reader's maximum age and is then ignored. CPU load is
+ * only available on JVMs that expose {@code com.sun.management.OperatingSystemMXBean};
+ * elsewhere it reads as 0.</p>
+ */
+public class LoadReporter {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadReporter.class);
+
+    static final byte[] LOAD_KEY = "ces:nodes:load".getBytes(StandardCharsets.UTF_8);
+
+    private final RedisConnectionFactory connectionFactory;
+    private final int localNodeId;
+    private final byte[] localField;
+    private final String webSocketBaseUrl;
+    private final IntSupplier connections;
+    private final OutboundBacklog backlog;
+    private final Consumer<List<NodeLoad>> listener;
+    private final OperatingSystemMXBean operatingSystem;
+    private final ScheduledExecutorService reporter;
+
+    /**
+     * @param connectionFactory connections to the Redis holding the load reports
+     * @param localNodeId ID of this node
+     * @param webSocketBaseUrl WebSocket base URL of this node
+     * @param connections number of WebSocket connections open on this node
+     * @param backlog the node-wide outbound backlog
+     * @param listener receives the reports of all nodes after every read
+     * @param reportInterval time between two reports
+     */
+    public LoadReporter(
+            RedisConnectionFactory connectionFactory,
+            int localNodeId,
+            String webSocketBaseUrl,
+            IntSupplier connections,
+            OutboundBacklog backlog,
+            Consumer<List<NodeLoad>> listener,
+            Duration reportInterval) {
+        this.connectionFactory = Objects.requireNonNull(connectionFactory, "Redis connection factory cannot be null");
+        this.webSocketBaseUrl = Objects.requireNonNull(webSocketBaseUrl, "WebSocket base URL cannot be null");
+        this.connections = Objects.requireNonNull(connections, "Connection count cannot be null");
+        this.backlog = Objects.requireNonNull(backlog, "Outbound backlog cannot be null");
+        this.listener = Objects.requireNonNull(listener, "Load listener cannot be null");
+        if (localNodeId < 0) {
+            throw new IllegalArgumentException("Load balancing requires a node ID (ces.node.id)");
+        }
+        if (reportInterval.isNegative() || reportInterval.isZero()) {
+            throw new IllegalArgumentException("Load report interval must be positive");
+        }
+        this.localNodeId = localNodeId;
+        this.localField = field(localNodeId);
+        this.operatingSystem = ManagementFactory.getOperatingSystemMXBean();
+
+        this.reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ces-load-report");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = reportInterval.toMillis();
+        reporter.scheduleWithFixedDelay(this::report, 0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private static byte[] field(int nodeId) {
+        return Integer.toString(nodeId).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Publishes the current load of this node and passes the reports of all nodes
+     * to the listener.
+     */
+    void report() {
+        NodeLoad local = new NodeLoad(localNodeId, webSocketBaseUrl, connections.getAsInt(),
+                backlog.pendingBytes(), cpuLoad(), System.currentTimeMillis());
+        Map<byte[], byte[]> entries;
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.hashCommands().hSet(LOAD_KEY, localField, local.encode().getBytes(StandardCharsets.UTF_8));
+            entries = connection.hashCommands().hGetAll(LOAD_KEY);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to exchange load reports", e);
+            return;
+        }
+        listener.accept(decode(entries));
+    }
+
+    private static List<NodeLoad> decode(Map<byte[], byte[]> entries) {
+        if (entries == null) {
+            return List.of();
+        }
+        List<NodeLoad> reports = new ArrayList<>(entries.size());
+        for (Map.Entry<byte[], byte[]> entry : entries.entrySet()) {
+            String nodeId = new String(entry.getKey(), StandardCharsets.UTF_8);
+            try {
+                reports.add(NodeLoad.decode(Integer.parseInt(nodeId),
+                        new String(entry.getValue(), StandardCharsets.UTF_8)));
+            } catch (IllegalArgumentException e) {
+                logger.warn("Ignoring malformed load report of node {}", nodeId, e);
+            }
+        }
+        return reports;
+    }
+
+    private double cpuLoad() {
+        if (operatingSystem instanceof com.sun.management.OperatingSystemMXBean os) {
+            return Math.max(0, os.getProcessCpuLoad());
+        }
+        return 0;
+    }
+
+    /**
+     * Stops reporting and removes this node's report, so no more sessions are
+     * placed on it.
+     */
+    public void close() {
+        reporter.shutdownNow();
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.hashCommands().hDel(LOAD_KEY, localField);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to remove the load report of node {}", localNodeId, e);
+        }
+    }
+}
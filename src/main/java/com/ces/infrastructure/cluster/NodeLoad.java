@@ -0,0 +1,47 @@
+package com.ces.infrastructure.cluster;
+
+/**
+ * Load report of one node, as published to the shared session store.
+ *
+ * @param nodeId the node's ces.node.id
+ * @param webSocketBaseUrl the node's ces.websocket.base-url
+ * @param connections WebSocket connections open on the node
+ * @param queuedBytes bytes queued on the node's outbound channels
+ * @param cpuLoad the node's process CPU load, 0 to 1
+ * @param reportedAtMillis when the report was taken, in epoch milliseconds
+ */
+public record NodeLoad(
+        int nodeId,
+        String webSocketBaseUrl,
+        int connections,
+        long queuedBytes,
+        double cpuLoad,
+        long reportedAtMillis) {
+
+    private static final String SEPARATOR = " ";
+
+    /**
+     * Encodes the report, without the node ID, which is the hash field.
+     */
+    String encode() {
+        return reportedAtMillis + SEPARATOR + connections + SEPARATOR + queuedBytes + SEPARATOR + cpuLoad
+                + SEPARATOR + webSocketBaseUrl;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the value is not an encoded report
+     */
+    static NodeLoad decode(int nodeId, String encoded) {
+        String[] fields = encoded.split(SEPARATOR, 5);
+        if (fields.length != 5) {
+            throw new IllegalArgumentException("Malformed load report of node " + nodeId + ": " + encoded);
+        }
+        return new NodeLoad(
+                nodeId,
+                fields[4],
+                Integer.parseInt(fields[1]),
+                Long.parseLong(fields[2]),
+                Double.parseDouble(fields[3]),
+                Long.parseLong(fields[0]));
+    }
+}
@@ -0,0 +1,276 @@
+package com.ces.infrastructure.cluster;
+
+import com.ces.application.port.output.SessionForwarder;
+import com.ces.domain.model.EventMessage;
+import com.ces.domain.model.Session;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStreamCommands.XAddOptions;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Forwards messages for sessions connected to other nodes over Redis Streams.
+ *
+ * <p>The session registry records the node holding each connected session's
+ * WebSocket. Messages for another node are queued per node and flushed every flush
+ * interval: each node's queue is packed into {@link ForwardFrame}s of up to
+ * {@code maxBatch} messages, and the frames for all nodes are appended to the nodes'
+ * inbox streams in one pipelined round trip. Streams are trimmed to about
+ * {@code maxStreamLength} entries. The {@link ForwardedMessageReceiver} of each node
+ * reads its inbox.</p>
+ *
+ * <p>The recent events of a session migrating to another node are appended to that
+ * node's inbox right away, under their own field, before the session is switched.</p>
+ *
+ * <p>Frames of a flush that fails are kept and appended first by the next flush, so
+ * a node receives its messages in order once Redis is reachable again; messages of
+ * a pipeline that failed midway may be appended twice. While {@code maxPending}
+ * messages are queued or kept, further messages are not forwarded but delivered on
+ * the node that consumed them, as without forwarding. Frames still unsent when the
+ * forwarder is closed are dropped and counted.</p>
+ */
+public class RedisStreamSessionForwarder implements SessionForwarder {
+
+    private static final Logger logger = LoggerFactory.getLogger(RedisStreamSessionForwarder.class);
+
+    static final byte[] FRAME_FIELD = "f".getBytes(StandardCharsets.UTF_8);
+    static final byte[] PREWARM_FIELD = "w".getBytes(StandardCharsets.UTF_8);
+
+    private static final String INBOX_KEY_PREFIX = "ces:node:";
+    private static final String INBOX_KEY_SUFFIX = ":inbox";
+    private static final String INBOX_OFFSET_KEY_SUFFIX = ":inbox:offset";
+
+    /**
+     * Batching and bounds of the forwarder.
+     *
+     * @param maxBatch messages per stream entry
+     * @param flushInterval time between two flushes
+     * @param maxPending messages queued or unsent for all nodes before further ones are delivered locally
+     * @param maxStreamLength approximate entries kept per inbox stream
+     */
+    public record Settings(int maxBatch, Duration flushInterval, int maxPending, long maxStreamLength) {
+
+        public Settings {
+            if (maxBatch < 1) {
+                throw new IllegalArgumentException("Forwarding batch size must be positive");
+            }
+            if (flushInterval.isNegative() || flushInterval.isZero()) {
+                throw new IllegalArgumentException("Forwarding flush interval must be positive");
+            }
+            if (maxPending < 1) {
+                throw new IllegalArgumentException("Forwarding max pending messages must be positive");
+            }
+            if (maxStreamLength < 1) {
+                throw new IllegalArgumentException("Forwarding max stream length must be positive");
+            }
+        }
+    }
+
+    private record OutgoingFrame(int nodeId, byte[] frame, int messages) {
+    }
+
+    private final RedisConnectionFactory connectionFactory;
+    private final int localNodeId;
+    private final Settings settings;
+    private final Map<Integer, Queue<EventMessage>> outboxes = new ConcurrentHashMap<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    // Frames of failed flushes, oldest first
+    private final List<OutgoingFrame> unsent = new ArrayList<>();
+    private final Counter localMessages;
+    private final Counter remoteMessages;
+    private final Counter overflowMessages;
+    private final Counter droppedMessages;
+    private final Counter frames;
+    private final ScheduledExecutorService flusher;
+
+    /**
+     * @param connectionFactory connections to the Redis holding the inbox streams
+     * @param localNodeId ID of this node; its sessions are not forwarded
+     * @param settings batching and bounds
+     * @param meterRegistry registry for the forwarding meters
+     */
+    public RedisStreamSessionForwarder(
+            RedisConnectionFactory connectionFactory,
+            int localNodeId,
+            Settings settings,
+            MeterRegistry meterRegistry) {
+        this.connectionFactory = Objects.requireNonNull(connectionFactory, "Redis connection factory cannot be null");
+        this.settings = Objects.requireNonNull(settings, "Forwarding settings cannot be null");
+        if (localNodeId < 0) {
+            throw new IllegalArgumentException("Forwarding requires a node ID (ces.node.id)");
+        }
+        this.localNodeId = localNodeId;
+
+        this.localMessages = Counter.builder("ces.forward.messages")
+                .description("Messages for connected sessions, by whether their node consumed them")
+                .tag("route", "local")
+                .register(meterRegistry);
+        this.remoteMessages = Counter.builder("ces.forward.messages")
+                .description("Messages for connected sessions, by whether their node consumed them")
+                .tag("route", "remote")
+                .register(meterRegistry);
+        this.overflowMessages = Counter.builder("ces.forward.overflow")
+                .description("Messages for other nodes delivered locally because too many were pending")
+                .register(meterRegistry);
+        this.droppedMessages = Counter.builder("ces.forward.dropped")
+                .description("Messages for other nodes still unsent when forwarding stopped")
+                .register(meterRegistry);
+        this.frames = Counter.builder("ces.forward.frames")
+                .description("Stream entries appended to other nodes' inboxes")
+                .register(meterRegistry);
+        Gauge.builder("ces.forward.pending", pending, AtomicInteger::get)
+                .description("Messages queued or unsent for other nodes")
+                .register(meterRegistry);
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ces-forward-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalNanos = settings.flushInterval().toNanos();
+        flusher.scheduleWithFixedDelay(this::flush, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Key of the inbox stream of a node.
+     */
+    static byte[] inboxKey(int nodeId) {
+        return (INBOX_KEY_PREFIX + nodeId + INBOX_KEY_SUFFIX).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Key of the ID of the last inbox entry a node delivered.
+     */
+    static byte[] inboxOffsetKey(int nodeId) {
+        return (INBOX_KEY_PREFIX + nodeId + INBOX_OFFSET_KEY_SUFFIX).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public boolean forward(Session session, EventMessage message) {
+        int nodeId = session.getNodeId();
+        if (nodeId == Session.NO_NODE || nodeId == localNodeId) {
+            localMessages.increment();
+            return false;
+        }
+        if (pending.incrementAndGet() > settings.maxPending()) {
+            pending.decrementAndGet();
+            overflowMessages.increment();
+            return false;
+        }
+        remoteMessages.increment();
+        outboxes.computeIfAbsent(nodeId, id -> new ConcurrentLinkedQueue<>()).add(message);
+        return true;
+    }
+
+    /**
+     * Appends the recent events at once rather than with the next flush, so they
+     * precede every message forwarded for the session once it is marked migrating.
+     */
+    @Override
+    public boolean prewarm(int nodeId, List<EventMessage> recentEvents) {
+        if (nodeId < 0 || nodeId == localNodeId) {
+            return false;
+        }
+        byte[] frame = new ForwardFrame(System.currentTimeMillis(), recentEvents).encode();
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.streamCommands().xAdd(
+                    StreamRecords.newRecord().in(inboxKey(nodeId)).ofMap(Map.of(PREWARM_FIELD, frame)),
+                    XAddOptions.maxlen(settings.maxStreamLength()).approximateTrimming(true));
+            frames.increment();
+            return true;
+        } catch (RuntimeException e) {
+            logger.warn("Failed to hand {} recent events to node {}", recentEvents.size(), nodeId, e);
+            return false;
+        }
+    }
+
+    /**
+     * Appends the frames of failed flushes and the queued messages to the inboxes
+     * of their nodes in one pipelined round trip. If it fails, all of them are kept
+     * for the next flush.
+     */
+    synchronized void flush() {
+        long now = System.currentTimeMillis();
+        List<OutgoingFrame> outgoing = new ArrayList<>(unsent);
+        for (Map.Entry<Integer, Queue<EventMessage>> outbox : outboxes.entrySet()) {
+            List<EventMessage> batch = new ArrayList<>();
+            EventMessage message;
+            while ((message = outbox.getValue().poll()) != null) {
+                batch.add(message);
+                if (batch.size() == settings.maxBatch()) {
+                    outgoing.add(new OutgoingFrame(
+                            outbox.getKey(), new ForwardFrame(now, batch).encode(), batch.size()));
+                    batch = new ArrayList<>();
+                }
+            }
+            if (!batch.isEmpty()) {
+                outgoing.add(new OutgoingFrame(
+                        outbox.getKey(), new ForwardFrame(now, batch).encode(), batch.size()));
+            }
+        }
+        if (outgoing.isEmpty()) {
+            return;
+        }
+        int messages = outgoing.stream().mapToInt(OutgoingFrame::messages).sum();
+
+        XAddOptions options = XAddOptions.maxlen(settings.maxStreamLength()).approximateTrimming(true);
+        try (RedisConnection connection = connectionFactory.getConnection()) {
+            connection.openPipeline();
+            for (OutgoingFrame frame : outgoing) {
+                connection.streamCommands().xAdd(
+                        StreamRecords.newRecord().in(inboxKey(frame.nodeId())).ofMap(Map.of(FRAME_FIELD, frame.frame())),
+                        options);
+            }
+            connection.closePipeline();
+            frames.increment(outgoing.size());
+            unsent.clear();
+            pending.addAndGet(-messages);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to forward {} messages to other nodes, retrying with the next flush", messages, e);
+            unsent.clear();
+            unsent.addAll(outgoing);
+        }
+    }
+
+    /**
+     * Flushes the queued messages and stops flushing. Messages that cannot be
+     * appended then are dropped.
+     */
+    public void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(settings.flushInterval().toMillis() + 1000, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        synchronized (this) {
+            int messages = unsent.stream().mapToInt(OutgoingFrame::messages).sum();
+            if (messages > 0) {
+                logger.warn("Dropping {} messages for other nodes that could not be forwarded", messages);
+                droppedMessages.increment(messages);
+                pending.addAndGet(-messages);
+                unsent.clear();
+            }
+        }
+    }
+}
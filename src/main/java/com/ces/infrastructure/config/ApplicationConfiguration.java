@@ -1,22 +1,63 @@
 package com.ces.infrastructure.config;
 
+import com.ces.application.port.input.ConnectSessionUseCase;
 import com.ces.application.port.input.DeliverMessageUseCase;
+import com.ces.application.port.input.MigrateSessionUseCase;
 import com.ces.application.port.input.RegisterSessionUseCase;
 import com.ces.application.port.output.MessageSender;
+import com.ces.application.port.output.MessageTypeSubscriptions;
+import com.ces.application.port.output.OfflineMessageStore;
+import com.ces.application.port.output.RecentEventBuffer;
+import com.ces.application.port.output.SessionForwarder;
+import com.ces.application.port.output.SessionGroupIndex;
+import com.ces.application.port.output.SessionPlacement;
 import com.ces.application.port.output.SessionRepository;
+import com.ces.application.service.ConnectSessionService;
 import com.ces.application.service.DeliverMessageService;
+import com.ces.application.service.MigrateSessionService;
 import com.ces.application.service.RegisterSessionService;
+import com.ces.domain.filter.ContentFilterCompiler;
+import com.ces.domain.filter.FieldProjectionCompiler;
+import com.ces.domain.model.MessageIdGenerator;
 import com.ces.domain.model.Session;
 import com.ces.domain.service.SessionRegistry;
+import com.ces.infrastructure.adapter.InMemoryMessageTypeSubscriptions;
+import com.ces.infrastructure.adapter.InMemoryOfflineMessageStore;
+import com.ces.infrastructure.adapter.InMemoryRecentEventBuffer;
+import com.ces.infrastructure.adapter.InMemorySessionGroupIndex;
 import com.ces.infrastructure.adapter.InMemorySessionRegistry;
 import com.ces.infrastructure.adapter.InMemorySessionRepository;
+import com.ces.infrastructure.adapter.KafkaMessageConsumerAdapter;
+import com.ces.infrastructure.adapter.MVStoreOfflineMessageStore;
 import com.ces.infrastructure.adapter.RedisSessionRegistry;
 import com.ces.infrastructure.adapter.WebSocketMessageSender;
+import com.ces.infrastructure.kafka.BackpressureController;
+import com.ces.infrastructure.kafka.LoadShedder;
+import com.ces.infrastructure.kafka.MessageTypeFilter;
+import com.ces.infrastructure.kafka.OverloadDetector;
+import com.ces.infrastructure.kafka.SequenceDeduplicator;
+import com.ces.infrastructure.kafka.SequenceReorderer;
+import com.ces.infrastructure.websocket.CompressionDictionary;
+import com.ces.infrastructure.websocket.DictionarySampler;
+import com.ces.infrastructure.websocket.FrameCompressor;
+import com.ces.infrastructure.websocket.GradientConcurrencyLimiter;
+import com.ces.infrastructure.websocket.OutboundBacklog;
+import com.ces.infrastructure.websocket.PriorityLanes;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Configuration class for application layer beans.
@@ -27,6 +68,8 @@ import org.springframework.data.redis.core.RedisTemplate;
 @Configuration
 public class ApplicationConfiguration {
 
+    private static final Logger logger = LoggerFactory.getLogger(ApplicationConfiguration.class);
+
     /**
      * In-memory SessionRegistry for local development.
      * Activated when ces.session.storage is not set to "redis" or not present.
@@ -47,9 +90,296 @@ public class ApplicationConfiguration {
         return new RedisSessionRegistry(sessionRedisTemplate);
     }
 
+    /**
+     * In-memory OfflineMessageStore for local development.
+     * Activated when ces.offline-store.storage is "in-memory" or not present.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "ces.offline-store.storage", havingValue = "in-memory", matchIfMissing = true)
+    public OfflineMessageStore inMemoryOfflineMessageStore(OfflineStoreProperties offlineStoreProperties) {
+        return new InMemoryOfflineMessageStore(
+                offlineStoreProperties.getTtl(),
+                offlineStoreProperties.getMaxMessagesPerSession());
+    }
+
+    /**
+     * Durable MVStore-backed OfflineMessageStore that survives node restarts.
+     * Activated when ces.offline-store.storage is set to "mvstore".
+     */
+    @Bean
+    @ConditionalOnProperty(name = "ces.offline-store.storage", havingValue = "mvstore")
+    public OfflineMessageStore mvStoreOfflineMessageStore(OfflineStoreProperties offlineStoreProperties) {
+        return new MVStoreOfflineMessageStore(
+                Path.of(offlineStoreProperties.getPath()),
+                offlineStoreProperties.getCacheSizeMb(),
+                offlineStoreProperties.getTtl(),
+                offlineStoreProperties.getMaxMessagesPerSession());
+    }
+
+    @Bean
+    public RecentEventBuffer recentEventBuffer(ResumeProperties resumeProperties) {
+        return new InMemoryRecentEventBuffer(resumeProperties.getRingSize(), resumeProperties.getRetention());
+    }
+
+    @Bean
+    public SessionGroupIndex sessionGroupIndex() {
+        return new InMemorySessionGroupIndex();
+    }
+
+    /**
+     * Periodically removes expired offline messages, idle recent-event rings, and
+     * indexed group members whose session is no longer connected in the registry,
+     * e.g. because its Redis entry expired.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService expiryPurger(
+            OfflineMessageStore offlineMessageStore,
+            RecentEventBuffer recentEventBuffer,
+            SessionRegistry sessionRegistry,
+            SessionGroupIndex sessionGroupIndex,
+            OfflineStoreProperties offlineStoreProperties) {
+        ScheduledExecutorService purger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ces-expiry-purge");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalMillis = offlineStoreProperties.getPurgeInterval().toMillis();
+        purger.scheduleWithFixedDelay(() -> {
+            offlineMessageStore.purgeExpired();
+            recentEventBuffer.purgeIdle();
+            try {
+                sessionGroupIndex.removeInactive(sessionRegistry::findActive);
+            } catch (RuntimeException e) {
+                // A failing registry must not cancel the purge schedule
+                logger.warn("Failed to remove expired sessions from the group index", e);
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        return purger;
+    }
+
+    /**
+     * Drops FeedMessages consumed more than once before they are delivered.
+     * Enabled unless ces.kafka.dedup.enabled is false.
+     */
+    @Bean
+    public SequenceDeduplicator sequenceDeduplicator(
+            KafkaConsumerProperties kafkaConsumerProperties,
+            MeterRegistry meterRegistry) {
+        KafkaConsumerProperties.Dedup dedup = kafkaConsumerProperties.getDedup();
+        if (!dedup.isEnabled()) {
+            return SequenceDeduplicator.disabled();
+        }
+        return new SequenceDeduplicator(dedup.getWindowSize(), meterRegistry);
+    }
+
+    @Bean
+    public ContentFilterCompiler contentFilterCompiler() {
+        return new ContentFilterCompiler();
+    }
+
+    @Bean
+    public FieldProjectionCompiler fieldProjectionCompiler() {
+        return new FieldProjectionCompiler();
+    }
+
+    @Bean
+    public MessageTypeSubscriptions messageTypeSubscriptions() {
+        return new InMemoryMessageTypeSubscriptions();
+    }
+
+    /**
+     * Drops consumed message types no session on this node subscribed to.
+     * Disabled unless ces.kafka.type-filter.enabled is true.
+     */
+    @Bean
+    public MessageTypeFilter messageTypeFilter(
+            KafkaConsumerProperties kafkaConsumerProperties,
+            MessageTypeSubscriptions messageTypeSubscriptions,
+            MeterRegistry meterRegistry) {
+        if (!kafkaConsumerProperties.getTypeFilter().isEnabled()) {
+            return MessageTypeFilter.disabled();
+        }
+        return new MessageTypeFilter(messageTypeSubscriptions, meterRegistry);
+    }
+
+    /**
+     * Creates message IDs for consumed records, using ces.node.id when set.
+     */
+    @Bean
+    public MessageIdGenerator messageIdGenerator(NodeProperties nodeProperties) {
+        if (nodeProperties.getId() < 0) {
+            return MessageIdGenerator.local();
+        }
+        return new MessageIdGenerator(nodeProperties.getId());
+    }
+
+    /**
+     * Releases consumed messages in sequence order for the sequencing keys listed in
+     * ces.kafka.reorder.keys. Disabled unless ces.kafka.reorder.enabled is true.
+     */
+    @Bean
+    public SequenceReorderer sequenceReorderer(
+            DeliverMessageUseCase deliverMessageUseCase,
+            KafkaConsumerProperties kafkaConsumerProperties,
+            MeterRegistry meterRegistry) {
+        KafkaConsumerProperties.Reorder reorder = kafkaConsumerProperties.getReorder();
+        if (!reorder.isEnabled()) {
+            return SequenceReorderer.disabled();
+        }
+        if (reorder.getKeys().isEmpty()) {
+            throw new IllegalStateException(
+                    "ces.kafka.reorder needs ces.kafka.reorder.keys, the sequencing keys with dense sequence IDs");
+        }
+        return new SequenceReorderer(
+                deliverMessageUseCase::deliver,
+                reorder.getKeys(),
+                reorder.getMaxHeld(),
+                reorder.getMaxHold(),
+                meterRegistry);
+    }
+
+    /**
+     * Frame compressor shared by all outbound channels.
+     * Disabled unless ces.websocket.outbound.compression.enabled is true.
+     */
     @Bean
-    public MessageSender messageSender() {
-        return new WebSocketMessageSender();
+    public FrameCompressor frameCompressor(
+            WebSocketOutboundProperties outboundProperties,
+            MeterRegistry meterRegistry) {
+        WebSocketOutboundProperties.Compression compression = outboundProperties.getCompression();
+        if (!compression.isEnabled()) {
+            return FrameCompressor.disabled();
+        }
+        CompressionDictionary dictionary = compression.getDictionaryPath() != null
+                ? CompressionDictionary.load(Path.of(compression.getDictionaryPath()))
+                : null;
+        DictionarySampler sampler = compression.getSampleOutputPath() != null
+                ? new DictionarySampler(Path.of(compression.getSampleOutputPath()),
+                        compression.getSampleEvery(), compression.getMaxSamples())
+                : null;
+        return new FrameCompressor(
+                compression.getMinFrameBytes(),
+                compression.getLevel(),
+                dictionary,
+                sampler,
+                meterRegistry);
+    }
+
+    /**
+     * Outbound lanes by message type, with a latency histogram per lane.
+     * Enabled unless ces.websocket.outbound.priority.enabled is false.
+     */
+    @Bean
+    public PriorityLanes priorityLanes(
+            WebSocketOutboundProperties outboundProperties,
+            MeterRegistry meterRegistry) {
+        WebSocketOutboundProperties.Priority priority = outboundProperties.getPriority();
+        if (!priority.isEnabled()) {
+            return PriorityLanes.none();
+        }
+        return new PriorityLanes(
+                priority.getLanes(),
+                priority.getSlo(),
+                priority.getFlushThreads(),
+                meterRegistry);
+    }
+
+    @Bean
+    public OutboundBacklog outboundBacklog() {
+        return new OutboundBacklog();
+    }
+
+    /**
+     * Adaptive limit on the connections the shared flush pool writes to at once.
+     * Disabled unless ces.websocket.outbound.concurrency-limit.enabled is true.
+     */
+    @Bean
+    public GradientConcurrencyLimiter writeConcurrencyLimiter(
+            WebSocketOutboundProperties outboundProperties,
+            MeterRegistry meterRegistry) {
+        WebSocketOutboundProperties.ConcurrencyLimit concurrencyLimit = outboundProperties.getConcurrencyLimit();
+        if (!concurrencyLimit.isEnabled()) {
+            return GradientConcurrencyLimiter.unlimited();
+        }
+        return new GradientConcurrencyLimiter(
+                new GradientConcurrencyLimiter.Settings(
+                        concurrencyLimit.getInitialLimit(),
+                        concurrencyLimit.getMinLimit(),
+                        concurrencyLimit.getMaxLimit(),
+                        concurrencyLimit.getTolerance(),
+                        concurrencyLimit.getSmoothing(),
+                        concurrencyLimit.getLowPriorityShare(),
+                        concurrencyLimit.getWindowSize(),
+                        concurrencyLimit.getDeferDelay().toNanos()),
+                meterRegistry);
+    }
+
+    @Bean
+    public WebSocketMessageSender messageSender(
+            WebSocketOutboundProperties outboundProperties,
+            FrameCompressor frameCompressor,
+            OutboundBacklog outboundBacklog,
+            PriorityLanes priorityLanes,
+            GradientConcurrencyLimiter writeConcurrencyLimiter) {
+        return new WebSocketMessageSender(
+                outboundProperties.toBatchSettings(),
+                outboundProperties.toConflationPolicy(),
+                frameCompressor,
+                outboundProperties.toCorrelationSettings(),
+                outboundProperties.getFlushThreads(),
+                outboundProperties.getFanOutThreads(),
+                outboundProperties.getFanOutShardSize(),
+                outboundBacklog,
+                priorityLanes,
+                writeConcurrencyLimiter);
+    }
+
+    /**
+     * Pauses the feed listener while the outbound WebSocket backlog is above its
+     * high watermarks and resumes it below the low ones.
+     * Enabled unless ces.kafka.backpressure.enabled is false.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "ces.kafka.backpressure.enabled", havingValue = "true", matchIfMissing = true)
+    public BackpressureController backpressureController(
+            OutboundBacklog outboundBacklog,
+            KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry,
+            KafkaConsumerProperties kafkaConsumerProperties,
+            MeterRegistry meterRegistry) {
+        KafkaConsumerProperties.Backpressure backpressure = kafkaConsumerProperties.getBackpressure();
+        return new BackpressureController(
+                outboundBacklog,
+                kafkaListenerEndpointRegistry,
+                KafkaMessageConsumerAdapter.LISTENER_ID,
+                backpressure.toWatermarks(),
+                backpressure.getCheckInterval(),
+                meterRegistry);
+    }
+
+    /**
+     * Drops shed and stale message types at ingest while the node is overloaded.
+     * Disabled unless ces.kafka.overload.enabled is true.
+     */
+    @Bean(destroyMethod = "close")
+    public LoadShedder loadShedder(
+            OutboundBacklog outboundBacklog,
+            KafkaConsumerProperties kafkaConsumerProperties,
+            MeterRegistry meterRegistry) {
+        KafkaConsumerProperties.Overload overload = kafkaConsumerProperties.getOverload();
+        if (!overload.isEnabled()) {
+            return LoadShedder.disabled();
+        }
+        OverloadDetector detector = new OverloadDetector(
+                outboundBacklog,
+                overload.toThresholds(),
+                overload.getCheckInterval(),
+                meterRegistry);
+        return new LoadShedder(
+                detector,
+                overload.getShedTypes(),
+                overload.getMaxAge(),
+                Clock.systemUTC(),
+                meterRegistry);
     }
 
     @Bean
@@ -60,15 +390,58 @@ public class ApplicationConfiguration {
     @Bean
     public DeliverMessageUseCase deliverMessageUseCase(
             SessionRegistry sessionRegistry,
-            MessageSender messageSender) {
-        return new DeliverMessageService(sessionRegistry, messageSender);
+            MessageSender messageSender,
+            OfflineMessageStore offlineMessageStore,
+            RecentEventBuffer recentEventBuffer,
+            SessionGroupIndex sessionGroupIndex,
+            SessionForwarder sessionForwarder) {
+        return new DeliverMessageService(sessionRegistry, messageSender, offlineMessageStore,
+                recentEventBuffer, sessionGroupIndex, sessionForwarder);
+    }
+
+    /**
+     * Records ces.node.id, when set, in the sessions connected to this node.
+     */
+    @Bean
+    public ConnectSessionUseCase connectSessionUseCase(
+            SessionRegistry sessionRegistry,
+            MessageSender messageSender,
+            OfflineMessageStore offlineMessageStore,
+            RecentEventBuffer recentEventBuffer,
+            SessionGroupIndex sessionGroupIndex,
+            NodeProperties nodeProperties) {
+        int nodeId = nodeProperties.getId() >= 0 ? nodeProperties.getId() : Session.NO_NODE;
+        return new ConnectSessionService(
+                sessionRegistry, messageSender, offlineMessageStore, recentEventBuffer, sessionGroupIndex, nodeId);
+    }
+
+    /**
+     * Moves sessions connected to this node to other nodes; used by the connection
+     * rebalancer and by the forwarded message receiver of the target node.
+     */
+    @Bean
+    public MigrateSessionUseCase migrateSessionUseCase(
+            SessionRegistry sessionRegistry,
+            MessageSender messageSender,
+            RecentEventBuffer recentEventBuffer,
+            SessionGroupIndex sessionGroupIndex,
+            SessionForwarder sessionForwarder,
+            NodeProperties nodeProperties) {
+        int nodeId = nodeProperties.getId() >= 0 ? nodeProperties.getId() : Session.NO_NODE;
+        return new MigrateSessionService(
+                sessionRegistry, messageSender, recentEventBuffer, sessionGroupIndex, sessionForwarder, nodeId);
     }
 
     @Bean
     public RegisterSessionUseCase registerSessionUseCase(
             SessionRegistry sessionRegistry,
             SessionRepository sessionRepository,
+            MessageTypeSubscriptions messageTypeSubscriptions,
+            ContentFilterCompiler contentFilterCompiler,
+            FieldProjectionCompiler fieldProjectionCompiler,
+            SessionPlacement sessionPlacement,
             @Value("${ces.websocket.base-url}") String websocketBaseUrl) {
-        return new RegisterSessionService(sessionRegistry, sessionRepository, websocketBaseUrl);
+        return new RegisterSessionService(sessionRegistry, sessionRepository, messageTypeSubscriptions,
+                contentFilterCompiler, fieldProjectionCompiler, websocketBaseUrl, sessionPlacement);
     }
 }
@@ -0,0 +1,150 @@
+package com.ces.infrastructure.config;
+
+import com.ces.application.port.input.DeliverMessageUseCase;
+import com.ces.application.port.input.MigrateSessionUseCase;
+import com.ces.application.port.output.OfflineMessageStore;
+import com.ces.application.port.output.SessionForwarder;
+import com.ces.application.port.output.SessionPlacement;
+import com.ces.infrastructure.adapter.WebSocketMessageSender;
+import com.ces.infrastructure.cluster.ConnectionRebalancer;
+import com.ces.infrastructure.cluster.ForwardedMessageReceiver;
+import com.ces.infrastructure.cluster.LoadAwarePlacement;
+import com.ces.infrastructure.cluster.LoadReporter;
+import com.ces.infrastructure.cluster.NodeLoad;
+import com.ces.infrastructure.cluster.RedisStreamSessionForwarder;
+import com.ces.infrastructure.websocket.OutboundBacklog;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+
+import java.time.Clock;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Configuration of message forwarding, load reporting and session migration between
+ * the nodes of a cluster.
+ * Forwarding needs the shared session registry (ces.session.storage: redis),
+ * which records the node each session is connected to, and a ces.node.id per node.
+ */
+@Configuration
+public class ClusterConfiguration {
+
+    /**
+     * Delivers every message on the node that consumed it.
+     * Activated unless ces.node.forwarding.enabled is true.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "ces.node.forwarding.enabled", havingValue = "false", matchIfMissing = true)
+    public SessionForwarder localSessionForwarder() {
+        return SessionForwarder.none();
+    }
+
+    /**
+     * Forwards messages for sessions connected to other nodes over Redis Streams.
+     * Activated when ces.node.forwarding.enabled is true.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "ces.node.forwarding.enabled", havingValue = "true")
+    public SessionForwarder redisStreamSessionForwarder(
+            RedisConnectionFactory redisConnectionFactory,
+            NodeProperties nodeProperties,
+            MeterRegistry meterRegistry) {
+        NodeProperties.Forwarding forwarding = nodeProperties.getForwarding();
+        return new RedisStreamSessionForwarder(
+                redisConnectionFactory,
+                nodeProperties.getId(),
+                new RedisStreamSessionForwarder.Settings(
+                        forwarding.getMaxBatch(),
+                        forwarding.getFlushInterval(),
+                        forwarding.getMaxPending(),
+                        forwarding.getMaxStreamLength()),
+                meterRegistry);
+    }
+
+    /**
+     * Delivers the messages other nodes forwarded to this node.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "ces.node.forwarding.enabled", havingValue = "true")
+    public ForwardedMessageReceiver forwardedMessageReceiver(
+            RedisConnectionFactory redisConnectionFactory,
+            NodeProperties nodeProperties,
+            DeliverMessageUseCase deliverMessageUseCase,
+            MigrateSessionUseCase migrateSessionUseCase,
+            OfflineMessageStore offlineMessageStore,
+            MeterRegistry meterRegistry) {
+        return new ForwardedMessageReceiver(
+                redisConnectionFactory,
+                nodeProperties.getId(),
+                deliverMessageUseCase,
+                migrateSessionUseCase,
+                offlineMessageStore,
+                nodeProperties.getForwarding().getPollTimeout(),
+                meterRegistry);
+    }
+
+    /**
+     * Moves connected sessions off this node while it holds more than its share.
+     * Activated when ces.node.rebalancing.enabled is true; needs load balancing
+     * and forwarding enabled too.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "ces.node.rebalancing.enabled", havingValue = "true")
+    public ConnectionRebalancer connectionRebalancer(
+            MigrateSessionUseCase migrateSessionUseCase,
+            WebSocketMessageSender messageSender,
+            NodeProperties nodeProperties,
+            MeterRegistry meterRegistry) {
+        NodeProperties.LoadBalancing loadBalancing = nodeProperties.getLoadBalancing();
+        if (!loadBalancing.isEnabled() || !nodeProperties.getForwarding().isEnabled()) {
+            throw new IllegalStateException(
+                    "ces.node.rebalancing needs ces.node.load-balancing and ces.node.forwarding enabled");
+        }
+        return new ConnectionRebalancer(
+                migrateSessionUseCase,
+                nodeProperties.getId(),
+                messageSender::connectedSessionIds,
+                loadBalancing.toPlacementSettings(),
+                nodeProperties.getRebalancing().toRebalancerSettings(),
+                Clock.systemUTC(),
+                meterRegistry);
+    }
+
+    /**
+     * Publishes the load of this node and passes the load of all nodes to the
+     * session placement, when it places sessions by load, and to the connection
+     * rebalancer, when there is one.
+     * Activated when ces.node.load-balancing.enabled is true.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "ces.node.load-balancing.enabled", havingValue = "true")
+    public LoadReporter loadReporter(
+            RedisConnectionFactory redisConnectionFactory,
+            NodeProperties nodeProperties,
+            WebSocketMessageSender messageSender,
+            OutboundBacklog outboundBacklog,
+            SessionPlacement sessionPlacement,
+            ObjectProvider<ConnectionRebalancer> connectionRebalancer,
+            @Value("${ces.websocket.base-url}") String websocketBaseUrl) {
+        Consumer<List<NodeLoad>> listener = sessionPlacement instanceof LoadAwarePlacement loadAwarePlacement
+                ? loadAwarePlacement::update
+                : reports -> { };
+        ConnectionRebalancer rebalancer = connectionRebalancer.getIfAvailable();
+        if (rebalancer != null) {
+            listener = listener.andThen(rebalancer::update);
+        }
+        return new LoadReporter(
+                redisConnectionFactory,
+                nodeProperties.getId(),
+                websocketBaseUrl,
+                messageSender::connectionCount,
+                outboundBacklog,
+                listener,
+                nodeProperties.getLoadBalancing().getReportInterval());
+    }
+}
@@ -0,0 +1,165 @@
+package com.ces.infrastructure.config;
+
+import com.ces.application.port.output.SessionPlacement;
+import com.ces.infrastructure.adapter.KafkaMessageConsumerAdapter;
+import com.ces.infrastructure.cluster.LoadAwarePlacement;
+import com.ces.infrastructure.kafka.CatchUpController;
+import com.ces.infrastructure.kafka.CatchUpFilter;
+import com.ces.infrastructure.kafka.ConsistentHashAssignor;
+import com.ces.infrastructure.kafka.FeedMessageDeserializer;
+import com.ces.infrastructure.kafka.FeedRecord;
+import com.ces.infrastructure.kafka.PartitionOwnership;
+import com.ces.infrastructure.kafka.RepartitionStage;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaConsumerFactoryCustomizer;
+import org.springframework.boot.autoconfigure.kafka.KafkaProperties;
+import org.springframework.boot.ssl.SslBundles;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+
+import java.time.Clock;
+import java.util.Map;
+
+/**
+ * Configuration of the Kafka consumer beyond what Spring Boot auto-configures.
+ */
+@Configuration
+public class KafkaConfiguration {
+
+    /**
+     * Decides which records to skip while catching up on a backlog.
+     * Never skips unless ces.kafka.catch-up.enabled is true.
+     */
+    @Bean
+    public CatchUpFilter catchUpFilter(
+            KafkaConsumerProperties kafkaConsumerProperties,
+            MeterRegistry meterRegistry) {
+        KafkaConsumerProperties.CatchUp catchUp = kafkaConsumerProperties.getCatchUp();
+        if (!catchUp.isEnabled()) {
+            return CatchUpFilter.disabled();
+        }
+        return new CatchUpFilter(catchUp.getMaxAge(), Clock.systemUTC(), meterRegistry);
+    }
+
+    /**
+     * Switches catch-up on while the feed listener lags behind.
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "ces.kafka.catch-up.enabled", havingValue = "true")
+    public CatchUpController catchUpController(
+            CatchUpFilter catchUpFilter,
+            KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry,
+            KafkaConsumerProperties kafkaConsumerProperties) {
+        KafkaConsumerProperties.CatchUp catchUp = kafkaConsumerProperties.getCatchUp();
+        return new CatchUpController(
+                catchUpFilter,
+                kafkaListenerEndpointRegistry,
+                KafkaMessageConsumerAdapter.LISTENER_ID,
+                catchUp.getEnterLag(),
+                catchUp.getExitLag(),
+                catchUp.getCheckInterval());
+    }
+
+    /**
+     * Gives every consumer a FeedMessageDeserializer that consults the catch-up
+     * filter, in place of the one named in spring.kafka.consumer.value-deserializer.
+     */
+    @Bean
+    @SuppressWarnings("unchecked")
+    public DefaultKafkaConsumerFactoryCustomizer feedMessageDeserializerCustomizer(CatchUpFilter catchUpFilter) {
+        return consumerFactory -> ((DefaultKafkaConsumerFactory<Object, FeedRecord>) consumerFactory)
+                .setValueDeserializerSupplier(() -> new FeedMessageDeserializer(catchUpFilter));
+    }
+
+    /**
+     * Places new sessions on the node consuming their account's partition when
+     * ces.kafka.affinity.enabled is true, else on the least loaded node when
+     * ces.node.load-balancing.enabled is true. Otherwise keeps sessions on the
+     * registering node.
+     */
+    @Bean
+    public SessionPlacement sessionPlacement(
+            KafkaConsumerProperties kafkaConsumerProperties,
+            NodeProperties nodeProperties,
+            MeterRegistry meterRegistry) {
+        if (kafkaConsumerProperties.getAffinity().isEnabled()) {
+            return new PartitionOwnership();
+        }
+        NodeProperties.LoadBalancing loadBalancing = nodeProperties.getLoadBalancing();
+        if (loadBalancing.isEnabled()) {
+            return new LoadAwarePlacement(
+                    nodeProperties.getId(), loadBalancing.toPlacementSettings(), Clock.systemUTC(), meterRegistry);
+        }
+        return SessionPlacement.local();
+    }
+
+    /**
+     * Assigns partitions with the ConsistentHashAssignor, announcing this node's
+     * WebSocket base URL and publishing the partition owners to the session placement.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "ces.kafka.affinity.enabled", havingValue = "true")
+    public DefaultKafkaConsumerFactoryCustomizer consistentHashAssignorCustomizer(
+            SessionPlacement sessionPlacement,
+            KafkaConsumerProperties kafkaConsumerProperties,
+            @Value("${ces.websocket.base-url}") String websocketBaseUrl) {
+        Map<String, Object> configs = Map.of(
+                ConsumerConfig.PARTITION_ASSIGNMENT_STRATEGY_CONFIG, ConsistentHashAssignor.class.getName(),
+                ConsistentHashAssignor.OWNERSHIP_CONFIG, sessionPlacement,
+                ConsistentHashAssignor.NODE_URL_CONFIG, websocketBaseUrl,
+                ConsistentHashAssignor.VIRTUAL_NODES_CONFIG, kafkaConsumerProperties.getAffinity().getVirtualNodes());
+        return consumerFactory -> consumerFactory.updateConfigs(configs);
+    }
+
+    /**
+     * The account-keyed topic the feed is republished to, created if missing.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "ces.kafka.repartition.enabled", havingValue = "true")
+    public NewTopic repartitionTopic(KafkaConsumerProperties kafkaConsumerProperties) {
+        KafkaConsumerProperties.Repartition repartition = kafkaConsumerProperties.getRepartition();
+        return TopicBuilder.name(repartition.getTopic())
+                .partitions(repartition.getPartitions())
+                .build();
+    }
+
+    /**
+     * Republishes the configured topics to the account-keyed topic the feed
+     * listener consumes instead.
+     */
+    @Bean(initMethod = "start", destroyMethod = "close")
+    @ConditionalOnProperty(name = "ces.kafka.repartition.enabled", havingValue = "true")
+    public RepartitionStage repartitionStage(
+            KafkaProperties kafkaProperties,
+            ObjectProvider<SslBundles> sslBundles,
+            KafkaConsumerProperties kafkaConsumerProperties,
+            MeterRegistry meterRegistry) {
+        KafkaConsumerProperties.Repartition repartition = kafkaConsumerProperties.getRepartition();
+
+        Map<String, Object> consumerConfigs = kafkaProperties.buildConsumerProperties(sslBundles.getIfAvailable());
+        consumerConfigs.put(ConsumerConfig.GROUP_ID_CONFIG, repartition.getGroupId());
+
+        Map<String, Object> producerConfigs = kafkaProperties.buildProducerProperties(sslBundles.getIfAvailable());
+        producerConfigs.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, repartition.getCompressionType());
+        producerConfigs.put(ProducerConfig.LINGER_MS_CONFIG, (int) repartition.getLinger().toMillis());
+        producerConfigs.put(ProducerConfig.BATCH_SIZE_CONFIG, repartition.getBatchSize());
+        producerConfigs.put(ProducerConfig.ACKS_CONFIG, "all");
+
+        return new RepartitionStage(
+                consumerConfigs,
+                producerConfigs,
+                kafkaConsumerProperties.getTopics(),
+                repartition.getTopic(),
+                repartition.getConcurrency(),
+                meterRegistry);
+    }
+}
@@ -1,9 +1,17 @@
 package com.ces.infrastructure.config;
 
+import com.ces.infrastructure.kafka.BackpressureWatermarks;
+import com.ces.infrastructure.kafka.OverloadThresholds;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header.Identifier.SequencingKey;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Configuration properties for Kafka consumer settings.
@@ -14,6 +22,14 @@ import java.util.List;
 public class KafkaConsumerProperties {
     
     private List<String> topics;
+    private Dedup dedup = new Dedup();
+    private Reorder reorder = new Reorder();
+    private TypeFilter typeFilter = new TypeFilter();
+    private Backpressure backpressure = new Backpressure();
+    private Overload overload = new Overload();
+    private CatchUp catchUp = new CatchUp();
+    private Affinity affinity = new Affinity();
+    private Repartition repartition = new Repartition();
 
     public List<String> getTopics() {
         return topics;
@@ -22,4 +38,477 @@ public class KafkaConsumerProperties {
     public void setTopics(List<String> topics) {
         this.topics = topics;
     }
+
+    public Dedup getDedup() {
+        return dedup;
+    }
+
+    public void setDedup(Dedup dedup) {
+        this.dedup = dedup;
+    }
+
+    public Reorder getReorder() {
+        return reorder;
+    }
+
+    public void setReorder(Reorder reorder) {
+        this.reorder = reorder;
+    }
+
+    public TypeFilter getTypeFilter() {
+        return typeFilter;
+    }
+
+    public void setTypeFilter(TypeFilter typeFilter) {
+        this.typeFilter = typeFilter;
+    }
+
+    public Backpressure getBackpressure() {
+        return backpressure;
+    }
+
+    public void setBackpressure(Backpressure backpressure) {
+        this.backpressure = backpressure;
+    }
+
+    public Overload getOverload() {
+        return overload;
+    }
+
+    public void setOverload(Overload overload) {
+        this.overload = overload;
+    }
+
+    public CatchUp getCatchUp() {
+        return catchUp;
+    }
+
+    public void setCatchUp(CatchUp catchUp) {
+        this.catchUp = catchUp;
+    }
+
+    public Affinity getAffinity() {
+        return affinity;
+    }
+
+    public void setAffinity(Affinity affinity) {
+        this.affinity = affinity;
+    }
+
+    public Repartition getRepartition() {
+        return repartition;
+    }
+
+    public void setRepartition(Repartition repartition) {
+        this.repartition = repartition;
+    }
+
+    /**
+     * Topics the feed listener consumes: the account-keyed topic while the feed
+     * is repartitioned, otherwise the configured topics.
+     */
+    public List<String> getListenerTopics() {
+        return repartition.isEnabled() ? List.of(repartition.getTopic()) : topics;
+    }
+
+    /**
+     * Duplicate detection by Header.Identifier key and sequence ID.
+     */
+    public static class Dedup {
+
+        private boolean enabled = true;
+        private int windowSize = 65536;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getWindowSize() {
+            return windowSize;
+        }
+
+        public void setWindowSize(int windowSize) {
+            this.windowSize = windowSize;
+        }
+    }
+
+    /**
+     * Optional release of messages in sequence_id order per sequencing key, for the
+     * keys whose sequence IDs are known to be dense.
+     */
+    public static class Reorder {
+
+        private boolean enabled = false;
+        private Set<SequencingKey> keys = new LinkedHashSet<>();
+        private int maxHeld = 1024;
+        private Duration maxHold = Duration.ofMillis(100);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Set<SequencingKey> getKeys() {
+            return keys;
+        }
+
+        public void setKeys(Set<SequencingKey> keys) {
+            this.keys = keys;
+        }
+
+        public int getMaxHeld() {
+            return maxHeld;
+        }
+
+        public void setMaxHeld(int maxHeld) {
+            this.maxHeld = maxHeld;
+        }
+
+        public Duration getMaxHold() {
+            return maxHold;
+        }
+
+        public void setMaxHold(Duration maxHold) {
+            this.maxHold = maxHold;
+        }
+    }
+
+    /**
+     * Optional drop of message types no session on this node subscribed to.
+     */
+    public static class TypeFilter {
+
+        private boolean enabled = false;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
+
+    /**
+     * Pause and resume of consumption by the outbound WebSocket backlog.
+     */
+    public static class Backpressure {
+
+        private boolean enabled = true;
+        private long highWatermarkMessages = 500_000;
+        private long lowWatermarkMessages = 100_000;
+        private long highWatermarkBytes = 256L * 1024 * 1024;
+        private long lowWatermarkBytes = 64L * 1024 * 1024;
+        private Duration maxFlushWait = Duration.ofMillis(250);
+        private Duration checkInterval = Duration.ofMillis(100);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getHighWatermarkMessages() {
+            return highWatermarkMessages;
+        }
+
+        public void setHighWatermarkMessages(long highWatermarkMessages) {
+            this.highWatermarkMessages = highWatermarkMessages;
+        }
+
+        public long getLowWatermarkMessages() {
+            return lowWatermarkMessages;
+        }
+
+        public void setLowWatermarkMessages(long lowWatermarkMessages) {
+            this.lowWatermarkMessages = lowWatermarkMessages;
+        }
+
+        public long getHighWatermarkBytes() {
+            return highWatermarkBytes;
+        }
+
+        public void setHighWatermarkBytes(long highWatermarkBytes) {
+            this.highWatermarkBytes = highWatermarkBytes;
+        }
+
+        public long getLowWatermarkBytes() {
+            return lowWatermarkBytes;
+        }
+
+        public void setLowWatermarkBytes(long lowWatermarkBytes) {
+            this.lowWatermarkBytes = lowWatermarkBytes;
+        }
+
+        public Duration getMaxFlushWait() {
+            return maxFlushWait;
+        }
+
+        public void setMaxFlushWait(Duration maxFlushWait) {
+            this.maxFlushWait = maxFlushWait;
+        }
+
+        public Duration getCheckInterval() {
+            return checkInterval;
+        }
+
+        public void setCheckInterval(Duration checkInterval) {
+            this.checkInterval = checkInterval;
+        }
+
+        public BackpressureWatermarks toWatermarks() {
+            return new BackpressureWatermarks(highWatermarkMessages, lowWatermarkMessages,
+                    highWatermarkBytes, lowWatermarkBytes, maxFlushWait);
+        }
+    }
+
+    /**
+     * Shedding of low-value and stale messages while the node is overloaded.
+     */
+    public static class Overload {
+
+        private boolean enabled = false;
+        private long maxPendingMessages = 200_000;
+        private double maxGcTimeRatio = 0.25;
+        private double maxCpuLoad = 0.9;
+        private Duration cooldown = Duration.ofSeconds(10);
+        private Duration checkInterval = Duration.ofSeconds(1);
+        private Set<String> shedTypes = new LinkedHashSet<>(Set.of("PropertyAudit", "Blocklist"));
+        private Map<String, Duration> maxAge = new LinkedHashMap<>(Map.of("WalletTransaction", Duration.ofSeconds(30)));
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getMaxPendingMessages() {
+            return maxPendingMessages;
+        }
+
+        public void setMaxPendingMessages(long maxPendingMessages) {
+            this.maxPendingMessages = maxPendingMessages;
+        }
+
+        public double getMaxGcTimeRatio() {
+            return maxGcTimeRatio;
+        }
+
+        public void setMaxGcTimeRatio(double maxGcTimeRatio) {
+            this.maxGcTimeRatio = maxGcTimeRatio;
+        }
+
+        public double getMaxCpuLoad() {
+            return maxCpuLoad;
+        }
+
+        public void setMaxCpuLoad(double maxCpuLoad) {
+            this.maxCpuLoad = maxCpuLoad;
+        }
+
+        public Duration getCooldown() {
+            return cooldown;
+        }
+
+        public void setCooldown(Duration cooldown) {
+            this.cooldown = cooldown;
+        }
+
+        public Duration getCheckInterval() {
+            return checkInterval;
+        }
+
+        public void setCheckInterval(Duration checkInterval) {
+            this.checkInterval = checkInterval;
+        }
+
+        public Set<String> getShedTypes() {
+            return shedTypes;
+        }
+
+        public void setShedTypes(Set<String> shedTypes) {
+            this.shedTypes = shedTypes;
+        }
+
+        public Map<String, Duration> getMaxAge() {
+            return maxAge;
+        }
+
+        public void setMaxAge(Map<String, Duration> maxAge) {
+            this.maxAge = maxAge;
+        }
+
+        public OverloadThresholds toThresholds() {
+            return new OverloadThresholds(maxPendingMessages, maxGcTimeRatio, maxCpuLoad, cooldown);
+        }
+    }
+
+    /**
+     * Skipping of expired live-only records while the consumer catches up on a backlog.
+     */
+    public static class CatchUp {
+
+        private boolean enabled = false;
+        private long enterLag = 100_000;
+        private long exitLag = 10_000;
+        private Duration checkInterval = Duration.ofSeconds(1);
+        private Map<String, Duration> maxAge = new LinkedHashMap<>(Map.of(
+                "Login", Duration.ofMinutes(5),
+                "ExtendSession", Duration.ofMinutes(1)));
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public long getEnterLag() {
+            return enterLag;
+        }
+
+        public void setEnterLag(long enterLag) {
+            this.enterLag = enterLag;
+        }
+
+        public long getExitLag() {
+            return exitLag;
+        }
+
+        public void setExitLag(long exitLag) {
+            this.exitLag = exitLag;
+        }
+
+        public Duration getCheckInterval() {
+            return checkInterval;
+        }
+
+        public void setCheckInterval(Duration checkInterval) {
+            this.checkInterval = checkInterval;
+        }
+
+        public Map<String, Duration> getMaxAge() {
+            return maxAge;
+        }
+
+        public void setMaxAge(Map<String, Duration> maxAge) {
+            this.maxAge = maxAge;
+        }
+    }
+
+    /**
+     * Assignment of partitions to the nodes holding the sessions of their accounts.
+     */
+    public static class Affinity {
+
+        private boolean enabled = false;
+        private int virtualNodes = 128;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getVirtualNodes() {
+            return virtualNodes;
+        }
+
+        public void setVirtualNodes(int virtualNodes) {
+            this.virtualNodes = virtualNodes;
+        }
+    }
+
+    /**
+     * Republishing of the unkeyed feed topics to an account-keyed topic.
+     */
+    public static class Repartition {
+
+        private boolean enabled = false;
+        private String topic = "ces-feed-by-account";
+        private int partitions = 12;
+        private String groupId = "ces-repartition";
+        private int concurrency = 1;
+        private String compressionType = "lz4";
+        private Duration linger = Duration.ofMillis(20);
+        private int batchSize = 256 * 1024;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public String getTopic() {
+            return topic;
+        }
+
+        public void setTopic(String topic) {
+            this.topic = topic;
+        }
+
+        public int getPartitions() {
+            return partitions;
+        }
+
+        public void setPartitions(int partitions) {
+            this.partitions = partitions;
+        }
+
+        public String getGroupId() {
+            return groupId;
+        }
+
+        public void setGroupId(String groupId) {
+            this.groupId = groupId;
+        }
+
+        public int getConcurrency() {
+            return concurrency;
+        }
+
+        public void setConcurrency(int concurrency) {
+            this.concurrency = concurrency;
+        }
+
+        public String getCompressionType() {
+            return compressionType;
+        }
+
+        public void setCompressionType(String compressionType) {
+            this.compressionType = compressionType;
+        }
+
+        public Duration getLinger() {
+            return linger;
+        }
+
+        public void setLinger(Duration linger) {
+            this.linger = linger;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+    }
 }
@@ -0,0 +1,242 @@
+package com.ces.infrastructure.config;
+
+import com.ces.infrastructure.cluster.ConnectionRebalancer;
+import com.ces.infrastructure.cluster.LoadAwarePlacement;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties identifying this CES node within the cluster.
+ * Binds to the 'ces.node' prefix in application.yml.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "ces.node")
+public class NodeProperties {
+
+    /**
+     * Numeric node ID (0-1023) embedded in generated message IDs.
+     * A negative value picks one at random on startup.
+     */
+    private int id = -1;
+
+    private Forwarding forwarding = new Forwarding();
+
+    private LoadBalancing loadBalancing = new LoadBalancing();
+
+    private Rebalancing rebalancing = new Rebalancing();
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public Forwarding getForwarding() {
+        return forwarding;
+    }
+
+    public void setForwarding(Forwarding forwarding) {
+        this.forwarding = forwarding;
+    }
+
+    public LoadBalancing getLoadBalancing() {
+        return loadBalancing;
+    }
+
+    public void setLoadBalancing(LoadBalancing loadBalancing) {
+        this.loadBalancing = loadBalancing;
+    }
+
+    public Rebalancing getRebalancing() {
+        return rebalancing;
+    }
+
+    public void setRebalancing(Rebalancing rebalancing) {
+        this.rebalancing = rebalancing;
+    }
+
+    /**
+     * Forwarding of messages for sessions connected to other nodes over Redis Streams.
+     */
+    public static class Forwarding {
+
+        private boolean enabled = false;
+        private int maxBatch = 256;
+        private Duration flushInterval = Duration.ofMillis(5);
+        private int maxPending = 100_000;
+        private long maxStreamLength = 100_000;
+        private Duration pollTimeout = Duration.ofSeconds(1);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxBatch() {
+            return maxBatch;
+        }
+
+        public void setMaxBatch(int maxBatch) {
+            this.maxBatch = maxBatch;
+        }
+
+        public Duration getFlushInterval() {
+            return flushInterval;
+        }
+
+        public void setFlushInterval(Duration flushInterval) {
+            this.flushInterval = flushInterval;
+        }
+
+        public int getMaxPending() {
+            return maxPending;
+        }
+
+        public void setMaxPending(int maxPending) {
+            this.maxPending = maxPending;
+        }
+
+        public long getMaxStreamLength() {
+            return maxStreamLength;
+        }
+
+        public void setMaxStreamLength(long maxStreamLength) {
+            this.maxStreamLength = maxStreamLength;
+        }
+
+        public Duration getPollTimeout() {
+            return pollTimeout;
+        }
+
+        public void setPollTimeout(Duration pollTimeout) {
+            this.pollTimeout = pollTimeout;
+        }
+    }
+
+    /**
+     * Placement of new sessions on the least loaded node, going by load reports
+     * the nodes publish to Redis.
+     */
+    public static class LoadBalancing {
+
+        private boolean enabled = false;
+        private Duration reportInterval = Duration.ofSeconds(1);
+        private Duration maxReportAge = Duration.ofSeconds(5);
+        private double maxCpuLoad = 0.85;
+        private long maxQueuedBytes = 64L * 1024 * 1024;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getReportInterval() {
+            return reportInterval;
+        }
+
+        public void setReportInterval(Duration reportInterval) {
+            this.reportInterval = reportInterval;
+        }
+
+        public Duration getMaxReportAge() {
+            return maxReportAge;
+        }
+
+        public void setMaxReportAge(Duration maxReportAge) {
+            this.maxReportAge = maxReportAge;
+        }
+
+        public double getMaxCpuLoad() {
+            return maxCpuLoad;
+        }
+
+        public void setMaxCpuLoad(double maxCpuLoad) {
+            this.maxCpuLoad = maxCpuLoad;
+        }
+
+        public long getMaxQueuedBytes() {
+            return maxQueuedBytes;
+        }
+
+        public void setMaxQueuedBytes(long maxQueuedBytes) {
+            this.maxQueuedBytes = maxQueuedBytes;
+        }
+
+        /**
+         * Builds the report age and hot node limits used for placement and rebalancing.
+         */
+        public LoadAwarePlacement.Settings toPlacementSettings() {
+            return new LoadAwarePlacement.Settings(maxReportAge, maxCpuLoad, maxQueuedBytes);
+        }
+    }
+
+    /**
+     * Migration of connected sessions off nodes holding more than their share,
+     * using the load-balancing reports and message forwarding.
+     */
+    public static class Rebalancing {
+
+        private boolean enabled = false;
+        private Duration interval = Duration.ofSeconds(10);
+        private double tolerance = 0.1;
+        private int maxPerRound = 50;
+        private Duration settleTime = Duration.ofSeconds(30);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getInterval() {
+            return interval;
+        }
+
+        public void setInterval(Duration interval) {
+            this.interval = interval;
+        }
+
+        public double getTolerance() {
+            return tolerance;
+        }
+
+        public void setTolerance(double tolerance) {
+            this.tolerance = tolerance;
+        }
+
+        public int getMaxPerRound() {
+            return maxPerRound;
+        }
+
+        public void setMaxPerRound(int maxPerRound) {
+            this.maxPerRound = maxPerRound;
+        }
+
+        public Duration getSettleTime() {
+            return settleTime;
+        }
+
+        public void setSettleTime(Duration settleTime) {
+            this.settleTime = settleTime;
+        }
+
+        /**
+         * Builds the interval, tolerance and rate of the connection rebalancer.
+         */
+        public ConnectionRebalancer.Settings toRebalancerSettings() {
+            return new ConnectionRebalancer.Settings(interval, tolerance, maxPerRound, settleTime);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.ces.infrastructure.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for the offline message store.
+ * Binds to the 'ces.offline-store' prefix in application.yml.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "ces.offline-store")
+public class OfflineStoreProperties {
+
+    /**
+     * Backing storage: "in-memory" or "mvstore".
+     */
+    private String storage = "in-memory";
+    private String path = "data/offline-messages.mv";
+    private int cacheSizeMb = 16;
+    private Duration ttl = Duration.ofHours(1);
+    private int maxMessagesPerSession = 1000;
+    private Duration purgeInterval = Duration.ofMinutes(1);
+
+    public String getStorage() {
+        return storage;
+    }
+
+    public void setStorage(String storage) {
+        this.storage = storage;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(String path) {
+        this.path = path;
+    }
+
+    public int getCacheSizeMb() {
+        return cacheSizeMb;
+    }
+
+    public void setCacheSizeMb(int cacheSizeMb) {
+        this.cacheSizeMb = cacheSizeMb;
+    }
+
+    public Duration getTtl() {
+        return ttl;
+    }
+
+    public void setTtl(Duration ttl) {
+        this.ttl = ttl;
+    }
+
+    public int getMaxMessagesPerSession() {
+        return maxMessagesPerSession;
+    }
+
+    public void setMaxMessagesPerSession(int maxMessagesPerSession) {
+        this.maxMessagesPerSession = maxMessagesPerSession;
+    }
+
+    public Duration getPurgeInterval() {
+        return purgeInterval;
+    }
+
+    public void setPurgeInterval(Duration purgeInterval) {
+        this.purgeInterval = purgeInterval;
+    }
+}
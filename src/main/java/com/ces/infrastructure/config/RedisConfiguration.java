@@ -1,12 +1,14 @@
 package com.ces.infrastructure.config;
 
+import com.ces.domain.filter.ContentFilterCompiler;
+import com.ces.domain.filter.FieldProjectionCompiler;
 import com.ces.domain.model.Session;
+import com.ces.infrastructure.adapter.SessionRedisSerializer;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 /**
@@ -19,13 +21,19 @@ public class RedisConfiguration {
 
     /**
      * Configures RedisTemplate for Session storage.
-     * Uses JSON serialization for Session objects.
+     * Uses JSON serialization for Session objects, compiling their content filters
+     * and field masks again when they are read.
      *
      * @param connectionFactory Redis connection factory auto-configured by Spring Boot
+     * @param contentFilterCompiler compiles the stored content filters
+     * @param fieldProjectionCompiler compiles the stored field masks
      * @return configured RedisTemplate
      */
     @Bean
-    public RedisTemplate<String, Session> sessionRedisTemplate(RedisConnectionFactory connectionFactory) {
+    public RedisTemplate<String, Session> sessionRedisTemplate(
+            RedisConnectionFactory connectionFactory,
+            ContentFilterCompiler contentFilterCompiler,
+            FieldProjectionCompiler fieldProjectionCompiler) {
         RedisTemplate<String, Session> template = new RedisTemplate<>();
         template.setConnectionFactory(connectionFactory);
         
@@ -34,7 +42,7 @@ public class RedisConfiguration {
         template.setHashKeySerializer(new StringRedisSerializer());
         
         // Use JSON serializer for Session values
-        GenericJackson2JsonRedisSerializer serializer = new GenericJackson2JsonRedisSerializer();
+        SessionRedisSerializer serializer = new SessionRedisSerializer(contentFilterCompiler, fieldProjectionCompiler);
         template.setValueSerializer(serializer);
         template.setHashValueSerializer(serializer);
         
@@ -0,0 +1,41 @@
+package com.ces.infrastructure.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Configuration properties for resumable streams.
+ * Binds to the 'ces.resume' prefix in application.yml.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "ces.resume")
+public class ResumeProperties {
+
+    /**
+     * Number of recent messages kept per session for cursor-based replay.
+     */
+    private int ringSize = 256;
+
+    /**
+     * How long the ring of a session that receives no messages is kept.
+     */
+    private Duration retention = Duration.ofMinutes(15);
+
+    public int getRingSize() {
+        return ringSize;
+    }
+
+    public void setRingSize(int ringSize) {
+        this.ringSize = ringSize;
+    }
+
+    public Duration getRetention() {
+        return retention;
+    }
+
+    public void setRetention(Duration retention) {
+        this.retention = retention;
+    }
+}
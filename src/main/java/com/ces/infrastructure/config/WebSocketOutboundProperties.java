@@ -0,0 +1,476 @@
+package com.ces.infrastructure.config;
+
+import com.ces.infrastructure.websocket.BatchSettings;
+import com.ces.infrastructure.websocket.ConflationPolicy;
+import com.ces.infrastructure.websocket.CorrelationSettings;
+import com.ces.infrastructure.websocket.DeliveryPriority;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Configuration properties for the outbound WebSocket writer.
+ * Binds to the 'ces.websocket.outbound' prefix in application.yml.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "ces.websocket.outbound")
+public class WebSocketOutboundProperties {
+
+    private int flushThreads = Runtime.getRuntime().availableProcessors();
+    private int fanOutThreads = Runtime.getRuntime().availableProcessors();
+    private int fanOutShardSize = 512;
+    private Batch batch = new Batch();
+    private Conflation conflation = new Conflation();
+    private Compression compression = new Compression();
+    private Correlation correlation = new Correlation();
+    private Priority priority = new Priority();
+    private ConcurrencyLimit concurrencyLimit = new ConcurrencyLimit();
+
+    public int getFlushThreads() {
+        return flushThreads;
+    }
+
+    public void setFlushThreads(int flushThreads) {
+        this.flushThreads = flushThreads;
+    }
+
+    /**
+     * Size of the pool enqueueing the shards of large group messages.
+     */
+    public int getFanOutThreads() {
+        return fanOutThreads;
+    }
+
+    public void setFanOutThreads(int fanOutThreads) {
+        this.fanOutThreads = fanOutThreads;
+    }
+
+    /**
+     * Number of member connections enqueued per task when a group message is fanned out.
+     */
+    public int getFanOutShardSize() {
+        return fanOutShardSize;
+    }
+
+    public void setFanOutShardSize(int fanOutShardSize) {
+        this.fanOutShardSize = fanOutShardSize;
+    }
+
+    public Batch getBatch() {
+        return batch;
+    }
+
+    public void setBatch(Batch batch) {
+        this.batch = batch;
+    }
+
+    public Conflation getConflation() {
+        return conflation;
+    }
+
+    public void setConflation(Conflation conflation) {
+        this.conflation = conflation;
+    }
+
+    public Compression getCompression() {
+        return compression;
+    }
+
+    public void setCompression(Compression compression) {
+        this.compression = compression;
+    }
+
+    public Correlation getCorrelation() {
+        return correlation;
+    }
+
+    public void setCorrelation(Correlation correlation) {
+        this.correlation = correlation;
+    }
+
+    public Priority getPriority() {
+        return priority;
+    }
+
+    public void setPriority(Priority priority) {
+        this.priority = priority;
+    }
+
+    public ConcurrencyLimit getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    public void setConcurrencyLimit(ConcurrencyLimit concurrencyLimit) {
+        this.concurrencyLimit = concurrencyLimit;
+    }
+
+    /**
+     * Builds the batch thresholds used by every outbound channel.
+     */
+    public BatchSettings toBatchSettings() {
+        if (!batch.isEnabled()) {
+            return BatchSettings.disabled();
+        }
+        return new BatchSettings(batch.getMaxMessages(), batch.getMaxBytes(), batch.getMaxDelay());
+    }
+
+    /**
+     * Builds the conflation policy applied to queued messages.
+     */
+    public ConflationPolicy toConflationPolicy() {
+        if (!conflation.isEnabled()) {
+            return ConflationPolicy.none();
+        }
+        return ConflationPolicy.of(conflation.getKeys());
+    }
+
+    /**
+     * Builds the correlation window applied to messages carrying a reference.
+     */
+    public CorrelationSettings toCorrelationSettings() {
+        if (!correlation.isEnabled()) {
+            return CorrelationSettings.disabled();
+        }
+        return new CorrelationSettings(correlation.getWindow(), correlation.getMaxGroupSize());
+    }
+
+    /**
+     * Micro-batching thresholds; a batch is flushed when any of them is reached.
+     */
+    public static class Batch {
+
+        private boolean enabled = true;
+        private int maxMessages = 64;
+        private int maxBytes = 16 * 1024;
+        private Duration maxDelay = Duration.ofMillis(5);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMaxMessages() {
+            return maxMessages;
+        }
+
+        public void setMaxMessages(int maxMessages) {
+            this.maxMessages = maxMessages;
+        }
+
+        public int getMaxBytes() {
+            return maxBytes;
+        }
+
+        public void setMaxBytes(int maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        public Duration getMaxDelay() {
+            return maxDelay;
+        }
+
+        public void setMaxDelay(Duration maxDelay) {
+            this.maxDelay = maxDelay;
+        }
+    }
+
+    /**
+     * Conflation keys per message type name. The value names a payload field whose
+     * value must match for two messages to conflate; an empty value conflates by type.
+     */
+    public static class Conflation {
+
+        private boolean enabled = true;
+        private Map<String, String> keys = new LinkedHashMap<>();
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Map<String, String> getKeys() {
+            return keys;
+        }
+
+        public void setKeys(Map<String, String> keys) {
+            this.keys = keys;
+        }
+    }
+
+    /**
+     * Frame compression for clients that announce support for it.
+     */
+    public static class Compression {
+
+        private boolean enabled = false;
+        private int minFrameBytes = 512;
+        private int level = 6;
+        private String dictionaryPath;
+        private String sampleOutputPath;
+        private int sampleEvery = 100;
+        private int maxSamples = 256;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getMinFrameBytes() {
+            return minFrameBytes;
+        }
+
+        public void setMinFrameBytes(int minFrameBytes) {
+            this.minFrameBytes = minFrameBytes;
+        }
+
+        public int getLevel() {
+            return level;
+        }
+
+        public void setLevel(int level) {
+            this.level = level;
+        }
+
+        public String getDictionaryPath() {
+            return dictionaryPath;
+        }
+
+        public void setDictionaryPath(String dictionaryPath) {
+            this.dictionaryPath = dictionaryPath;
+        }
+
+        public String getSampleOutputPath() {
+            return sampleOutputPath;
+        }
+
+        public void setSampleOutputPath(String sampleOutputPath) {
+            this.sampleOutputPath = sampleOutputPath;
+        }
+
+        public int getSampleEvery() {
+            return sampleEvery;
+        }
+
+        public void setSampleEvery(int sampleEvery) {
+            this.sampleEvery = sampleEvery;
+        }
+
+        public int getMaxSamples() {
+            return maxSamples;
+        }
+
+        public void setMaxSamples(int maxSamples) {
+            this.maxSamples = maxSamples;
+        }
+    }
+
+    /**
+     * Merging of messages from different topics that share an {@code Identifier.reference}.
+     */
+    public static class Correlation {
+
+        private boolean enabled = false;
+        private Duration window = Duration.ofMillis(50);
+        private int maxGroupSize = 8;
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Duration getWindow() {
+            return window;
+        }
+
+        public void setWindow(Duration window) {
+            this.window = window;
+        }
+
+        public int getMaxGroupSize() {
+            return maxGroupSize;
+        }
+
+        public void setMaxGroupSize(int maxGroupSize) {
+            this.maxGroupSize = maxGroupSize;
+        }
+    }
+
+    /**
+     * Outbound lanes by message type, with per-lane latency objectives.
+     * Responsible-gaming events go to the high lane by default.
+     */
+    public static class Priority {
+
+        private boolean enabled = true;
+        private int flushThreads = 1;
+        private Map<String, DeliveryPriority> lanes = new LinkedHashMap<>(Map.of(
+                "RealityCheck", DeliveryPriority.HIGH,
+                "GamingLimitHit", DeliveryPriority.HIGH,
+                "LoginLimitHit", DeliveryPriority.HIGH,
+                "WalletLimitHit", DeliveryPriority.HIGH,
+                "Logout", DeliveryPriority.HIGH));
+        private Map<DeliveryPriority, List<Duration>> slo = new EnumMap<>(Map.of(
+                DeliveryPriority.HIGH, List.of(Duration.ofMillis(50), Duration.ofMillis(100), Duration.ofMillis(250)),
+                DeliveryPriority.NORMAL, List.of(Duration.ofMillis(100), Duration.ofMillis(250), Duration.ofSeconds(1)),
+                DeliveryPriority.LOW, List.of(Duration.ofMillis(500), Duration.ofSeconds(1), Duration.ofSeconds(5))));
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        /**
+         * Threads flushing connections that hold high-lane messages.
+         */
+        public int getFlushThreads() {
+            return flushThreads;
+        }
+
+        public void setFlushThreads(int flushThreads) {
+            this.flushThreads = flushThreads;
+        }
+
+        /**
+         * Lane per message type name; types not listed use the normal lane.
+         */
+        public Map<String, DeliveryPriority> getLanes() {
+            return lanes;
+        }
+
+        public void setLanes(Map<String, DeliveryPriority> lanes) {
+            this.lanes = lanes;
+        }
+
+        /**
+         * Delivery latency objectives per lane, published as histogram buckets.
+         */
+        public Map<DeliveryPriority, List<Duration>> getSlo() {
+            return slo;
+        }
+
+        public void setSlo(Map<DeliveryPriority, List<Duration>> slo) {
+            this.slo = slo;
+        }
+    }
+
+    /**
+     * Adaptive limit on the connections the shared flush pool writes to at once.
+     * Limits at or above flush-threads never defer a write.
+     */
+    public static class ConcurrencyLimit {
+
+        private boolean enabled = false;
+        private int initialLimit = 4;
+        private int minLimit = 1;
+        private int maxLimit = 64;
+        private double tolerance = 1.5;
+        private double smoothing = 0.2;
+        private double lowPriorityShare = 0.5;
+        private int windowSize = 250;
+        private Duration deferDelay = Duration.ofMillis(2);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public int getInitialLimit() {
+            return initialLimit;
+        }
+
+        public void setInitialLimit(int initialLimit) {
+            this.initialLimit = initialLimit;
+        }
+
+        public int getMinLimit() {
+            return minLimit;
+        }
+
+        public void setMinLimit(int minLimit) {
+            this.minLimit = minLimit;
+        }
+
+        public int getMaxLimit() {
+            return maxLimit;
+        }
+
+        public void setMaxLimit(int maxLimit) {
+            this.maxLimit = maxLimit;
+        }
+
+        /**
+         * Write latency increase over the long-term average tolerated before the limit shrinks.
+         */
+        public double getTolerance() {
+            return tolerance;
+        }
+
+        public void setTolerance(double tolerance) {
+            this.tolerance = tolerance;
+        }
+
+        public double getSmoothing() {
+            return smoothing;
+        }
+
+        public void setSmoothing(double smoothing) {
+            this.smoothing = smoothing;
+        }
+
+        /**
+         * Share of the limit available to connections whose highest queued lane is low.
+         */
+        public double getLowPriorityShare() {
+            return lowPriorityShare;
+        }
+
+        public void setLowPriorityShare(double lowPriorityShare) {
+            this.lowPriorityShare = lowPriorityShare;
+        }
+
+        /**
+         * Writes per limit update.
+         */
+        public int getWindowSize() {
+            return windowSize;
+        }
+
+        public void setWindowSize(int windowSize) {
+            this.windowSize = windowSize;
+        }
+
+        /**
+         * How long a deferred flush waits before it tries again.
+         */
+        public Duration getDeferDelay() {
+            return deferDelay;
+        }
+
+        public void setDeferDelay(Duration deferDelay) {
+            this.deferDelay = deferDelay;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.ces.infrastructure.kafka;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.WireFormat;
+import com.lnw.expressway.messages.v1.FeedMessageProto.AccountCreationPayload;
+import com.lnw.expressway.messages.v1.FeedMessageProto.AccountRestrictionReasonAuditPayload;
+import com.lnw.expressway.messages.v1.FeedMessageProto.ExtendSessionPayload;
+import com.lnw.expressway.messages.v1.FeedMessageProto.FeedMessage;
+import com.lnw.expressway.messages.v1.FeedMessageProto.GamingLimitAuditPayload;
+import com.lnw.expressway.messages.v1.FeedMessageProto.GamingLimitHitPayload;
+import com.lnw.expressway.messages.v1.FeedMessageProto.GamingLimitPayload;
+import com.lnw.expressway.messages.v1.FeedMessageProto.LoginLimitHitPayload;
+import com.lnw.expressway.messages.v1.FeedMessageProto.LoginLimitSettingPayload;
+import com.lnw.expressway.messages.v1.FeedMessageProto.LoginPayload;
+import com.lnw.expressway.messages.v1.FeedMessageProto.LogoutPayload;
+import com.lnw.expressway.messages.v1.FeedMessageProto.PaymentTransPayload;
+import com.lnw.expressway.messages.v1.FeedMessageProto.PropertyAuditPayload;
+import com.lnw.expressway.messages.v1.FeedMessageProto.RealityCheckPayload;
+import com.lnw.expressway.messages.v1.FeedMessageProto.RegistrationPayload;
+import com.lnw.expressway.messages.v1.FeedMessageProto.TransPayload;
+import com.lnw.expressway.messages.v1.FeedMessageProto.UpdateAccountPayload;
+import com.lnw.expressway.messages.v1.FeedMessageProto.WalletLimitAuditPayload;
+import com.lnw.expressway.messages.v1.FeedMessageProto.WalletLimitHitPayload;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static java.util.Map.entry;
+
+/**
+ * Reads the account_id of a serialized FeedMessage without parsing it.
+ *
+ * <p>Like the header decoding of {@link FeedMessageDeserializer}, fields are skipped
+ * on the wire until the payload is found, and only its account_id is decoded.
+ * Payloads carry the account under different field numbers, so these are looked up
+ * by the payload's tag.</p>
+ */
+final class AccountIdReader {
+
+    /**
+     * Tag of the account_id field, by tag of the payload field holding it.
+     */
+    private static final Map<Integer, Integer> ACCOUNT_ID_TAGS = Map.ofEntries(
+            accountIdTag(FeedMessage.TRANS_PAYLOAD_FIELD_NUMBER, TransPayload.ACCOUNT_ID_FIELD_NUMBER),
+            accountIdTag(FeedMessage.LOGIN_PAYLOAD_FIELD_NUMBER, LoginPayload.ACCOUNT_ID_FIELD_NUMBER),
+            accountIdTag(FeedMessage.PAYMENT_TRANS_PAYLOAD_FIELD_NUMBER, PaymentTransPayload.ACCOUNT_ID_FIELD_NUMBER),
+            accountIdTag(FeedMessage.PROPERTY_AUDIT_PAYLOAD_FIELD_NUMBER, PropertyAuditPayload.ACCOUNT_ID_FIELD_NUMBER),
+            accountIdTag(FeedMessage.REGISTRATION_PAYLOAD_FIELD_NUMBER, RegistrationPayload.ACCOUNT_ID_FIELD_NUMBER),
+            accountIdTag(FeedMessage.ACCOUNT_CREATION_PAYLOAD_FIELD_NUMBER,
+                    AccountCreationPayload.ACCOUNT_ID_FIELD_NUMBER),
+            accountIdTag(FeedMessage.GAMING_LIMIT_PAYLOAD_FIELD_NUMBER, GamingLimitPayload.ACCOUNT_ID_FIELD_NUMBER),
+            accountIdTag(FeedMessage.GAMING_LIMIT_AUDIT_PAYLOAD_FIELD_NUMBER,
+                    GamingLimitAuditPayload.ACCOUNT_ID_FIELD_NUMBER),
+            accountIdTag(FeedMessage.GAMING_LIMIT_HIT_PAYLOAD_FIELD_NUMBER,
+                    GamingLimitHitPayload.ACCOUNT_ID_FIELD_NUMBER),
+            accountIdTag(FeedMessage.LOGIN_LIMIT_SETTING_PAYLOAD_FIELD_NUMBER,
+                    LoginLimitSettingPayload.ACCOUNT_ID_FIELD_NUMBER),
+            accountIdTag(FeedMessage.LOGIN_LIMIT_HIT_PAYLOAD_FIELD_NUMBER,
+                    LoginLimitHitPayload.ACCOUNT_ID_FIELD_NUMBER),
+            accountIdTag(FeedMessage.WALLET_LIMIT_HIT_PAYLOAD_FIELD_NUMBER,
+                    WalletLimitHitPayload.ACCOUNT_ID_FIELD_NUMBER),
+            accountIdTag(FeedMessage.WALLET_LIMIT_AUDIT_PAYLOAD_FIELD_NUMBER,
+                    WalletLimitAuditPayload.ACCOUNT_ID_FIELD_NUMBER),
+            accountIdTag(FeedMessage.ACCOUNT_RESTRICTION_REASON_AUDIT_PAYLOAD_FIELD_NUMBER,
+                    AccountRestrictionReasonAuditPayload.ACCOUNT_ID_FIELD_NUMBER),
+            accountIdTag(FeedMessage.REALITY_CHECK_PAYLOAD_FIELD_NUMBER, RealityCheckPayload.ACCOUNT_ID_FIELD_NUMBER),
+            accountIdTag(FeedMessage.UPDATE_ACCOUNT_PAYLOAD_FIELD_NUMBER,
+                    UpdateAccountPayload.ACCOUNT_ID_FIELD_NUMBER),
+            accountIdTag(FeedMessage.LOGOUT_PAYLOAD_FIELD_NUMBER, LogoutPayload.ACCOUNT_ID_FIELD_NUMBER),
+            accountIdTag(FeedMessage.EXTEND_SESSION_PAYLOAD_FIELD_NUMBER,
+                    ExtendSessionPayload.ACCOUNT_ID_FIELD_NUMBER));
+
+    private AccountIdReader() {
+    }
+
+    /**
+     * Returns the account of a serialized FeedMessage.
+     *
+     * @param data the serialized FeedMessage
+     * @return the account ID, or 0 for operator-wide payloads, records without
+     *         an account and records that cannot be decoded
+     */
+    static long accountIdOf(byte[] data) {
+        try {
+            CodedInputStream input = CodedInputStream.newInstance(data);
+            int tag;
+            while ((tag = input.readTag()) != 0) {
+                Integer accountIdTag = ACCOUNT_ID_TAGS.get(tag);
+                if (accountIdTag != null) {
+                    return readAccountId(input, accountIdTag);
+                }
+                input.skipField(tag);
+            }
+        } catch (IOException e) {
+            // Left to the deserializer of the delivery consumer to report
+        }
+        return 0;
+    }
+
+    private static long readAccountId(CodedInputStream input, int accountIdTag) throws IOException {
+        int limit = input.pushLimit(input.readRawVarint32());
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            if (tag == accountIdTag) {
+                return Integer.toUnsignedLong(input.readUInt32());
+            }
+            input.skipField(tag);
+        }
+        input.popLimit(limit);
+        return 0;
+    }
+
+    private static Map.Entry<Integer, Integer> accountIdTag(int payloadFieldNumber, int accountIdFieldNumber) {
+        return entry(
+                payloadFieldNumber << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED,
+                accountIdFieldNumber << 3 | WireFormat.WIRETYPE_VARINT);
+    }
+}
@@ -0,0 +1,39 @@
+package com.ces.infrastructure.kafka;
+
+import org.apache.kafka.common.utils.Utils;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The account-keyed partitioning scheme of the feed topics.
+ *
+ * <p>Records are keyed by the decimal account ID and placed by Kafka's default
+ * partitioner, which takes the murmur2 hash of the key modulo the partition count.
+ * Every topic with the same partition count therefore puts an account on the same
+ * partition number, and this node can tell which partition an account's events
+ * arrive on without consuming them.</p>
+ */
+public final class AccountKeys {
+
+    private AccountKeys() {
+    }
+
+    /**
+     * Record key of an account.
+     */
+    public static String key(long accountId) {
+        return Long.toString(accountId);
+    }
+
+    /**
+     * Partition the default partitioner places an account's records on.
+     *
+     * @param accountId the account
+     * @param partitionCount partitions of the topic
+     * @return the partition number
+     */
+    public static int partitionFor(long accountId, int partitionCount) {
+        byte[] keyBytes = key(accountId).getBytes(StandardCharsets.UTF_8);
+        return Utils.toPositive(Utils.murmur2(keyBytes)) % partitionCount;
+    }
+}
@@ -0,0 +1,141 @@
+package com.ces.infrastructure.kafka;
+
+import com.ces.infrastructure.websocket.OutboundBacklog;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pauses the feed listener container while WebSocket delivery falls behind, and
+ * resumes it once delivery has caught up.
+ *
+ * <p>Every check interval the node-wide {@link OutboundBacklog} is compared with the
+ * {@link BackpressureWatermarks}. Crossing a high watermark pauses all partitions
+ * assigned to the container; the consumer keeps polling without fetching records,
+ * so it stays in its group and nothing is dropped. Consumption resumes only below
+ * both low watermarks, so it does not flap around a single threshold.</p>
+ */
+public class BackpressureController {
+
+    private static final Logger logger = LoggerFactory.getLogger(BackpressureController.class);
+
+    private final OutboundBacklog backlog;
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+    private final String listenerId;
+    private final BackpressureWatermarks watermarks;
+    private final long maxFlushWaitNanos;
+    private final ScheduledExecutorService checker;
+    private final Counter pauses;
+    private volatile boolean paused;
+
+    /**
+     * @param backlog the node-wide outbound backlog
+     * @param listenerRegistry registry holding the listener container
+     * @param listenerId the id of the listener to pause
+     * @param watermarks the pause and resume thresholds
+     * @param checkInterval time between two checks of the backlog
+     * @param meterRegistry registry for the backlog and pause metrics
+     */
+    public BackpressureController(
+            OutboundBacklog backlog,
+            KafkaListenerEndpointRegistry listenerRegistry,
+            String listenerId,
+            BackpressureWatermarks watermarks,
+            Duration checkInterval,
+            MeterRegistry meterRegistry) {
+        this.backlog = Objects.requireNonNull(backlog, "Outbound backlog cannot be null");
+        this.listenerRegistry = Objects.requireNonNull(listenerRegistry, "Listener registry cannot be null");
+        this.listenerId = Objects.requireNonNull(listenerId, "Listener ID cannot be null");
+        this.watermarks = Objects.requireNonNull(watermarks, "Watermarks cannot be null");
+        this.maxFlushWaitNanos = watermarks.maxFlushWait().toNanos();
+        if (checkInterval.isNegative() || checkInterval.isZero()) {
+            throw new IllegalArgumentException("Backpressure check interval must be positive");
+        }
+
+        this.pauses = Counter.builder("ces.kafka.backpressure.pauses")
+                .description("Times consumption was paused because delivery fell behind")
+                .register(meterRegistry);
+        Gauge.builder("ces.kafka.backpressure.paused", this, controller -> controller.paused ? 1 : 0)
+                .description("1 while consumption is paused by backpressure")
+                .register(meterRegistry);
+        Gauge.builder("ces.websocket.outbound.pending.messages", backlog, OutboundBacklog::pendingMessages)
+                .description("Payloads queued on all WebSocket connections")
+                .register(meterRegistry);
+        Gauge.builder("ces.websocket.outbound.pending.bytes", backlog, OutboundBacklog::pendingBytes)
+                .description("Bytes queued on all WebSocket connections")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+
+        this.checker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ces-backpressure");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalNanos = checkInterval.toNanos();
+        checker.scheduleWithFixedDelay(this::check, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Pauses or resumes the listener container according to the current backlog.
+     * Runs on the checker thread; does nothing until the container exists.
+     */
+    void check() {
+        try {
+            MessageListenerContainer container = listenerRegistry.getListenerContainer(listenerId);
+            if (container == null || !container.isRunning()) {
+                return;
+            }
+            long messages = backlog.pendingMessages();
+            long bytes = backlog.pendingBytes();
+            long flushWaitNanos = backlog.takeMaxFlushWaitNanos();
+
+            if (!paused) {
+                if (messages >= watermarks.highMessages()
+                        || bytes >= watermarks.highBytes()
+                        || flushWaitNanos > maxFlushWaitNanos) {
+                    container.pause();
+                    paused = true;
+                    pauses.increment();
+                    logger.warn("Pausing consumption: {} messages ({} bytes) queued, flush wait {} ms",
+                            messages, bytes, TimeUnit.NANOSECONDS.toMillis(flushWaitNanos));
+                }
+            } else if (messages < watermarks.lowMessages()
+                    && bytes < watermarks.lowBytes()
+                    && flushWaitNanos <= maxFlushWaitNanos) {
+                container.resume();
+                paused = false;
+                logger.info("Resuming consumption: {} messages ({} bytes) queued", messages, bytes);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Backpressure check failed", e);
+        }
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * Stops checking and resumes the container if it is paused.
+     */
+    public void close() {
+        checker.shutdownNow();
+        if (paused) {
+            MessageListenerContainer container = listenerRegistry.getListenerContainer(listenerId);
+            if (container != null) {
+                container.resume();
+            }
+            paused = false;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.ces.infrastructure.kafka;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Thresholds at which consumption is paused and resumed.
+ * Consumption is paused when the outbound backlog reaches a high watermark or
+ * channels waited longer than {@code maxFlushWait} for a flush thread, and resumed
+ * once the backlog is below both low watermarks and flushes keep up again.
+ */
+public record BackpressureWatermarks(
+        long highMessages,
+        long lowMessages,
+        long highBytes,
+        long lowBytes,
+        Duration maxFlushWait) {
+
+    public BackpressureWatermarks {
+        if (lowMessages < 0 || highMessages <= lowMessages) {
+            throw new IllegalArgumentException("High message watermark must be above the low one");
+        }
+        if (lowBytes < 0 || highBytes <= lowBytes) {
+            throw new IllegalArgumentException("High byte watermark must be above the low one");
+        }
+        Objects.requireNonNull(maxFlushWait, "Max flush wait cannot be null");
+        if (maxFlushWait.isNegative() || maxFlushWait.isZero()) {
+            throw new IllegalArgumentException("Max flush wait must be positive");
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.ces.infrastructure.kafka;
+
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Switches the {@link CatchUpFilter} on while the feed listener lags behind its
+ * partitions, and off once it has caught up.
+ *
+ * <p>Every check interval the largest {@code records-lag-max} reported by the
+ * container's consumers is compared with the thresholds. Catch-up starts at
+ * {@code enterLag} records and ends below {@code exitLag}, so it does not flap
+ * around a single threshold.</p>
+ */
+public class CatchUpController {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatchUpController.class);
+
+    private static final String LAG_METRIC = "records-lag-max";
+    private static final String LAG_METRIC_GROUP = "consumer-fetch-manager-metrics";
+
+    private final CatchUpFilter filter;
+    private final KafkaListenerEndpointRegistry listenerRegistry;
+    private final String listenerId;
+    private final long enterLag;
+    private final long exitLag;
+    private final ScheduledExecutorService checker;
+
+    /**
+     * @param filter the filter to switch
+     * @param listenerRegistry registry holding the listener container
+     * @param listenerId the id of the listener whose lag is watched
+     * @param enterLag records of lag at which catch-up starts
+     * @param exitLag records of lag below which catch-up ends
+     * @param checkInterval time between two checks of the lag
+     */
+    public CatchUpController(
+            CatchUpFilter filter,
+            KafkaListenerEndpointRegistry listenerRegistry,
+            String listenerId,
+            long enterLag,
+            long exitLag,
+            Duration checkInterval) {
+        this.filter = Objects.requireNonNull(filter, "Catch-up filter cannot be null");
+        this.listenerRegistry = Objects.requireNonNull(listenerRegistry, "Listener registry cannot be null");
+        this.listenerId = Objects.requireNonNull(listenerId, "Listener ID cannot be null");
+        if (exitLag < 0 || enterLag <= exitLag) {
+            throw new IllegalArgumentException("Catch-up enter lag must be above the exit lag");
+        }
+        if (checkInterval.isNegative() || checkInterval.isZero()) {
+            throw new IllegalArgumentException("Catch-up check interval must be positive");
+        }
+        this.enterLag = enterLag;
+        this.exitLag = exitLag;
+
+        this.checker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ces-catch-up");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalNanos = checkInterval.toNanos();
+        checker.scheduleWithFixedDelay(this::check, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Reads the consumer lag and updates the filter. Does nothing until the
+     * container exists and its consumers report lag.
+     */
+    void check() {
+        try {
+            MessageListenerContainer container = listenerRegistry.getListenerContainer(listenerId);
+            if (container == null || !container.isRunning()) {
+                return;
+            }
+            double lag = maxLag(container.metrics());
+            if (!Double.isNaN(lag)) {
+                update((long) lag);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Catch-up check failed", e);
+        }
+    }
+
+    /**
+     * Starts or ends catch-up according to the current lag.
+     *
+     * @param lag the largest lag of any assigned partition, in records
+     */
+    void update(long lag) {
+        if (!filter.isActive() && lag >= enterLag) {
+            filter.setActive(true);
+            logger.warn("Entering catch-up: consumer lags {} records", lag);
+        } else if (filter.isActive() && lag < exitLag) {
+            filter.setActive(false);
+            logger.info("Leaving catch-up: consumer lags {} records", lag);
+        }
+    }
+
+    /**
+     * Stops checking and ends catch-up.
+     */
+    public void close() {
+        checker.shutdownNow();
+        filter.setActive(false);
+    }
+
+    private static double maxLag(Map<String, Map<MetricName, ? extends Metric>> metrics) {
+        double max = Double.NaN;
+        for (Map<MetricName, ? extends Metric> clientMetrics : metrics.values()) {
+            for (Map.Entry<MetricName, ? extends Metric> entry : clientMetrics.entrySet()) {
+                MetricName name = entry.getKey();
+                if (LAG_METRIC.equals(name.name())
+                        && LAG_METRIC_GROUP.equals(name.group())
+                        && entry.getValue().metricValue() instanceof Double value
+                        && !value.isNaN()) {
+                    max = Double.isNaN(max) ? value : Math.max(max, value);
+                }
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,122 @@
+package com.ces.infrastructure.kafka;
+
+import com.google.protobuf.Timestamp;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header.MessageType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Decides, from the {@code Header} alone, which records to skip while the consumer
+ * catches up on a backlog.
+ *
+ * <p>Live-only message types, such as logins or reality checks, are worthless once
+ * they are old, so each is given a maximum age. While catch-up is active, a record
+ * of such a type whose {@code Header.timestamp} is older than that age is skipped by
+ * the {@link FeedMessageDeserializer} without its payload being parsed. Types
+ * without a maximum age are critical and always processed in full, as are records
+ * without a timestamp. {@link CatchUpController} switches catch-up on and off from
+ * the consumer lag.</p>
+ */
+public class CatchUpFilter {
+
+    private static final CatchUpFilter DISABLED = new CatchUpFilter();
+
+    private final Map<MessageType, Long> maxAgeMillis;
+    private final Map<MessageType, Counter> skipped;
+    private final Clock clock;
+    private volatile boolean active;
+
+    private CatchUpFilter() {
+        this.maxAgeMillis = Map.of();
+        this.skipped = Map.of();
+        this.clock = null;
+    }
+
+    /**
+     * @param maxAge message type name (e.g. "Login") to the age beyond which it is skipped
+     * @param clock clock the message age is measured against
+     * @param meterRegistry registry for the catch-up metrics
+     * @throws IllegalArgumentException if a type is unknown or an age is not positive
+     */
+    public CatchUpFilter(Map<String, Duration> maxAge, Clock clock, MeterRegistry meterRegistry) {
+        this.clock = Objects.requireNonNull(clock, "Clock cannot be null");
+        this.maxAgeMillis = new EnumMap<>(MessageType.class);
+        this.skipped = new EnumMap<>(MessageType.class);
+        if (maxAge != null) {
+            for (Map.Entry<String, Duration> entry : maxAge.entrySet()) {
+                MessageType type = parseType(entry.getKey());
+                Duration age = entry.getValue();
+                if (age == null || age.isNegative() || age.isZero()) {
+                    throw new IllegalArgumentException("Catch-up max age must be positive for: " + entry.getKey());
+                }
+                maxAgeMillis.put(type, age.toMillis());
+                skipped.put(type, Counter.builder("ces.kafka.catchup.skipped")
+                        .description("Expired records skipped unparsed while catching up")
+                        .tag("type", type.name())
+                        .register(meterRegistry));
+            }
+        }
+        Gauge.builder("ces.kafka.catchup.active", this, filter -> filter.active ? 1 : 0)
+                .description("1 while the consumer is catching up on a backlog")
+                .register(meterRegistry);
+    }
+
+    /**
+     * A filter that never skips.
+     */
+    public static CatchUpFilter disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Whether catch-up is active.
+     */
+    public boolean isActive() {
+        return active;
+    }
+
+    void setActive(boolean active) {
+        if (clock != null) {
+            this.active = active;
+        }
+    }
+
+    /**
+     * Checks whether a record is skipped, counting it if so.
+     *
+     * @param header the decoded header of the record
+     * @return true if catch-up is active and the record is an expired live-only event
+     */
+    public boolean skips(Header header) {
+        if (!active || !header.hasTimestamp()) {
+            return false;
+        }
+        Long maxAge = maxAgeMillis.get(header.getMessageType());
+        if (maxAge == null) {
+            return false;
+        }
+        Timestamp timestamp = header.getTimestamp();
+        long createdMillis = timestamp.getSeconds() * 1000 + timestamp.getNanos() / 1_000_000;
+        if (clock.millis() - createdMillis <= maxAge) {
+            return false;
+        }
+        skipped.get(header.getMessageType()).increment();
+        return true;
+    }
+
+    private static MessageType parseType(String name) {
+        try {
+            return MessageType.valueOf(name.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown message type for catch-up: " + name, e);
+        }
+    }
+}
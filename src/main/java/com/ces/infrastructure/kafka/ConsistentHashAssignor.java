@@ -0,0 +1,207 @@
+package com.ces.infrastructure.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerGroupMetadata;
+import org.apache.kafka.clients.consumer.ConsumerPartitionAssignor;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Configurable;
+import org.apache.kafka.common.TopicPartition;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Partition assignor that gives each CES node the partitions of the accounts whose
+ * sessions it holds.
+ *
+ * <p>Every member announces the WebSocket base URL of its node in its subscription.
+ * The leader places partition numbers on the distinct nodes with a
+ * {@link ConsistentHashRing}, so partition {@code n} of every topic goes to the
+ * same node, and a node joining or leaving moves only its share of partitions.
+ * The partitions of a node are spread round-robin over its consumers. The full
+ * partition-to-node map is sent with every assignment and published to the
+ * {@link PartitionOwnership}, so each node can send new sessions to the owner of
+ * their account's partition ({@link AccountKeys}). Members that announce no URL
+ * are placed on the ring under their member ID and published as unknown.</p>
+ *
+ * <p>Kafka instantiates the assignor from {@code partition.assignment.strategy}; the
+ * ownership, node URL and ring size are passed in as consumer configs.</p>
+ */
+public class ConsistentHashAssignor implements ConsumerPartitionAssignor, Configurable {
+
+    public static final String NAME = "ces-consistent-hash";
+
+    /**
+     * Consumer config holding the {@link PartitionOwnership} to publish to.
+     */
+    public static final String OWNERSHIP_CONFIG = "ces.partition.ownership";
+
+    /**
+     * Consumer config holding the WebSocket base URL of this node.
+     */
+    public static final String NODE_URL_CONFIG = "ces.partition.node-url";
+
+    /**
+     * Consumer config holding the ring points per node.
+     */
+    public static final String VIRTUAL_NODES_CONFIG = "ces.partition.virtual-nodes";
+
+    static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    private PartitionOwnership ownership;
+    private String nodeUrl = "";
+    private int virtualNodes = DEFAULT_VIRTUAL_NODES;
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+        if (configs.get(OWNERSHIP_CONFIG) instanceof PartitionOwnership configured) {
+            ownership = configured;
+        }
+        if (configs.get(NODE_URL_CONFIG) != null) {
+            nodeUrl = configs.get(NODE_URL_CONFIG).toString();
+        }
+        if (configs.get(VIRTUAL_NODES_CONFIG) != null) {
+            virtualNodes = Integer.parseInt(configs.get(VIRTUAL_NODES_CONFIG).toString());
+        }
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public ByteBuffer subscriptionUserData(Set<String> topics) {
+        return ByteBuffer.wrap(nodeUrl.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public GroupAssignment assign(Cluster metadata, GroupSubscription groupSubscription) {
+        Map<String, Subscription> subscriptions = groupSubscription.groupSubscription();
+
+        // Members by node, in member order so every leader assigns alike
+        List<String> allMembers = new ArrayList<>(new TreeMap<>(subscriptions).keySet());
+        Map<String, List<String>> membersByNode = new TreeMap<>();
+        Set<String> nodeUrls = new HashSet<>();
+        Set<String> topics = new LinkedHashSet<>();
+        for (String memberId : allMembers) {
+            Subscription subscription = subscriptions.get(memberId);
+            String nodeUrl = nodeUrlOf(subscription);
+            if (nodeUrl != null) {
+                nodeUrls.add(nodeUrl);
+            }
+            membersByNode.computeIfAbsent(nodeUrl != null ? nodeUrl : memberId, node -> new ArrayList<>())
+                    .add(memberId);
+            topics.addAll(subscription.topics());
+        }
+
+        Map<String, List<TopicPartition>> assigned = new HashMap<>();
+        for (String memberId : subscriptions.keySet()) {
+            assigned.put(memberId, new ArrayList<>());
+        }
+        if (membersByNode.isEmpty()) {
+            return new GroupAssignment(Map.of());
+        }
+        ConsistentHashRing ring = new ConsistentHashRing(membersByNode.keySet(), virtualNodes);
+
+        int partitionCount = 0;
+        Map<String, Integer> nextMember = new HashMap<>();
+        for (String topic : topics) {
+            Integer count = metadata.partitionCountForTopic(topic);
+            if (count == null) {
+                continue;
+            }
+            partitionCount = Math.max(partitionCount, count);
+            for (int partition = 0; partition < count; partition++) {
+                String node = ring.ownerOf(partition);
+                List<String> members = subscribersOf(membersByNode.get(node), topic, subscriptions);
+                if (members.isEmpty()) {
+                    // The owning node does not consume this topic; fall back to any subscriber
+                    members = subscribersOf(allMembers, topic, subscriptions);
+                }
+                int next = nextMember.merge(node, 1, Integer::sum) - 1;
+                assigned.get(members.get(next % members.size())).add(new TopicPartition(topic, partition));
+            }
+        }
+
+        List<String> ownerUrls = new ArrayList<>(partitionCount);
+        for (int partition = 0; partition < partitionCount; partition++) {
+            String node = ring.ownerOf(partition);
+            ownerUrls.add(nodeUrls.contains(node) ? node : "");
+        }
+        ByteBuffer userData = encode(ownerUrls);
+
+        Map<String, Assignment> assignments = new HashMap<>();
+        for (Map.Entry<String, List<TopicPartition>> entry : assigned.entrySet()) {
+            assignments.put(entry.getKey(), new Assignment(entry.getValue(), userData.duplicate()));
+        }
+        return new GroupAssignment(assignments);
+    }
+
+    @Override
+    public void onAssignment(Assignment assignment, ConsumerGroupMetadata metadata) {
+        if (ownership != null && assignment.userData() != null) {
+            ownership.update(decode(assignment.userData().duplicate()));
+        }
+    }
+
+    /**
+     * Returns the node URL a member announced, or null for members of other
+     * applications or versions that announce none.
+     */
+    private static String nodeUrlOf(Subscription subscription) {
+        ByteBuffer userData = subscription.userData();
+        if (userData == null || !userData.hasRemaining()) {
+            return null;
+        }
+        byte[] bytes = new byte[userData.remaining()];
+        userData.duplicate().get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static List<String> subscribersOf(
+            List<String> members, String topic, Map<String, Subscription> subscriptions) {
+        List<String> subscribers = new ArrayList<>(members.size());
+        for (String member : members) {
+            if (subscriptions.get(member).topics().contains(topic)) {
+                subscribers.add(member);
+            }
+        }
+        return subscribers;
+    }
+
+    static ByteBuffer encode(List<String> ownerUrls) {
+        List<byte[]> encoded = new ArrayList<>(ownerUrls.size());
+        int size = Integer.BYTES;
+        for (String url : ownerUrls) {
+            byte[] bytes = url.getBytes(StandardCharsets.UTF_8);
+            encoded.add(bytes);
+            size += Integer.BYTES + bytes.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(encoded.size());
+        for (byte[] bytes : encoded) {
+            buffer.putInt(bytes.length).put(bytes);
+        }
+        return buffer.flip();
+    }
+
+    static List<String> decode(ByteBuffer buffer) {
+        int count = buffer.getInt();
+        List<String> ownerUrls = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] bytes = new byte[buffer.getInt()];
+            buffer.get(bytes);
+            ownerUrls.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return Collections.unmodifiableList(ownerUrls);
+    }
+}
@@ -0,0 +1,48 @@
+package com.ces.infrastructure.kafka;
+
+import org.apache.kafka.common.utils.Utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Hash ring placing partition numbers on nodes. Each node is hashed onto the ring
+ * at {@code virtualNodes} points, and a partition belongs to the first node point
+ * at or after its own hash. Adding or removing a node only moves the partitions
+ * between its points and their predecessors, about 1/N of them.
+ */
+final class ConsistentHashRing {
+
+    private final TreeMap<Integer, String> ring = new TreeMap<>();
+
+    /**
+     * @param nodes the node keys; order does not matter
+     * @param virtualNodes points per node
+     */
+    ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("A hash ring needs at least one node");
+        }
+        for (String node : nodes) {
+            for (int point = 0; point < virtualNodes; point++) {
+                int hash = hash(node + "#" + point);
+                // Keep the lower key on collision, so every member builds the same ring
+                ring.merge(hash, node, (existing, added) -> existing.compareTo(added) <= 0 ? existing : added);
+            }
+        }
+    }
+
+    /**
+     * Returns the node owning a partition number.
+     */
+    String ownerOf(int partition) {
+        Map.Entry<Integer, String> entry = ring.ceilingEntry(hash("partition-" + partition));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    private static int hash(String value) {
+        return Utils.murmur2(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,41 +1,86 @@
 package com.ces.infrastructure.kafka;
 
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.ExtensionRegistryLite;
+import com.google.protobuf.WireFormat;
 import com.lnw.expressway.messages.v1.FeedMessageProto.FeedMessage;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header;
 import org.apache.kafka.common.errors.SerializationException;
 import org.apache.kafka.common.serialization.Deserializer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.util.Map;
+import java.util.Objects;
 
 /**
  * Kafka deserializer for Protobuf FeedMessage.
- * Converts byte arrays from Kafka messages into FeedMessage objects.
+ * Decodes only the header of each record and returns it with the record bytes as a
+ * {@link FeedRecord}; the payload is left to be parsed when it is needed.
+ * Records the {@link CatchUpFilter} skips are returned as
+ * {@link FeedRecord#skipped skipped} records holding only their header.
  */
-public class FeedMessageDeserializer implements Deserializer<FeedMessage> {
+public class FeedMessageDeserializer implements Deserializer<FeedRecord> {
 
     private static final Logger logger = LoggerFactory.getLogger(FeedMessageDeserializer.class);
 
+    private static final int HEADER_TAG =
+            FeedMessage.HEADER_FIELD_NUMBER << 3 | WireFormat.WIRETYPE_LENGTH_DELIMITED;
+
+    private final CatchUpFilter catchUpFilter;
+
+    public FeedMessageDeserializer() {
+        this(CatchUpFilter.disabled());
+    }
+
+    public FeedMessageDeserializer(CatchUpFilter catchUpFilter) {
+        this.catchUpFilter = Objects.requireNonNull(catchUpFilter, "Catch-up filter cannot be null");
+    }
+
     @Override
     public void configure(Map<String, ?> configs, boolean isKey) {
         // No specific configuration needed
     }
 
     @Override
-    public FeedMessage deserialize(String topic, byte[] data) {
+    public FeedRecord deserialize(String topic, byte[] data) {
         if (data == null) {
             logger.warn("Received null data from topic: {}", topic);
             return null;
         }
 
         try {
-            return FeedMessage.parseFrom(data);
+            Header header = parseHeader(data);
+            if (catchUpFilter.skips(header)) {
+                return FeedRecord.skipped(header);
+            }
+            return new FeedRecord(data, header);
         } catch (Exception e) {
             logger.error("Failed to deserialize FeedMessage from topic: {}", topic, e);
             throw new SerializationException("Error deserializing Protobuf FeedMessage", e);
         }
     }
 
+    /**
+     * Decodes only the header field, skipping the other fields.
+     *
+     * @return the header, or the default header if the record has none
+     */
+    private static Header parseHeader(byte[] data) throws IOException {
+        CodedInputStream input = CodedInputStream.newInstance(data);
+        int tag;
+        while ((tag = input.readTag()) != 0) {
+            if (tag == HEADER_TAG) {
+                Header.Builder header = Header.newBuilder();
+                input.readMessage(header, ExtensionRegistryLite.getEmptyRegistry());
+                return header.build();
+            }
+            input.skipField(tag);
+        }
+        return Header.getDefaultInstance();
+    }
+
     @Override
     public void close() {
         // No resources to close
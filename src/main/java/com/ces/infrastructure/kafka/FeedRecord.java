@@ -0,0 +1,88 @@
+package com.ces.infrastructure.kafka;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.lnw.expressway.messages.v1.FeedMessageProto.FeedMessage;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header;
+
+import java.util.Objects;
+
+/**
+ * A consumed FeedMessage record: the record bytes as received plus the decoded header.
+ *
+ * <p>Filtering, deduplication and ordering only need the header, and the bytes
+ * become the encoded form of the EventMessage as they are, so most records are
+ * never fully parsed or re-encoded on this node. The payload is parsed on demand by
+ * {@link #feedMessage()}.</p>
+ *
+ * <p>A record skipped while catching up keeps only its header, so its sequence ID
+ * can still be accounted for downstream.</p>
+ */
+public final class FeedRecord {
+
+    private static final byte[] NO_DATA = new byte[0];
+
+    private final byte[] data;
+    private final Header header;
+    private final boolean skipped;
+
+    /**
+     * @param data the serialized FeedMessage; kept as is, must not be modified afterwards
+     * @param header the decoded header of the FeedMessage
+     */
+    public FeedRecord(byte[] data, Header header) {
+        this(data, header, false);
+    }
+
+    private FeedRecord(byte[] data, Header header, boolean skipped) {
+        this.data = Objects.requireNonNull(data, "Record data cannot be null");
+        this.header = Objects.requireNonNull(header, "Header cannot be null");
+        this.skipped = skipped;
+    }
+
+    /**
+     * A record that is not to be processed, of which only the header is kept.
+     */
+    public static FeedRecord skipped(Header header) {
+        return new FeedRecord(NO_DATA, header, true);
+    }
+
+    /**
+     * Whether the record was skipped and has no data.
+     */
+    public boolean isSkipped() {
+        return skipped;
+    }
+
+    /**
+     * The serialized FeedMessage. The array is shared and must not be modified.
+     */
+    public byte[] data() {
+        return data;
+    }
+
+    public Header header() {
+        return header;
+    }
+
+    /**
+     * The account of the payload, read without parsing it.
+     *
+     * @return the account ID, or 0 if the payload has none
+     */
+    public long accountId() {
+        return AccountIdReader.accountIdOf(data);
+    }
+
+    /**
+     * Parses the whole FeedMessage.
+     *
+     * @throws IllegalStateException if the payload cannot be decoded
+     */
+    public FeedMessage feedMessage() {
+        try {
+            return FeedMessage.parseFrom(data);
+        } catch (InvalidProtocolBufferException e) {
+            throw new IllegalStateException("FeedMessage record is corrupt", e);
+        }
+    }
+}
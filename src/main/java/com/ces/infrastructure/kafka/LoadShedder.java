@@ -0,0 +1,149 @@
+package com.ces.infrastructure.kafka;
+
+import com.google.protobuf.Timestamp;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header.MessageType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Drops consumed FeedMessages of low value while the {@link OverloadDetector}
+ * reports overload, before they are deduplicated or wrapped in an envelope.
+ *
+ * <p>Two rules apply, and only during overload:</p>
+ * <ul>
+ *   <li>Messages of a shed type are dropped outright (reason {@code type}).</li>
+ *   <li>Messages whose {@code Header.timestamp} is older than the staleness bound of
+ *       their type are dropped (reason {@code stale}). Messages without a timestamp
+ *       are never stale.</li>
+ * </ul>
+ *
+ * <p>Every drop is counted in {@code ces.kafka.shed}, tagged by reason and type.</p>
+ */
+public class LoadShedder {
+
+    static final String REASON_TYPE = "type";
+    static final String REASON_STALE = "stale";
+
+    private static final LoadShedder DISABLED = new LoadShedder();
+
+    private final OverloadDetector detector;
+    private final Map<MessageType, Counter> typeDrops;
+    private final Map<MessageType, Long> maxAgeMillis;
+    private final Map<MessageType, Counter> staleDrops;
+    private final Clock clock;
+
+    private LoadShedder() {
+        this.detector = null;
+        this.typeDrops = Map.of();
+        this.maxAgeMillis = Map.of();
+        this.staleDrops = Map.of();
+        this.clock = null;
+    }
+
+    /**
+     * @param detector the overload detector
+     * @param shedTypes message type names (e.g. "PropertyAudit") dropped during overload
+     * @param maxAge message type name to the age beyond which it is dropped during overload
+     * @param clock clock the message age is measured against
+     * @param meterRegistry registry for the drop counters
+     * @throws IllegalArgumentException if a type is unknown or an age is not positive
+     */
+    public LoadShedder(
+            OverloadDetector detector,
+            Set<String> shedTypes,
+            Map<String, Duration> maxAge,
+            Clock clock,
+            MeterRegistry meterRegistry) {
+        this.detector = Objects.requireNonNull(detector, "Overload detector cannot be null");
+        this.clock = Objects.requireNonNull(clock, "Clock cannot be null");
+        this.typeDrops = new EnumMap<>(MessageType.class);
+        this.maxAgeMillis = new EnumMap<>(MessageType.class);
+        this.staleDrops = new EnumMap<>(MessageType.class);
+        if (shedTypes != null) {
+            for (String name : shedTypes) {
+                MessageType type = parseType(name);
+                typeDrops.put(type, counter(meterRegistry, REASON_TYPE, type));
+            }
+        }
+        if (maxAge != null) {
+            for (Map.Entry<String, Duration> entry : maxAge.entrySet()) {
+                MessageType type = parseType(entry.getKey());
+                Duration age = entry.getValue();
+                if (age == null || age.isNegative() || age.isZero()) {
+                    throw new IllegalArgumentException("Staleness bound must be positive for: " + entry.getKey());
+                }
+                maxAgeMillis.put(type, age.toMillis());
+                staleDrops.put(type, counter(meterRegistry, REASON_STALE, type));
+            }
+        }
+    }
+
+    /**
+     * A shedder that lets every message through.
+     */
+    public static LoadShedder disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Checks whether a message is kept under the current load.
+     *
+     * @param header the header of the consumed message
+     * @return false if the message must be dropped
+     */
+    public boolean accepts(Header header) {
+        if (detector == null || !detector.isOverloaded()) {
+            return true;
+        }
+        MessageType type = header.getMessageType();
+        Counter typeDrop = typeDrops.get(type);
+        if (typeDrop != null) {
+            typeDrop.increment();
+            return false;
+        }
+        Long maxAge = maxAgeMillis.get(type);
+        if (maxAge == null || !header.hasTimestamp()) {
+            return true;
+        }
+        Timestamp timestamp = header.getTimestamp();
+        long createdMillis = timestamp.getSeconds() * 1000 + timestamp.getNanos() / 1_000_000;
+        if (clock.millis() - createdMillis <= maxAge) {
+            return true;
+        }
+        staleDrops.get(type).increment();
+        return false;
+    }
+
+    /**
+     * Stops the overload detector.
+     */
+    public void close() {
+        if (detector != null) {
+            detector.close();
+        }
+    }
+
+    private static Counter counter(MeterRegistry meterRegistry, String reason, MessageType type) {
+        return Counter.builder("ces.kafka.shed")
+                .description("FeedMessages dropped at ingest during overload")
+                .tag("reason", reason)
+                .tag("type", type.name())
+                .register(meterRegistry);
+    }
+
+    private static MessageType parseType(String name) {
+        try {
+            return MessageType.valueOf(name.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown message type for load shedding: " + name, e);
+        }
+    }
+}
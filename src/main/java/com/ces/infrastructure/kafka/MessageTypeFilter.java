@@ -0,0 +1,66 @@
+package com.ces.infrastructure.kafka;
+
+import com.ces.application.port.output.MessageTypeSubscriptions;
+import com.ces.domain.model.MessageTypeMask;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Objects;
+
+/**
+ * Drops consumed FeedMessages whose {@code Header.MessageType} no session registered
+ * on this node subscribed to, before they are deduplicated or wrapped in an envelope.
+ *
+ * <p>The check is one AND of the type's bit against the node-wide union of
+ * subscriptions. Only enable it when every session that may receive this node's
+ * partitions registers here; sessions registered on another node do not widen the
+ * union.</p>
+ */
+public class MessageTypeFilter {
+
+    private static final MessageTypeFilter DISABLED = new MessageTypeFilter();
+
+    private final MessageTypeSubscriptions subscriptions;
+    private final Counter dropped;
+
+    private MessageTypeFilter() {
+        this.subscriptions = null;
+        this.dropped = null;
+    }
+
+    /**
+     * @param subscriptions the node-wide subscription union
+     * @param meterRegistry registry for the drop counter
+     */
+    public MessageTypeFilter(MessageTypeSubscriptions subscriptions, MeterRegistry meterRegistry) {
+        this.subscriptions = Objects.requireNonNull(subscriptions, "Subscriptions cannot be null");
+        this.dropped = Counter.builder("ces.kafka.unsubscribed.dropped")
+                .description("FeedMessages dropped at ingest because no session subscribed to their type")
+                .register(meterRegistry);
+    }
+
+    /**
+     * A filter that lets every message through.
+     */
+    public static MessageTypeFilter disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Checks whether any session on this node subscribed to the message's type.
+     *
+     * @param header the header of the consumed message
+     * @return false if the message must be dropped
+     */
+    public boolean accepts(Header header) {
+        if (subscriptions == null) {
+            return true;
+        }
+        if (MessageTypeMask.accepts(subscriptions.unionMask(), header.getMessageType())) {
+            return true;
+        }
+        dropped.increment();
+        return false;
+    }
+}
@@ -0,0 +1,158 @@
+package com.ces.infrastructure.kafka;
+
+import com.ces.infrastructure.websocket.OutboundBacklog;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides whether the node is overloaded from the outbound backlog, the time spent
+ * in garbage collection and the process CPU load.
+ *
+ * <p>Every check interval the signals are sampled and compared with the
+ * {@link OverloadThresholds}. GC time is measured as the share of the interval the
+ * collectors reported as spent collecting. CPU load is only available on JVMs that
+ * expose {@code com.sun.management.OperatingSystemMXBean}; elsewhere it reads as 0.
+ * Overload ends only after the cooldown, so shedding does not flap.</p>
+ */
+public class OverloadDetector {
+
+    private static final Logger logger = LoggerFactory.getLogger(OverloadDetector.class);
+
+    private final OutboundBacklog backlog;
+    private final OverloadThresholds thresholds;
+    private final long cooldownNanos;
+    private final List<GarbageCollectorMXBean> collectors;
+    private final OperatingSystemMXBean operatingSystem;
+    private final ScheduledExecutorService checker;
+    private final Counter episodes;
+
+    private long lastGcMillis;
+    private long lastCheckNanos;
+    private boolean calm;
+    private long calmSinceNanos;
+    private volatile boolean overloaded;
+
+    /**
+     * @param backlog the node-wide outbound backlog
+     * @param thresholds the signal levels that mean overload
+     * @param checkInterval time between two samples of the signals
+     * @param meterRegistry registry for the overload metrics
+     */
+    public OverloadDetector(
+            OutboundBacklog backlog,
+            OverloadThresholds thresholds,
+            Duration checkInterval,
+            MeterRegistry meterRegistry) {
+        this.backlog = Objects.requireNonNull(backlog, "Outbound backlog cannot be null");
+        this.thresholds = Objects.requireNonNull(thresholds, "Overload thresholds cannot be null");
+        this.cooldownNanos = thresholds.cooldown().toNanos();
+        if (checkInterval.isNegative() || checkInterval.isZero()) {
+            throw new IllegalArgumentException("Overload check interval must be positive");
+        }
+        this.collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        this.operatingSystem = ManagementFactory.getOperatingSystemMXBean();
+        this.lastGcMillis = totalGcMillis();
+        this.lastCheckNanos = System.nanoTime();
+
+        this.episodes = Counter.builder("ces.kafka.overload.episodes")
+                .description("Times the node entered overload")
+                .register(meterRegistry);
+        Gauge.builder("ces.kafka.overload.active", this, detector -> detector.overloaded ? 1 : 0)
+                .description("1 while the node is overloaded and sheds messages")
+                .register(meterRegistry);
+
+        this.checker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ces-overload");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long intervalNanos = checkInterval.toNanos();
+        checker.scheduleWithFixedDelay(this::check, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public boolean isOverloaded() {
+        return overloaded;
+    }
+
+    /**
+     * Stops sampling and ends overload.
+     */
+    public void close() {
+        checker.shutdownNow();
+        overloaded = false;
+    }
+
+    private void check() {
+        try {
+            long now = System.nanoTime();
+            long gcMillis = totalGcMillis();
+            double gcTimeRatio = (double) TimeUnit.MILLISECONDS.toNanos(gcMillis - lastGcMillis)
+                    / Math.max(1, now - lastCheckNanos);
+            lastGcMillis = gcMillis;
+            lastCheckNanos = now;
+            update(backlog.pendingMessages(), gcTimeRatio, cpuLoad(), now);
+        } catch (RuntimeException e) {
+            logger.error("Overload check failed", e);
+        }
+    }
+
+    /**
+     * Enters or leaves overload according to one sample of the signals.
+     *
+     * @param pendingMessages payloads queued on all outbound connections
+     * @param gcTimeRatio share of the last interval spent in garbage collection
+     * @param cpuLoad process CPU load
+     * @param nowNanos the {@link System#nanoTime} of the sample
+     */
+    void update(long pendingMessages, double gcTimeRatio, double cpuLoad, long nowNanos) {
+        boolean exceeded = pendingMessages > thresholds.pendingMessages()
+                || gcTimeRatio > thresholds.gcTimeRatio()
+                || cpuLoad > thresholds.cpuLoad();
+        if (exceeded) {
+            calm = false;
+            if (!overloaded) {
+                overloaded = true;
+                episodes.increment();
+                logger.warn("Entering overload: {} messages queued, GC time {}%, CPU load {}%",
+                        pendingMessages, Math.round(gcTimeRatio * 100), Math.round(cpuLoad * 100));
+            }
+        } else if (overloaded) {
+            if (!calm) {
+                calm = true;
+                calmSinceNanos = nowNanos;
+            } else if (nowNanos - calmSinceNanos >= cooldownNanos) {
+                overloaded = false;
+                calm = false;
+                logger.info("Leaving overload: {} messages queued", pendingMessages);
+            }
+        }
+    }
+
+    private long totalGcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : collectors) {
+            total += Math.max(0, collector.getCollectionTime());
+        }
+        return total;
+    }
+
+    private double cpuLoad() {
+        if (operatingSystem instanceof com.sun.management.OperatingSystemMXBean os) {
+            return Math.max(0, os.getProcessCpuLoad());
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,37 @@
+package com.ces.infrastructure.kafka;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Signal levels above which the node is considered overloaded.
+ * The node enters overload when any signal exceeds its threshold, and leaves it
+ * once all signals have stayed at or below their thresholds for {@code cooldown}.
+ *
+ * @param pendingMessages payloads queued on all outbound connections
+ * @param gcTimeRatio share of wall-clock time spent in garbage collection, in (0, 1]
+ * @param cpuLoad process CPU load, in (0, 1]; 1 never triggers
+ * @param cooldown how long all signals must stay low before overload ends
+ */
+public record OverloadThresholds(
+        long pendingMessages,
+        double gcTimeRatio,
+        double cpuLoad,
+        Duration cooldown) {
+
+    public OverloadThresholds {
+        if (pendingMessages < 1) {
+            throw new IllegalArgumentException("Pending message threshold must be positive");
+        }
+        if (gcTimeRatio <= 0 || gcTimeRatio > 1) {
+            throw new IllegalArgumentException("GC time ratio threshold must be in (0, 1]");
+        }
+        if (cpuLoad <= 0 || cpuLoad > 1) {
+            throw new IllegalArgumentException("CPU load threshold must be in (0, 1]");
+        }
+        Objects.requireNonNull(cooldown, "Overload cooldown cannot be null");
+        if (cooldown.isNegative()) {
+            throw new IllegalArgumentException("Overload cooldown cannot be negative");
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.ces.infrastructure.kafka;
+
+import com.ces.application.port.output.SessionPlacement;
+
+import java.util.List;
+
+/**
+ * The node owning each partition number, as published by the group leader with
+ * every {@link ConsistentHashAssignor} rebalance.
+ *
+ * <p>Sessions are placed on the node that consumes their account's partition, so
+ * the events of an account are delivered by the node holding its WebSocket. Until
+ * the first rebalance, or for sessions without an account, no node is preferred.</p>
+ */
+public class PartitionOwnership implements SessionPlacement {
+
+    private volatile List<String> ownerUrls = List.of();
+
+    /**
+     * Replaces the owners after a rebalance.
+     *
+     * @param ownerUrls WebSocket base URL of the owning node, by partition number;
+     *                  empty where the owner is unknown
+     */
+    void update(List<String> ownerUrls) {
+        this.ownerUrls = List.copyOf(ownerUrls);
+    }
+
+    /**
+     * WebSocket base URL of the owning node, by partition number.
+     */
+    public List<String> ownerUrls() {
+        return ownerUrls;
+    }
+
+    @Override
+    public String webSocketBaseUrl(long accountId) {
+        List<String> owners = ownerUrls;
+        if (accountId <= 0 || owners.isEmpty()) {
+            return null;
+        }
+        String owner = owners.get(AccountKeys.partitionFor(accountId, owners.size()));
+        return owner.isEmpty() ? null : owner;
+    }
+}
@@ -0,0 +1,159 @@
+package com.ces.infrastructure.kafka;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.BatchMessageListener;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.DefaultErrorHandler;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.util.backoff.FixedBackOff;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Republishes the feed topics, keyed by account, to an internal topic the delivery
+ * consumers read instead.
+ *
+ * <p>Upstream producers do not key the feed by account, so an account's events are
+ * spread over all partitions. This stage consumes the raw records in its own
+ * consumer group, reads their account with the {@link AccountIdReader}, and sends
+ * the original bytes, headers and timestamp on to the target topic under the
+ * {@link AccountKeys} key, without decoding or re-encoding the message. Records
+ * without an account (operator-wide events) are sent unkeyed.</p>
+ *
+ * <p>Records are forwarded a poll batch at a time through a producer that batches
+ * and compresses them. Offsets are committed only once every record of the batch is
+ * acknowledged; a failed batch is retried until the target accepts it, so no record
+ * is lost, but records may be forwarded twice. The delivery consumers drop such
+ * duplicates with the {@link SequenceDeduplicator}.</p>
+ */
+public class RepartitionStage {
+
+    /**
+     * Bean name of the listener container.
+     */
+    public static final String CONTAINER_NAME = "ces-repartition";
+
+    private static final Logger logger = LoggerFactory.getLogger(RepartitionStage.class);
+
+    private static final long RETRY_INTERVAL_MILLIS = 1000;
+
+    private final String targetTopic;
+    private final KafkaTemplate<String, byte[]> template;
+    private final DefaultKafkaProducerFactory<String, byte[]> producerFactory;
+    private final ConcurrentMessageListenerContainer<byte[], byte[]> container;
+    private final Counter keyedRecords;
+    private final Counter unkeyedRecords;
+
+    /**
+     * @param consumerConfigs configs of the consumers reading the source topics,
+     *                        including their group id; deserializers are set here
+     * @param producerConfigs configs of the producer writing the target topic,
+     *                        including batching and compression; serializers are set here
+     * @param sourceTopics the unkeyed feed topics
+     * @param targetTopic the account-keyed topic
+     * @param concurrency consumers reading the source topics
+     * @param meterRegistry registry for the forwarded record counters
+     */
+    public RepartitionStage(
+            Map<String, Object> consumerConfigs,
+            Map<String, Object> producerConfigs,
+            Collection<String> sourceTopics,
+            String targetTopic,
+            int concurrency,
+            MeterRegistry meterRegistry) {
+        Objects.requireNonNull(consumerConfigs, "Consumer configs cannot be null");
+        Objects.requireNonNull(producerConfigs, "Producer configs cannot be null");
+        this.targetTopic = Objects.requireNonNull(targetTopic, "Target topic cannot be null");
+        if (sourceTopics == null || sourceTopics.isEmpty()) {
+            throw new IllegalArgumentException("Repartitioning needs at least one source topic");
+        }
+        if (sourceTopics.contains(targetTopic)) {
+            throw new IllegalArgumentException("Repartition target topic cannot be one of its sources");
+        }
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Repartition concurrency must be positive");
+        }
+
+        this.producerFactory = new DefaultKafkaProducerFactory<>(
+                producerConfigs, new StringSerializer(), new ByteArraySerializer());
+        this.template = new KafkaTemplate<>(producerFactory);
+
+        Map<String, Object> consumerProps = new HashMap<>(consumerConfigs);
+        consumerProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        ContainerProperties containerProperties = new ContainerProperties(sourceTopics.toArray(String[]::new));
+        containerProperties.setMessageListener((BatchMessageListener<byte[], byte[]>) this::forward);
+        this.container = new ConcurrentMessageListenerContainer<>(
+                new DefaultKafkaConsumerFactory<>(
+                        consumerProps, new ByteArrayDeserializer(), new ByteArrayDeserializer()),
+                containerProperties);
+        container.setConcurrency(concurrency);
+        container.setBeanName(CONTAINER_NAME);
+        container.setCommonErrorHandler(
+                new DefaultErrorHandler(new FixedBackOff(RETRY_INTERVAL_MILLIS, FixedBackOff.UNLIMITED_ATTEMPTS)));
+
+        this.keyedRecords = Counter.builder("ces.kafka.repartition.records")
+                .description("Feed records republished to the account-keyed topic")
+                .tag("keyed", "true")
+                .register(meterRegistry);
+        this.unkeyedRecords = Counter.builder("ces.kafka.repartition.records")
+                .description("Feed records republished to the account-keyed topic")
+                .tag("keyed", "false")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts consuming the source topics.
+     */
+    public void start() {
+        container.start();
+        logger.info("Repartitioning {} to {}", container.getContainerProperties().getTopics(), targetTopic);
+    }
+
+    /**
+     * Republishes a poll batch and waits until the target acknowledged all of it,
+     * so the container commits its offsets only then.
+     */
+    void forward(List<ConsumerRecord<byte[], byte[]>> records) {
+        List<CompletableFuture<SendResult<String, byte[]>>> sends = new ArrayList<>(records.size());
+        for (ConsumerRecord<byte[], byte[]> record : records) {
+            if (record.value() == null) {
+                continue;
+            }
+            long accountId = AccountIdReader.accountIdOf(record.value());
+            String key = accountId > 0 ? AccountKeys.key(accountId) : null;
+            Long timestamp = record.timestamp() >= 0 ? record.timestamp() : null;
+            sends.add(template.send(new ProducerRecord<>(
+                    targetTopic, null, timestamp, key, record.value(), new RecordHeaders(record.headers().toArray()))));
+            (key != null ? keyedRecords : unkeyedRecords).increment();
+        }
+        CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).join();
+    }
+
+    /**
+     * Stops consuming and sends what the producer still buffers.
+     */
+    public void close() {
+        container.stop();
+        producerFactory.destroy();
+    }
+}
@@ -0,0 +1,183 @@
+package com.ces.infrastructure.kafka;
+
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header.Identifier;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header.Identifier.SequencingKey;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Drops FeedMessages that were already consumed, identified by their
+ * {@code Header.Identifier} key and sequence ID.
+ *
+ * <p>For every {@link SequencingKey} it tracks the highest sequence ID seen plus a
+ * bitmap of the {@code windowSize} sequence IDs below it, so messages arriving out
+ * of order within the window are accepted once and replays of them are dropped.
+ * The state is a fixed {@code long[]} per key, so checking a message allocates
+ * nothing. Messages older than the window cannot be classified; they are delivered
+ * and counted. Messages without a sequencing key bypass the check.</p>
+ *
+ * <p>A message is recorded when it is checked. If it is then not handed off, the
+ * caller {@link #forget forgets} it, so its redelivery is not dropped.</p>
+ */
+public class SequenceDeduplicator {
+
+    private static final SequenceDeduplicator DISABLED = new SequenceDeduplicator();
+
+    private final Map<SequencingKey, Window> windows;
+    private final Counter duplicates;
+    private final Counter outOfWindow;
+
+    private SequenceDeduplicator() {
+        this.windows = Map.of();
+        this.duplicates = null;
+        this.outOfWindow = null;
+    }
+
+    /**
+     * @param windowSize number of sequence IDs below the high-water mark that are
+     *                   tracked, rounded up to a power of two
+     * @param meterRegistry registry for the dedup counters
+     */
+    public SequenceDeduplicator(int windowSize, MeterRegistry meterRegistry) {
+        if (windowSize < 64) {
+            throw new IllegalArgumentException("Dedup window must cover at least 64 sequence IDs");
+        }
+        int size = Integer.highestOneBit(windowSize - 1) << 1;
+        this.windows = new EnumMap<>(SequencingKey.class);
+        for (SequencingKey key : SequencingKey.values()) {
+            if (key != SequencingKey.UnknownKey && key != SequencingKey.UNRECOGNIZED) {
+                windows.put(key, new Window(size));
+            }
+        }
+        this.duplicates = Counter.builder("ces.kafka.dedup.dropped")
+                .description("FeedMessages dropped because their sequence ID was already consumed")
+                .register(meterRegistry);
+        this.outOfWindow = Counter.builder("ces.kafka.dedup.unchecked")
+                .description("FeedMessages too far behind the high-water mark to be checked for duplicates")
+                .register(meterRegistry);
+    }
+
+    /**
+     * A deduplicator that lets every message through.
+     */
+    public static SequenceDeduplicator disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Records the message and checks whether it was seen before.
+     *
+     * @param header the header of the consumed message
+     * @return true if the message is a duplicate and must be dropped
+     */
+    public boolean isDuplicate(Header header) {
+        Identifier identifier = header.getIdentifier();
+        Window window = windows.get(identifier.getKey());
+        if (window == null) {
+            return false;
+        }
+        return switch (window.record(identifier.getSequenceId())) {
+            case Window.DUPLICATE -> {
+                duplicates.increment();
+                yield true;
+            }
+            case Window.OUT_OF_WINDOW -> {
+                outOfWindow.increment();
+                yield false;
+            }
+            default -> false;
+        };
+    }
+
+    /**
+     * Forgets a message that was recorded but could not be delivered, so its
+     * redelivery is accepted. Does nothing if the window has moved past it.
+     *
+     * @param header the header of the message
+     */
+    public void forget(Header header) {
+        Identifier identifier = header.getIdentifier();
+        Window window = windows.get(identifier.getKey());
+        if (window != null) {
+            window.forget(identifier.getSequenceId());
+        }
+    }
+
+    /**
+     * Sliding bitmap over the sequence IDs (highWater - size, highWater]; the bit
+     * of a sequence ID is at its value modulo the window size.
+     */
+    private static final class Window {
+
+        static final int NEW = 0;
+        static final int DUPLICATE = 1;
+        static final int OUT_OF_WINDOW = 2;
+
+        private final long[] bits;
+        private final long mask;
+        private boolean empty = true;
+        private long highWater;
+
+        private Window(int size) {
+            this.bits = new long[size >>> 6];
+            this.mask = size - 1;
+        }
+
+        synchronized int record(long sequenceId) {
+            if (empty) {
+                empty = false;
+                highWater = sequenceId;
+                set(sequenceId);
+                return NEW;
+            }
+            if (sequenceId > highWater) {
+                long advance = sequenceId - highWater;
+                if (advance > mask) {
+                    Arrays.fill(bits, 0L);
+                } else {
+                    // Forget the slots the window slides over
+                    for (long slot = highWater + 1; slot < sequenceId; slot++) {
+                        clear(slot);
+                    }
+                }
+                highWater = sequenceId;
+                set(sequenceId);
+                return NEW;
+            }
+            if (highWater - sequenceId > mask) {
+                return OUT_OF_WINDOW;
+            }
+            if (isSet(sequenceId)) {
+                return DUPLICATE;
+            }
+            set(sequenceId);
+            return NEW;
+        }
+
+        synchronized void forget(long sequenceId) {
+            if (!empty && sequenceId <= highWater && highWater - sequenceId <= mask) {
+                clear(sequenceId);
+            }
+        }
+
+        private boolean isSet(long sequenceId) {
+            int slot = (int) (sequenceId & mask);
+            return (bits[slot >>> 6] & (1L << slot)) != 0;
+        }
+
+        private void set(long sequenceId) {
+            int slot = (int) (sequenceId & mask);
+            bits[slot >>> 6] |= 1L << slot;
+        }
+
+        private void clear(long sequenceId) {
+            int slot = (int) (sequenceId & mask);
+            bits[slot >>> 6] &= ~(1L << slot);
+        }
+    }
+}
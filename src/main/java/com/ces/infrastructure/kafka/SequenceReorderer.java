@@ -0,0 +1,415 @@
+package com.ces.infrastructure.kafka;
+
+import com.ces.domain.model.EventMessage;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header.Identifier.SequencingKey;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Releases EventMessages downstream in {@code sequence_id} order per
+ * {@link SequencingKey}, holding back messages that arrive ahead of a gap.
+ * The feed schema does not promise that sequence IDs are dense, so only the keys
+ * the reorderer is configured with, whose producers number every message, are
+ * reordered; messages of other keys pass straight through.
+ *
+ * <p>A message carrying the next expected sequence ID while nothing is held is
+ * released straight away with a single compare-and-set, without taking a lock.
+ * Messages ahead of a gap are held in a fixed ring of {@code maxHeld} slots until
+ * the gap fills. A gap is given up on, and counted as lost, when its oldest held
+ * successor has waited {@code maxHold} or the ring overflows. Messages behind the
+ * released position (late arrivals after a gap was given up on) are passed through
+ * and counted. The first message seen for a key sets its starting position.
+ * Messages without a sequencing key are not reordered. Messages of one key consumed
+ * concurrently on different threads may overlap while being handed downstream on
+ * the fast path.</p>
+ *
+ * <p>Each message may come with a callback run once it has been handed downstream,
+ * which acknowledges its Kafka record; a held message's offset is therefore not
+ * committed before the message is released. Records consumed but dropped before
+ * the reorderer, e.g. shed under overload, are reported with {@link #skip}: their
+ * sequence ID then takes its turn without a message, instead of opening a gap that
+ * holds back every successor for the hold time.</p>
+ */
+public class SequenceReorderer {
+
+    private static final Logger logger = LoggerFactory.getLogger(SequenceReorderer.class);
+    private static final SequenceReorderer DISABLED = new SequenceReorderer();
+    private static final Runnable NO_CALLBACK = () -> { };
+
+    private final Map<SequencingKey, KeyWindow> windows;
+    private final Consumer<EventMessage> downstream;
+    private final long maxHoldNanos;
+    private final ScheduledExecutorService sweeper;
+
+    private SequenceReorderer() {
+        this.windows = Map.of();
+        this.downstream = null;
+        this.maxHoldNanos = 0;
+        this.sweeper = null;
+    }
+
+    /**
+     * @param downstream receives the messages in sequence order
+     * @param keys sequencing keys whose sequence IDs are dense and are reordered
+     * @param maxHeld messages held per key before the oldest gap is given up on,
+     *                rounded up to a power of two
+     * @param maxHold longest time a message waits for a gap to fill
+     * @param meterRegistry registry for the per-key gap metrics
+     */
+    public SequenceReorderer(
+            Consumer<EventMessage> downstream,
+            Set<SequencingKey> keys,
+            int maxHeld,
+            Duration maxHold,
+            MeterRegistry meterRegistry) {
+        if (maxHeld < 1 || maxHold.isNegative() || maxHold.isZero()) {
+            throw new IllegalArgumentException("Reorder capacity and hold time must be positive");
+        }
+        this.downstream = Objects.requireNonNull(downstream, "Downstream cannot be null");
+        this.maxHoldNanos = maxHold.toNanos();
+        int capacity = maxHeld == 1 ? 1 : Integer.highestOneBit(maxHeld - 1) << 1;
+        this.windows = new EnumMap<>(SequencingKey.class);
+        for (SequencingKey key : keys) {
+            if (key != SequencingKey.UnknownKey && key != SequencingKey.UNRECOGNIZED) {
+                windows.put(key, new KeyWindow(key, capacity, meterRegistry));
+            }
+        }
+
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ces-reorder-sweep");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long sweepNanos = Math.max(maxHoldNanos / 2, TimeUnit.MILLISECONDS.toNanos(1));
+        sweeper.scheduleWithFixedDelay(this::releaseExpired, sweepNanos, sweepNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * A reorderer that is not in use; {@link #isEnabled()} returns false.
+     */
+    public static SequenceReorderer disabled() {
+        return DISABLED;
+    }
+
+    public boolean isEnabled() {
+        return downstream != null;
+    }
+
+    /**
+     * Releases the message downstream now, or holds it until its predecessors
+     * have been released or given up on.
+     *
+     * @param message the consumed message
+     */
+    public void offer(EventMessage message) {
+        offer(message, NO_CALLBACK);
+    }
+
+    /**
+     * Releases the message downstream now, or holds it until its predecessors
+     * have been released or given up on, then runs the callback. The callback is
+     * not run if handing the message downstream throws on the calling thread.
+     *
+     * @param message the consumed message
+     * @param onReleased run once the message has been handed downstream
+     */
+    public void offer(EventMessage message, Runnable onReleased) {
+        KeyWindow window = windows.get(message.getSequencingKey());
+        if (window == null) {
+            downstream.accept(message);
+            onReleased.run();
+            return;
+        }
+        window.offer(message, message.getSequenceId(), onReleased);
+    }
+
+    /**
+     * Records that the message with this sequence ID was consumed but will not be
+     * delivered, so it does not open a gap. The callback runs in the message's turn,
+     * once its predecessors have been released or given up on.
+     *
+     * @param key the sequencing key of the dropped message
+     * @param sequenceId the sequence ID of the dropped message
+     * @param onReleased run once the sequence ID has taken its turn
+     */
+    public void skip(SequencingKey key, long sequenceId, Runnable onReleased) {
+        KeyWindow window = windows.get(key);
+        if (window == null) {
+            onReleased.run();
+            return;
+        }
+        window.offer(null, sequenceId, onReleased);
+    }
+
+    /**
+     * Gives up on gaps whose held successors have waited longer than the hold time.
+     */
+    void releaseExpired() {
+        long now = System.nanoTime();
+        for (KeyWindow window : windows.values()) {
+            window.releaseExpired(now);
+        }
+    }
+
+    /**
+     * Releases all held messages and stops the sweeper.
+     */
+    public void close() {
+        if (sweeper != null) {
+            sweeper.shutdownNow();
+            for (KeyWindow window : windows.values()) {
+                window.releaseAll();
+            }
+        }
+    }
+
+    private final class KeyWindow {
+
+        private static final long UNSET = Long.MIN_VALUE;
+
+        private final SequencingKey key;
+        private final AtomicLong nextExpected = new AtomicLong(UNSET);
+        private final AtomicInteger heldCount = new AtomicInteger();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final EventMessage[] held;
+        private final Runnable[] heldCallbacks;
+        private final long[] heldSequence;
+        private final long[] heldSince;
+        private final int mask;
+        private final Counter gaps;
+        private final Counter reordered;
+        private final Counter late;
+
+        private KeyWindow(SequencingKey key, int capacity, MeterRegistry meterRegistry) {
+            this.key = key;
+            this.held = new EventMessage[capacity];
+            this.heldCallbacks = new Runnable[capacity];
+            this.heldSequence = new long[capacity];
+            this.heldSince = new long[capacity];
+            this.mask = capacity - 1;
+            this.gaps = Counter.builder("ces.kafka.reorder.gaps")
+                    .description("Missing sequence IDs given up on")
+                    .tag("key", key.name())
+                    .register(meterRegistry);
+            this.reordered = Counter.builder("ces.kafka.reorder.held")
+                    .description("Messages held until an earlier sequence ID arrived or was given up on")
+                    .tag("key", key.name())
+                    .register(meterRegistry);
+            this.late = Counter.builder("ces.kafka.reorder.late")
+                    .description("Messages that arrived after their sequence ID was given up on")
+                    .tag("key", key.name())
+                    .register(meterRegistry);
+            Gauge.builder("ces.kafka.reorder.pending", heldCount, AtomicInteger::get)
+                    .description("Messages currently held")
+                    .tag("key", key.name())
+                    .register(meterRegistry);
+        }
+
+        /**
+         * Offers a message, or a skipped sequence ID if the message is null.
+         */
+        void offer(EventMessage message, long sequenceId, Runnable onReleased) {
+            // Fast path: nothing held and this is the expected message
+            if (heldCount.get() == 0) {
+                long expected = nextExpected.get();
+                if (expected == sequenceId && nextExpected.compareAndSet(expected, sequenceId + 1)) {
+                    if (message != null) {
+                        downstream.accept(message);
+                    }
+                    onReleased.run();
+                    if (heldCount.get() > 0) {
+                        // A successor was held concurrently; it may now be releasable
+                        lock.lock();
+                        try {
+                            releaseReady();
+                        } finally {
+                            lock.unlock();
+                        }
+                    }
+                    return;
+                }
+            }
+
+            lock.lock();
+            try {
+                offerLocked(message, sequenceId, onReleased);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void offerLocked(EventMessage message, long sequenceId, Runnable onReleased) {
+            long expected = nextExpected.get();
+            if (expected == UNSET) {
+                expected = sequenceId;
+                nextExpected.set(sequenceId);
+            }
+            if (sequenceId < expected) {
+                late.increment();
+                release(message, sequenceId, onReleased);
+                return;
+            }
+            if (sequenceId - expected > mask) {
+                // Ring overflow: give up on the oldest gaps to make room
+                skipTo(sequenceId - mask);
+            }
+            int slot = (int) (sequenceId & mask);
+            if (heldCallbacks[slot] == null) {
+                heldCount.incrementAndGet();
+                heldSequence[slot] = sequenceId;
+                heldSince[slot] = System.nanoTime();
+            } else if (message == null) {
+                // A skipped duplicate leaves the held copy in place
+                onReleased.run();
+                return;
+            } else {
+                // A duplicate replaces the held copy, whose record is done with
+                heldCallbacks[slot].run();
+            }
+            held[slot] = message;
+            heldCallbacks[slot] = onReleased;
+            if (message != null && sequenceId != nextExpected.get()) {
+                reordered.increment();
+            }
+            releaseReady();
+        }
+
+        /**
+         * Releases held messages while the next expected one is present.
+         */
+        private void releaseReady() {
+            long expected = nextExpected.get();
+            while (heldCount.get() > 0) {
+                int slot = (int) (expected & mask);
+                if (!isHeld(slot, expected)) {
+                    break;
+                }
+                takeAndRelease(slot);
+                expected++;
+            }
+        }
+
+        /**
+         * Gives up on every sequence ID below the target, releasing the messages held
+         * before it in order.
+         */
+        private void skipTo(long target) {
+            long expected = nextExpected.get();
+            while (expected < target) {
+                int slot = (int) (expected & mask);
+                if (isHeld(slot, expected)) {
+                    takeAndRelease(slot);
+                    expected++;
+                } else if (heldCount.get() == 0) {
+                    gaps.increment(target - expected);
+                    expected = target;
+                    nextExpected.set(expected);
+                } else {
+                    gaps.increment();
+                    expected++;
+                    nextExpected.set(expected);
+                }
+            }
+        }
+
+        void releaseExpired(long now) {
+            if (heldCount.get() == 0) {
+                return;
+            }
+            lock.lock();
+            try {
+                long oldest = oldestHeldSequence();
+                while (oldest != UNSET && now - heldSince[(int) (oldest & mask)] >= maxHoldNanos) {
+                    logger.debug("Giving up on {} sequence IDs {}..{}", key, nextExpected.get(), oldest - 1);
+                    skipTo(oldest);
+                    releaseReady();
+                    oldest = oldestHeldSequence();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void releaseAll() {
+            lock.lock();
+            try {
+                long oldest = oldestHeldSequence();
+                while (oldest != UNSET) {
+                    skipTo(oldest);
+                    releaseReady();
+                    oldest = oldestHeldSequence();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private long oldestHeldSequence() {
+            if (heldCount.get() == 0) {
+                return UNSET;
+            }
+            long expected = nextExpected.get();
+            for (long sequenceId = expected; sequenceId <= expected + mask; sequenceId++) {
+                if (isHeld((int) (sequenceId & mask), sequenceId)) {
+                    return sequenceId;
+                }
+            }
+            return UNSET;
+        }
+
+        private boolean isHeld(int slot, long sequenceId) {
+            return heldCallbacks[slot] != null && heldSequence[slot] == sequenceId;
+        }
+
+        /**
+         * Releases a held message, then advances the position. The held count drops
+         * last so the lock-free fast path stays closed until the message is out.
+         */
+        private void takeAndRelease(int slot) {
+            EventMessage message = held[slot];
+            Runnable onReleased = heldCallbacks[slot];
+            long sequenceId = heldSequence[slot];
+            held[slot] = null;
+            heldCallbacks[slot] = null;
+            release(message, sequenceId, onReleased);
+            nextExpected.set(sequenceId + 1);
+            heldCount.decrementAndGet();
+        }
+
+        /**
+         * Hands a message downstream, if the sequence ID was not skipped, then runs
+         * its callback.
+         */
+        private void release(EventMessage message, long sequenceId, Runnable onReleased) {
+            if (message != null) {
+                try {
+                    downstream.accept(message);
+                } catch (RuntimeException e) {
+                    // One undeliverable message must not strand the ones held behind it
+                    logger.error("Failed to deliver reordered message {} for {}", message.getMessageId(), key, e);
+                }
+            }
+            try {
+                onReleased.run();
+            } catch (RuntimeException e) {
+                logger.warn("Failed to acknowledge sequence ID {} for {}", sequenceId, key, e);
+            }
+        }
+    }
+}
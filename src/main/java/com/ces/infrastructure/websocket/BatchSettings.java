@@ -0,0 +1,32 @@
+package com.ces.infrastructure.websocket;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Flush thresholds for the per-connection micro-batcher.
+ * A batch is written as soon as it reaches {@code maxMessages} or {@code maxBytes},
+ * otherwise at the latest {@code maxDelay} after its first message was queued.
+ */
+public record BatchSettings(int maxMessages, int maxBytes, Duration maxDelay) {
+
+    public BatchSettings {
+        if (maxMessages < 1) {
+            throw new IllegalArgumentException("Batch max messages must be at least 1");
+        }
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("Batch max bytes must be at least 1");
+        }
+        Objects.requireNonNull(maxDelay, "Batch max delay cannot be null");
+        if (maxDelay.isNegative()) {
+            throw new IllegalArgumentException("Batch max delay cannot be negative");
+        }
+    }
+
+    /**
+     * Settings that write every message in its own frame without waiting.
+     */
+    public static BatchSettings disabled() {
+        return new BatchSettings(1, Integer.MAX_VALUE, Duration.ZERO);
+    }
+}
@@ -0,0 +1,61 @@
+package com.ces.infrastructure.websocket;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.zip.Adler32;
+
+/**
+ * Preset DEFLATE dictionary shared with binary-protobuf clients.
+ * The id is the Adler-32 checksum zlib writes into the stream header (DICTID),
+ * which lets a client verify it holds the dictionary the frame was compressed with.
+ */
+public final class CompressionDictionary {
+
+    /**
+     * Largest useful dictionary; DEFLATE can only reference the last 32 KiB.
+     */
+    public static final int MAX_BYTES = 32 * 1024;
+
+    private final byte[] bytes;
+    private final long id;
+
+    public CompressionDictionary(byte[] bytes) {
+        Objects.requireNonNull(bytes, "Dictionary bytes cannot be null");
+        if (bytes.length == 0 || bytes.length > MAX_BYTES) {
+            throw new IllegalArgumentException("Dictionary must hold between 1 and " + MAX_BYTES + " bytes");
+        }
+        this.bytes = bytes.clone();
+        Adler32 checksum = new Adler32();
+        checksum.update(this.bytes);
+        this.id = checksum.getValue();
+    }
+
+    /**
+     * Loads a dictionary file produced by {@link DictionarySampler}.
+     *
+     * @param path the dictionary file
+     * @return the dictionary
+     */
+    public static CompressionDictionary load(Path path) {
+        try {
+            return new CompressionDictionary(Files.readAllBytes(path));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read compression dictionary: " + path, e);
+        }
+    }
+
+    byte[] bytes() {
+        return bytes;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public int size() {
+        return bytes.length;
+    }
+}
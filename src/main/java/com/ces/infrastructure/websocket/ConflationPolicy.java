@@ -0,0 +1,142 @@
+package com.ces.infrastructure.websocket;
+
+import com.google.protobuf.Descriptors.Descriptor;
+import com.google.protobuf.Descriptors.FieldDescriptor;
+import com.google.protobuf.Message;
+import com.lnw.expressway.messages.v1.FeedMessageProto.FeedMessage;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header.MessageType;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Decides which queued messages may be replaced by a newer one for the same session.
+ *
+ * <p>Each conflatable {@link MessageType} is mapped to an optional payload field. Two
+ * messages of that type conflate when the field values are equal, or always when no
+ * field is configured. Money movements and responsible-gaming events are never
+ * conflated, regardless of configuration.</p>
+ */
+public final class ConflationPolicy {
+
+    private static final Set<MessageType> NEVER_CONFLATED = Collections.unmodifiableSet(EnumSet.of(
+            MessageType.PaymentTransaction,
+            MessageType.GamingLimitHit,
+            MessageType.LoginLimitHit,
+            MessageType.WalletLimitHit,
+            MessageType.RealityCheck,
+            MessageType.Logout));
+
+    private static final ConflationPolicy NONE = new ConflationPolicy(new EnumMap<>(MessageType.class));
+
+    private final Map<MessageType, FieldDescriptor> keyFields;
+
+    private ConflationPolicy(Map<MessageType, FieldDescriptor> keyFields) {
+        this.keyFields = keyFields;
+    }
+
+    /**
+     * A policy that never conflates.
+     */
+    public static ConflationPolicy none() {
+        return NONE;
+    }
+
+    /**
+     * Builds a policy from message type names mapped to payload field names.
+     *
+     * @param keys message type name (e.g. "WalletTransaction") to payload field name
+     *             (e.g. "currency"); a blank field name conflates by type alone
+     * @return the policy
+     * @throws IllegalArgumentException if a type is unknown, never conflatable,
+     *                                  or the field does not exist on its payload
+     */
+    public static ConflationPolicy of(Map<String, String> keys) {
+        Map<MessageType, FieldDescriptor> keyFields = new EnumMap<>(MessageType.class);
+        if (keys == null) {
+            return new ConflationPolicy(keyFields);
+        }
+
+        for (Map.Entry<String, String> entry : keys.entrySet()) {
+            MessageType type = parseType(entry.getKey());
+            if (NEVER_CONFLATED.contains(type)) {
+                throw new IllegalArgumentException("Message type cannot be conflated: " + type);
+            }
+            String fieldName = entry.getValue();
+            if (fieldName == null || fieldName.isBlank()) {
+                keyFields.put(type, null);
+            } else {
+                keyFields.put(type, resolveField(type, fieldName.trim()));
+            }
+        }
+        return new ConflationPolicy(keyFields);
+    }
+
+    /**
+     * Computes the conflation key of a message.
+     *
+     * @param feedMessage the message
+     * @return the key, or null if the message must never be replaced
+     */
+    public String conflationKey(FeedMessage feedMessage) {
+        if (keyFields.isEmpty()) {
+            return null;
+        }
+        MessageType type = feedMessage.getHeader().getMessageType();
+        if (!keyFields.containsKey(type)) {
+            return null;
+        }
+        FieldDescriptor keyField = keyFields.get(type);
+        if (keyField == null) {
+            return type.name();
+        }
+        FieldDescriptor payloadField = FeedMessage.getDescriptor().findFieldByNumber(type.getNumber());
+        if (payloadField == null || !feedMessage.hasField(payloadField)) {
+            return null;
+        }
+        Message payload = (Message) feedMessage.getField(payloadField);
+        return type.name() + ':' + payload.getField(keyField);
+    }
+
+    /**
+     * Checks whether messages of the given type may conflate, without decoding them.
+     */
+    public boolean appliesTo(MessageType type) {
+        return keyFields.containsKey(type);
+    }
+
+    public boolean isEnabled() {
+        return !keyFields.isEmpty();
+    }
+
+    private static MessageType parseType(String name) {
+        MessageType type;
+        try {
+            type = MessageType.valueOf(name.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown message type for conflation: " + name, e);
+        }
+        if (type == MessageType.UnknownMessageType || type == MessageType.UNRECOGNIZED) {
+            throw new IllegalArgumentException("Message type cannot be conflated: " + name);
+        }
+        return type;
+    }
+
+    private static FieldDescriptor resolveField(MessageType type, String fieldName) {
+        // MessageType numbers match the FeedMessage.payload field numbers
+        FieldDescriptor payloadField = FeedMessage.getDescriptor().findFieldByNumber(type.getNumber());
+        if (payloadField == null) {
+            throw new IllegalArgumentException("No payload defined for message type: " + type);
+        }
+        Descriptor payloadType = payloadField.getMessageType();
+        FieldDescriptor keyField = payloadType.findFieldByName(fieldName);
+        if (keyField == null || keyField.isRepeated() || keyField.getJavaType() == FieldDescriptor.JavaType.MESSAGE) {
+            throw new IllegalArgumentException(
+                    "Conflation key must be a scalar field of " + payloadType.getName() + ": " + fieldName);
+        }
+        return keyField;
+    }
+}
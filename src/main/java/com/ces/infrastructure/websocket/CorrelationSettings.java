@@ -0,0 +1,34 @@
+package com.ces.infrastructure.websocket;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Settings for merging messages that share an {@code Identifier.reference} into
+ * one correlated frame. A message carrying a reference is held for {@code window}
+ * so that related messages from other topics can join it; a group is written as
+ * soon as it has {@code maxGroupSize} members.
+ */
+public record CorrelationSettings(Duration window, int maxGroupSize) {
+
+    public CorrelationSettings {
+        Objects.requireNonNull(window, "Correlation window cannot be null");
+        if (window.isNegative()) {
+            throw new IllegalArgumentException("Correlation window cannot be negative");
+        }
+        if (maxGroupSize < 1) {
+            throw new IllegalArgumentException("Correlation group size must be at least 1");
+        }
+    }
+
+    /**
+     * Settings that never hold messages back for correlation.
+     */
+    public static CorrelationSettings disabled() {
+        return new CorrelationSettings(Duration.ZERO, 1);
+    }
+
+    public boolean isEnabled() {
+        return !window.isZero() && maxGroupSize > 1;
+    }
+}
@@ -0,0 +1,24 @@
+package com.ces.infrastructure.websocket;
+
+/**
+ * Lanes of the outbound queues, highest first. A queued message of a higher lane
+ * is written before any message of a lower one.
+ */
+public enum DeliveryPriority {
+
+    /**
+     * Responsible-gaming events that must reach the player immediately. Never held
+     * for batching or correlation.
+     */
+    HIGH,
+
+    /**
+     * Default lane.
+     */
+    NORMAL,
+
+    /**
+     * Bulk traffic that may wait behind everything else.
+     */
+    LOW
+}
@@ -0,0 +1,99 @@
+package com.ces.infrastructure.websocket;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Samples outbound frame bodies to build a preset compression dictionary.
+ *
+ * <p>Every {@code sampleEvery}-th frame body is copied into a bounded ring. The
+ * dictionary is the concatenation of the most recent samples, newest last, since
+ * DEFLATE encodes matches against the end of the dictionary most cheaply. It is
+ * written to {@code outputPath} when the sampler is closed.</p>
+ */
+public class DictionarySampler {
+
+    private static final Logger logger = LoggerFactory.getLogger(DictionarySampler.class);
+
+    private final Path outputPath;
+    private final int sampleEvery;
+    private final byte[][] samples;
+    private final AtomicLong frameCounter = new AtomicLong();
+    private int nextSample;
+    private int sampleCount;
+
+    public DictionarySampler(Path outputPath, int sampleEvery, int maxSamples) {
+        this.outputPath = Objects.requireNonNull(outputPath, "Output path cannot be null");
+        if (sampleEvery < 1 || maxSamples < 1) {
+            throw new IllegalArgumentException("Sample rate and sample count must be at least 1");
+        }
+        this.sampleEvery = sampleEvery;
+        this.samples = new byte[maxSamples][];
+    }
+
+    /**
+     * Offers an uncompressed frame for sampling.
+     *
+     * @param frame the complete frame including its type byte
+     */
+    public void offer(byte[] frame) {
+        if (frameCounter.incrementAndGet() % sampleEvery != 0 || frame.length <= FrameCodec.HEADER_BYTES) {
+            return;
+        }
+        byte[] body = Arrays.copyOfRange(frame, FrameCodec.HEADER_BYTES,
+                Math.min(frame.length, FrameCodec.HEADER_BYTES + CompressionDictionary.MAX_BYTES));
+        synchronized (samples) {
+            samples[nextSample] = body;
+            nextSample = (nextSample + 1) % samples.length;
+            sampleCount = Math.min(sampleCount + 1, samples.length);
+        }
+    }
+
+    /**
+     * Builds a dictionary from the samples collected so far.
+     *
+     * @return the dictionary, or null if nothing was sampled yet
+     */
+    public CompressionDictionary buildDictionary() {
+        byte[] dictionary = new byte[CompressionDictionary.MAX_BYTES];
+        int start = dictionary.length;
+        synchronized (samples) {
+            // Walk from the newest sample backwards, filling the dictionary from its end
+            for (int i = 1; i <= sampleCount && start > 0; i++) {
+                byte[] sample = samples[Math.floorMod(nextSample - i, samples.length)];
+                int length = Math.min(sample.length, start);
+                start -= length;
+                System.arraycopy(sample, sample.length - length, dictionary, start, length);
+            }
+        }
+        if (start == dictionary.length) {
+            return null;
+        }
+        return new CompressionDictionary(Arrays.copyOfRange(dictionary, start, dictionary.length));
+    }
+
+    /**
+     * Writes the sampled dictionary to the output path.
+     */
+    public void close() {
+        CompressionDictionary dictionary = buildDictionary();
+        if (dictionary == null) {
+            logger.info("No frames sampled, compression dictionary not written");
+            return;
+        }
+        try {
+            Files.write(outputPath, dictionary.bytes());
+            logger.info("Compression dictionary of {} bytes (id {}) written to {}",
+                    dictionary.size(), dictionary.getId(), outputPath);
+        } catch (IOException e) {
+            logger.error("Failed to write compression dictionary to {}", outputPath, e);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.ces.infrastructure.websocket;
+
+/**
+ * Binary layout of the frames written to WebSocket clients.
+ *
+ * <p>Every data frame starts with a one-byte frame type followed by the frame body.
+ * A {@link #BATCH} body is a sequence of length-delimited {@code FeedMessage}s, i.e.
+ * the same layout produced by protobuf's {@code writeDelimitedTo}, so clients can read
+ * it with {@code FeedMessage.parseDelimitedFrom} until the frame is exhausted.
+ * A {@link #CORRELATED} body starts with a length-delimited UTF-8 reference followed
+ * by the same sequence of FeedMessages.
+ * A {@link #RECONNECT} body is a length-delimited UTF-8 WebSocket URL followed by a
+ * length-delimited UTF-8 resume cursor, empty if there is none.
+ * The {@link #COMPRESSED} flag may be combined with any frame type.
+ * See {@code docs/websocket-frame-format.md}.</p>
+ */
+public final class FrameCodec {
+
+    /**
+     * Frame type of a batch of one or more length-delimited FeedMessages.
+     */
+    public static final byte BATCH = 0x01;
+
+    /**
+     * Frame type of a group of FeedMessages from different topics that share an
+     * {@code Identifier.reference}, i.e. belong to the same action.
+     */
+    public static final byte CORRELATED = 0x02;
+
+    /**
+     * Frame type asking the client to reconnect to another node, resume there and
+     * close this connection.
+     */
+    public static final byte RECONNECT = 0x03;
+
+    /**
+     * Flag set in the frame type when the body is a zlib stream (RFC 1950) of the
+     * original body. If the stream header announces a dictionary (FDICT), it was
+     * compressed against the preset dictionary with that Adler-32 id.
+     */
+    public static final byte COMPRESSED = (byte) 0x80;
+
+    /**
+     * Number of bytes preceding the body of every frame.
+     */
+    public static final int HEADER_BYTES = 1;
+
+    private FrameCodec() {
+    }
+
+    /**
+     * Computes the encoded size of an unsigned varint32.
+     *
+     * @param value the value to encode
+     * @return the number of bytes the varint occupies
+     */
+    public static int varintSize(int value) {
+        if ((value & (~0 << 7)) == 0) return 1;
+        if ((value & (~0 << 14)) == 0) return 2;
+        if ((value & (~0 << 21)) == 0) return 3;
+        if ((value & (~0 << 28)) == 0) return 4;
+        return 5;
+    }
+
+    /**
+     * Writes an unsigned varint32 into the target array.
+     *
+     * @param target the destination array
+     * @param position the offset to start writing at
+     * @param value the value to encode
+     * @return the offset just past the written varint
+     */
+    public static int writeVarint(byte[] target, int position, int value) {
+        while ((value & ~0x7F) != 0) {
+            target[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        target[position++] = (byte) value;
+        return position;
+    }
+
+    /**
+     * Computes the number of bytes one payload adds to a batch body.
+     *
+     * @param payloadLength the encoded FeedMessage length
+     * @return the payload length plus its length prefix
+     */
+    public static int delimitedSize(int payloadLength) {
+        return varintSize(payloadLength) + payloadLength;
+    }
+}
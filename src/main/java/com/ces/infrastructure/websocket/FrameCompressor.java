@@ -0,0 +1,211 @@
+package com.ces.infrastructure.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Deflater;
+
+/**
+ * Compresses outbound frame bodies with zlib/DEFLATE.
+ *
+ * <p>Compression runs on the flush threads, each of which owns one pooled
+ * {@link Deflater} and output buffer, so the cost does not scale with the number
+ * of connections. Frames whose body is below {@code minFrameBytes}, or that would
+ * not shrink, are sent as they are. A compressed frame has {@link FrameCodec#COMPRESSED}
+ * set in its type byte. Connections that accept it are compressed against the
+ * preset dictionary. Ratio and CPU time are published per connection class.</p>
+ *
+ * <p>The deflaters hold native memory until they are ended, so every one handed
+ * out is tracked and ended by {@link #close()}, after the flush threads have
+ * stopped. Frames offered after that are passed through uncompressed.</p>
+ */
+public class FrameCompressor {
+
+    private static final FrameCompressor DISABLED = new FrameCompressor();
+
+    private final boolean enabled;
+    private final int minFrameBytes;
+    private final int level;
+    private final CompressionDictionary dictionary;
+    private final DictionarySampler sampler;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, ClassMeters> meters = new ConcurrentHashMap<>();
+    private final ThreadLocal<Deflater> deflaters;
+    private final Set<Deflater> allDeflaters = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+    private final ThreadLocal<byte[]> buffers = ThreadLocal.withInitial(() -> new byte[16 * 1024]);
+
+    private FrameCompressor() {
+        this.enabled = false;
+        this.minFrameBytes = Integer.MAX_VALUE;
+        this.level = Deflater.DEFAULT_COMPRESSION;
+        this.dictionary = null;
+        this.sampler = null;
+        this.meterRegistry = null;
+        this.deflaters = null;
+    }
+
+    /**
+     * @param minFrameBytes smallest frame body worth compressing
+     * @param level the DEFLATE level (1-9, or -1 for the default)
+     * @param dictionary the preset dictionary, or null
+     * @param sampler collects frames for a future dictionary, or null
+     * @param meterRegistry registry for the per-class compression meters
+     */
+    public FrameCompressor(
+            int minFrameBytes,
+            int level,
+            CompressionDictionary dictionary,
+            DictionarySampler sampler,
+            MeterRegistry meterRegistry) {
+        if (minFrameBytes < 0) {
+            throw new IllegalArgumentException("Minimum frame size cannot be negative");
+        }
+        this.enabled = true;
+        this.minFrameBytes = minFrameBytes;
+        this.level = level;
+        this.dictionary = dictionary;
+        this.sampler = sampler;
+        this.meterRegistry = Objects.requireNonNull(meterRegistry, "Meter registry cannot be null");
+        this.deflaters = ThreadLocal.withInitial(() -> {
+            Deflater deflater = new Deflater(this.level);
+            allDeflaters.add(deflater);
+            return deflater;
+        });
+    }
+
+    /**
+     * A compressor that passes every frame through unchanged.
+     */
+    public static FrameCompressor disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Compresses a frame for the given connection if worthwhile.
+     *
+     * @param frame the complete uncompressed frame
+     * @param connection the connection the frame is written to
+     * @return the compressed frame, or the original one
+     */
+    public byte[] compress(byte[] frame, WebSocketConnection connection) {
+        if (!enabled || closed) {
+            return frame;
+        }
+        if (sampler != null) {
+            sampler.offer(frame);
+        }
+        if (!connection.supportsCompression()) {
+            return frame;
+        }
+
+        ClassMeters classMeters = meters.computeIfAbsent(connection.connectionClass(), this::createMeters);
+        int bodyLength = frame.length - FrameCodec.HEADER_BYTES;
+        if (bodyLength < minFrameBytes) {
+            classMeters.skipped().increment();
+            return frame;
+        }
+
+        long start = System.nanoTime();
+        Deflater deflater = deflaters.get();
+        deflater.reset();
+        if (dictionary != null && connection.supportsPresetDictionary()) {
+            deflater.setDictionary(dictionary.bytes());
+        }
+        deflater.setInput(frame, FrameCodec.HEADER_BYTES, bodyLength);
+        deflater.finish();
+
+        byte[] buffer = buffers.get();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                buffers.set(buffer);
+            }
+            length += deflater.deflate(buffer, length, buffer.length - length);
+        }
+        classMeters.duration().record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        if (length >= bodyLength) {
+            classMeters.skipped().increment();
+            return frame;
+        }
+
+        byte[] compressed = new byte[FrameCodec.HEADER_BYTES + length];
+        compressed[0] = (byte) (frame[0] | FrameCodec.COMPRESSED);
+        System.arraycopy(buffer, 0, compressed, FrameCodec.HEADER_BYTES, length);
+
+        classMeters.bytesIn().increment(bodyLength);
+        classMeters.bytesOut().increment(length);
+        classMeters.ratio().record((double) length / bodyLength);
+        return compressed;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Id of the preset dictionary, or 0 if none is configured.
+     */
+    public long dictionaryId() {
+        return dictionary != null ? dictionary.getId() : 0L;
+    }
+
+    /**
+     * Ends the pooled deflaters and writes the sampled dictionary, if sampling is
+     * enabled. Must be called after the flush threads have stopped.
+     */
+    public void close() {
+        closed = true;
+        for (Deflater deflater : allDeflaters) {
+            deflater.end();
+        }
+        allDeflaters.clear();
+        if (sampler != null) {
+            sampler.close();
+        }
+    }
+
+    private ClassMeters createMeters(String connectionClass) {
+        return new ClassMeters(
+                Counter.builder("ces.websocket.compression.bytes")
+                        .description("Frame body bytes before and after compression")
+                        .tag("class", connectionClass)
+                        .tag("stage", "in")
+                        .register(meterRegistry),
+                Counter.builder("ces.websocket.compression.bytes")
+                        .description("Frame body bytes before and after compression")
+                        .tag("class", connectionClass)
+                        .tag("stage", "out")
+                        .register(meterRegistry),
+                Counter.builder("ces.websocket.compression.skipped")
+                        .description("Frames sent uncompressed because they were too small or incompressible")
+                        .tag("class", connectionClass)
+                        .register(meterRegistry),
+                DistributionSummary.builder("ces.websocket.compression.ratio")
+                        .description("Compressed size divided by original size")
+                        .tag("class", connectionClass)
+                        .register(meterRegistry),
+                Timer.builder("ces.websocket.compression.duration")
+                        .description("CPU time spent compressing frames")
+                        .tag("class", connectionClass)
+                        .register(meterRegistry));
+    }
+
+    private record ClassMeters(
+            Counter bytesIn,
+            Counter bytesOut,
+            Counter skipped,
+            DistributionSummary ratio,
+            Timer duration) {
+    }
+}
@@ -0,0 +1,248 @@
+package com.ces.infrastructure.websocket;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounds how many connections the shared flush pool writes to at once, with a
+ * limit that adapts to the gradient between a long-term and a short-term write
+ * latency.
+ *
+ * <p>Every {@code windowSize} writes the lowest latency of the window is compared
+ * with a slow moving average of earlier windows. While latency stays flat the limit
+ * grows by its square root per window; once writes start to queue in the sockets and
+ * latency rises above {@code tolerance} times the average, the limit shrinks in
+ * proportion (at most by half per window). The limit does not grow while fewer than
+ * half of the permits are in use, so an idle node does not drift to the maximum.</p>
+ *
+ * <p>Admission follows the {@link DeliveryPriority} of the lane a write starts with:
+ * {@code HIGH} writes are always admitted and counted, {@code NORMAL} ones up to the
+ * limit and {@code LOW} ones up to {@code lowPriorityShare} of it. A channel that is
+ * not admitted keeps its queue and retries after {@code deferDelay}, so bulk traffic
+ * waits, and is batched and conflated further, while latency is high.</p>
+ */
+public class GradientConcurrencyLimiter {
+
+    /**
+     * Windows over which the long-term latency is averaged.
+     */
+    private static final int LONG_WINDOW = 60;
+
+    private static final Permit NO_OP_PERMIT = () -> { };
+    private static final GradientConcurrencyLimiter UNLIMITED = new GradientConcurrencyLimiter();
+
+    /**
+     * Permit held while a channel writes.
+     */
+    public interface Permit {
+
+        /**
+         * Ends the write and records how long it took. Must be called exactly once.
+         */
+        void release();
+    }
+
+    /**
+     * Tuning of the limiter.
+     *
+     * @param initialLimit the limit before any latency was observed
+     * @param minLimit the lowest the limit shrinks to
+     * @param maxLimit the highest the limit grows to
+     * @param tolerance latency increase over the long-term average tolerated before shrinking
+     * @param smoothing weight of a new limit against the current one, in (0, 1]
+     * @param lowPriorityShare share of the limit available to {@code LOW} writes, in (0, 1]
+     * @param windowSize samples per limit update
+     * @param deferDelayNanos how long a channel that was not admitted waits before retrying
+     */
+    public record Settings(
+            int initialLimit,
+            int minLimit,
+            int maxLimit,
+            double tolerance,
+            double smoothing,
+            double lowPriorityShare,
+            int windowSize,
+            long deferDelayNanos) {
+
+        public Settings {
+            if (minLimit < 1 || maxLimit < minLimit) {
+                throw new IllegalArgumentException("Concurrency limits must satisfy 1 <= min <= max");
+            }
+            if (initialLimit < minLimit || initialLimit > maxLimit) {
+                throw new IllegalArgumentException("Initial concurrency limit must be between min and max");
+            }
+            if (tolerance < 1.0) {
+                throw new IllegalArgumentException("Latency tolerance must be at least 1");
+            }
+            if (smoothing <= 0 || smoothing > 1) {
+                throw new IllegalArgumentException("Limit smoothing must be in (0, 1]");
+            }
+            if (lowPriorityShare <= 0 || lowPriorityShare > 1) {
+                throw new IllegalArgumentException("Low priority share must be in (0, 1]");
+            }
+            if (windowSize < 1) {
+                throw new IllegalArgumentException("Limit window size must be at least 1");
+            }
+            if (deferDelayNanos <= 0) {
+                throw new IllegalArgumentException("Defer delay must be positive");
+            }
+        }
+    }
+
+    private final boolean enabled;
+    private final Settings settings;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final Counter[] deferred;
+
+    private final LongAccumulator windowMinRtt = new LongAccumulator(Math::min, Long.MAX_VALUE);
+    private final LongAccumulator windowMaxInflight = new LongAccumulator(Math::max, 0);
+    private final AtomicInteger windowSamples = new AtomicInteger();
+    private final ReentrantLock updateLock = new ReentrantLock();
+    private double longRttNanos;
+
+    private volatile double limit;
+
+    private GradientConcurrencyLimiter() {
+        this.enabled = false;
+        this.settings = null;
+        this.deferred = null;
+        this.limit = Integer.MAX_VALUE;
+    }
+
+    /**
+     * @param settings the tuning of the limiter
+     * @param meterRegistry registry for the limit, in-flight and deferral metrics
+     */
+    public GradientConcurrencyLimiter(Settings settings, MeterRegistry meterRegistry) {
+        this.enabled = true;
+        this.settings = Objects.requireNonNull(settings, "Limiter settings cannot be null");
+        this.limit = settings.initialLimit();
+
+        Gauge.builder("ces.websocket.write.concurrency.limit", this, GradientConcurrencyLimiter::limit)
+                .description("Current adaptive limit on connections written to at once")
+                .register(meterRegistry);
+        Gauge.builder("ces.websocket.write.concurrency.inflight", inflight, AtomicInteger::get)
+                .description("Connections currently being written to by the flush pool")
+                .register(meterRegistry);
+        this.deferred = new Counter[DeliveryPriority.values().length];
+        for (DeliveryPriority priority : DeliveryPriority.values()) {
+            deferred[priority.ordinal()] = Counter.builder("ces.websocket.write.concurrency.deferred")
+                    .description("Flushes deferred because the write concurrency limit was reached")
+                    .tag("priority", priority.name().toLowerCase())
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * A limiter that admits every write.
+     */
+    public static GradientConcurrencyLimiter unlimited() {
+        return UNLIMITED;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Acquires a permit for writing to a channel, unless the limit for the priority
+     * of its highest queued lane has been reached.
+     *
+     * @param priority the highest lane holding messages
+     * @return the permit, or null if the write should be deferred
+     */
+    public Permit tryAcquire(DeliveryPriority priority) {
+        if (!enabled) {
+            return NO_OP_PERMIT;
+        }
+        int allowed = switch (priority) {
+            case HIGH -> Integer.MAX_VALUE;
+            case NORMAL -> (int) limit;
+            case LOW -> Math.max(1, (int) (limit * settings.lowPriorityShare()));
+        };
+        int current;
+        do {
+            current = inflight.get();
+            if (current >= allowed) {
+                deferred[priority.ordinal()].increment();
+                return null;
+            }
+        } while (!inflight.compareAndSet(current, current + 1));
+
+        int inflightAtStart = current + 1;
+        long startNanos = System.nanoTime();
+        return () -> {
+            inflight.decrementAndGet();
+            onSample(System.nanoTime() - startNanos, inflightAtStart);
+        };
+    }
+
+    /**
+     * How long a channel that was not admitted waits before it tries again.
+     */
+    public long deferDelayNanos() {
+        return enabled ? settings.deferDelayNanos() : 0L;
+    }
+
+    /**
+     * Current limit, rounded down.
+     */
+    public int limit() {
+        return (int) limit;
+    }
+
+    public int inflight() {
+        return inflight.get();
+    }
+
+    /**
+     * Records the latency of a finished write and updates the limit once a window
+     * is complete. A window that completes while another thread is updating is
+     * folded into the next one.
+     *
+     * @param rttNanos the write latency
+     * @param inflightAtStart writes in flight when it started, including itself
+     */
+    void onSample(long rttNanos, int inflightAtStart) {
+        windowMinRtt.accumulate(Math.max(1, rttNanos));
+        windowMaxInflight.accumulate(inflightAtStart);
+        if (windowSamples.incrementAndGet() < settings.windowSize() || !updateLock.tryLock()) {
+            return;
+        }
+        try {
+            windowSamples.set(0);
+            long shortRtt = windowMinRtt.getThenReset();
+            long maxInflight = windowMaxInflight.getThenReset();
+            updateLimit(shortRtt, maxInflight);
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    private void updateLimit(double shortRtt, long maxInflight) {
+        if (longRttNanos == 0) {
+            longRttNanos = shortRtt;
+        } else {
+            longRttNanos += (shortRtt - longRttNanos) / LONG_WINDOW;
+            // Latency recovered well below the average: let the average follow quickly
+            if (longRttNanos / shortRtt > 2) {
+                longRttNanos *= 0.95;
+            }
+        }
+
+        double current = limit;
+        double gradient = Math.max(0.5, Math.min(1.0, settings.tolerance() * longRttNanos / shortRtt));
+        double target = current * gradient + Math.sqrt(current);
+        if (target > current && maxInflight < current / 2) {
+            return;
+        }
+        double updated = current * (1 - settings.smoothing()) + target * settings.smoothing();
+        limit = Math.max(settings.minLimit(), Math.min(settings.maxLimit(), updated));
+    }
+}
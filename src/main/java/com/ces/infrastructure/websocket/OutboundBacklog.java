@@ -0,0 +1,57 @@
+package com.ces.infrastructure.websocket;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Node-wide totals of the payloads queued on all {@link OutboundChannel}s, and of
+ * how long channels waited for a flush thread.
+ *
+ * <p>Channels update the totals as they queue, write and discard payloads, so
+ * reading them is constant-time however many connections are open. Messages held
+ * for correlation are counted once their group is queued.</p>
+ */
+public class OutboundBacklog {
+
+    private final AtomicLong pendingMessages = new AtomicLong();
+    private final AtomicLong pendingBytes = new AtomicLong();
+    private final AtomicLong maxFlushWaitNanos = new AtomicLong();
+
+    void added(long messages, long bytes) {
+        pendingMessages.addAndGet(messages);
+        pendingBytes.addAndGet(bytes);
+    }
+
+    void removed(long messages, long bytes) {
+        pendingMessages.addAndGet(-messages);
+        pendingBytes.addAndGet(-bytes);
+    }
+
+    void flushWaited(long nanos) {
+        maxFlushWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Number of payloads queued on all channels.
+     */
+    public long pendingMessages() {
+        return pendingMessages.get();
+    }
+
+    /**
+     * Delimited size in bytes of the payloads queued on all channels.
+     */
+    public long pendingBytes() {
+        return pendingBytes.get();
+    }
+
+    /**
+     * Returns the longest time a channel waited between requesting an immediate
+     * flush and a flush thread picking it up since the last call, and starts a new
+     * period.
+     *
+     * @return the longest flush wait in nanoseconds, or 0 if no flush was requested
+     */
+    public long takeMaxFlushWaitNanos() {
+        return maxFlushWaitNanos.getAndSet(0);
+    }
+}
@@ -0,0 +1,558 @@
+package com.ces.infrastructure.websocket;
+
+import com.ces.domain.model.SessionId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-connection outbound writer that packs queued payloads into batch frames.
+ *
+ * <p>Producers only append to the queue; frames are assembled and written by the
+ * shared flush executor. A batch is flushed when it reaches the configured size
+ * or message count, or when its first message has waited {@code maxDelay}.
+ * While a flush is in progress new payloads simply join the backlog, so batches
+ * grow on their own when the client reads slower than events arrive.</p>
+ *
+ * <p>A conflatable message whose key is already queued does not grow the queue:
+ * it replaces the queued one in place and goes out at that position. The queue
+ * of a slow client therefore holds at most one entry per conflation key.</p>
+ *
+ * <p>When correlation is enabled, a message carrying an {@code Identifier.reference}
+ * is held for the correlation window. Messages with the same reference that arrive
+ * meanwhile join it, and the group is queued as one correlated frame. A message
+ * without a reference queues all held groups ahead of itself, so it never overtakes
+ * them.</p>
+ *
+ * <p>Each {@link DeliveryPriority} lane has its own queue, and every frame is filled
+ * from the highest non-empty lane first, so a responsible-gaming event overtakes
+ * bulk traffic already queued. {@code HIGH} messages are never held for batching or
+ * correlation; they are written at once by the priority flush executor, which only
+ * writes {@code HIGH} frames and hands the rest back to the shared flush executor.
+ * The latency of every written message is recorded per lane by the
+ * {@link PriorityLanes}.</p>
+ *
+ * <p>Queued payloads and flush waits are also reported to the node-wide
+ * {@link OutboundBacklog} that backpressure is applied on.</p>
+ *
+ * <p>The shared flush executor writes only once the {@link GradientConcurrencyLimiter}
+ * admits the highest lane queued; otherwise the flush is retried after the limiter's
+ * defer delay and the queue keeps batching and conflating meanwhile.</p>
+ */
+public class OutboundChannel {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboundChannel.class);
+
+    private final SessionId sessionId;
+    private final WebSocketConnection connection;
+    private final BatchSettings batchSettings;
+    private final FrameCompressor frameCompressor;
+    private final CorrelationSettings correlationSettings;
+    private final ScheduledExecutorService flushExecutor;
+    private final OutboundBacklog backlog;
+    private final PriorityLanes priorityLanes;
+    private final ScheduledExecutorService priorityFlushExecutor;
+    private final GradientConcurrencyLimiter writeLimiter;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<OutboundMessage>[] pending = newLanes();
+    private final List<OutboundMessage> frameMessages = new ArrayList<>();
+    private int pendingCount;
+    private final Map<String, OutboundMessage> latestByConflationKey = new HashMap<>();
+    private final Map<String, List<OutboundMessage>> correlating = new LinkedHashMap<>();
+    private int pendingBytes;
+    private long conflatedMessages;
+    private long correlatedFrames;
+    private boolean writing;
+    private boolean delayedFlushScheduled;
+    private boolean immediateFlushScheduled;
+    private boolean priorityFlushScheduled;
+    private boolean delayedFlushDue;
+    private long delayedFlushDueNanos;
+    private long immediateFlushRequestedNanos;
+    private boolean closed;
+
+    public OutboundChannel(
+            SessionId sessionId,
+            WebSocketConnection connection,
+            BatchSettings batchSettings,
+            FrameCompressor frameCompressor,
+            CorrelationSettings correlationSettings,
+            ScheduledExecutorService flushExecutor) {
+        this(sessionId, connection, batchSettings, frameCompressor, correlationSettings, flushExecutor,
+                new OutboundBacklog());
+    }
+
+    public OutboundChannel(
+            SessionId sessionId,
+            WebSocketConnection connection,
+            BatchSettings batchSettings,
+            FrameCompressor frameCompressor,
+            CorrelationSettings correlationSettings,
+            ScheduledExecutorService flushExecutor,
+            OutboundBacklog backlog) {
+        this(sessionId, connection, batchSettings, frameCompressor, correlationSettings, flushExecutor, backlog,
+                PriorityLanes.none(), flushExecutor);
+    }
+
+    public OutboundChannel(
+            SessionId sessionId,
+            WebSocketConnection connection,
+            BatchSettings batchSettings,
+            FrameCompressor frameCompressor,
+            CorrelationSettings correlationSettings,
+            ScheduledExecutorService flushExecutor,
+            OutboundBacklog backlog,
+            PriorityLanes priorityLanes,
+            ScheduledExecutorService priorityFlushExecutor) {
+        this(sessionId, connection, batchSettings, frameCompressor, correlationSettings, flushExecutor, backlog,
+                priorityLanes, priorityFlushExecutor, GradientConcurrencyLimiter.unlimited());
+    }
+
+    public OutboundChannel(
+            SessionId sessionId,
+            WebSocketConnection connection,
+            BatchSettings batchSettings,
+            FrameCompressor frameCompressor,
+            CorrelationSettings correlationSettings,
+            ScheduledExecutorService flushExecutor,
+            OutboundBacklog backlog,
+            PriorityLanes priorityLanes,
+            ScheduledExecutorService priorityFlushExecutor,
+            GradientConcurrencyLimiter writeLimiter) {
+        this.sessionId = Objects.requireNonNull(sessionId, "Session ID cannot be null");
+        this.connection = Objects.requireNonNull(connection, "Connection cannot be null");
+        this.batchSettings = Objects.requireNonNull(batchSettings, "Batch settings cannot be null");
+        this.frameCompressor = Objects.requireNonNull(frameCompressor, "Frame compressor cannot be null");
+        this.correlationSettings = Objects.requireNonNull(correlationSettings, "Correlation settings cannot be null");
+        this.flushExecutor = Objects.requireNonNull(flushExecutor, "Flush executor cannot be null");
+        this.backlog = Objects.requireNonNull(backlog, "Outbound backlog cannot be null");
+        this.priorityLanes = Objects.requireNonNull(priorityLanes, "Priority lanes cannot be null");
+        this.priorityFlushExecutor = Objects.requireNonNull(
+                priorityFlushExecutor, "Priority flush executor cannot be null");
+        this.writeLimiter = Objects.requireNonNull(writeLimiter, "Write limiter cannot be null");
+    }
+
+    /**
+     * Queues an encoded FeedMessage for delivery in the next batch frame.
+     *
+     * @param message the message; shared, never modified
+     * @return false if the channel is closed and the message was not queued
+     */
+    public boolean enqueue(OutboundMessage message) {
+        Objects.requireNonNull(message, "Message cannot be null");
+
+        lock.lock();
+        try {
+            if (closed) {
+                return false;
+            }
+            if (message.isCorrelatable() && correlationSettings.isEnabled()
+                    && message.getPriority() != DeliveryPriority.HIGH) {
+                hold(message);
+                return true;
+            }
+            if (!correlating.isEmpty() && message.getPriority() != DeliveryPriority.HIGH) {
+                queueHeldGroups();
+            }
+            append(message);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds a message to the queue, conflating it with a queued one if possible.
+     * Must be called with the lock held.
+     */
+    private void append(OutboundMessage message) {
+        if (message.isConflatable()) {
+            OutboundMessage superseded = latestByConflationKey.put(message.getConflationKey(), message);
+            if (superseded != null) {
+                // Replaced in place; the queue slot of the first message is reused
+                int delta = message.delimitedSize() - superseded.delimitedSize();
+                pendingBytes += delta;
+                backlog.added(0, delta);
+                conflatedMessages++;
+                return;
+            }
+        }
+        pending[message.getPriority().ordinal()].addLast(message);
+        pendingCount++;
+        pendingBytes += message.delimitedSize();
+        backlog.added(1, message.delimitedSize());
+
+        if (!writing) {
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * Holds a message until its correlation group is complete or its window ends.
+     * Must be called with the lock held.
+     */
+    private void hold(OutboundMessage message) {
+        String reference = message.getCorrelationReference();
+        List<OutboundMessage> group = correlating.get(reference);
+        if (group == null) {
+            List<OutboundMessage> newGroup = new ArrayList<>(correlationSettings.maxGroupSize());
+            correlating.put(reference, newGroup);
+            group = newGroup;
+            flushExecutor.schedule(() -> releaseGroup(reference, newGroup),
+                    correlationSettings.window().toNanos(), TimeUnit.NANOSECONDS);
+        }
+        group.add(message);
+        if (group.size() >= correlationSettings.maxGroupSize()) {
+            queueGroup(reference, group);
+        }
+    }
+
+    /**
+     * Queues a correlation group when its window ends, unless it was queued already.
+     */
+    private void releaseGroup(String reference, List<OutboundMessage> group) {
+        lock.lock();
+        try {
+            if (!closed && correlating.get(reference) == group) {
+                queueGroup(reference, group);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queues every held group in the order the groups were started.
+     * Must be called with the lock held.
+     */
+    private void queueHeldGroups() {
+        for (Map.Entry<String, List<OutboundMessage>> held : List.copyOf(correlating.entrySet())) {
+            queueGroup(held.getKey(), held.getValue());
+        }
+    }
+
+    private void queueGroup(String reference, List<OutboundMessage> group) {
+        correlating.remove(reference);
+        if (group.size() == 1) {
+            append(group.get(0));
+            return;
+        }
+        append(OutboundMessage.correlated(reference, group));
+        correlatedFrames++;
+    }
+
+    /**
+     * Writes all queued payloads as one or more batch frames.
+     * Invoked by the flush executor; returns at once if another flush is active.
+     */
+    void flush() {
+        flush(false);
+    }
+
+    /**
+     * Writes queued payloads as batch frames, highest lane first.
+     *
+     * <p>A priority flush leaves the delayed and immediate flushes of the other lanes
+     * scheduled; if one of them runs meanwhile and finds the channel busy, the lanes
+     * handed back are flushed by the deadline of their oldest batch.</p>
+     *
+     * @param priorityOnly whether to write {@code HIGH} frames only and leave the
+     *                     other lanes to the shared flush executor
+     */
+    private void flush(boolean priorityOnly) {
+        GradientConcurrencyLimiter.Permit permit = null;
+        lock.lock();
+        try {
+            if (priorityOnly) {
+                priorityFlushScheduled = false;
+            } else {
+                delayedFlushScheduled = false;
+            }
+            if (writing || closed) {
+                if (!priorityOnly) {
+                    immediateFlushScheduled = false;
+                }
+                return;
+            }
+            if (!priorityOnly && pendingCount > 0) {
+                permit = writeLimiter.tryAcquire(highestPendingPriority());
+                if (permit == null) {
+                    deferFlush();
+                    return;
+                }
+            }
+            writing = true;
+            if (!priorityOnly) {
+                delayedFlushDue = false;
+                if (immediateFlushScheduled) {
+                    backlog.flushWaited(System.nanoTime() - immediateFlushRequestedNanos);
+                    immediateFlushScheduled = false;
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        boolean failed = true;
+        try {
+            byte[] frame;
+            while ((frame = nextFrame(priorityOnly)) != null) {
+                connection.sendBinary(ByteBuffer.wrap(frameCompressor.compress(frame, connection)));
+                if (priorityLanes.isEnabled()) {
+                    long now = System.currentTimeMillis();
+                    for (OutboundMessage message : frameMessages) {
+                        priorityLanes.recordWritten(message, now);
+                    }
+                }
+            }
+            failed = false;
+        } catch (IOException e) {
+            logger.warn("Failed to write batch frame to session {}, closing channel", sessionId, e);
+        } catch (RuntimeException e) {
+            logger.error("Unexpected error writing batch frame to session {}, closing channel", sessionId, e);
+        } finally {
+            if (failed) {
+                close();
+            }
+            if (permit != null) {
+                permit.release();
+            }
+        }
+    }
+
+    /**
+     * Retries a flush the write limiter did not admit, leaving the queue as it is.
+     * Must be called with the lock held.
+     */
+    private void deferFlush() {
+        if (!delayedFlushScheduled) {
+            delayedFlushScheduled = true;
+            flushExecutor.schedule(() -> flush(), writeLimiter.deferDelayNanos(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Closes the channel and discards everything still queued.
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            writing = false;
+            backlog.removed(pendingCount, pendingBytes);
+            for (ArrayDeque<OutboundMessage> lane : pending) {
+                lane.clear();
+            }
+            pendingCount = 0;
+            latestByConflationKey.clear();
+            correlating.clear();
+            pendingBytes = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean isOpen() {
+        lock.lock();
+        try {
+            return !closed && connection.isOpen();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Number of payloads waiting to be written.
+     */
+    public int pendingMessages() {
+        lock.lock();
+        try {
+            return pendingCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Number of queued messages that were replaced by a newer one.
+     */
+    public long conflatedMessages() {
+        lock.lock();
+        try {
+            return conflatedMessages;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Number of correlated frames queued, each replacing several separate messages.
+     */
+    public long correlatedFrames() {
+        lock.lock();
+        try {
+            return correlatedFrames;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public SessionId getSessionId() {
+        return sessionId;
+    }
+
+    private void scheduleFlush() {
+        if (!pending[DeliveryPriority.HIGH.ordinal()].isEmpty()) {
+            if (!priorityFlushScheduled) {
+                priorityFlushScheduled = true;
+                priorityFlushExecutor.execute(() -> flush(true));
+            }
+        } else if (pendingCount >= batchSettings.maxMessages()
+                || pendingBytes >= batchSettings.maxBytes()
+                || batchSettings.maxDelay().isZero()) {
+            if (!immediateFlushScheduled) {
+                immediateFlushScheduled = true;
+                immediateFlushRequestedNanos = System.nanoTime();
+                flushExecutor.execute(this::flush);
+            }
+        } else if (!delayedFlushScheduled) {
+            // A batch handed back by the priority flush keeps the deadline it already had
+            long now = System.nanoTime();
+            if (!delayedFlushDue) {
+                delayedFlushDue = true;
+                delayedFlushDueNanos = now + batchSettings.maxDelay().toNanos();
+            }
+            delayedFlushScheduled = true;
+            flushExecutor.schedule(() -> flush(), Math.max(0, delayedFlushDueNanos - now), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Removes the next batch from the queue and encodes it, or ends the write cycle
+     * when the queue is empty. The writer flag is cleared under the same lock that
+     * producers take, so a payload is never left behind without a scheduled flush.
+     * The messages of the frame are left in {@code frameMessages}.
+     */
+    private byte[] nextFrame(boolean priorityOnly) {
+        lock.lock();
+        try {
+            frameMessages.clear();
+            if (closed) {
+                return null;
+            }
+            if (pendingCount == 0) {
+                writing = false;
+                return null;
+            }
+            if (priorityOnly && pending[DeliveryPriority.HIGH.ordinal()].isEmpty()) {
+                // Hand the lower lanes back to the shared flush executor
+                writing = false;
+                scheduleFlush();
+                return null;
+            }
+
+            // A correlated or reconnect frame is already encoded and goes out on its own
+            ArrayDeque<OutboundMessage> first = priorityOnly
+                    ? pending[DeliveryPriority.HIGH.ordinal()]
+                    : firstNonEmptyLane();
+            if (first.peekFirst().isCompleteFrame()) {
+                OutboundMessage complete = first.pollFirst();
+                pendingCount--;
+                pendingBytes -= complete.delimitedSize();
+                backlog.removed(1, complete.delimitedSize());
+                frameMessages.add(complete);
+                return complete.getPayload();
+            }
+
+            // Fill the frame from the highest lane down, up to the next complete frame
+            int bodyBytes = 0;
+            fill:
+            for (DeliveryPriority priority : DeliveryPriority.values()) {
+                if (priorityOnly && priority != DeliveryPriority.HIGH) {
+                    continue;
+                }
+                ArrayDeque<OutboundMessage> queue = pending[priority.ordinal()];
+                while (!queue.isEmpty() && frameMessages.size() < batchSettings.maxMessages()) {
+                    OutboundMessage queued = queue.peekFirst();
+                    OutboundMessage next = current(queued);
+                    if (next.isCompleteFrame()) {
+                        break fill;
+                    }
+                    int size = next.delimitedSize();
+                    if (!frameMessages.isEmpty() && bodyBytes + size > batchSettings.maxBytes()) {
+                        break fill;
+                    }
+                    queue.pollFirst();
+                    if (queued.isConflatable()) {
+                        latestByConflationKey.remove(queued.getConflationKey());
+                    }
+                    frameMessages.add(next);
+                    bodyBytes += size;
+                }
+            }
+
+            byte[] frame = new byte[FrameCodec.HEADER_BYTES + bodyBytes];
+            frame[0] = FrameCodec.BATCH;
+            int position = FrameCodec.HEADER_BYTES;
+            for (OutboundMessage message : frameMessages) {
+                byte[] payload = message.getPayload();
+                position = FrameCodec.writeVarint(frame, position, payload.length);
+                System.arraycopy(payload, 0, frame, position, payload.length);
+                position += payload.length;
+            }
+            pendingCount -= frameMessages.size();
+            pendingBytes -= bodyBytes;
+            backlog.removed(frameMessages.size(), bodyBytes);
+            return frame;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private DeliveryPriority highestPendingPriority() {
+        for (DeliveryPriority priority : DeliveryPriority.values()) {
+            if (!pending[priority.ordinal()].isEmpty()) {
+                return priority;
+            }
+        }
+        return DeliveryPriority.LOW;
+    }
+
+    private ArrayDeque<OutboundMessage> firstNonEmptyLane() {
+        for (ArrayDeque<OutboundMessage> lane : pending) {
+            if (!lane.isEmpty()) {
+                return lane;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Resolves a queue slot to the message that will actually be written.
+     */
+    private OutboundMessage current(OutboundMessage queued) {
+        return queued.isConflatable() ? latestByConflationKey.get(queued.getConflationKey()) : queued;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static ArrayDeque<OutboundMessage>[] newLanes() {
+        ArrayDeque<OutboundMessage>[] lanes = new ArrayDeque[DeliveryPriority.values().length];
+        for (int lane = 0; lane < lanes.length; lane++) {
+            lanes[lane] = new ArrayDeque<>();
+        }
+        return lanes;
+    }
+}
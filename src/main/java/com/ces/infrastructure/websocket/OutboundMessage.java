@@ -0,0 +1,186 @@
+package com.ces.infrastructure.websocket;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * An encoded FeedMessage waiting on one or more outbound channels.
+ * Instances are immutable so a single one can be queued for many connections.
+ */
+public final class OutboundMessage {
+
+    private final byte[] payload;
+    private final String conflationKey;
+    private final String correlationReference;
+    private final boolean completeFrame;
+    private final DeliveryPriority priority;
+    private final long timestampMillis;
+
+    /**
+     * @param payload the encoded FeedMessage
+     * @param conflationKey key under which a newer message supersedes this one,
+     *                      or null if the message must always be delivered
+     */
+    public OutboundMessage(byte[] payload, String conflationKey) {
+        this(payload, conflationKey, null);
+    }
+
+    /**
+     * @param payload the encoded FeedMessage
+     * @param conflationKey key under which a newer message supersedes this one,
+     *                      or null if the message must always be delivered
+     * @param correlationReference the {@code Identifier.reference} tying this message
+     *                             to messages from other topics, or null
+     */
+    public OutboundMessage(byte[] payload, String conflationKey, String correlationReference) {
+        this(payload, conflationKey, correlationReference, DeliveryPriority.NORMAL, 0L);
+    }
+
+    /**
+     * @param payload the encoded FeedMessage
+     * @param conflationKey key under which a newer message supersedes this one,
+     *                      or null if the message must always be delivered
+     * @param correlationReference the {@code Identifier.reference} tying this message
+     *                             to messages from other topics, or null
+     * @param priority the outbound lane of the message
+     * @param timestampMillis the Kafka record timestamp in epoch milliseconds, or 0
+     *                        if the delivery latency is not recorded
+     */
+    public OutboundMessage(
+            byte[] payload,
+            String conflationKey,
+            String correlationReference,
+            DeliveryPriority priority,
+            long timestampMillis) {
+        this(payload, conflationKey, correlationReference, false, priority, timestampMillis);
+    }
+
+    private OutboundMessage(
+            byte[] payload,
+            String conflationKey,
+            String correlationReference,
+            boolean completeFrame,
+            DeliveryPriority priority,
+            long timestampMillis) {
+        this.payload = Objects.requireNonNull(payload, "Payload cannot be null");
+        this.conflationKey = conflationKey;
+        this.correlationReference = correlationReference;
+        this.completeFrame = completeFrame;
+        this.priority = Objects.requireNonNull(priority, "Priority cannot be null");
+        this.timestampMillis = timestampMillis;
+    }
+
+    public static OutboundMessage of(byte[] payload) {
+        return new OutboundMessage(payload, null);
+    }
+
+    /**
+     * Encodes a {@link FrameCodec#RECONNECT} frame, which is written on its own. It
+     * takes the lowest lane, so messages queued before it are written first.
+     *
+     * @param webSocketUrl the URL the client should reconnect to
+     * @param resumeCursor the textual resume cursor, or null if there is none
+     */
+    public static OutboundMessage reconnect(String webSocketUrl, String resumeCursor) {
+        byte[] urlBytes = webSocketUrl.getBytes(StandardCharsets.UTF_8);
+        byte[] cursorBytes = resumeCursor == null ? new byte[0] : resumeCursor.getBytes(StandardCharsets.UTF_8);
+        byte[] frame = new byte[FrameCodec.HEADER_BYTES
+                + FrameCodec.delimitedSize(urlBytes.length) + FrameCodec.delimitedSize(cursorBytes.length)];
+        frame[0] = FrameCodec.RECONNECT;
+        int position = FrameCodec.writeVarint(frame, FrameCodec.HEADER_BYTES, urlBytes.length);
+        System.arraycopy(urlBytes, 0, frame, position, urlBytes.length);
+        position = FrameCodec.writeVarint(frame, position + urlBytes.length, cursorBytes.length);
+        System.arraycopy(cursorBytes, 0, frame, position, cursorBytes.length);
+        return new OutboundMessage(frame, null, null, true, DeliveryPriority.LOW, 0L);
+    }
+
+    /**
+     * Encodes a group of messages sharing a reference as one complete
+     * {@link FrameCodec#CORRELATED} frame, which is written on its own. The frame
+     * takes the highest lane and the earliest timestamp of its members.
+     *
+     * @param reference the shared correlation reference
+     * @param members the messages in the order they were queued
+     */
+    public static OutboundMessage correlated(String reference, List<OutboundMessage> members) {
+        byte[] referenceBytes = reference.getBytes(StandardCharsets.UTF_8);
+        int size = FrameCodec.HEADER_BYTES + FrameCodec.delimitedSize(referenceBytes.length);
+        DeliveryPriority priority = DeliveryPriority.LOW;
+        long timestampMillis = 0;
+        for (OutboundMessage member : members) {
+            size += member.delimitedSize();
+            if (member.priority.compareTo(priority) < 0) {
+                priority = member.priority;
+            }
+            if (member.timestampMillis > 0 && (timestampMillis == 0 || member.timestampMillis < timestampMillis)) {
+                timestampMillis = member.timestampMillis;
+            }
+        }
+
+        byte[] frame = new byte[size];
+        frame[0] = FrameCodec.CORRELATED;
+        int position = FrameCodec.writeVarint(frame, FrameCodec.HEADER_BYTES, referenceBytes.length);
+        System.arraycopy(referenceBytes, 0, frame, position, referenceBytes.length);
+        position += referenceBytes.length;
+        for (OutboundMessage member : members) {
+            position = FrameCodec.writeVarint(frame, position, member.payload.length);
+            System.arraycopy(member.payload, 0, frame, position, member.payload.length);
+            position += member.payload.length;
+        }
+        return new OutboundMessage(frame, null, reference, true, priority, timestampMillis);
+    }
+
+    /**
+     * The encoded FeedMessage, or the frame if this is a complete frame.
+     */
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public String getConflationKey() {
+        return conflationKey;
+    }
+
+    public boolean isConflatable() {
+        return conflationKey != null;
+    }
+
+    public String getCorrelationReference() {
+        return correlationReference;
+    }
+
+    /**
+     * Whether this message still waits to be merged with others sharing its reference.
+     */
+    public boolean isCorrelatable() {
+        return correlationReference != null && !completeFrame;
+    }
+
+    /**
+     * Whether the payload is a complete frame, written on its own, rather than a
+     * FeedMessage.
+     */
+    public boolean isCompleteFrame() {
+        return completeFrame;
+    }
+
+    public DeliveryPriority getPriority() {
+        return priority;
+    }
+
+    /**
+     * The Kafka record timestamp in epoch milliseconds, or 0 if unknown.
+     */
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    /**
+     * Number of bytes this message adds to a batch frame body, or the size of a
+     * complete frame.
+     */
+    public int delimitedSize() {
+        return completeFrame ? payload.length : FrameCodec.delimitedSize(payload.length);
+    }
+}
@@ -0,0 +1,118 @@
+package com.ces.infrastructure.websocket;
+
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header.MessageType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Assigns message types to {@link DeliveryPriority} lanes and records how long the
+ * messages of each lane took to be written.
+ *
+ * <p>Types not listed go to {@link DeliveryPriority#NORMAL}. The delivery latency of a
+ * message runs from its Kafka record timestamp until the frame carrying it was
+ * written, and is kept in one histogram per lane, with the lane's service-level
+ * objectives as explicit buckets. {@code HIGH} lane channels are flushed by their own
+ * {@code flushThreads}, so they never wait behind bulk flushes.</p>
+ */
+public final class PriorityLanes {
+
+    private static final PriorityLanes NONE = new PriorityLanes();
+
+    private final Map<MessageType, DeliveryPriority> lanes;
+    private final Timer[] latency;
+    private final int flushThreads;
+
+    private PriorityLanes() {
+        this.lanes = new EnumMap<>(MessageType.class);
+        this.latency = null;
+        this.flushThreads = 0;
+    }
+
+    /**
+     * @param lanes message type name (e.g. "RealityCheck") to its lane
+     * @param slos latency objectives per lane, published as histogram buckets
+     * @param flushThreads threads flushing channels that hold {@code HIGH} messages
+     * @param meterRegistry registry for the per-lane latency histograms
+     * @throws IllegalArgumentException if a type is unknown
+     */
+    public PriorityLanes(
+            Map<String, DeliveryPriority> lanes,
+            Map<DeliveryPriority, List<Duration>> slos,
+            int flushThreads,
+            MeterRegistry meterRegistry) {
+        if (flushThreads < 1) {
+            throw new IllegalArgumentException("Priority flush threads must be at least 1");
+        }
+        this.lanes = new EnumMap<>(MessageType.class);
+        if (lanes != null) {
+            for (Map.Entry<String, DeliveryPriority> entry : lanes.entrySet()) {
+                this.lanes.put(parseType(entry.getKey()), entry.getValue());
+            }
+        }
+        this.flushThreads = flushThreads;
+        this.latency = new Timer[DeliveryPriority.values().length];
+        for (DeliveryPriority priority : DeliveryPriority.values()) {
+            List<Duration> objectives = slos != null ? slos.get(priority) : null;
+            latency[priority.ordinal()] = Timer.builder("ces.websocket.delivery.latency")
+                    .description("Time from the Kafka record timestamp until the message was written")
+                    .tag("priority", priority.name().toLowerCase())
+                    .publishPercentileHistogram()
+                    .serviceLevelObjectives(objectives != null ? objectives.toArray(Duration[]::new) : new Duration[0])
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Lanes that put every message in {@link DeliveryPriority#NORMAL} and record nothing.
+     */
+    public static PriorityLanes none() {
+        return NONE;
+    }
+
+    public boolean isEnabled() {
+        return latency != null;
+    }
+
+    /**
+     * Returns the lane of a message type.
+     */
+    public DeliveryPriority laneOf(MessageType messageType) {
+        DeliveryPriority priority = lanes.get(messageType);
+        return priority != null ? priority : DeliveryPriority.NORMAL;
+    }
+
+    /**
+     * Threads flushing channels that hold {@code HIGH} messages, 0 when disabled.
+     */
+    public int flushThreads() {
+        return flushThreads;
+    }
+
+    /**
+     * Records the delivery latency of a message that was just written.
+     *
+     * @param message the written message
+     * @param nowMillis the current wall-clock time in epoch milliseconds
+     */
+    void recordWritten(OutboundMessage message, long nowMillis) {
+        if (latency == null || message.getTimestampMillis() <= 0) {
+            return;
+        }
+        latency[message.getPriority().ordinal()]
+                .record(Math.max(0, nowMillis - message.getTimestampMillis()), TimeUnit.MILLISECONDS);
+    }
+
+    private static MessageType parseType(String name) {
+        try {
+            return MessageType.valueOf(name.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown message type for priority lane: " + name, e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.ces.infrastructure.websocket;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Transport-neutral handle on a client's WebSocket connection.
+ * Implementations wrap the container's session object; writes are always
+ * issued by a single outbound flush thread at a time.
+ */
+public interface WebSocketConnection {
+
+    /**
+     * Checks whether the underlying connection is still open.
+     *
+     * @return true if frames can still be written
+     */
+    boolean isOpen();
+
+    /**
+     * Writes one binary frame to the client.
+     *
+     * @param frame the complete frame, positioned at its first byte
+     * @throws IOException if the write fails
+     */
+    void sendBinary(ByteBuffer frame) throws IOException;
+
+    /**
+     * Class of the client, used to group connection metrics (e.g. "web", "mobile").
+     */
+    default String connectionClass() {
+        return "default";
+    }
+
+    /**
+     * Whether the client can inflate frames flagged as compressed.
+     */
+    default boolean supportsCompression() {
+        return false;
+    }
+
+    /**
+     * Whether the client holds the preset compression dictionary.
+     */
+    default boolean supportsPresetDictionary() {
+        return false;
+    }
+}
@@ -0,0 +1,316 @@
+package com.ces.application.service;
+
+import com.ces.application.port.output.MessageSender;
+import com.ces.application.port.output.OfflineMessageStore;
+import com.ces.application.port.output.RecentEventBuffer;
+import com.ces.application.port.output.SessionGroupIndex;
+import com.ces.domain.model.EventMessage;
+import com.ces.domain.model.ResumeCursor;
+import com.ces.domain.model.Session;
+import com.ces.domain.model.SessionId;
+import com.ces.domain.model.SessionNotFoundException;
+import com.ces.domain.service.SessionRegistry;
+import com.lnw.expressway.messages.v1.FeedMessageProto.FeedMessage;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ConnectSessionService.
+ */
+@ExtendWith(MockitoExtension.class)
+class ConnectSessionServiceTest {
+
+    @Mock
+    private SessionRegistry sessionRegistry;
+
+    @Mock
+    private MessageSender messageSender;
+
+    @Mock
+    private OfflineMessageStore offlineMessageStore;
+
+    @Mock
+    private RecentEventBuffer recentEventBuffer;
+
+    @Mock
+    private SessionGroupIndex sessionGroupIndex;
+
+    private ConnectSessionService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ConnectSessionService(
+                sessionRegistry, messageSender, offlineMessageStore, recentEventBuffer, sessionGroupIndex);
+    }
+
+    private EventMessage createTestMessage(SessionId sessionId, long sequenceId) {
+        FeedMessage feedMessage = FeedMessage.newBuilder()
+                .setHeader(Header.newBuilder()
+                        .setMessageType(Header.MessageType.Login)
+                        .setIdentifier(Header.Identifier.newBuilder()
+                                .setKey(Header.Identifier.SequencingKey.OPS_Account)
+                                .setSequenceId(sequenceId)
+                                .build())
+                        .build())
+                .build();
+        return new EventMessage(sessionId, feedMessage, "test-topic");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldDeliverQueuedMessagesInOrderWhenSessionConnects() {
+        // given
+        SessionId sessionId = SessionId.generate();
+        Session session = new Session(sessionId);
+        session.connect();
+        session.disconnect();
+        EventMessage first = createTestMessage(sessionId, 1);
+        EventMessage second = createTestMessage(sessionId, 2);
+
+        when(sessionRegistry.findById(sessionId)).thenReturn(Optional.of(session));
+        when(offlineMessageStore.drain(eq(sessionId), any()))
+                .thenAnswer(invocation -> {
+                    Consumer<EventMessage> consumer = invocation.getArgument(1);
+                    consumer.accept(first);
+                    consumer.accept(second);
+                    return 2;
+                })
+                .thenReturn(0);
+        when(messageSender.sendToSession(eq(sessionId), any())).thenReturn(true);
+
+        // when
+        int delivered = service.connect(sessionId);
+
+        // then
+        assertEquals(2, delivered);
+        assertTrue(session.isActive());
+        InOrder inOrder = inOrder(messageSender, sessionRegistry);
+        inOrder.verify(messageSender).sendToSession(sessionId, first);
+        inOrder.verify(messageSender).sendToSession(sessionId, second);
+        inOrder.verify(sessionRegistry).update(session);
+        verify(sessionGroupIndex).add(session);
+        verify(offlineMessageStore, times(2)).drain(eq(sessionId), any(Consumer.class));
+        verifyNoInteractions(recentEventBuffer);
+    }
+
+    @Test
+    void shouldSendMessagesQueuedDuringSwitchBeforeJoiningGroups() {
+        // given
+        SessionId sessionId = SessionId.generate();
+        Session session = new Session(sessionId);
+        EventMessage queuedDuringSwitch = createTestMessage(sessionId, 1);
+
+        when(sessionRegistry.findById(sessionId)).thenReturn(Optional.of(session));
+        when(offlineMessageStore.drain(eq(sessionId), any()))
+                .thenReturn(0)
+                .thenAnswer(invocation -> {
+                    Consumer<EventMessage> consumer = invocation.getArgument(1);
+                    consumer.accept(queuedDuringSwitch);
+                    return 1;
+                });
+        when(messageSender.sendToSession(sessionId, queuedDuringSwitch)).thenReturn(true);
+
+        // when
+        int delivered = service.connect(sessionId);
+
+        // then
+        assertEquals(1, delivered);
+        InOrder inOrder = inOrder(sessionRegistry, messageSender, sessionGroupIndex);
+        inOrder.verify(sessionRegistry).update(session);
+        inOrder.verify(messageSender).sendToSession(sessionId, queuedDuringSwitch);
+        inOrder.verify(sessionGroupIndex).add(session);
+    }
+
+    @Test
+    void shouldRecordThisNodeInConnectedSession() {
+        // given
+        ConnectSessionService nodeService = new ConnectSessionService(
+                sessionRegistry, messageSender, offlineMessageStore, recentEventBuffer, sessionGroupIndex, 5);
+        SessionId sessionId = SessionId.generate();
+        Session session = new Session(sessionId);
+
+        when(sessionRegistry.findById(sessionId)).thenReturn(Optional.of(session));
+
+        // when
+        nodeService.connect(sessionId);
+
+        // then
+        assertTrue(session.isActive());
+        assertEquals(5, session.getNodeId());
+        verify(sessionRegistry).update(session);
+    }
+
+    @Test
+    void shouldReplayOnlyTheGapAfterTheResumeCursor() {
+        // given
+        SessionId sessionId = SessionId.generate();
+        Session session = new Session(sessionId);
+        session.connect();
+        EventMessage seen = createTestMessage(sessionId, 1);
+        EventMessage missedWhileConnected = createTestMessage(sessionId, 2);
+        EventMessage missedWhileQueued = createTestMessage(sessionId, 3);
+        EventMessage queuedDuringSwitch = createTestMessage(sessionId, 4);
+        ResumeCursor cursor = ResumeCursor.of(seen.getFeedMessage());
+
+        when(sessionRegistry.findById(sessionId)).thenReturn(Optional.of(session));
+        when(recentEventBuffer.eventsAfter(sessionId, cursor))
+                .thenReturn(Optional.of(List.of(missedWhileConnected, missedWhileQueued)));
+        when(offlineMessageStore.drain(eq(sessionId), any()))
+                .thenAnswer(invocation -> {
+                    Consumer<EventMessage> consumer = invocation.getArgument(1);
+                    consumer.accept(missedWhileQueued);
+                    return 1;
+                })
+                .thenAnswer(invocation -> {
+                    Consumer<EventMessage> consumer = invocation.getArgument(1);
+                    consumer.accept(missedWhileQueued);
+                    consumer.accept(queuedDuringSwitch);
+                    return 2;
+                });
+        when(messageSender.sendToSession(eq(sessionId), any())).thenReturn(true);
+
+        // when
+        int delivered = service.resume(sessionId, cursor);
+
+        // then
+        assertEquals(3, delivered);
+        InOrder inOrder = inOrder(messageSender);
+        inOrder.verify(messageSender).sendToSession(sessionId, missedWhileConnected);
+        inOrder.verify(messageSender).sendToSession(sessionId, missedWhileQueued);
+        inOrder.verify(messageSender).sendToSession(sessionId, queuedDuringSwitch);
+        verify(messageSender, never()).sendToSession(sessionId, seen);
+    }
+
+    @Test
+    void shouldFallBackToOfflineQueueWhenCursorIsNoLongerBuffered() {
+        // given
+        SessionId sessionId = SessionId.generate();
+        Session session = new Session(sessionId);
+        EventMessage queued = createTestMessage(sessionId, 7);
+        ResumeCursor cursor = ResumeCursor.of(Header.Identifier.SequencingKey.OPS_Account, 1);
+
+        when(sessionRegistry.findById(sessionId)).thenReturn(Optional.of(session));
+        when(recentEventBuffer.eventsAfter(sessionId, cursor)).thenReturn(Optional.empty());
+        when(offlineMessageStore.drain(eq(sessionId), any()))
+                .thenAnswer(invocation -> {
+                    Consumer<EventMessage> consumer = invocation.getArgument(1);
+                    consumer.accept(queued);
+                    return 1;
+                })
+                .thenReturn(0);
+        when(messageSender.sendToSession(eq(sessionId), any())).thenReturn(true);
+
+        // when
+        int delivered = service.resume(sessionId, cursor);
+
+        // then
+        assertEquals(1, delivered);
+        assertTrue(session.isActive());
+        verify(messageSender).sendToSession(sessionId, queued);
+    }
+
+    @Test
+    void shouldRequeueUnsentMessagesWhenConnectionClosesDuringReplay() {
+        // given
+        SessionId sessionId = SessionId.generate();
+        Session session = new Session(sessionId);
+        session.connect();
+        session.disconnect();
+        EventMessage sent = createTestMessage(sessionId, 1);
+        EventMessage unsent = createTestMessage(sessionId, 2);
+        EventMessage queuedDuringReplay = createTestMessage(sessionId, 3);
+
+        when(sessionRegistry.findById(sessionId)).thenReturn(Optional.of(session));
+        when(offlineMessageStore.drain(eq(sessionId), any()))
+                .thenAnswer(invocation -> {
+                    Consumer<EventMessage> consumer = invocation.getArgument(1);
+                    consumer.accept(sent);
+                    consumer.accept(unsent);
+                    return 2;
+                })
+                .thenAnswer(invocation -> {
+                    Consumer<EventMessage> consumer = invocation.getArgument(1);
+                    consumer.accept(queuedDuringReplay);
+                    return 1;
+                });
+        when(messageSender.sendToSession(sessionId, sent)).thenReturn(true);
+        when(messageSender.sendToSession(sessionId, unsent)).thenReturn(false);
+
+        // when
+        int delivered = service.connect(sessionId);
+
+        // then
+        assertEquals(1, delivered);
+        assertFalse(session.isActive());
+        InOrder inOrder = inOrder(offlineMessageStore);
+        inOrder.verify(offlineMessageStore).store(unsent);
+        inOrder.verify(offlineMessageStore).store(queuedDuringReplay);
+        verify(offlineMessageStore, never()).store(sent);
+        verify(sessionRegistry, never()).update(any());
+        verifyNoInteractions(sessionGroupIndex);
+    }
+
+    @Test
+    void shouldMarkSessionDisconnected() {
+        // given
+        SessionId sessionId = SessionId.generate();
+        Session session = new Session(sessionId);
+        session.connect();
+        when(sessionRegistry.findById(sessionId)).thenReturn(Optional.of(session));
+
+        // when
+        service.disconnect(sessionId);
+
+        // then
+        assertFalse(session.isActive());
+        verify(sessionRegistry).update(session);
+        verify(sessionGroupIndex).remove(session);
+        verifyNoInteractions(offlineMessageStore);
+    }
+
+    @Test
+    void shouldLeaveSessionConnectedOnNodeItMovedTo() {
+        // given
+        ConnectSessionService nodeService = new ConnectSessionService(
+                sessionRegistry, messageSender, offlineMessageStore, recentEventBuffer, sessionGroupIndex, 5);
+        SessionId sessionId = SessionId.generate();
+        Session session = new Session(sessionId);
+        session.connect(7);
+        when(sessionRegistry.findById(sessionId)).thenReturn(Optional.of(session));
+
+        // when
+        nodeService.disconnect(sessionId);
+
+        // then
+        assertTrue(session.isActive());
+        assertEquals(7, session.getNodeId());
+        verify(sessionRegistry, never()).update(any());
+        verify(sessionGroupIndex).remove(session);
+    }
+
+    @Test
+    void shouldThrowExceptionWhenConnectingUnknownSession() {
+        // given
+        SessionId sessionId = SessionId.generate();
+        when(sessionRegistry.findById(sessionId)).thenReturn(Optional.empty());
+
+        // when & then
+        assertThrows(SessionNotFoundException.class, () -> service.connect(sessionId));
+        verify(sessionRegistry, never()).update(any());
+        verifyNoInteractions(offlineMessageStore, messageSender);
+    }
+}
@@ -1,8 +1,15 @@
 package com.ces.application.service;
 
 import com.ces.application.port.output.MessageSender;
+import com.ces.application.port.output.OfflineMessageStore;
+import com.ces.application.port.output.RecentEventBuffer;
+import com.ces.application.port.output.SessionForwarder;
+import com.ces.application.port.output.SessionGroupIndex;
+import com.ces.domain.model.DeliveryTarget;
 import com.ces.domain.model.EventMessage;
+import com.ces.domain.model.MessageTypeMask;
 import com.ces.domain.model.Session;
+import com.ces.domain.model.SessionGroup;
 import com.ces.domain.model.SessionId;
 import com.ces.domain.model.SessionNotFoundException;
 import com.ces.domain.service.SessionRegistry;
@@ -13,11 +20,13 @@ import com.lnw.expressway.messages.v1.FeedMessageProto.LoginPayload;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.Instant;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -36,11 +45,21 @@ class DeliverMessageServiceTest {
     @Mock
     private MessageSender messageSender;
 
+    @Mock
+    private OfflineMessageStore offlineMessageStore;
+
+    @Mock
+    private RecentEventBuffer recentEventBuffer;
+
+    @Mock
+    private SessionGroupIndex sessionGroupIndex;
+
     private DeliverMessageService service;
 
     @BeforeEach
     void setUp() {
-        service = new DeliverMessageService(sessionRegistry, messageSender);
+        service = new DeliverMessageService(
+                sessionRegistry, messageSender, offlineMessageStore, recentEventBuffer, sessionGroupIndex);
     }
 
     // Helper method to create test FeedMessage
@@ -97,6 +116,103 @@ class DeliverMessageServiceTest {
         // then
         verify(sessionRegistry).findById(sessionId);
         verify(messageSender).sendToSession(sessionId, message);
+        verify(recentEventBuffer).append(message);
+    }
+
+    @Test
+    void shouldForwardMessageForSessionOnAnotherNodeAndDeliverItThere() {
+        // given
+        SessionForwarder sessionForwarder = mock(SessionForwarder.class);
+        DeliverMessageService forwardingService = new DeliverMessageService(sessionRegistry, messageSender,
+                offlineMessageStore, recentEventBuffer, sessionGroupIndex, sessionForwarder);
+        SessionId sessionId = SessionId.generate();
+        Session session = new Session(sessionId);
+        session.connect(2);
+        EventMessage consumed = new EventMessage(sessionId, createTestFeedMessage(123456789), "test-topic");
+        EventMessage forwarded = new EventMessage(sessionId, createTestFeedMessage(123456789), "test-topic");
+
+        when(sessionRegistry.findById(sessionId)).thenReturn(Optional.of(session));
+        when(sessionForwarder.forward(session, consumed)).thenReturn(true);
+        when(sessionForwarder.forward(session, forwarded)).thenReturn(false);
+
+        // when
+        forwardingService.deliver(consumed);
+        forwardingService.deliverForwarded(forwarded);
+
+        // then
+        verify(messageSender, never()).sendToSession(sessionId, consumed);
+        verify(recentEventBuffer, never()).append(consumed);
+        verify(recentEventBuffer).append(forwarded);
+        verify(messageSender).sendToSession(sessionId, forwarded);
+    }
+
+    @Test
+    void shouldForwardForwardedMessageAgainWhenSessionMigratedMeanwhile() {
+        // given
+        SessionForwarder sessionForwarder = mock(SessionForwarder.class);
+        DeliverMessageService forwardingService = new DeliverMessageService(sessionRegistry, messageSender,
+                offlineMessageStore, recentEventBuffer, sessionGroupIndex, sessionForwarder);
+        SessionId sessionId = SessionId.generate();
+        Session session = new Session(sessionId);
+        session.connect(2);
+        session.migrate(3);
+        EventMessage forwarded = new EventMessage(sessionId, createTestFeedMessage(123456789), "test-topic");
+
+        when(sessionRegistry.findById(sessionId)).thenReturn(Optional.of(session));
+        when(sessionForwarder.forward(session, forwarded)).thenReturn(true);
+
+        // when
+        forwardingService.deliverForwarded(forwarded);
+
+        // then
+        verify(sessionForwarder).forward(session, forwarded);
+        verifyNoInteractions(recentEventBuffer, offlineMessageStore, messageSender);
+    }
+
+    @Test
+    void shouldForwardMessageForMigratingSessionAndQueueItOnTargetNode() {
+        // given
+        SessionForwarder sessionForwarder = mock(SessionForwarder.class);
+        DeliverMessageService forwardingService = new DeliverMessageService(sessionRegistry, messageSender,
+                offlineMessageStore, recentEventBuffer, sessionGroupIndex, sessionForwarder);
+        SessionId sessionId = SessionId.generate();
+        Session session = new Session(sessionId);
+        session.connect(1);
+        session.migrate(2);
+        EventMessage consumed = new EventMessage(sessionId, createTestFeedMessage(123456789), "test-topic");
+        EventMessage forwarded = new EventMessage(sessionId, createTestFeedMessage(123456789), "test-topic");
+
+        when(sessionRegistry.findById(sessionId)).thenReturn(Optional.of(session));
+        when(sessionForwarder.forward(session, consumed)).thenReturn(true);
+
+        // when
+        forwardingService.deliver(consumed);
+        forwardingService.deliverForwarded(forwarded);
+
+        // then
+        verify(offlineMessageStore, never()).store(consumed);
+        verify(recentEventBuffer).append(forwarded);
+        verify(offlineMessageStore).store(forwarded);
+        verifyNoInteractions(messageSender);
+    }
+
+    @Test
+    void shouldDropMessageTypeTheSessionDidNotSubscribeTo() {
+        // given
+        SessionId sessionId = SessionId.generate();
+        Session session = new Session(sessionId, 123456789, "acme",
+                MessageTypeMask.of(Set.of(Header.MessageType.WalletTransaction)));
+        session.connect();
+        EventMessage message = new EventMessage(sessionId, createTestFeedMessage(123456789), "test-topic");
+
+        when(sessionRegistry.findById(sessionId)).thenReturn(Optional.of(session));
+
+        // when
+        service.deliver(message);
+
+        // then
+        verify(messageSender, never()).sendToSession(any(), any());
+        verifyNoInteractions(recentEventBuffer, offlineMessageStore);
     }
 
     @Test
@@ -116,7 +232,7 @@ class DeliverMessageServiceTest {
     }
 
     @Test
-    void shouldNotDeliverMessageToInactiveSession() {
+    void shouldQueueMessageForInactiveSession() {
         // given
         SessionId sessionId = SessionId.generate();
         Session session = new Session(sessionId); // Not connected, so inactive
@@ -132,10 +248,13 @@ class DeliverMessageServiceTest {
         // then
         verify(sessionRegistry).findById(sessionId);
         verify(messageSender, never()).sendToSession(any(), any());
+        InOrder inOrder = inOrder(recentEventBuffer, offlineMessageStore);
+        inOrder.verify(recentEventBuffer).append(message);
+        inOrder.verify(offlineMessageStore).store(message);
     }
 
     @Test
-    void shouldNotDeliverMessageToDisconnectedSession() {
+    void shouldQueueMessageForDisconnectedSession() {
         // given
         SessionId sessionId = SessionId.generate();
         Session session = new Session(sessionId);
@@ -153,6 +272,50 @@ class DeliverMessageServiceTest {
         // then
         verify(sessionRegistry).findById(sessionId);
         verify(messageSender, never()).sendToSession(any(), any());
+        verify(offlineMessageStore).store(message);
+    }
+
+    @Test
+    void shouldSendGroupMessageOnceToAllMembers() {
+        // given
+        SessionGroup members = new SessionGroup(
+                new SessionId[] {SessionId.generate(), SessionId.generate(), SessionId.generate()},
+                new long[] {MessageTypeMask.ALL, MessageTypeMask.ALL, MessageTypeMask.ALL},
+                MessageTypeMask.ALL);
+        DeliveryTarget target = DeliveryTarget.account(123456789);
+        EventMessage message = new EventMessage(
+                "msg-1", target, createTestFeedMessage(123456789), "test-topic", Instant.now());
+
+        when(sessionGroupIndex.members(target)).thenReturn(members);
+        when(messageSender.sendToAll(members, message)).thenReturn(3);
+
+        // when
+        service.deliver(message);
+
+        // then
+        verify(messageSender).sendToAll(members, message);
+        verify(messageSender, never()).sendToSession(any(), any());
+        verify(sessionRegistry, never()).findById(any());
+        verifyNoInteractions(offlineMessageStore, recentEventBuffer);
+    }
+
+    @Test
+    void shouldSkipGroupMessageWhenNoMemberSubscribedToItsType() {
+        // given
+        long walletOnly = MessageTypeMask.of(Set.of(Header.MessageType.WalletTransaction));
+        SessionGroup members = new SessionGroup(
+                new SessionId[] {SessionId.generate()}, new long[] {walletOnly}, walletOnly);
+        DeliveryTarget target = DeliveryTarget.tenant("acme");
+        EventMessage message = new EventMessage(
+                "msg-1", target, createTestFeedMessage(123456789), "test-topic", Instant.now());
+
+        when(sessionGroupIndex.members(target)).thenReturn(members);
+
+        // when
+        service.deliver(message);
+
+        // then
+        verify(messageSender, never()).sendToAll(any(), any());
     }
 
     @Test
@@ -226,7 +389,7 @@ class DeliverMessageServiceTest {
     void shouldThrowExceptionWhenSessionRegistryIsNull() {
         // when & then
         assertThrows(NullPointerException.class, () -> 
-            new DeliverMessageService(null, messageSender)
+            new DeliverMessageService(null, messageSender, offlineMessageStore, recentEventBuffer, sessionGroupIndex)
         );
     }
 
@@ -234,7 +397,15 @@ class DeliverMessageServiceTest {
     void shouldThrowExceptionWhenMessageSenderIsNull() {
         // when & then
         assertThrows(NullPointerException.class, () -> 
-            new DeliverMessageService(sessionRegistry, null)
+            new DeliverMessageService(sessionRegistry, null, offlineMessageStore, recentEventBuffer, sessionGroupIndex)
+        );
+    }
+
+    @Test
+    void shouldThrowExceptionWhenOfflineMessageStoreIsNull() {
+        // when & then
+        assertThrows(NullPointerException.class, () ->
+            new DeliverMessageService(sessionRegistry, messageSender, null, recentEventBuffer, sessionGroupIndex)
         );
     }
 
@@ -0,0 +1,158 @@
+package com.ces.application.service;
+
+import com.ces.application.port.output.MessageSender;
+import com.ces.application.port.output.RecentEventBuffer;
+import com.ces.application.port.output.SessionForwarder;
+import com.ces.application.port.output.SessionGroupIndex;
+import com.ces.domain.model.EventMessage;
+import com.ces.domain.model.ResumeCursor;
+import com.ces.domain.model.Session;
+import com.ces.domain.model.SessionId;
+import com.ces.domain.service.SessionRegistry;
+import com.lnw.expressway.messages.v1.FeedMessageProto.FeedMessage;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for MigrateSessionService.
+ */
+@ExtendWith(MockitoExtension.class)
+class MigrateSessionServiceTest {
+
+    private static final int LOCAL_NODE = 1;
+    private static final int TARGET_NODE = 2;
+    private static final String TARGET_URL = "ws://node-2/ws";
+
+    @Mock
+    private SessionRegistry sessionRegistry;
+
+    @Mock
+    private MessageSender messageSender;
+
+    @Mock
+    private RecentEventBuffer recentEventBuffer;
+
+    @Mock
+    private SessionGroupIndex sessionGroupIndex;
+
+    @Mock
+    private SessionForwarder sessionForwarder;
+
+    private MigrateSessionService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new MigrateSessionService(
+                sessionRegistry, messageSender, recentEventBuffer, sessionGroupIndex, sessionForwarder, LOCAL_NODE);
+    }
+
+    private EventMessage createTestMessage(SessionId sessionId, long sequenceId) {
+        FeedMessage feedMessage = FeedMessage.newBuilder()
+                .setHeader(Header.newBuilder()
+                        .setMessageType(Header.MessageType.Login)
+                        .setIdentifier(Header.Identifier.newBuilder()
+                                .setKey(Header.Identifier.SequencingKey.OPS_Account)
+                                .setSequenceId(sequenceId)
+                                .build())
+                        .build())
+                .build();
+        return new EventMessage(sessionId, feedMessage, "test-topic");
+    }
+
+    @Test
+    void shouldPrewarmTargetThenSwitchSessionThenRedirectClient() {
+        // given
+        SessionId sessionId = SessionId.generate();
+        Session session = new Session(sessionId);
+        session.connect(LOCAL_NODE);
+        List<EventMessage> snapshot = List.of(createTestMessage(sessionId, 1), createTestMessage(sessionId, 2));
+        List<EventMessage> afterSwitch = List.of(
+                createTestMessage(sessionId, 1), createTestMessage(sessionId, 2), createTestMessage(sessionId, 3));
+
+        when(sessionRegistry.findById(sessionId)).thenReturn(Optional.of(session));
+        when(recentEventBuffer.recent(sessionId)).thenReturn(snapshot, afterSwitch);
+        when(sessionForwarder.prewarm(TARGET_NODE, snapshot)).thenReturn(true);
+
+        // when
+        boolean migrated = service.migrate(sessionId, TARGET_NODE, TARGET_URL);
+
+        // then
+        assertTrue(migrated);
+        assertTrue(session.isMigrating());
+        assertEquals(TARGET_NODE, session.getNodeId());
+        InOrder inOrder = inOrder(sessionForwarder, sessionRegistry, sessionGroupIndex, messageSender);
+        inOrder.verify(sessionForwarder).prewarm(TARGET_NODE, snapshot);
+        inOrder.verify(sessionRegistry).update(session);
+        inOrder.verify(sessionGroupIndex).remove(session);
+        inOrder.verify(messageSender).redirect(sessionId, TARGET_URL + "/" + sessionId.getValue(),
+                ResumeCursor.of(Header.Identifier.SequencingKey.OPS_Account, 3));
+    }
+
+    @Test
+    void shouldKeepSessionWhenTargetNodeCannotBeReached() {
+        // given
+        SessionId sessionId = SessionId.generate();
+        Session session = new Session(sessionId);
+        session.connect(LOCAL_NODE);
+
+        when(sessionRegistry.findById(sessionId)).thenReturn(Optional.of(session));
+        when(recentEventBuffer.recent(sessionId)).thenReturn(List.of());
+        when(sessionForwarder.prewarm(TARGET_NODE, List.of())).thenReturn(false);
+
+        // when
+        boolean migrated = service.migrate(sessionId, TARGET_NODE, TARGET_URL);
+
+        // then
+        assertFalse(migrated);
+        assertTrue(session.isActive());
+        assertEquals(LOCAL_NODE, session.getNodeId());
+        verify(sessionRegistry, never()).update(any());
+        verifyNoInteractions(messageSender, sessionGroupIndex);
+    }
+
+    @Test
+    void shouldNotMigrateSessionsHeldByOtherNodes() {
+        // given
+        SessionId sessionId = SessionId.generate();
+        Session session = new Session(sessionId);
+        session.connect(TARGET_NODE);
+        when(sessionRegistry.findById(sessionId)).thenReturn(Optional.of(session));
+
+        // when
+        boolean migrated = service.migrate(sessionId, 3, "ws://node-3/ws");
+
+        // then
+        assertFalse(migrated);
+        verify(sessionForwarder, never()).prewarm(anyInt(), any());
+        verify(sessionRegistry, never()).update(any());
+    }
+
+    @Test
+    void shouldRecordPrewarmedEventsInRing() {
+        // given
+        SessionId sessionId = SessionId.generate();
+        EventMessage first = createTestMessage(sessionId, 1);
+        EventMessage second = createTestMessage(sessionId, 2);
+
+        // when
+        service.prewarm(List.of(first, second));
+
+        // then
+        InOrder inOrder = inOrder(recentEventBuffer);
+        inOrder.verify(recentEventBuffer).append(first);
+        inOrder.verify(recentEventBuffer).append(second);
+    }
+}
@@ -1,18 +1,29 @@
 package com.ces.application.service;
 
+import com.ces.application.port.input.RegisterSessionUseCase.SessionRegistrationRequest;
 import com.ces.application.port.input.RegisterSessionUseCase.SessionRegistrationResult;
+import com.ces.application.port.output.MessageTypeSubscriptions;
+import com.ces.application.port.output.SessionPlacement;
 import com.ces.application.port.output.SessionRepository;
+import com.ces.domain.filter.ContentFilterCompiler;
+import com.ces.domain.filter.FieldProjectionCompiler;
 import com.ces.domain.model.InvalidSessionException;
+import com.ces.domain.model.MessageTypeMask;
 import com.ces.domain.model.Session;
 import com.ces.domain.model.SessionId;
 import com.ces.domain.service.SessionRegistry;
+import com.google.protobuf.FieldMask;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header.MessageType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -30,12 +41,163 @@ class RegisterSessionServiceTest {
     @Mock
     private SessionRepository sessionRepository;
 
+    @Mock
+    private MessageTypeSubscriptions messageTypeSubscriptions;
+
+    private final ContentFilterCompiler contentFilterCompiler = new ContentFilterCompiler();
+
+    private final FieldProjectionCompiler fieldProjectionCompiler = new FieldProjectionCompiler();
+
     private RegisterSessionService service;
     private static final String WEBSOCKET_BASE_URL = "ws://localhost:8080/ws";
 
     @BeforeEach
     void setUp() {
-        service = new RegisterSessionService(sessionRegistry, sessionRepository, WEBSOCKET_BASE_URL);
+        service = new RegisterSessionService(
+                sessionRegistry, sessionRepository, messageTypeSubscriptions, contentFilterCompiler,
+                fieldProjectionCompiler, WEBSOCKET_BASE_URL);
+    }
+
+    @Test
+    void shouldRegisterSessionWithAccountAndTenant() {
+        // given
+        SessionId sessionId = SessionId.generate();
+        SessionRegistrationRequest request = SessionRegistrationRequest.of(sessionId)
+                .withAccountId(123456789)
+                .withTenant("acme");
+        when(sessionRegistry.findById(sessionId)).thenReturn(Optional.empty());
+        ArgumentCaptor<Session> sessionCaptor = ArgumentCaptor.forClass(Session.class);
+
+        // when
+        SessionRegistrationResult result = service.register(request);
+
+        // then
+        assertTrue(result.success());
+        verify(sessionRegistry).register(sessionCaptor.capture());
+        assertEquals(123456789, sessionCaptor.getValue().getAccountId());
+        assertEquals("acme", sessionCaptor.getValue().getTenant());
+    }
+
+    @Test
+    void shouldStoreSubscriptionMaskAndAddItToNodeUnion() {
+        // given
+        SessionId sessionId = SessionId.generate();
+        SessionRegistrationRequest request = SessionRegistrationRequest.of(sessionId)
+                .withMessageTypes(Set.of(MessageType.Login, MessageType.Logout));
+        when(sessionRegistry.findById(sessionId)).thenReturn(Optional.empty());
+        ArgumentCaptor<Session> sessionCaptor = ArgumentCaptor.forClass(Session.class);
+        long expectedMask = MessageTypeMask.bit(MessageType.Login) | MessageTypeMask.bit(MessageType.Logout);
+
+        // when
+        SessionRegistrationResult result = service.register(request);
+
+        // then
+        assertTrue(result.success());
+        verify(sessionRegistry).register(sessionCaptor.capture());
+        assertEquals(expectedMask, sessionCaptor.getValue().getSubscriptionMask());
+        verify(messageTypeSubscriptions).add(expectedMask);
+    }
+
+    @Test
+    void shouldCompileContentFilterAndShareItBetweenSessions() {
+        // given
+        SessionId first = SessionId.generate();
+        SessionId second = SessionId.generate();
+        String filter = "trans_payload.delta_cash > 100";
+        when(sessionRegistry.findById(any())).thenReturn(Optional.empty());
+        ArgumentCaptor<Session> sessionCaptor = ArgumentCaptor.forClass(Session.class);
+
+        // when
+        service.register(SessionRegistrationRequest.of(first).withContentFilter(filter));
+        service.register(SessionRegistrationRequest.of(second).withContentFilter(" trans_payload.delta_cash>100 "));
+
+        // then
+        verify(sessionRegistry, times(2)).register(sessionCaptor.capture());
+        assertNotNull(sessionCaptor.getAllValues().get(0).getContentFilter());
+        assertSame(sessionCaptor.getAllValues().get(0).getContentFilter(),
+                sessionCaptor.getAllValues().get(1).getContentFilter());
+    }
+
+    @Test
+    void shouldRejectInvalidContentFilter() {
+        // given
+        SessionId sessionId = SessionId.generate();
+        when(sessionRegistry.findById(sessionId)).thenReturn(Optional.empty());
+
+        // when
+        SessionRegistrationResult result = service.register(
+                SessionRegistrationRequest.of(sessionId).withContentFilter("trans_payload.no_such_field > 1"));
+
+        // then
+        assertFalse(result.success());
+        assertTrue(result.message().contains("unknown field"));
+        verify(sessionRegistry, never()).register(any());
+        verifyNoInteractions(messageTypeSubscriptions);
+    }
+
+    @Test
+    void shouldCompileFieldMasksAndShareProjectionBetweenSessions() {
+        // given
+        SessionId first = SessionId.generate();
+        SessionId second = SessionId.generate();
+        Map<MessageType, FieldMask> fieldMasks = Map.of(MessageType.WalletTransaction,
+                FieldMask.newBuilder().addPaths("account_id").addPaths("delta_cash").build());
+        when(sessionRegistry.findById(any())).thenReturn(Optional.empty());
+        ArgumentCaptor<Session> sessionCaptor = ArgumentCaptor.forClass(Session.class);
+
+        // when
+        service.register(SessionRegistrationRequest.of(first).withFieldMasks(fieldMasks));
+        service.register(SessionRegistrationRequest.of(second).withFieldMasks(fieldMasks));
+
+        // then
+        verify(sessionRegistry, times(2)).register(sessionCaptor.capture());
+        assertNotNull(sessionCaptor.getAllValues().get(0).getFieldProjection());
+        assertSame(sessionCaptor.getAllValues().get(0).getFieldProjection(),
+                sessionCaptor.getAllValues().get(1).getFieldProjection());
+    }
+
+    @Test
+    void shouldRejectInvalidFieldMask() {
+        // given
+        SessionId sessionId = SessionId.generate();
+        when(sessionRegistry.findById(sessionId)).thenReturn(Optional.empty());
+        Map<MessageType, FieldMask> fieldMasks = Map.of(MessageType.WalletTransaction,
+                FieldMask.newBuilder().addPaths("no_such_field").build());
+
+        // when
+        SessionRegistrationResult result = service.register(
+                SessionRegistrationRequest.of(sessionId).withFieldMasks(fieldMasks));
+
+        // then
+        assertFalse(result.success());
+        verify(sessionRegistry, never()).register(any());
+    }
+
+    @Test
+    void shouldThrowExceptionWhenFieldProjectionCompilerIsNull() {
+        // when & then
+        assertThrows(NullPointerException.class, () ->
+            new RegisterSessionService(sessionRegistry, sessionRepository, messageTypeSubscriptions,
+                    contentFilterCompiler, null, WEBSOCKET_BASE_URL)
+        );
+    }
+
+    @Test
+    void shouldThrowExceptionWhenContentFilterCompilerIsNull() {
+        // when & then
+        assertThrows(NullPointerException.class, () ->
+            new RegisterSessionService(sessionRegistry, sessionRepository, messageTypeSubscriptions, null,
+                    fieldProjectionCompiler, WEBSOCKET_BASE_URL)
+        );
+    }
+
+    @Test
+    void shouldThrowExceptionWhenMessageTypeSubscriptionsIsNull() {
+        // when & then
+        assertThrows(NullPointerException.class, () ->
+            new RegisterSessionService(sessionRegistry, sessionRepository, null, contentFilterCompiler,
+                    fieldProjectionCompiler, WEBSOCKET_BASE_URL)
+        );
     }
 
     @Test
@@ -57,10 +219,32 @@ class RegisterSessionServiceTest {
         verify(sessionRepository).save(any(Session.class));
     }
 
+    @Test
+    void shouldSendSessionToNodeChosenByPlacement() {
+        // given
+        SessionPlacement placement = accountId -> accountId == 123456789 ? "ws://ces-2:8080/ws" : null;
+        RegisterSessionService placingService = new RegisterSessionService(
+                sessionRegistry, sessionRepository, messageTypeSubscriptions, contentFilterCompiler,
+                fieldProjectionCompiler, WEBSOCKET_BASE_URL, placement);
+        SessionId placed = SessionId.generate();
+        SessionId local = SessionId.generate();
+        when(sessionRegistry.findById(any(SessionId.class))).thenReturn(Optional.empty());
+
+        // when
+        SessionRegistrationResult placedResult = placingService.register(
+                SessionRegistrationRequest.of(placed).withAccountId(123456789));
+        SessionRegistrationResult localResult = placingService.register(
+                SessionRegistrationRequest.of(local).withAccountId(987654321));
+
+        // then
+        assertEquals("ws://ces-2:8080/ws/" + placed.getValue(), placedResult.websocketUrl());
+        assertEquals(WEBSOCKET_BASE_URL + "/" + local.getValue(), localResult.websocketUrl());
+    }
+
     @Test
     void shouldFailWhenSessionIdIsNull() {
         // when
-        SessionRegistrationResult result = service.register(null);
+        SessionRegistrationResult result = service.register((SessionId) null);
 
         // then
         assertFalse(result.success());
@@ -151,7 +335,8 @@ class RegisterSessionServiceTest {
     void shouldThrowExceptionWhenSessionRegistryIsNull() {
         // when & then
         assertThrows(NullPointerException.class, () -> 
-            new RegisterSessionService(null, sessionRepository, WEBSOCKET_BASE_URL)
+            new RegisterSessionService(null, sessionRepository, messageTypeSubscriptions, contentFilterCompiler,
+                    fieldProjectionCompiler, WEBSOCKET_BASE_URL)
         );
     }
 
@@ -159,7 +344,8 @@ class RegisterSessionServiceTest {
     void shouldThrowExceptionWhenSessionRepositoryIsNull() {
         // when & then
         assertThrows(NullPointerException.class, () -> 
-            new RegisterSessionService(sessionRegistry, null, WEBSOCKET_BASE_URL)
+            new RegisterSessionService(sessionRegistry, null, messageTypeSubscriptions, contentFilterCompiler,
+                    fieldProjectionCompiler, WEBSOCKET_BASE_URL)
         );
     }
 
@@ -167,7 +353,8 @@ class RegisterSessionServiceTest {
     void shouldThrowExceptionWhenWebSocketBaseUrlIsNull() {
         // when & then
         assertThrows(NullPointerException.class, () -> 
-            new RegisterSessionService(sessionRegistry, sessionRepository, null)
+            new RegisterSessionService(sessionRegistry, sessionRepository, messageTypeSubscriptions,
+                    contentFilterCompiler, fieldProjectionCompiler, null)
         );
     }
 
@@ -0,0 +1,108 @@
+package com.ces.domain.filter;
+
+import com.lnw.expressway.messages.v1.FeedMessageProto.FeedMessage;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header;
+import com.lnw.expressway.messages.v1.FeedMessageProto.PaymentTransPayload;
+import com.lnw.expressway.messages.v1.FeedMessageProto.TransPayload;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ContentFilterCompiler and the filters it compiles.
+ */
+class ContentFilterCompilerTest {
+
+    private ContentFilterCompiler compiler;
+
+    @BeforeEach
+    void setUp() {
+        compiler = new ContentFilterCompiler();
+    }
+
+    private FeedMessage createTransMessage(double deltaCash, String currency) {
+        return FeedMessage.newBuilder()
+                .setHeader(Header.newBuilder()
+                        .setMessageType(Header.MessageType.WalletTransaction)
+                        .build())
+                .setTransPayload(TransPayload.newBuilder()
+                        .setAccountId(123456789)
+                        .setDeltaCash(deltaCash)
+                        .setCurrency(currency)
+                        .build())
+                .build();
+    }
+
+    private FeedMessage createPaymentMessage(String status) {
+        return FeedMessage.newBuilder()
+                .setHeader(Header.newBuilder()
+                        .setMessageType(Header.MessageType.PaymentTransaction)
+                        .build())
+                .setPaymentTransPayload(PaymentTransPayload.newBuilder()
+                        .setAccountId(123456789)
+                        .setStatus(status)
+                        .build())
+                .build();
+    }
+
+    @Test
+    void shouldCompareNumericAndStringFields() {
+        // given
+        ContentFilter filter = compiler.compile("trans_payload.delta_cash > 100 and trans_payload.currency == \"EUR\"");
+
+        // when & then
+        assertTrue(filter.matches(createTransMessage(150.0, "EUR")));
+        assertFalse(filter.matches(createTransMessage(50.0, "EUR")));
+        assertFalse(filter.matches(createTransMessage(150.0, "GBP")));
+    }
+
+    @Test
+    void shouldCombineWithOrNotAndParentheses() {
+        // given
+        ContentFilter filter = compiler.compile(
+                "payment_trans_payload.status == 'APPROVED' or not (header.message_type == PaymentTransaction)");
+
+        // when & then
+        assertTrue(filter.matches(createPaymentMessage("APPROVED")));
+        assertFalse(filter.matches(createPaymentMessage("DECLINED")));
+        assertTrue(filter.matches(createTransMessage(1.0, "EUR")));
+    }
+
+    @Test
+    void shouldTreatComparisonsOnUnsetPayloadsAsFalse() {
+        // given
+        ContentFilter filter = compiler.compile("trans_payload.account_id != 1");
+
+        // when & then
+        assertTrue(filter.matches(createTransMessage(1.0, "EUR")));
+        assertFalse(filter.matches(createPaymentMessage("APPROVED")));
+    }
+
+    @Test
+    void shouldShareOneFilterForEquivalentExpressions() {
+        // when
+        ContentFilter first = compiler.compile("trans_payload.delta_cash > 100");
+        ContentFilter second = compiler.compile("trans_payload.delta_cash>100.0");
+        ContentFilter cached = compiler.compile("trans_payload.delta_cash > 100");
+
+        // then
+        assertSame(first, second);
+        assertSame(first, cached);
+        assertEquals("trans_payload.delta_cash > 100.0", first.expression());
+        assertEquals(1, compiler.cachedFilters());
+    }
+
+    @Test
+    void shouldRejectInvalidExpressions() {
+        // when & then
+        assertThrows(InvalidFilterException.class, () -> compiler.compile(""));
+        assertThrows(InvalidFilterException.class, () -> compiler.compile("trans_payload.unknown > 1"));
+        assertThrows(InvalidFilterException.class, () -> compiler.compile("trans_payload > 1"));
+        assertThrows(InvalidFilterException.class, () -> compiler.compile("trans_payload.currency == EUR"));
+        assertThrows(InvalidFilterException.class, () -> compiler.compile("trans_payload.account_id > 1.5"));
+        assertThrows(InvalidFilterException.class, () -> compiler.compile("header.message_type > Login"));
+        assertThrows(InvalidFilterException.class, () -> compiler.compile("(trans_payload.delta_cash > 1"));
+        assertThrows(InvalidFilterException.class, () -> compiler.compile("trans_payload.currency == \"EUR"));
+    }
+}
@@ -0,0 +1,116 @@
+package com.ces.domain.filter;
+
+import com.google.protobuf.FieldMask;
+import com.lnw.expressway.messages.v1.FeedMessageProto.FeedMessage;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header.MessageType;
+import com.lnw.expressway.messages.v1.FeedMessageProto.TransPayload;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for FieldProjectionCompiler and the projections it compiles.
+ */
+class FieldProjectionCompilerTest {
+
+    private FieldProjectionCompiler compiler;
+
+    @BeforeEach
+    void setUp() {
+        compiler = new FieldProjectionCompiler();
+    }
+
+    private FeedMessage createTransMessage() {
+        return FeedMessage.newBuilder()
+                .setHeader(Header.newBuilder()
+                        .setMessageType(MessageType.WalletTransaction)
+                        .build())
+                .setTransPayload(TransPayload.newBuilder()
+                        .setAccountId(123456789)
+                        .setDeltaCash(150.0)
+                        .setCurrency("EUR")
+                        .build())
+                .build();
+    }
+
+    private static FieldMask mask(String... paths) {
+        return FieldMask.newBuilder().addAllPaths(List.of(paths)).build();
+    }
+
+    @Test
+    void shouldKeepHeaderAndMaskedPayloadFields() {
+        // given
+        FieldProjection projection = compiler.compile(
+                Map.of(MessageType.WalletTransaction, mask("account_id", "delta_cash")));
+        FeedMessage message = createTransMessage();
+
+        // when
+        FeedMessage projected = projection.forType(MessageType.WalletTransaction).project(message);
+
+        // then
+        assertEquals(message.getHeader(), projected.getHeader());
+        assertEquals(123456789, projected.getTransPayload().getAccountId());
+        assertEquals(150.0, projected.getTransPayload().getDeltaCash());
+        assertEquals("", projected.getTransPayload().getCurrency());
+        assertTrue(projected.getSerializedSize() < message.getSerializedSize());
+    }
+
+    @Test
+    void shouldSendTypesWithoutMaskInFull() {
+        // given
+        FieldProjection projection = compiler.compile(Map.of(MessageType.Login, mask("account_id")));
+
+        // when & then
+        assertNull(projection.forType(MessageType.WalletTransaction));
+        assertNull(compiler.compile(Map.of()));
+    }
+
+    @Test
+    void shouldShareOneProjectionForEquivalentMasks() {
+        // when
+        FieldProjection first = compiler.compile(
+                Map.of(MessageType.WalletTransaction, mask("delta_cash", "account_id")));
+        FieldProjection second = compiler.compile(
+                Map.of(MessageType.WalletTransaction, mask("account_id", "delta_cash", "account_id")));
+
+        // then
+        assertSame(first, second);
+        assertEquals("account_id,delta_cash", first.forType(MessageType.WalletTransaction).canonicalForm());
+        assertEquals(1, compiler.cachedProjections());
+    }
+
+    @Test
+    void shouldCompileItsFieldMasksIntoTheSameProjection() {
+        // given
+        FieldProjection projection = compiler.compile(
+                Map.of(MessageType.WalletTransaction, mask("delta_cash", "account_id", "delta_cash")));
+
+        // when
+        Map<MessageType, FieldMask> fieldMasks = projection.fieldMasks();
+
+        // then
+        assertEquals(List.of("account_id", "delta_cash"),
+                fieldMasks.get(MessageType.WalletTransaction).getPathsList());
+        assertSame(projection, compiler.compile(fieldMasks));
+    }
+
+    @Test
+    void shouldRejectInvalidMasks() {
+        // when & then
+        assertThrows(InvalidFilterException.class, () ->
+                compiler.compile(Map.of(MessageType.WalletTransaction, mask("no_such_field"))));
+        assertThrows(InvalidFilterException.class, () ->
+                compiler.compile(Map.of(MessageType.WalletTransaction, mask("account_id.value"))));
+        assertThrows(InvalidFilterException.class, () ->
+                compiler.compile(Map.of(MessageType.WalletTransaction, mask("delta_cash..x"))));
+        assertThrows(InvalidFilterException.class, () ->
+                compiler.compile(Map.of(MessageType.WalletTransaction, mask())));
+        assertThrows(InvalidFilterException.class, () ->
+                compiler.compile(Map.of(MessageType.UnknownMessageType, mask("account_id"))));
+    }
+}
@@ -346,4 +346,49 @@ class EventMessageTest {
         assertEquals(Header.MessageType.Login, message.getFeedMessage().getHeader().getMessageType());
         assertNotNull(message.getFeedMessage().getHeader().getTimestamp());
     }
+
+    @Test
+    void shouldExposeHeaderFieldsWithoutDecodingFromEncodedBytes() {
+        // given
+        SessionId sessionId = SessionId.generate();
+        FeedMessage feedMessage = createTestFeedMessage(123456789);
+        Instant timestamp = Instant.parse("2025-10-01T18:45:00Z");
+
+        // when
+        EventMessage message = EventMessage.fromEncoded(
+                "msg-123", sessionId, feedMessage.toByteArray(), "source", timestamp);
+
+        // then
+        assertEquals(Header.MessageType.Login, message.getMessageType());
+        assertEquals(Header.Identifier.SequencingKey.OPS_Account, message.getSequencingKey());
+        assertEquals(123456789L, message.getSequenceId());
+        assertEquals("", message.getReference());
+        assertEquals(feedMessage, message.getFeedMessage());
+    }
+
+    @Test
+    void shouldDecodeAgainAfterReleasingFeedMessage() {
+        // given
+        SessionId sessionId = SessionId.generate();
+        FeedMessage feedMessage = createTestFeedMessage(123456789);
+        EventMessage message = new EventMessage(sessionId, feedMessage, "source");
+
+        // when
+        message.releaseFeedMessage();
+
+        // then
+        assertNotSame(feedMessage, message.getFeedMessage());
+        assertEquals(feedMessage, message.getFeedMessage());
+        assertArrayEquals(feedMessage.toByteArray(), message.getEncoded());
+    }
+
+    @Test
+    void shouldRejectInvalidEncodedBytes() {
+        // given
+        byte[] invalid = {(byte) 0x0A, (byte) 0x7F};
+
+        // when & then
+        assertThrows(IllegalArgumentException.class, () -> EventMessage.fromEncoded(
+                "msg-123", SessionId.generate(), invalid, "source", Instant.now()));
+    }
 }
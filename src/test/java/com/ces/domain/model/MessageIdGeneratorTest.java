@@ -0,0 +1,81 @@
+package com.ces.domain.model;
+
+import com.lnw.expressway.messages.v1.FeedMessageProto.FeedMessage;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for MessageIdGenerator.
+ */
+class MessageIdGeneratorTest {
+
+    private FeedMessage createFeedMessage(Header.Identifier.SequencingKey key, long sequenceId) {
+        return FeedMessage.newBuilder()
+                .setHeader(Header.newBuilder()
+                        .setMessageType(Header.MessageType.PaymentTransaction)
+                        .setIdentifier(Header.Identifier.newBuilder()
+                                .setKey(key)
+                                .setSequenceId(sequenceId)
+                                .build())
+                        .build())
+                .build();
+    }
+
+    @Test
+    void shouldDeriveIdFromIdentifier() {
+        // given
+        MessageIdGenerator generator = new MessageIdGenerator(7);
+        FeedMessage feedMessage = createFeedMessage(Header.Identifier.SequencingKey.OPS_Payment, 42);
+
+        // when
+        String id = generator.idFor(feedMessage);
+
+        // then
+        assertEquals("OPS_Payment:42", id);
+        assertEquals(ResumeCursor.of(feedMessage).toString(), id);
+    }
+
+    @Test
+    void shouldGenerateIdWhenIdentifierHasNoKey() {
+        // given
+        MessageIdGenerator generator = new MessageIdGenerator(7);
+        FeedMessage feedMessage = createFeedMessage(Header.Identifier.SequencingKey.UnknownKey, 42);
+
+        // when
+        String id = generator.idFor(feedMessage);
+
+        // then
+        assertEquals(16, id.length());
+        assertNotEquals(id, generator.idFor(feedMessage));
+    }
+
+    @Test
+    void shouldGenerateUniqueIncreasingIdsBeyondCounterCapacity() {
+        // given
+        MessageIdGenerator generator = new MessageIdGenerator(MessageIdGenerator.MAX_NODE_ID);
+        Set<Long> ids = new HashSet<>();
+        long previous = 0;
+
+        // when & then - more IDs than the 4096 counter values of one millisecond
+        for (int i = 0; i < 20_000; i++) {
+            long id = generator.next();
+            assertTrue(id > previous);
+            assertEquals(MessageIdGenerator.MAX_NODE_ID, (id >>> 12) & MessageIdGenerator.MAX_NODE_ID);
+            ids.add(id);
+            previous = id;
+        }
+        assertEquals(20_000, ids.size());
+    }
+
+    @Test
+    void shouldRejectNodeIdOutOfRange() {
+        // when & then
+        assertThrows(IllegalArgumentException.class, () -> new MessageIdGenerator(-1));
+        assertThrows(IllegalArgumentException.class, () -> new MessageIdGenerator(1024));
+    }
+}
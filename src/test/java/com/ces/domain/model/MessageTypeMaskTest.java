@@ -0,0 +1,55 @@
+package com.ces.domain.model;
+
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header.MessageType;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for MessageTypeMask.
+ */
+class MessageTypeMaskTest {
+
+    @Test
+    void shouldMapEveryKnownMessageTypeToItsOwnBit() {
+        // given
+        long seen = MessageTypeMask.NONE;
+
+        // when & then
+        for (MessageType messageType : MessageType.values()) {
+            if (messageType == MessageType.UnknownMessageType || messageType == MessageType.UNRECOGNIZED) {
+                continue;
+            }
+            long bit = MessageTypeMask.bit(messageType);
+            assertEquals(1, Long.bitCount(bit));
+            assertEquals(0, seen & bit, "Bit shared by " + messageType);
+            seen |= bit;
+        }
+        assertEquals(1L << 1, MessageTypeMask.bit(MessageType.WalletTransaction));
+    }
+
+    @Test
+    void shouldAcceptOnlySubscribedTypes() {
+        // given
+        long mask = MessageTypeMask.of(Set.of(MessageType.Login, MessageType.Logout));
+
+        // when & then
+        assertTrue(MessageTypeMask.accepts(mask, MessageType.Login));
+        assertTrue(MessageTypeMask.accepts(mask, MessageType.Logout));
+        assertFalse(MessageTypeMask.accepts(mask, MessageType.WalletTransaction));
+        assertFalse(MessageTypeMask.accepts(mask, MessageType.UnknownMessageType));
+    }
+
+    @Test
+    void shouldSubscribeToAllTypesWhenNoneAreGiven() {
+        // when
+        long mask = MessageTypeMask.of(Set.of());
+
+        // then
+        assertEquals(MessageTypeMask.ALL, mask);
+        assertTrue(MessageTypeMask.accepts(mask, MessageType.UnknownMessageType));
+        assertTrue(MessageTypeMask.accepts(MessageTypeMask.of(null), MessageType.ExtendSession));
+    }
+}
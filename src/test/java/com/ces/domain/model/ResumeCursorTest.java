@@ -0,0 +1,58 @@
+package com.ces.domain.model;
+
+import com.lnw.expressway.messages.v1.FeedMessageProto.FeedMessage;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header.Identifier.SequencingKey;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ResumeCursor value object.
+ */
+class ResumeCursorTest {
+
+    private FeedMessage createFeedMessage(SequencingKey key, long sequenceId) {
+        return FeedMessage.newBuilder()
+                .setHeader(Header.newBuilder()
+                        .setIdentifier(Header.Identifier.newBuilder()
+                                .setKey(key)
+                                .setSequenceId(sequenceId)
+                                .build())
+                        .build())
+                .build();
+    }
+
+    @Test
+    void shouldParseTextualForm() {
+        // when
+        ResumeCursor cursor = ResumeCursor.parse("OPS_Payment:2025010301300000000");
+
+        // then
+        assertEquals(SequencingKey.OPS_Payment, cursor.getKey());
+        assertEquals(2025010301300000000L, cursor.getSequenceId());
+        assertEquals("OPS_Payment:2025010301300000000", cursor.toString());
+    }
+
+    @Test
+    void shouldMatchOnlyTheMessageItPointsAt() {
+        // given
+        ResumeCursor cursor = ResumeCursor.of(createFeedMessage(SequencingKey.OPS_Account, 42));
+
+        // when & then
+        assertTrue(cursor.matches(createFeedMessage(SequencingKey.OPS_Account, 42)));
+        assertFalse(cursor.matches(createFeedMessage(SequencingKey.OPS_Account, 43)));
+        assertFalse(cursor.matches(createFeedMessage(SequencingKey.OPS_Payment, 42)));
+    }
+
+    @Test
+    void shouldRejectMalformedCursors() {
+        // when & then
+        assertThrows(IllegalArgumentException.class, () -> ResumeCursor.parse(null));
+        assertThrows(IllegalArgumentException.class, () -> ResumeCursor.parse("OPS_Account"));
+        assertThrows(IllegalArgumentException.class, () -> ResumeCursor.parse("OPS_Account:"));
+        assertThrows(IllegalArgumentException.class, () -> ResumeCursor.parse("Unknown:1"));
+        assertThrows(IllegalArgumentException.class, () -> ResumeCursor.parse("OPS_Account:abc"));
+        assertThrows(IllegalArgumentException.class, () -> ResumeCursor.parse("UnknownKey:1"));
+    }
+}
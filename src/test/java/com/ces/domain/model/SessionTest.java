@@ -54,6 +54,49 @@ class SessionTest {
         assertNull(session.getDisconnectedAt());
     }
 
+    @Test
+    void shouldRecordNodeWhileConnected() {
+        // given
+        Session session = new Session(SessionId.generate());
+
+        // when
+        session.connect(7);
+
+        // then
+        assertTrue(session.isActive());
+        assertEquals(7, session.getNodeId());
+
+        // when
+        session.disconnect();
+
+        // then
+        assertEquals(Session.NO_NODE, session.getNodeId());
+    }
+
+    @Test
+    void shouldBeMigratingUntilConnectedOnTargetNode() {
+        // given
+        Session session = new Session(SessionId.generate());
+        session.connect(7);
+
+        // when
+        session.migrate(9);
+
+        // then
+        assertFalse(session.isActive());
+        assertTrue(session.isMigrating());
+        assertEquals(9, session.getNodeId());
+        assertNotNull(session.getDisconnectedAt());
+
+        // when
+        session.connect(9);
+
+        // then
+        assertTrue(session.isActive());
+        assertFalse(session.isMigrating());
+        assertNull(session.getDisconnectedAt());
+    }
+
     @Test
     void shouldReconnectFromDisconnectedStatus() {
         // given
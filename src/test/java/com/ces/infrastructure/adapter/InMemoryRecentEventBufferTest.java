@@ -0,0 +1,82 @@
+package com.ces.infrastructure.adapter;
+
+import com.ces.domain.model.EventMessage;
+import com.ces.domain.model.ResumeCursor;
+import com.ces.domain.model.SessionId;
+import com.lnw.expressway.messages.v1.FeedMessageProto.FeedMessage;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header.Identifier.SequencingKey;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for InMemoryRecentEventBuffer.
+ */
+class InMemoryRecentEventBufferTest {
+
+    private final SessionId sessionId = SessionId.generate();
+
+    private EventMessage createTestMessage(long sequenceId) {
+        FeedMessage feedMessage = FeedMessage.newBuilder()
+                .setHeader(Header.newBuilder()
+                        .setIdentifier(Header.Identifier.newBuilder()
+                                .setKey(SequencingKey.OPS_Account)
+                                .setSequenceId(sequenceId)
+                                .build())
+                        .build())
+                .build();
+        return new EventMessage(sessionId, feedMessage, "test-topic");
+    }
+
+    @Test
+    void shouldReturnMessagesAfterCursorInOrder() {
+        // given
+        InMemoryRecentEventBuffer buffer = new InMemoryRecentEventBuffer(8, Duration.ofMinutes(5));
+        EventMessage first = createTestMessage(1);
+        EventMessage second = createTestMessage(2);
+        EventMessage third = createTestMessage(3);
+        buffer.append(first);
+        buffer.append(second);
+        buffer.append(third);
+
+        // when & then
+        assertEquals(Optional.of(List.of(second, third)),
+                buffer.eventsAfter(sessionId, ResumeCursor.of(first.getFeedMessage())));
+        assertEquals(Optional.of(List.of()),
+                buffer.eventsAfter(sessionId, ResumeCursor.of(third.getFeedMessage())));
+    }
+
+    @Test
+    void shouldNotFindCursorOverwrittenByNewerMessages() {
+        // given
+        InMemoryRecentEventBuffer buffer = new InMemoryRecentEventBuffer(2, Duration.ofMinutes(5));
+        EventMessage first = createTestMessage(1);
+        buffer.append(first);
+        buffer.append(createTestMessage(2));
+        buffer.append(createTestMessage(3));
+
+        // when & then
+        assertTrue(buffer.eventsAfter(sessionId, ResumeCursor.of(first.getFeedMessage())).isEmpty());
+        assertTrue(buffer.eventsAfter(SessionId.generate(), ResumeCursor.of(first.getFeedMessage())).isEmpty());
+    }
+
+    @Test
+    void shouldReturnAllRecentMessagesOldestFirst() {
+        // given
+        InMemoryRecentEventBuffer buffer = new InMemoryRecentEventBuffer(2, Duration.ofMinutes(5));
+        EventMessage second = createTestMessage(2);
+        EventMessage third = createTestMessage(3);
+        buffer.append(createTestMessage(1));
+        buffer.append(second);
+        buffer.append(third);
+
+        // when & then
+        assertEquals(List.of(second, third), buffer.recent(sessionId));
+        assertEquals(List.of(), buffer.recent(SessionId.generate()));
+    }
+}
@@ -0,0 +1,197 @@
+package com.ces.infrastructure.adapter;
+
+import com.ces.domain.filter.ContentFilter;
+import com.ces.domain.filter.ContentFilterCompiler;
+import com.ces.domain.filter.FieldProjection;
+import com.ces.domain.filter.FieldProjectionCompiler;
+import com.ces.domain.model.DeliveryTarget;
+import com.ces.domain.model.MessageTypeMask;
+import com.ces.domain.model.Session;
+import com.ces.domain.model.SessionGroup;
+import com.ces.domain.model.SessionId;
+import com.google.protobuf.FieldMask;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header.MessageType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for InMemorySessionGroupIndex.
+ */
+class InMemorySessionGroupIndexTest {
+
+    private InMemorySessionGroupIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new InMemorySessionGroupIndex();
+    }
+
+    @Test
+    void shouldResolveAccountTenantAndAllMembers() {
+        // given
+        Session phone = new Session(SessionId.of("phone"), 42, "acme");
+        Session desktop = new Session(SessionId.of("desktop"), 42, "acme");
+        Session other = new Session(SessionId.of("other"), 7, "globex");
+
+        // when
+        index.add(phone);
+        index.add(desktop);
+        index.add(other);
+
+        // then
+        assertArrayEquals(new SessionId[] {phone.getSessionId(), desktop.getSessionId()},
+                index.members(DeliveryTarget.account(42)).sessionIds());
+        assertArrayEquals(new SessionId[] {other.getSessionId()},
+                index.members(DeliveryTarget.tenant("globex")).sessionIds());
+        assertEquals(3, index.members(DeliveryTarget.all()).size());
+        assertArrayEquals(new SessionId[] {SessionId.of("x")},
+                index.members(DeliveryTarget.session(SessionId.of("x"))).sessionIds());
+    }
+
+    @Test
+    void shouldReturnSameSnapshotUntilMembershipChanges() {
+        // given
+        Session session = new Session(SessionId.of("phone"), 42, "acme");
+        index.add(session);
+        SessionGroup before = index.members(DeliveryTarget.account(42));
+
+        // when
+        index.add(session);
+        SessionGroup unchanged = index.members(DeliveryTarget.account(42));
+        index.remove(session);
+
+        // then
+        assertSame(before, unchanged);
+        assertEquals(1, before.size());
+        assertEquals(0, index.members(DeliveryTarget.account(42)).size());
+        assertEquals(0, index.members(DeliveryTarget.tenant("acme")).size());
+        assertEquals(0, index.members(DeliveryTarget.all()).size());
+    }
+
+    @Test
+    void shouldRemoveExpiredSessionsFromEveryGroup() {
+        // given
+        Session expired = new Session(SessionId.of("expired"), 42, "acme");
+        Session live = new Session(SessionId.of("live"), 42, "acme");
+        index.add(expired);
+        index.add(live);
+
+        // when
+        int removed = index.removeInactive(sessionIds -> Set.of(live.getSessionId()));
+
+        // then
+        assertEquals(1, removed);
+        assertArrayEquals(new SessionId[] {live.getSessionId()},
+                index.members(DeliveryTarget.account(42)).sessionIds());
+        assertEquals(1, index.members(DeliveryTarget.tenant("acme")).size());
+        assertEquals(1, index.members(DeliveryTarget.all()).size());
+    }
+
+    @Test
+    void shouldKeepSessionsAddedAgainWhileSweeping() {
+        // given
+        Session session = new Session(SessionId.of("phone"), 42, "acme");
+        index.add(session);
+
+        // when - the session reconnects while its expiry is checked
+        int removed = index.removeInactive(sessionIds -> {
+            index.add(session);
+            return Set.of();
+        });
+
+        // then
+        assertEquals(0, removed);
+        assertEquals(1, index.members(DeliveryTarget.account(42)).size());
+    }
+
+    @Test
+    void shouldIndexSessionsWithoutAccountOrTenantOnlyInAll() {
+        // given
+        Session session = new Session(SessionId.generate());
+
+        // when
+        index.add(session);
+
+        // then
+        assertEquals(1, index.members(DeliveryTarget.all()).size());
+        assertEquals(0, index.members(DeliveryTarget.account(42)).size());
+    }
+
+    @Test
+    void shouldKeepMemberSubscriptionMasksAndTheirUnion() {
+        // given
+        long loginOnly = MessageTypeMask.of(Set.of(MessageType.Login));
+        long walletOnly = MessageTypeMask.of(Set.of(MessageType.WalletTransaction));
+        Session phone = new Session(SessionId.of("phone"), 42, "acme", loginOnly);
+        Session desktop = new Session(SessionId.of("desktop"), 42, "acme", walletOnly);
+        index.add(phone);
+        index.add(desktop);
+
+        // when
+        SessionGroup both = index.members(DeliveryTarget.account(42));
+        index.remove(desktop);
+        SessionGroup phoneOnly = index.members(DeliveryTarget.account(42));
+
+        // then
+        assertArrayEquals(new long[] {loginOnly, walletOnly}, both.subscriptionMasks());
+        assertTrue(both.accepts(MessageType.WalletTransaction));
+        assertFalse(both.accepts(MessageType.Logout));
+        assertFalse(phoneOnly.accepts(MessageType.WalletTransaction));
+        assertTrue(phoneOnly.accepts(MessageType.Login));
+    }
+
+    @Test
+    void shouldHoldEachDistinctContentFilterOnce() {
+        // given
+        ContentFilterCompiler compiler = new ContentFilterCompiler();
+        ContentFilter bigWins = compiler.compile("trans_payload.delta_cash > 100");
+        Session phone = new Session(SessionId.of("phone"), 42, "acme", MessageTypeMask.ALL, bigWins);
+        Session desktop = new Session(SessionId.of("desktop"), 7, "acme", MessageTypeMask.ALL, bigWins);
+        Session tablet = new Session(SessionId.of("tablet"), 9, "acme");
+        index.add(phone);
+        index.add(desktop);
+        index.add(tablet);
+
+        // when
+        SessionGroup all = index.members(DeliveryTarget.tenant("acme"));
+        index.remove(phone);
+        index.remove(desktop);
+        SessionGroup unfiltered = index.members(DeliveryTarget.tenant("acme"));
+
+        // then
+        assertArrayEquals(new ContentFilter[] {bigWins}, all.filters());
+        assertArrayEquals(new int[] {0, 0, -1}, all.filterSlots());
+        assertEquals(0, unfiltered.filters().length);
+        assertArrayEquals(new int[] {-1}, unfiltered.filterSlots());
+    }
+
+    @Test
+    void shouldHoldEachDistinctFieldProjectionOnce() {
+        // given
+        FieldProjectionCompiler compiler = new FieldProjectionCompiler();
+        FieldProjection balances = compiler.compile(Map.of(MessageType.WalletTransaction,
+                FieldMask.newBuilder().addPaths("account_id").addPaths("delta_cash").build()));
+        Session phone = new Session(SessionId.of("phone"), 42, "acme", MessageTypeMask.ALL, null, balances);
+        Session tablet = new Session(SessionId.of("tablet"), 9, "acme");
+        Session desktop = new Session(SessionId.of("desktop"), 7, "acme", MessageTypeMask.ALL, null, balances);
+        index.add(phone);
+        index.add(tablet);
+        index.add(desktop);
+
+        // when
+        SessionGroup all = index.members(DeliveryTarget.tenant("acme"));
+        index.remove(phone);
+        SessionGroup remaining = index.members(DeliveryTarget.tenant("acme"));
+
+        // then
+        assertArrayEquals(new FieldProjection[] {balances}, all.projections());
+        assertArrayEquals(new int[] {0, -1, 0}, all.projectionSlots());
+        assertArrayEquals(new FieldProjection[] {balances}, remaining.projections());
+        assertArrayEquals(new int[] {-1, 0}, remaining.projectionSlots());
+    }
+}
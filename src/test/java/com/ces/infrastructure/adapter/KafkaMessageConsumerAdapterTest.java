@@ -1,25 +1,40 @@
 package com.ces.infrastructure.adapter;
 
 import com.ces.application.port.input.DeliverMessageUseCase;
+import com.ces.domain.model.DeliveryTarget;
 import com.ces.domain.model.EventMessage;
+import com.ces.domain.model.MessageIdGenerator;
+import com.ces.domain.model.MessageTypeMask;
+import com.ces.infrastructure.kafka.FeedRecord;
+import com.ces.infrastructure.kafka.LoadShedder;
+import com.ces.infrastructure.kafka.MessageTypeFilter;
+import com.ces.infrastructure.kafka.SequenceDeduplicator;
+import com.ces.infrastructure.kafka.SequenceReorderer;
 import com.google.protobuf.Timestamp;
+import com.lnw.expressway.messages.v1.FeedMessageProto.BlocklistLogPayload;
 import com.lnw.expressway.messages.v1.FeedMessageProto.FeedMessage;
 import com.lnw.expressway.messages.v1.FeedMessageProto.Header;
 import com.lnw.expressway.messages.v1.FeedMessageProto.LoginPayload;
 import com.lnw.expressway.messages.v1.FeedMessageProto.LogoutPayload;
 import com.lnw.expressway.messages.v1.FeedMessageProto.TransPayload;
 import com.lnw.expressway.messages.v1.FeedMessageProto.RegistrationPayload;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.support.Acknowledgment;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 /**
@@ -30,18 +45,35 @@ import static org.mockito.Mockito.*;
 @ExtendWith(MockitoExtension.class)
 class KafkaMessageConsumerAdapterTest {
 
+    private static final long RECORD_TIMESTAMP = 1_759_344_300_000L;
+
     @Mock
     private DeliverMessageUseCase deliverMessageUseCase;
 
+    @Mock
+    private Acknowledgment acknowledgment;
+
     private KafkaMessageConsumerAdapter adapter;
 
+    private long nextSequenceId = 123456789L;
+
     @BeforeEach
     void setUp() {
-        adapter = new KafkaMessageConsumerAdapter(deliverMessageUseCase);
+        adapter = new KafkaMessageConsumerAdapter(
+                deliverMessageUseCase,
+                new SequenceDeduplicator(1024, new SimpleMeterRegistry()),
+                SequenceReorderer.disabled(),
+                new MessageIdGenerator(1),
+                MessageTypeFilter.disabled(),
+                LoadShedder.disabled());
     }
 
     // Helper methods to create test FeedMessages
 
+    private static FeedRecord record(FeedMessage feedMessage) {
+        return new FeedRecord(feedMessage.toByteArray(), feedMessage.getHeader());
+    }
+
     private Timestamp createTimestamp() {
         Instant now = Instant.now();
         return Timestamp.newBuilder()
@@ -56,7 +88,7 @@ class KafkaMessageConsumerAdapterTest {
                 .setMessageType(messageType)
                 .setIdentifier(Header.Identifier.newBuilder()
                         .setKey(Header.Identifier.SequencingKey.OPS_Account)
-                        .setSequenceId(123456789L)
+                        .setSequenceId(nextSequenceId++)
                         .setUuid("test-uuid-123")
                         .build())
                 .setSystemRef(Header.SystemRef.newBuilder()
@@ -134,7 +166,7 @@ class KafkaMessageConsumerAdapterTest {
         ArgumentCaptor<EventMessage> eventMessageCaptor = ArgumentCaptor.forClass(EventMessage.class);
 
         // when
-        adapter.consume(feedMessage, topic, sessionIdValue);
+        adapter.consume(record(feedMessage), topic, sessionIdValue, RECORD_TIMESTAMP, acknowledgment);
 
         // then
         verify(deliverMessageUseCase).deliver(eventMessageCaptor.capture());
@@ -156,7 +188,7 @@ class KafkaMessageConsumerAdapterTest {
         ArgumentCaptor<EventMessage> eventMessageCaptor = ArgumentCaptor.forClass(EventMessage.class);
 
         // when
-        adapter.consume(feedMessage, topic, null);
+        adapter.consume(record(feedMessage), topic, null, RECORD_TIMESTAMP, acknowledgment);
 
         // then
         verify(deliverMessageUseCase).deliver(eventMessageCaptor.capture());
@@ -179,7 +211,7 @@ class KafkaMessageConsumerAdapterTest {
         ArgumentCaptor<EventMessage> eventMessageCaptor = ArgumentCaptor.forClass(EventMessage.class);
 
         // when
-        adapter.consume(feedMessage, topic, sessionIdValue);
+        adapter.consume(record(feedMessage), topic, sessionIdValue, RECORD_TIMESTAMP, acknowledgment);
 
         // then
         verify(deliverMessageUseCase).deliver(eventMessageCaptor.capture());
@@ -200,7 +232,7 @@ class KafkaMessageConsumerAdapterTest {
         ArgumentCaptor<EventMessage> eventMessageCaptor = ArgumentCaptor.forClass(EventMessage.class);
 
         // when
-        adapter.consume(feedMessage, topic, sessionIdValue);
+        adapter.consume(record(feedMessage), topic, sessionIdValue, RECORD_TIMESTAMP, acknowledgment);
 
         // then
         verify(deliverMessageUseCase).deliver(eventMessageCaptor.capture());
@@ -221,7 +253,7 @@ class KafkaMessageConsumerAdapterTest {
         ArgumentCaptor<EventMessage> eventMessageCaptor = ArgumentCaptor.forClass(EventMessage.class);
 
         // when
-        adapter.consume(feedMessage, topic, null);
+        adapter.consume(record(feedMessage), topic, null, RECORD_TIMESTAMP, acknowledgment);
 
         // then
         verify(deliverMessageUseCase).deliver(eventMessageCaptor.capture());
@@ -232,6 +264,21 @@ class KafkaMessageConsumerAdapterTest {
         assertEquals("444555666", capturedMessage.getTargetSessionId().getValue());
     }
 
+    @Test
+    void shouldReadAccountIdAsUnsigned() {
+        // given - account_id is a uint32, so this arrives as a negative int
+        FeedMessage feedMessage = createTransMessage((int) 3_000_000_000L);
+
+        ArgumentCaptor<EventMessage> eventMessageCaptor = ArgumentCaptor.forClass(EventMessage.class);
+
+        // when
+        adapter.consume(record(feedMessage), "wallet-transactions", null, RECORD_TIMESTAMP, acknowledgment);
+
+        // then - the same key the repartition stage gives the account
+        verify(deliverMessageUseCase).deliver(eventMessageCaptor.capture());
+        assertEquals("3000000000", eventMessageCaptor.getValue().getTargetSessionId().getValue());
+    }
+
     @Test
     void shouldConsumeRegistrationMessage() {
         // given
@@ -242,7 +289,7 @@ class KafkaMessageConsumerAdapterTest {
         ArgumentCaptor<EventMessage> eventMessageCaptor = ArgumentCaptor.forClass(EventMessage.class);
 
         // when
-        adapter.consume(feedMessage, topic, sessionIdValue);
+        adapter.consume(record(feedMessage), topic, sessionIdValue, RECORD_TIMESTAMP, acknowledgment);
 
         // then
         verify(deliverMessageUseCase).deliver(eventMessageCaptor.capture());
@@ -263,8 +310,8 @@ class KafkaMessageConsumerAdapterTest {
         String sessionId2 = "session-2";
 
         // when
-        adapter.consume(message1, topic, sessionId1);
-        adapter.consume(message2, topic, sessionId2);
+        adapter.consume(record(message1), topic, sessionId1, RECORD_TIMESTAMP, acknowledgment);
+        adapter.consume(record(message2), topic, sessionId2, RECORD_TIMESTAMP, acknowledgment);
 
         // then
         verify(deliverMessageUseCase, times(2)).deliver(any(EventMessage.class));
@@ -280,7 +327,7 @@ class KafkaMessageConsumerAdapterTest {
         ArgumentCaptor<EventMessage> eventMessageCaptor = ArgumentCaptor.forClass(EventMessage.class);
 
         // when
-        adapter.consume(feedMessage, topic, sessionIdValue);
+        adapter.consume(record(feedMessage), topic, sessionIdValue, RECORD_TIMESTAMP, acknowledgment);
 
         // then
         verify(deliverMessageUseCase).deliver(eventMessageCaptor.capture());
@@ -301,7 +348,7 @@ class KafkaMessageConsumerAdapterTest {
 
         // when & then
         RuntimeException thrown = assertThrows(RuntimeException.class, 
-            () -> adapter.consume(feedMessage, topic, sessionIdValue));
+            () -> adapter.consume(record(feedMessage), topic, sessionIdValue, RECORD_TIMESTAMP, acknowledgment));
         
         assertEquals("Delivery failed", thrown.getMessage());
         verify(deliverMessageUseCase).deliver(any(EventMessage.class));
@@ -317,8 +364,8 @@ class KafkaMessageConsumerAdapterTest {
         ArgumentCaptor<EventMessage> eventMessageCaptor = ArgumentCaptor.forClass(EventMessage.class);
 
         // when - both without session ID header, forcing extraction from payload
-        adapter.consume(message1, topic, null);
-        adapter.consume(message2, topic, null);
+        adapter.consume(record(message1), topic, null, RECORD_TIMESTAMP, acknowledgment);
+        adapter.consume(record(message2), topic, null, RECORD_TIMESTAMP, acknowledgment);
 
         // then
         verify(deliverMessageUseCase, times(2)).deliver(eventMessageCaptor.capture());
@@ -332,10 +379,205 @@ class KafkaMessageConsumerAdapterTest {
         assertEquals("222222222", secondMessage.getTargetSessionId().getValue());
     }
 
+    @Test
+    void shouldDropRedeliveredMessage() {
+        // given
+        FeedMessage feedMessage = createLoginMessage(123456789);
+        String topic = "test-topic";
+
+        // when
+        adapter.consume(record(feedMessage), topic, null, RECORD_TIMESTAMP, acknowledgment);
+        adapter.consume(record(feedMessage), topic, null, RECORD_TIMESTAMP, acknowledgment);
+
+        // then
+        verify(deliverMessageUseCase, times(1)).deliver(any(EventMessage.class));
+        verify(acknowledgment, times(2)).acknowledge();
+    }
+
+    @Test
+    void shouldDeliverRedeliveredMessageAfterFailedDelivery() {
+        // given
+        FeedMessage feedMessage = createLoginMessage(123456789);
+        String topic = "test-topic";
+        doThrow(new RuntimeException("Delivery failed"))
+                .doNothing()
+                .when(deliverMessageUseCase).deliver(any(EventMessage.class));
+        assertThrows(RuntimeException.class,
+                () -> adapter.consume(record(feedMessage), topic, null, RECORD_TIMESTAMP, acknowledgment));
+
+        // when
+        adapter.consume(record(feedMessage), topic, null, RECORD_TIMESTAMP, acknowledgment);
+
+        // then
+        verify(deliverMessageUseCase, times(2)).deliver(any(EventMessage.class));
+        verify(acknowledgment, times(1)).acknowledge();
+    }
+
+    @Test
+    void shouldDropMessageTypesNoSessionSubscribedTo() {
+        // given
+        InMemoryMessageTypeSubscriptions subscriptions = new InMemoryMessageTypeSubscriptions();
+        subscriptions.add(MessageTypeMask.bit(Header.MessageType.Logout));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        KafkaMessageConsumerAdapter filteringAdapter = new KafkaMessageConsumerAdapter(
+                deliverMessageUseCase,
+                SequenceDeduplicator.disabled(),
+                SequenceReorderer.disabled(),
+                new MessageIdGenerator(1),
+                new MessageTypeFilter(subscriptions, meterRegistry),
+                LoadShedder.disabled());
+
+        // when
+        filteringAdapter.consume(
+                record(createLoginMessage(123456789)), "test-topic", null, RECORD_TIMESTAMP, acknowledgment);
+
+        // then
+        verify(deliverMessageUseCase, never()).deliver(any(EventMessage.class));
+        assertEquals(1, meterRegistry.get("ces.kafka.unsubscribed.dropped").counter().count());
+    }
+
+    @Test
+    void shouldIgnoreRecordsSkippedWhileCatchingUp() {
+        // given
+        FeedRecord skipped = FeedRecord.skipped(createLoginMessage(123456789).getHeader());
+
+        // when
+        adapter.consume(skipped, "test-topic", null, RECORD_TIMESTAMP, acknowledgment);
+
+        // then
+        verify(deliverMessageUseCase, never()).deliver(any(EventMessage.class));
+        verify(acknowledgment).acknowledge();
+    }
+
+    @Test
+    void shouldNotHoldSuccessorsOfRecordsSkippedWhileCatchingUp() {
+        // given
+        SequenceReorderer reorderer = new SequenceReorderer(
+                deliverMessageUseCase::deliver,
+                Set.of(Header.Identifier.SequencingKey.OPS_Account),
+                16,
+                Duration.ofMinutes(1),
+                new SimpleMeterRegistry());
+        KafkaMessageConsumerAdapter reorderingAdapter = new KafkaMessageConsumerAdapter(
+                deliverMessageUseCase,
+                SequenceDeduplicator.disabled(),
+                reorderer,
+                new MessageIdGenerator(1),
+                MessageTypeFilter.disabled(),
+                LoadShedder.disabled());
+        FeedMessage first = createLoginMessage(123456789);
+        FeedRecord skipped = FeedRecord.skipped(createLoginMessage(123456789).getHeader());
+        FeedMessage third = createLoginMessage(123456789);
+        Acknowledgment skippedAck = mock(Acknowledgment.class);
+
+        try {
+            // when
+            reorderingAdapter.consume(record(first), "test-topic", null, RECORD_TIMESTAMP, acknowledgment);
+            reorderingAdapter.consume(skipped, "test-topic", null, RECORD_TIMESTAMP, skippedAck);
+            reorderingAdapter.consume(record(third), "test-topic", null, RECORD_TIMESTAMP, acknowledgment);
+
+            // then - the skipped sequence ID is consumed, not a gap holding back the third
+            verify(deliverMessageUseCase, times(2)).deliver(any(EventMessage.class));
+            verify(skippedAck).acknowledge();
+            verify(acknowledgment, times(2)).acknowledge();
+        } finally {
+            reorderer.close();
+        }
+    }
+
+    @Test
+    void shouldAcknowledgeHeldRecordsOnlyOnceReleased() {
+        // given
+        SequenceReorderer reorderer = new SequenceReorderer(
+                deliverMessageUseCase::deliver,
+                Set.of(Header.Identifier.SequencingKey.OPS_Account),
+                16,
+                Duration.ofMinutes(1),
+                new SimpleMeterRegistry());
+        KafkaMessageConsumerAdapter reorderingAdapter = new KafkaMessageConsumerAdapter(
+                deliverMessageUseCase,
+                SequenceDeduplicator.disabled(),
+                reorderer,
+                new MessageIdGenerator(1),
+                MessageTypeFilter.disabled(),
+                LoadShedder.disabled());
+        FeedMessage first = createLoginMessage(123456789);
+        FeedMessage second = createLoginMessage(123456789);
+        FeedMessage third = createLoginMessage(123456789);
+        Acknowledgment firstAck = mock(Acknowledgment.class);
+        Acknowledgment secondAck = mock(Acknowledgment.class);
+        Acknowledgment thirdAck = mock(Acknowledgment.class);
+
+        try {
+            // when
+            reorderingAdapter.consume(record(first), "test-topic", null, RECORD_TIMESTAMP, firstAck);
+            reorderingAdapter.consume(record(third), "test-topic", null, RECORD_TIMESTAMP, thirdAck);
+
+            // then
+            verify(firstAck).acknowledge();
+            verify(thirdAck, never()).acknowledge();
+
+            // when
+            reorderingAdapter.consume(record(second), "test-topic", null, RECORD_TIMESTAMP, secondAck);
+
+            // then
+            InOrder inOrder = inOrder(deliverMessageUseCase, secondAck, thirdAck);
+            inOrder.verify(secondAck).acknowledge();
+            inOrder.verify(deliverMessageUseCase).deliver(argThat(message -> message.getFeedMessage().equals(third)));
+            inOrder.verify(thirdAck).acknowledge();
+        } finally {
+            reorderer.close();
+        }
+    }
+
+    @Test
+    void shouldNotHoldSuccessorsOfShedRecords() {
+        // given
+        SequenceReorderer reorderer = new SequenceReorderer(
+                deliverMessageUseCase::deliver,
+                Set.of(Header.Identifier.SequencingKey.OPS_Account),
+                16,
+                Duration.ofMinutes(1),
+                new SimpleMeterRegistry());
+        LoadShedder loadShedder = mock(LoadShedder.class);
+        KafkaMessageConsumerAdapter sheddingAdapter = new KafkaMessageConsumerAdapter(
+                deliverMessageUseCase,
+                SequenceDeduplicator.disabled(),
+                reorderer,
+                new MessageIdGenerator(1),
+                MessageTypeFilter.disabled(),
+                loadShedder);
+        FeedMessage first = createLoginMessage(123456789);
+        FeedMessage shed = createLoginMessage(123456789);
+        FeedMessage third = createLoginMessage(123456789);
+        when(loadShedder.accepts(any(Header.class)))
+                .thenAnswer(invocation -> invocation.getArgument(0) != shed.getHeader());
+        Acknowledgment shedAck = mock(Acknowledgment.class);
+        Acknowledgment thirdAck = mock(Acknowledgment.class);
+
+        try {
+            // when
+            sheddingAdapter.consume(record(first), "test-topic", null, RECORD_TIMESTAMP, acknowledgment);
+            sheddingAdapter.consume(record(shed), "test-topic", null, RECORD_TIMESTAMP, shedAck);
+            sheddingAdapter.consume(record(third), "test-topic", null, RECORD_TIMESTAMP, thirdAck);
+
+            // then - the shed sequence ID is consumed, not a gap holding back the third
+            verify(deliverMessageUseCase, times(2)).deliver(any(EventMessage.class));
+            verify(deliverMessageUseCase).deliver(argThat(message -> message.getFeedMessage().equals(third)));
+            verify(shedAck).acknowledge();
+            verify(thirdAck).acknowledge();
+        } finally {
+            reorderer.close();
+        }
+    }
+
     @Test
     void shouldCreateAdapterWithNonNullUseCase() {
         // when
-        KafkaMessageConsumerAdapter newAdapter = new KafkaMessageConsumerAdapter(deliverMessageUseCase);
+        KafkaMessageConsumerAdapter newAdapter =
+                new KafkaMessageConsumerAdapter(
+                        deliverMessageUseCase, SequenceDeduplicator.disabled(), SequenceReorderer.disabled(),
+                        MessageIdGenerator.local(), MessageTypeFilter.disabled(), LoadShedder.disabled());
 
         // then
         assertNotNull(newAdapter);
@@ -351,7 +593,7 @@ class KafkaMessageConsumerAdapterTest {
         ArgumentCaptor<EventMessage> eventMessageCaptor = ArgumentCaptor.forClass(EventMessage.class);
 
         // when
-        adapter.consume(feedMessage, topic, sessionIdValue);
+        adapter.consume(record(feedMessage), topic, sessionIdValue, RECORD_TIMESTAMP, acknowledgment);
 
         // then
         verify(deliverMessageUseCase).deliver(eventMessageCaptor.capture());
@@ -365,4 +607,59 @@ class KafkaMessageConsumerAdapterTest {
         assertNotNull(capturedMessage.getFeedMessage().getHeader().getTimestamp());
         assertNotNull(capturedMessage.getFeedMessage().getHeader().getIdentifier());
     }
+
+    @Test
+    void shouldTakeMessageIdFromIdentifierAndTimestampFromRecord() {
+        // given
+        FeedMessage feedMessage = createLoginMessage(123456789);
+        long sequenceId = feedMessage.getHeader().getIdentifier().getSequenceId();
+        ArgumentCaptor<EventMessage> eventMessageCaptor = ArgumentCaptor.forClass(EventMessage.class);
+
+        // when
+        adapter.consume(record(feedMessage), "test-topic", null, RECORD_TIMESTAMP, acknowledgment);
+
+        // then
+        verify(deliverMessageUseCase).deliver(eventMessageCaptor.capture());
+        EventMessage capturedMessage = eventMessageCaptor.getValue();
+        assertEquals("OPS_Account:" + sequenceId, capturedMessage.getMessageId());
+        assertEquals(Instant.ofEpochMilli(RECORD_TIMESTAMP), capturedMessage.getTimestamp());
+    }
+
+    @Test
+    void shouldKeepRecordBytesAsEncodedMessage() {
+        // given
+        FeedRecord record = record(createTransMessage(444555666));
+        ArgumentCaptor<EventMessage> eventMessageCaptor = ArgumentCaptor.forClass(EventMessage.class);
+
+        // when
+        adapter.consume(record, "test-topic", null, RECORD_TIMESTAMP, acknowledgment);
+
+        // then - the record is neither re-encoded nor copied
+        verify(deliverMessageUseCase).deliver(eventMessageCaptor.capture());
+        EventMessage capturedMessage = eventMessageCaptor.getValue();
+        assertSame(record.data(), capturedMessage.getEncoded());
+        assertEquals(Header.MessageType.WalletTransaction, capturedMessage.getMessageType());
+        assertEquals("444555666", capturedMessage.getTargetSessionId().getValue());
+    }
+
+    @Test
+    void shouldDeliverBlocklistEventsToTheirTenant() {
+        // given
+        FeedMessage feedMessage = FeedMessage.newBuilder()
+                .setHeader(createHeader(Header.MessageType.BlocklistLog))
+                .setBlockListLogPayload(BlocklistLogPayload.newBuilder()
+                        .setId(1)
+                        .setOperatorName("test-operator")
+                        .build())
+                .build();
+        ArgumentCaptor<EventMessage> eventMessageCaptor = ArgumentCaptor.forClass(EventMessage.class);
+
+        // when
+        adapter.consume(record(feedMessage), "test-topic", null, RECORD_TIMESTAMP, acknowledgment);
+
+        // then
+        verify(deliverMessageUseCase).deliver(eventMessageCaptor.capture());
+        assertEquals(DeliveryTarget.tenant("test-tenant"), eventMessageCaptor.getValue().getTarget());
+        assertNull(eventMessageCaptor.getValue().getTargetSessionId());
+    }
 }
@@ -0,0 +1,156 @@
+package com.ces.infrastructure.adapter;
+
+import com.ces.domain.model.EventMessage;
+import com.ces.domain.model.SessionId;
+import com.lnw.expressway.messages.v1.FeedMessageProto.FeedMessage;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for MVStoreOfflineMessageStore.
+ */
+class MVStoreOfflineMessageStoreTest {
+
+    private static final Instant NOW = Instant.parse("2025-01-03T13:00:00Z");
+
+    @TempDir
+    Path tempDir;
+
+    private Path file;
+    private MVStoreOfflineMessageStore store;
+
+    @BeforeEach
+    void setUp() {
+        file = tempDir.resolve("offline.mv");
+        store = open(NOW);
+    }
+
+    @AfterEach
+    void tearDown() {
+        store.close();
+    }
+
+    private MVStoreOfflineMessageStore open(Instant now) {
+        return new MVStoreOfflineMessageStore(file, 1, Duration.ofHours(1), 3, Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    private EventMessage createTestMessage(SessionId sessionId, long sequenceId) {
+        FeedMessage feedMessage = FeedMessage.newBuilder()
+                .setHeader(Header.newBuilder()
+                        .setMessageType(Header.MessageType.Login)
+                        .setIdentifier(Header.Identifier.newBuilder()
+                                .setKey(Header.Identifier.SequencingKey.OPS_Account)
+                                .setSequenceId(sequenceId)
+                                .build())
+                        .build())
+                .build();
+        return new EventMessage("message-" + sequenceId, sessionId, feedMessage, "test-topic", NOW);
+    }
+
+    private List<EventMessage> drain(SessionId sessionId) {
+        List<EventMessage> drained = new ArrayList<>();
+        store.drain(sessionId, drained::add);
+        return drained;
+    }
+
+    @Test
+    void shouldDrainMessagesInStoredOrder() {
+        // given
+        SessionId sessionId = SessionId.generate();
+        SessionId otherSessionId = SessionId.generate();
+        store.store(createTestMessage(sessionId, 1));
+        store.store(createTestMessage(otherSessionId, 2));
+        store.store(createTestMessage(sessionId, 3));
+
+        // when
+        List<EventMessage> drained = drain(sessionId);
+
+        // then
+        assertEquals(List.of("message-1", "message-3"), drained.stream().map(EventMessage::getMessageId).toList());
+        assertEquals(3, drained.get(1).getFeedMessage().getHeader().getIdentifier().getSequenceId());
+        assertEquals(NOW, drained.get(0).getTimestamp());
+        assertEquals(0, store.size(sessionId));
+        assertEquals(1, store.size(otherSessionId));
+    }
+
+    @Test
+    void shouldDropOldestMessageWhenQueueIsFull() {
+        // given
+        SessionId sessionId = SessionId.generate();
+
+        // when
+        for (int i = 1; i <= 5; i++) {
+            store.store(createTestMessage(sessionId, i));
+        }
+
+        // then
+        assertEquals(3, store.size(sessionId));
+        assertEquals(List.of("message-3", "message-4", "message-5"),
+                drain(sessionId).stream().map(EventMessage::getMessageId).toList());
+    }
+
+    @Test
+    void shouldKeepQueuedMessagesAcrossRestart() {
+        // given
+        SessionId sessionId = SessionId.generate();
+        store.store(createTestMessage(sessionId, 1));
+        store.store(createTestMessage(sessionId, 2));
+
+        // when
+        store.close();
+        store = open(NOW);
+        store.store(createTestMessage(sessionId, 3));
+
+        // then
+        assertEquals(3, store.size(sessionId));
+        assertEquals(List.of("message-1", "message-2", "message-3"),
+                drain(sessionId).stream().map(EventMessage::getMessageId).toList());
+    }
+
+    @Test
+    void shouldNotDeliverOrKeepExpiredMessages() {
+        // given
+        SessionId sessionId = SessionId.generate();
+        SessionId otherSessionId = SessionId.generate();
+        store.store(createTestMessage(sessionId, 1));
+        store.store(createTestMessage(otherSessionId, 2));
+
+        // when
+        store.close();
+        store = open(NOW.plus(Duration.ofHours(2)));
+        int purged = store.purgeExpired();
+
+        // then
+        assertEquals(2, purged);
+        assertEquals(0, store.size(sessionId));
+        assertEquals(0, store.size(otherSessionId));
+        assertTrue(drain(sessionId).isEmpty());
+    }
+
+    @Test
+    void shouldDiscardQueuedMessages() {
+        // given
+        SessionId sessionId = SessionId.generate();
+        store.store(createTestMessage(sessionId, 1));
+
+        // when
+        store.discard(sessionId);
+
+        // then
+        assertEquals(0, store.size(sessionId));
+        assertTrue(drain(sessionId).isEmpty());
+    }
+}
@@ -13,8 +13,10 @@ import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.ValueOperations;
 
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.*;
@@ -145,6 +147,31 @@ class RedisSessionRegistryTest {
         assertThat(result).isFalse();
     }
 
+    @Test
+    void findActive_shouldReadAllSessionsInOneLookup() {
+        // Given
+        Session connected = new Session(SessionId.generate());
+        connected.connect();
+        Session disconnected = new Session(SessionId.generate());
+        disconnected.connect();
+        disconnected.disconnect();
+        SessionId missing = SessionId.generate();
+        List<SessionId> sessionIds = List.of(connected.getSessionId(), disconnected.getSessionId(), missing);
+
+        when(valueOperations.multiGet(List.of(
+                "ces:session:" + connected.getSessionId().getValue(),
+                "ces:session:" + disconnected.getSessionId().getValue(),
+                "ces:session:" + missing.getValue())))
+                .thenReturn(Arrays.asList(connected, disconnected, null));
+
+        // When
+        Set<SessionId> result = registry.findActive(sessionIds);
+
+        // Then
+        assertThat(result).containsExactly(connected.getSessionId());
+        verify(valueOperations, never()).get(anyString());
+    }
+
     @Test
     void updateHeartbeat_shouldUpdateSessionInRedis() {
         // Given
@@ -0,0 +1,149 @@
+package com.ces.infrastructure.adapter;
+
+import com.ces.domain.filter.ContentFilter;
+import com.ces.domain.filter.ContentFilterCompiler;
+import com.ces.domain.filter.FieldProjection;
+import com.ces.domain.filter.FieldProjectionCompiler;
+import com.ces.domain.model.MessageTypeMask;
+import com.ces.domain.model.Session;
+import com.ces.domain.model.SessionId;
+import com.ces.domain.model.SessionStatus;
+import com.google.protobuf.FieldMask;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header.MessageType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SessionRedisSerializer.
+ */
+class SessionRedisSerializerTest {
+
+    private ContentFilterCompiler compiler;
+    private FieldProjectionCompiler projectionCompiler;
+    private SessionRedisSerializer serializer;
+
+    @BeforeEach
+    void setUp() {
+        compiler = new ContentFilterCompiler();
+        projectionCompiler = new FieldProjectionCompiler();
+        serializer = new SessionRedisSerializer(compiler, projectionCompiler);
+    }
+
+    @Test
+    void shouldRoundTripSessionState() {
+        // given
+        long mask = MessageTypeMask.of(Set.of(MessageType.WalletTransaction));
+        Session session = new Session(SessionId.of("session-1"), 42, "acme", mask);
+        session.connect();
+
+        // when
+        Session restored = serializer.deserialize(serializer.serialize(session));
+
+        // then
+        assertEquals(session.getSessionId(), restored.getSessionId());
+        assertEquals(42, restored.getAccountId());
+        assertEquals("acme", restored.getTenant());
+        assertEquals(mask, restored.getSubscriptionMask());
+        assertEquals(SessionStatus.CONNECTED, restored.getStatus());
+        assertEquals(session.getCreatedAt(), restored.getCreatedAt());
+        assertEquals(session.getLastHeartbeatAt(), restored.getLastHeartbeatAt());
+        assertNull(restored.getDisconnectedAt());
+        assertNull(restored.getContentFilter());
+        assertNull(restored.getFieldProjection());
+    }
+
+    @Test
+    void shouldKeepNodeOfConnectedAndMigratingSessions() {
+        // given
+        Session connected = new Session(SessionId.of("connected"));
+        connected.connect(3);
+        Session migrating = new Session(SessionId.of("migrating"));
+        migrating.connect(3);
+        migrating.migrate(5);
+
+        // when
+        Session restoredConnected = serializer.deserialize(serializer.serialize(connected));
+        Session restoredMigrating = serializer.deserialize(serializer.serialize(migrating));
+
+        // then
+        assertEquals(3, restoredConnected.getNodeId());
+        assertTrue(restoredConnected.isActive());
+        assertEquals(5, restoredMigrating.getNodeId());
+        assertTrue(restoredMigrating.isMigrating());
+        assertEquals(migrating.getDisconnectedAt(), restoredMigrating.getDisconnectedAt());
+    }
+
+    @Test
+    void shouldCompileContentFilterAgainWhenRead() {
+        // given
+        ContentFilter filter = compiler.compile("trans_payload.delta_cash > 100");
+        Session session = new Session(SessionId.of("session-1"), 42, "acme", MessageTypeMask.ALL, filter);
+
+        // when
+        Session restored = serializer.deserialize(serializer.serialize(session));
+
+        // then
+        assertSame(filter, restored.getContentFilter());
+    }
+
+    @Test
+    void shouldCompileContentFilterOnOtherNodes() {
+        // given
+        ContentFilter filter = compiler.compile("trans_payload.delta_cash>100 and trans_payload.currency == \"EUR\"");
+        Session session = new Session(SessionId.of("session-1"), 42, "acme", MessageTypeMask.ALL, filter);
+        SessionRedisSerializer otherNode = new SessionRedisSerializer(
+                new ContentFilterCompiler(), new FieldProjectionCompiler());
+
+        // when
+        Session restored = otherNode.deserialize(serializer.serialize(session));
+
+        // then
+        assertNotNull(restored.getContentFilter());
+        assertEquals(filter.expression(), restored.getContentFilter().expression());
+    }
+
+    @Test
+    void shouldCompileFieldProjectionAgainWhenRead() {
+        // given
+        FieldProjection projection = projectionCompiler.compile(Map.of(MessageType.WalletTransaction,
+                FieldMask.newBuilder().addPaths("delta_cash").addPaths("currency").build()));
+        Session session = new Session(SessionId.of("session-1"), 42, "acme", MessageTypeMask.ALL, null, projection);
+
+        // when
+        Session restored = serializer.deserialize(serializer.serialize(session));
+
+        // then
+        assertSame(projection, restored.getFieldProjection());
+    }
+
+    @Test
+    void shouldCompileFieldProjectionOnOtherNodes() {
+        // given
+        FieldProjection projection = projectionCompiler.compile(Map.of(MessageType.WalletTransaction,
+                FieldMask.newBuilder().addPaths("delta_cash").build()));
+        Session session = new Session(SessionId.of("session-1"), 42, "acme", MessageTypeMask.ALL, null, projection);
+        SessionRedisSerializer otherNode = new SessionRedisSerializer(
+                new ContentFilterCompiler(), new FieldProjectionCompiler());
+
+        // when
+        Session restored = otherNode.deserialize(serializer.serialize(session));
+
+        // then
+        assertNotNull(restored.getFieldProjection());
+        assertEquals("delta_cash",
+                restored.getFieldProjection().forType(MessageType.WalletTransaction).canonicalForm());
+    }
+
+    @Test
+    void shouldReadMissingValueAsNull() {
+        // when / then
+        assertNull(serializer.deserialize(null));
+        assertNull(serializer.deserialize(new byte[0]));
+        assertNull(serializer.serialize(null));
+    }
+}
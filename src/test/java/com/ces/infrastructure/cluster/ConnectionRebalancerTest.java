@@ -0,0 +1,174 @@
+package com.ces.infrastructure.cluster;
+
+import com.ces.application.port.input.MigrateSessionUseCase;
+import com.ces.domain.model.SessionId;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ConnectionRebalancer.
+ */
+class ConnectionRebalancerTest {
+
+    private static final int LOCAL_NODE = 1;
+    private static final long START = 1_700_000_000_000L;
+
+    private final AtomicLong now = new AtomicLong(START);
+    private final Clock clock = new Clock() {
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(now.get());
+        }
+    };
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final MigrateSessionUseCase migrateSessionUseCase = mock(MigrateSessionUseCase.class);
+    private final List<Integer> requestedSessions = new ArrayList<>();
+
+    // Rounds are run by the tests, not by the schedule
+    private final ConnectionRebalancer rebalancer = new ConnectionRebalancer(
+            migrateSessionUseCase,
+            LOCAL_NODE,
+            limit -> {
+                requestedSessions.add(limit);
+                return IntStream.range(0, limit).mapToObj(i -> SessionId.generate()).toList();
+            },
+            new LoadAwarePlacement.Settings(Duration.ofSeconds(5), 0.85, 1_000_000),
+            new ConnectionRebalancer.Settings(Duration.ofHours(1), 0.1, 20, Duration.ofSeconds(30)),
+            clock,
+            meterRegistry);
+
+    @AfterEach
+    void tearDown() {
+        rebalancer.close();
+    }
+
+    private NodeLoad load(int nodeId, int connections, double cpuLoad) {
+        return new NodeLoad(nodeId, "ws://node-" + nodeId + "/ws", connections, 0, cpuLoad, now.get());
+    }
+
+    private double migrations(String outcome) {
+        return meterRegistry.get("ces.migration.sessions").tag("outcome", outcome).counter().count();
+    }
+
+    @Test
+    void shouldMoveSurplusToEmptiestNodesUpToRoundLimit() {
+        // given
+        when(migrateSessionUseCase.migrate(any(), anyInt(), anyString())).thenReturn(true);
+        rebalancer.update(List.of(load(LOCAL_NODE, 130, 0.2), load(2, 90, 0.2), load(3, 80, 0.2)));
+
+        // when
+        rebalancer.rebalance();
+
+        // then
+        assertEquals(List.of(20), requestedSessions);
+        verify(migrateSessionUseCase, times(15)).migrate(any(), eq(3), eq("ws://node-3/ws"));
+        verify(migrateSessionUseCase, times(5)).migrate(any(), eq(2), eq("ws://node-2/ws"));
+        assertEquals(20.0, migrations("migrated"));
+        assertEquals(30.0, meterRegistry.get("ces.migration.surplus").gauge().value());
+    }
+
+    @Test
+    void shouldPauseForSettleTimeAfterMovingSessions() {
+        // given
+        when(migrateSessionUseCase.migrate(any(), anyInt(), anyString())).thenReturn(true);
+        rebalancer.update(List.of(load(LOCAL_NODE, 130, 0.2), load(2, 70, 0.2)));
+        rebalancer.rebalance();
+
+        // when
+        now.addAndGet(Duration.ofSeconds(10).toMillis());
+        rebalancer.update(List.of(load(LOCAL_NODE, 130, 0.2), load(2, 70, 0.2)));
+        rebalancer.rebalance();
+
+        // then
+        assertEquals(List.of(20), requestedSessions);
+
+        // when
+        now.addAndGet(Duration.ofSeconds(25).toMillis());
+        rebalancer.update(List.of(load(LOCAL_NODE, 115, 0.2), load(2, 85, 0.2)));
+        rebalancer.rebalance();
+
+        // then
+        assertEquals(List.of(20, 15), requestedSessions);
+    }
+
+    @Test
+    void shouldStayWithinToleranceUnlessHot() {
+        // given
+        when(migrateSessionUseCase.migrate(any(), anyInt(), anyString())).thenReturn(true);
+        rebalancer.update(List.of(load(LOCAL_NODE, 105, 0.2), load(2, 95, 0.2)));
+
+        // when
+        rebalancer.rebalance();
+
+        // then
+        assertTrue(requestedSessions.isEmpty());
+
+        // when
+        rebalancer.update(List.of(load(LOCAL_NODE, 105, 0.95), load(2, 95, 0.2)));
+        rebalancer.rebalance();
+
+        // then
+        assertEquals(List.of(5), requestedSessions);
+    }
+
+    @Test
+    void shouldNotMoveSessionsToHotNodesOrOnStaleReports() {
+        // given
+        rebalancer.update(List.of(load(LOCAL_NODE, 200, 0.2), load(2, 50, 0.95)));
+
+        // when
+        rebalancer.rebalance();
+        rebalancer.update(List.of(load(LOCAL_NODE, 200, 0.2), load(2, 50, 0.2)));
+        now.addAndGet(Duration.ofSeconds(6).toMillis());
+        rebalancer.rebalance();
+
+        // then
+        assertTrue(requestedSessions.isEmpty());
+        verifyNoInteractions(migrateSessionUseCase);
+    }
+
+    @Test
+    void shouldCountSessionsThatCouldNotBeMoved() {
+        // given
+        when(migrateSessionUseCase.migrate(any(), anyInt(), anyString()))
+                .thenReturn(false)
+                .thenThrow(new IllegalStateException("Redis unavailable"))
+                .thenReturn(true);
+
+        // when
+        rebalancer.update(List.of(load(LOCAL_NODE, 120, 0.2), load(2, 80, 0.2)));
+        rebalancer.rebalance();
+
+        // then
+        assertEquals(1.0, migrations("skipped"));
+        assertEquals(1.0, migrations("failed"));
+        assertEquals(18.0, migrations("migrated"));
+    }
+}
@@ -0,0 +1,177 @@
+package com.ces.infrastructure.cluster;
+
+import com.ces.application.port.input.DeliverMessageUseCase;
+import com.ces.application.port.input.MigrateSessionUseCase;
+import com.ces.application.port.output.OfflineMessageStore;
+import com.ces.domain.model.EventMessage;
+import com.ces.domain.model.SessionId;
+import com.lnw.expressway.messages.v1.FeedMessageProto.FeedMessage;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header;
+import com.lnw.expressway.messages.v1.FeedMessageProto.LoginPayload;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.stream.ByteRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for ForwardedMessageReceiver.
+ */
+class ForwardedMessageReceiverTest {
+
+    private static final int LOCAL_NODE = 1;
+
+    private final RedisConnectionFactory connectionFactory = mock(RedisConnectionFactory.class);
+    private final RedisConnection connection = mock(RedisConnection.class);
+    private final RedisStreamCommands streamCommands = mock(RedisStreamCommands.class);
+    private final RedisStringCommands stringCommands = mock(RedisStringCommands.class);
+    private final DeliverMessageUseCase deliverMessageUseCase = mock(DeliverMessageUseCase.class);
+    private final MigrateSessionUseCase migrateSessionUseCase = mock(MigrateSessionUseCase.class);
+    private final OfflineMessageStore offlineMessageStore = mock(OfflineMessageStore.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final byte[] offsetKey = RedisStreamSessionForwarder.inboxOffsetKey(LOCAL_NODE);
+
+    private ForwardedMessageReceiver receiver;
+
+    @BeforeEach
+    void setUp() {
+        when(connectionFactory.getConnection()).thenReturn(connection);
+        when(connection.streamCommands()).thenReturn(streamCommands);
+        when(connection.stringCommands()).thenReturn(stringCommands);
+        when(stringCommands.get(offsetKey)).thenReturn("5-0".getBytes(StandardCharsets.UTF_8));
+        receiver = new ForwardedMessageReceiver(connectionFactory, LOCAL_NODE, deliverMessageUseCase,
+                migrateSessionUseCase, offlineMessageStore, Duration.ofMillis(10), meterRegistry);
+        // Polled by the tests, not by the reader thread
+        receiver.close();
+        clearInvocations(streamCommands, stringCommands);
+    }
+
+    @AfterEach
+    void tearDown() {
+        receiver.close();
+    }
+
+    private static EventMessage message(int accountId) {
+        FeedMessage feedMessage = FeedMessage.newBuilder()
+                .setHeader(Header.newBuilder().setMessageType(Header.MessageType.Login).build())
+                .setLoginPayload(LoginPayload.newBuilder().setAccountId(accountId).build())
+                .build();
+        return new EventMessage("id-" + accountId, SessionId.of(String.valueOf(accountId)), feedMessage,
+                "customer-events", Instant.ofEpochMilli(1_700_000_000_000L));
+    }
+
+    private static byte[] frame(EventMessage... messages) {
+        return new ForwardFrame(System.currentTimeMillis(), List.of(messages)).encode();
+    }
+
+    private void inboxReturns(String id, byte[] field, byte[] frame) {
+        ByteRecord record = StreamRecords.rawBytes(Map.of(field, frame))
+                .withStreamKey(RedisStreamSessionForwarder.inboxKey(LOCAL_NODE))
+                .withId(RecordId.of(id));
+        when(streamCommands.xRead(any(StreamReadOptions.class), any(StreamOffset.class)))
+                .thenReturn(List.of(record));
+    }
+
+    @Test
+    void shouldDeliverReceivedFramesAsForwardedMessages() {
+        // when
+        receiver.receive(frame(message(1)));
+        receiver.receive(new byte[] {42});
+
+        // then
+        ArgumentCaptor<EventMessage> delivered = ArgumentCaptor.forClass(EventMessage.class);
+        verify(deliverMessageUseCase).deliverForwarded(delivered.capture());
+        assertEquals("id-1", delivered.getValue().getMessageId());
+        assertEquals(Header.MessageType.Login, delivered.getValue().getMessageType());
+        assertEquals(1.0, meterRegistry.get("ces.forward.received").counter().count());
+        assertEquals(1L, meterRegistry.get("ces.forward.latency").timer().count());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldResumeReadingAfterStoredOffsetAndStoreLastDeliveredEntry() {
+        // given
+        inboxReturns("6-0", RedisStreamSessionForwarder.FRAME_FIELD, frame(message(1)));
+
+        // when
+        receiver.poll();
+
+        // then
+        ArgumentCaptor<StreamOffset<byte[]>> offsets = ArgumentCaptor.forClass(StreamOffset.class);
+        verify(streamCommands).xRead(any(StreamReadOptions.class), offsets.capture());
+        assertEquals("5-0", offsets.getValue().getOffset().getOffset());
+        verify(deliverMessageUseCase).deliverForwarded(any(EventMessage.class));
+        verify(stringCommands).set(offsetKey, "6-0".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldRetryFailedDeliveryBeforeMovingOffset() {
+        // given
+        EventMessage message = message(1);
+        doThrow(new IllegalStateException("Registry unavailable"))
+                .doNothing()
+                .when(deliverMessageUseCase).deliverForwarded(any(EventMessage.class));
+        inboxReturns("6-0", RedisStreamSessionForwarder.FRAME_FIELD, frame(message));
+
+        // when
+        receiver.poll();
+
+        // then
+        verify(deliverMessageUseCase, times(2)).deliverForwarded(any(EventMessage.class));
+        verifyNoInteractions(offlineMessageStore);
+        verify(stringCommands).set(offsetKey, "6-0".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldQueueMessageOfflineWhenDeliveryKeepsFailing() {
+        // given
+        doThrow(new IllegalStateException("Registry unavailable"))
+                .when(deliverMessageUseCase).deliverForwarded(any(EventMessage.class));
+        inboxReturns("6-0", RedisStreamSessionForwarder.FRAME_FIELD, frame(message(1), message(2)));
+
+        // when
+        receiver.poll();
+
+        // then
+        ArgumentCaptor<EventMessage> queued = ArgumentCaptor.forClass(EventMessage.class);
+        verify(offlineMessageStore, times(2)).store(queued.capture());
+        assertEquals(List.of("id-1", "id-2"), queued.getAllValues().stream().map(EventMessage::getMessageId).toList());
+        assertEquals(0.0, meterRegistry.get("ces.forward.undeliverable").counter().count());
+        verify(stringCommands).set(offsetKey, "6-0".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void shouldStoreOffsetPastPrewarmEntryThatFails() {
+        // given
+        doThrow(new IllegalStateException("Ring unavailable"))
+                .when(migrateSessionUseCase).prewarm(any());
+        inboxReturns("7-0", RedisStreamSessionForwarder.PREWARM_FIELD, frame(message(1)));
+
+        // when
+        receiver.poll();
+
+        // then
+        verify(migrateSessionUseCase).prewarm(any());
+        verify(stringCommands).set(offsetKey, "7-0".getBytes(StandardCharsets.UTF_8));
+        assertEquals(0.0, meterRegistry.get("ces.migration.prewarmed").counter().count());
+    }
+}
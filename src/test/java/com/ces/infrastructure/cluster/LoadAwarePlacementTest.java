@@ -0,0 +1,109 @@
+package com.ces.infrastructure.cluster;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LoadAwarePlacement and NodeLoad.
+ */
+class LoadAwarePlacementTest {
+
+    private static final long NOW = 1_700_000_000_000L;
+    private static final Clock CLOCK = Clock.fixed(Instant.ofEpochMilli(NOW), ZoneOffset.UTC);
+    private static final LoadAwarePlacement.Settings SETTINGS =
+            new LoadAwarePlacement.Settings(Duration.ofSeconds(5), 0.85, 1_000_000);
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final LoadAwarePlacement placement = new LoadAwarePlacement(1, SETTINGS, CLOCK, meterRegistry);
+
+    private static NodeLoad load(int nodeId, int connections, long queuedBytes, double cpuLoad, long ageMillis) {
+        return new NodeLoad(nodeId, "ws://node-" + nodeId + "/ws", connections, queuedBytes, cpuLoad, NOW - ageMillis);
+    }
+
+    private Map<String, Integer> place(int sessions) {
+        Map<String, Integer> placed = new HashMap<>();
+        for (int i = 0; i < sessions; i++) {
+            placed.merge(placement.webSocketBaseUrl(i), 1, Integer::sum);
+        }
+        return placed;
+    }
+
+    @Test
+    void shouldLeaveSessionsOnRegisteringNodeWithoutFreshReports() {
+        // given
+        placement.update(List.of(load(1, 0, 0, 0.1, 10_000), load(2, 0, 0, 0.1, 6_000)));
+
+        // when
+        String url = placement.webSocketBaseUrl(42);
+
+        // then
+        assertNull(url);
+        assertEquals(1.0, meterRegistry.get("ces.placement.unplaced").counter().count());
+    }
+
+    @Test
+    void shouldEvenOutConnectionsAcrossNodes() {
+        // given
+        placement.update(List.of(
+                load(1, 900, 0, 0.2, 0),
+                load(2, 1000, 0, 0.2, 500),
+                load(3, 1100, 0, 0.2, 1000),
+                load(4, 1000, 0, 0.2, 0)));
+
+        // when
+        Map<String, Integer> placed = place(4000);
+
+        // then
+        int[] totals = {
+                900 + placed.getOrDefault("ws://node-1/ws", 0),
+                1000 + placed.getOrDefault("ws://node-2/ws", 0),
+                1100 + placed.getOrDefault("ws://node-3/ws", 0),
+                1000 + placed.getOrDefault("ws://node-4/ws", 0)};
+        int max = Math.max(Math.max(totals[0], totals[1]), Math.max(totals[2], totals[3]));
+        int min = Math.min(Math.min(totals[0], totals[1]), Math.min(totals[2], totals[3]));
+        assertTrue(max - min <= 2000 * 0.02, "Connections should be balanced within 2%: " + placed);
+    }
+
+    @Test
+    void shouldAvoidHotNodesUnlessAllAreHot() {
+        // given
+        placement.update(List.of(
+                load(1, 100, 0, 0.95, 0),
+                load(2, 100, 2_000_000, 0.2, 0),
+                load(3, 500, 0, 0.2, 0)));
+
+        // when
+        Map<String, Integer> placed = place(50);
+        placement.update(List.of(load(1, 100, 0, 0.95, 0), load(2, 100, 2_000_000, 0.2, 0)));
+        Map<String, Integer> allHot = place(50);
+
+        // then
+        assertEquals(Map.of("ws://node-3/ws", 50), placed);
+        assertEquals(50, allHot.values().stream().mapToInt(Integer::intValue).sum());
+        assertTrue(allHot.keySet().containsAll(List.of("ws://node-1/ws", "ws://node-2/ws")));
+        assertEquals(25.0, meterRegistry.get("ces.placement.sessions").tag("target", "local").counter().count());
+    }
+
+    @Test
+    void shouldEncodeAndDecodeLoadReports() {
+        // given
+        NodeLoad report = new NodeLoad(7, "wss://ces-7.example.com/ws", 1234, 56_789L, 0.42, NOW);
+
+        // when
+        NodeLoad decoded = NodeLoad.decode(7, report.encode());
+
+        // then
+        assertEquals(report, decoded);
+        assertThrows(IllegalArgumentException.class, () -> NodeLoad.decode(7, "garbage"));
+    }
+}
@@ -0,0 +1,193 @@
+package com.ces.infrastructure.cluster;
+
+import com.ces.domain.model.EventMessage;
+import com.ces.domain.model.Session;
+import com.ces.domain.model.SessionId;
+import com.lnw.expressway.messages.v1.FeedMessageProto.FeedMessage;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header;
+import com.lnw.expressway.messages.v1.FeedMessageProto.LoginPayload;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.RedisStreamCommands.XAddOptions;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.stream.MapRecord;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for RedisStreamSessionForwarder and ForwardFrame.
+ */
+class RedisStreamSessionForwarderTest {
+
+    private static final int LOCAL_NODE = 1;
+    private static final int REMOTE_NODE = 2;
+
+    private final RedisConnectionFactory connectionFactory = mock(RedisConnectionFactory.class);
+    private final RedisConnection connection = mock(RedisConnection.class);
+    private final RedisStreamCommands streamCommands = mock(RedisStreamCommands.class);
+    private final RedisStringCommands stringCommands = mock(RedisStringCommands.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private RedisStreamSessionForwarder forwarder;
+
+    @BeforeEach
+    void setUp() {
+        when(connectionFactory.getConnection()).thenReturn(connection);
+        when(connection.streamCommands()).thenReturn(streamCommands);
+        when(connection.stringCommands()).thenReturn(stringCommands);
+        // Flushed by the tests, not by the schedule
+        forwarder = new RedisStreamSessionForwarder(connectionFactory, LOCAL_NODE,
+                new RedisStreamSessionForwarder.Settings(2, Duration.ofHours(1), 3, 1000), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        forwarder.close();
+    }
+
+    private static Session sessionOn(int nodeId) {
+        Session session = new Session(SessionId.generate());
+        session.connect(nodeId);
+        return session;
+    }
+
+    private static EventMessage message(Session session, int accountId) {
+        FeedMessage feedMessage = FeedMessage.newBuilder()
+                .setHeader(Header.newBuilder().setMessageType(Header.MessageType.Login).build())
+                .setLoginPayload(LoginPayload.newBuilder().setAccountId(accountId).build())
+                .build();
+        return new EventMessage("id-" + accountId, session.getSessionId(), feedMessage, "customer-events",
+                Instant.ofEpochMilli(1_700_000_000_000L));
+    }
+
+    private double count(String name, String route) {
+        return meterRegistry.get(name).tag("route", route).counter().count();
+    }
+
+    @Test
+    void shouldNotForwardMessagesForLocalOrUnknownNodes() {
+        // given
+        Session local = sessionOn(LOCAL_NODE);
+        Session unknown = sessionOn(Session.NO_NODE);
+
+        // when
+        boolean localForwarded = forwarder.forward(local, message(local, 1));
+        boolean unknownForwarded = forwarder.forward(unknown, message(unknown, 2));
+        forwarder.flush();
+
+        // then
+        assertFalse(localForwarded);
+        assertFalse(unknownForwarded);
+        assertEquals(2.0, count("ces.forward.messages", "local"));
+        verifyNoInteractions(connectionFactory);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldBatchMessagesForRemoteNodeIntoPipelinedFrames() {
+        // given
+        Session remote = sessionOn(REMOTE_NODE);
+        EventMessage first = message(remote, 1);
+        EventMessage second = message(remote, 2);
+        EventMessage third = message(remote, 3);
+
+        // when
+        assertTrue(forwarder.forward(remote, first));
+        assertTrue(forwarder.forward(remote, second));
+        assertTrue(forwarder.forward(remote, third));
+        forwarder.flush();
+
+        // then
+        ArgumentCaptor<MapRecord<byte[], byte[], byte[]>> records = ArgumentCaptor.forClass(MapRecord.class);
+        verify(connection).openPipeline();
+        verify(streamCommands, times(2)).xAdd(records.capture(), any(XAddOptions.class));
+        verify(connection).closePipeline();
+
+        List<EventMessage> forwarded = records.getAllValues().stream()
+                .peek(record -> assertArrayEquals(RedisStreamSessionForwarder.inboxKey(REMOTE_NODE), record.getStream()))
+                .flatMap(record -> record.getValue().values().stream())
+                .flatMap(frame -> ForwardFrame.decode(frame).messages().stream())
+                .toList();
+        assertEquals(List.of("id-1", "id-2", "id-3"), forwarded.stream().map(EventMessage::getMessageId).toList());
+        assertEquals(remote.getSessionId(), forwarded.get(0).getTargetSessionId());
+        assertEquals(first.getTimestamp(), forwarded.get(0).getTimestamp());
+        assertArrayEquals(first.getEncoded(), forwarded.get(0).getEncoded());
+        assertEquals(3.0, count("ces.forward.messages", "remote"));
+        assertEquals(2.0, meterRegistry.get("ces.forward.frames").counter().count());
+    }
+
+    @Test
+    void shouldDeliverMessagesBeyondMaxPendingLocally() {
+        // given
+        Session remote = sessionOn(REMOTE_NODE);
+
+        // when
+        int forwarded = 0;
+        for (int i = 0; i < 5; i++) {
+            if (forwarder.forward(remote, message(remote, i))) {
+                forwarded++;
+            }
+        }
+
+        // then
+        assertEquals(3, forwarded);
+        assertEquals(2.0, meterRegistry.get("ces.forward.overflow").counter().count());
+        assertEquals(3.0, meterRegistry.get("ces.forward.pending").gauge().value());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldAppendFramesOfFailedFlushWithNextFlush() {
+        // given
+        Session remote = sessionOn(REMOTE_NODE);
+        when(connection.closePipeline()).thenThrow(new IllegalStateException("Redis unavailable")).thenReturn(List.of());
+        forwarder.forward(remote, message(remote, 1));
+        forwarder.forward(remote, message(remote, 2));
+        forwarder.flush();
+        forwarder.forward(remote, message(remote, 3));
+
+        // when
+        boolean overflowed = !forwarder.forward(remote, message(remote, 4));
+        forwarder.flush();
+
+        // then
+        ArgumentCaptor<MapRecord<byte[], byte[], byte[]>> records = ArgumentCaptor.forClass(MapRecord.class);
+        verify(streamCommands, times(3)).xAdd(records.capture(), any(XAddOptions.class));
+        List<String> appended = records.getAllValues().subList(1, 3).stream()
+                .flatMap(record -> record.getValue().values().stream())
+                .flatMap(frame -> ForwardFrame.decode(frame).messages().stream())
+                .map(EventMessage::getMessageId)
+                .toList();
+        assertTrue(overflowed);
+        assertEquals(List.of("id-1", "id-2", "id-3"), appended);
+        assertEquals(0.0, meterRegistry.get("ces.forward.pending").gauge().value());
+        assertEquals(0.0, meterRegistry.get("ces.forward.dropped").counter().count());
+    }
+
+    @Test
+    void shouldDropUnsentMessagesWhenClosed() {
+        // given
+        Session remote = sessionOn(REMOTE_NODE);
+        when(connection.closePipeline()).thenThrow(new IllegalStateException("Redis unavailable"));
+        forwarder.forward(remote, message(remote, 1));
+
+        // when
+        forwarder.close();
+
+        // then
+        assertEquals(1.0, meterRegistry.get("ces.forward.dropped").counter().count());
+        assertEquals(0.0, meterRegistry.get("ces.forward.pending").gauge().value());
+    }
+}
@@ -0,0 +1,184 @@
+package com.ces.infrastructure.kafka;
+
+import com.ces.infrastructure.websocket.OutboundBacklog;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for BackpressureController.
+ */
+@ExtendWith(MockitoExtension.class)
+class BackpressureControllerTest {
+
+    private static final String LISTENER_ID = "test-listener";
+
+    @Mock
+    private KafkaListenerEndpointRegistry listenerRegistry;
+
+    @Mock
+    private MessageListenerContainer container;
+
+    private TestBacklog backlog;
+    private SimpleMeterRegistry meterRegistry;
+    private BackpressureController controller;
+
+    @BeforeEach
+    void setUp() {
+        backlog = new TestBacklog();
+        meterRegistry = new SimpleMeterRegistry();
+        controller = new BackpressureController(
+                backlog,
+                listenerRegistry,
+                LISTENER_ID,
+                new BackpressureWatermarks(100, 10, 10_000, 1_000, Duration.ofMillis(50)),
+                Duration.ofHours(1),
+                meterRegistry);
+        lenient().when(listenerRegistry.getListenerContainer(LISTENER_ID)).thenReturn(container);
+        lenient().when(container.isRunning()).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        controller.close();
+    }
+
+    @Test
+    void shouldPauseAboveHighWatermarkAndResumeBelowLowWatermark() {
+        // given
+        backlog.messages = 100;
+
+        // when
+        controller.check();
+
+        // then
+        verify(container).pause();
+        assertTrue(controller.isPaused());
+        assertEquals(1.0, meterRegistry.get("ces.kafka.backpressure.paused").gauge().value());
+
+        // when - drained below the high but not the low watermark
+        backlog.messages = 50;
+        controller.check();
+
+        // then
+        verify(container, never()).resume();
+
+        // when
+        backlog.messages = 5;
+        controller.check();
+
+        // then
+        verify(container).resume();
+        assertFalse(controller.isPaused());
+        assertEquals(1.0, meterRegistry.get("ces.kafka.backpressure.pauses").counter().count());
+    }
+
+    @Test
+    void shouldPauseWhenQueuedBytesOrFlushWaitExceedLimits() {
+        // given
+        backlog.bytes = 20_000;
+
+        // when
+        controller.check();
+
+        // then
+        verify(container).pause();
+
+        // when - bytes drained, but flushes still wait too long
+        backlog.bytes = 0;
+        backlog.flushWaitNanos = Duration.ofMillis(80).toNanos();
+        controller.check();
+
+        // then
+        verify(container, never()).resume();
+        assertTrue(controller.isPaused());
+    }
+
+    @Test
+    void shouldStayRunningBelowWatermarks() {
+        // given
+        backlog.messages = 99;
+        backlog.bytes = 9_999;
+
+        // when
+        controller.check();
+
+        // then
+        verify(container, never()).pause();
+        assertFalse(controller.isPaused());
+    }
+
+    @Test
+    void shouldWaitForListenerContainer() {
+        // given
+        when(listenerRegistry.getListenerContainer(LISTENER_ID)).thenReturn(null);
+        backlog.messages = 1_000;
+
+        // when
+        controller.check();
+
+        // then
+        assertFalse(controller.isPaused());
+    }
+
+    @Test
+    void shouldResumeOnClose() {
+        // given
+        backlog.messages = 1_000;
+        controller.check();
+
+        // when
+        controller.close();
+
+        // then
+        verify(container).resume();
+        assertFalse(controller.isPaused());
+    }
+
+    @Test
+    void shouldRejectInvertedWatermarks() {
+        // when & then
+        assertThrows(IllegalArgumentException.class, () ->
+                new BackpressureWatermarks(10, 10, 10_000, 1_000, Duration.ofMillis(50)));
+        assertThrows(IllegalArgumentException.class, () ->
+                new BackpressureWatermarks(100, 10, 1_000, 1_000, Duration.ofMillis(50)));
+        assertThrows(IllegalArgumentException.class, () ->
+                new BackpressureWatermarks(100, 10, 10_000, 1_000, Duration.ZERO));
+    }
+
+    /**
+     * Backlog whose totals are set directly by the test.
+     */
+    private static class TestBacklog extends OutboundBacklog {
+
+        long messages;
+        long bytes;
+        long flushWaitNanos;
+
+        @Override
+        public long pendingMessages() {
+            return messages;
+        }
+
+        @Override
+        public long pendingBytes() {
+            return bytes;
+        }
+
+        @Override
+        public long takeMaxFlushWaitNanos() {
+            return flushWaitNanos;
+        }
+    }
+}
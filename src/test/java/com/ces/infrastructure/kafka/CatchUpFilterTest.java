@@ -0,0 +1,112 @@
+package com.ces.infrastructure.kafka;
+
+import com.google.protobuf.Timestamp;
+import com.lnw.expressway.messages.v1.FeedMessageProto.FeedMessage;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header.MessageType;
+import com.lnw.expressway.messages.v1.FeedMessageProto.LoginPayload;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Unit tests for CatchUpFilter, CatchUpController and the catch-up path of
+ * FeedMessageDeserializer.
+ */
+class CatchUpFilterTest {
+
+    private static final Instant NOW = Instant.parse("2025-10-01T18:45:00Z");
+
+    private SimpleMeterRegistry meterRegistry;
+    private CatchUpFilter filter;
+    private FeedMessageDeserializer deserializer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new CatchUpFilter(
+                Map.of("Login", Duration.ofMinutes(5)), Clock.fixed(NOW, ZoneOffset.UTC), meterRegistry);
+        deserializer = new FeedMessageDeserializer(filter);
+    }
+
+    private static byte[] record(MessageType type, Instant createdAt) {
+        return FeedMessage.newBuilder()
+                .setHeader(Header.newBuilder()
+                        .setMessageType(type)
+                        .setTimestamp(Timestamp.newBuilder().setSeconds(createdAt.getEpochSecond()).build())
+                        .build())
+                .setLoginPayload(LoginPayload.newBuilder().setAccountId(123456789).build())
+                .build()
+                .toByteArray();
+    }
+
+    @Test
+    void shouldParseEverythingWhileNotCatchingUp() {
+        // when
+        FeedRecord record = deserializer.deserialize("test-topic", record(MessageType.Login, NOW.minusSeconds(3600)));
+
+        // then
+        assertFalse(record.isSkipped());
+        assertEquals(MessageType.Login, record.header().getMessageType());
+        assertEquals(123456789, record.feedMessage().getLoginPayload().getAccountId());
+    }
+
+    @Test
+    void shouldSkipExpiredLiveOnlyRecordsWhileCatchingUp() {
+        // given
+        filter.setActive(true);
+
+        // when
+        FeedRecord expired = deserializer.deserialize("test-topic", record(MessageType.Login, NOW.minusSeconds(3600)));
+        FeedRecord recent = deserializer.deserialize("test-topic", record(MessageType.Login, NOW.minusSeconds(60)));
+        FeedRecord critical = deserializer.deserialize(
+                "test-topic", record(MessageType.WalletLimitHit, NOW.minusSeconds(3600)));
+
+        // then
+        assertTrue(expired.isSkipped());
+        assertEquals(MessageType.Login, expired.header().getMessageType());
+        assertEquals(123456789L, recent.accountId());
+        assertEquals(MessageType.WalletLimitHit, critical.header().getMessageType());
+        assertEquals(1, meterRegistry.get("ces.kafka.catchup.skipped").tag("type", "Login").counter().count());
+    }
+
+    @Test
+    void shouldStartAndStopCatchUpWithHysteresis() {
+        // given
+        CatchUpController controller = new CatchUpController(
+                filter, mock(KafkaListenerEndpointRegistry.class), "test-listener", 1000, 100, Duration.ofHours(1));
+
+        try {
+            // when & then
+            controller.update(999);
+            assertFalse(filter.isActive());
+            controller.update(1000);
+            assertTrue(filter.isActive());
+            controller.update(100);
+            assertTrue(filter.isActive());
+            controller.update(99);
+            assertFalse(filter.isActive());
+        } finally {
+            controller.close();
+        }
+    }
+
+    @Test
+    void shouldNeverActivateDisabledFilter() {
+        // when
+        CatchUpFilter.disabled().setActive(true);
+
+        // then
+        assertFalse(CatchUpFilter.disabled().isActive());
+    }
+}
@@ -0,0 +1,132 @@
+package com.ces.infrastructure.kafka;
+
+import org.apache.kafka.clients.consumer.ConsumerPartitionAssignor.Assignment;
+import org.apache.kafka.clients.consumer.ConsumerPartitionAssignor.GroupAssignment;
+import org.apache.kafka.clients.consumer.ConsumerPartitionAssignor.GroupSubscription;
+import org.apache.kafka.clients.consumer.ConsumerPartitionAssignor.Subscription;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ConsistentHashAssignor and PartitionOwnership.
+ */
+class ConsistentHashAssignorTest {
+
+    private static final List<String> TOPICS = List.of("customer-events", "order-events");
+    private static final int PARTITIONS = 24;
+    private static final String NODE_A = "ws://ces-a:8080/ws";
+    private static final String NODE_B = "ws://ces-b:8080/ws";
+    private static final String NODE_C = "ws://ces-c:8080/ws";
+
+    private final ConsistentHashAssignor assignor = new ConsistentHashAssignor();
+
+    private static Cluster cluster() {
+        Node broker = new Node(0, "localhost", 9092);
+        List<PartitionInfo> partitions = new ArrayList<>();
+        for (String topic : TOPICS) {
+            for (int partition = 0; partition < PARTITIONS; partition++) {
+                partitions.add(new PartitionInfo(topic, partition, broker, new Node[] {broker}, new Node[] {broker}));
+            }
+        }
+        return new Cluster("test-cluster", List.of(broker), partitions, Set.of(), Set.of());
+    }
+
+    private static Subscription member(String nodeUrl) {
+        return new Subscription(TOPICS, ByteBuffer.wrap(nodeUrl.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private Map<String, Assignment> assign(Map<String, Subscription> members) {
+        GroupAssignment assignment = assignor.assign(cluster(), new GroupSubscription(members));
+        return assignment.groupAssignment();
+    }
+
+    private static Map<Integer, String> nodeByPartition(
+            Map<String, Assignment> assignments, Map<String, Subscription> members, String topic) {
+        Map<Integer, String> nodes = new HashMap<>();
+        for (Map.Entry<String, Assignment> entry : assignments.entrySet()) {
+            String node = StandardCharsets.UTF_8.decode(members.get(entry.getKey()).userData().duplicate()).toString();
+            for (TopicPartition partition : entry.getValue().partitions()) {
+                if (partition.topic().equals(topic)) {
+                    nodes.put(partition.partition(), node);
+                }
+            }
+        }
+        return nodes;
+    }
+
+    @Test
+    void shouldAssignEachPartitionNumberToOneNodeAcrossTopics() {
+        // given
+        Map<String, Subscription> members = Map.of(
+                "member-a1", member(NODE_A),
+                "member-a2", member(NODE_A),
+                "member-b1", member(NODE_B));
+
+        // when
+        Map<String, Assignment> assignments = assign(members);
+
+        // then
+        Set<TopicPartition> assigned = new HashSet<>();
+        assignments.values().forEach(assignment -> assigned.addAll(assignment.partitions()));
+        assertEquals(TOPICS.size() * PARTITIONS, assigned.size());
+        assertEquals(nodeByPartition(assignments, members, "customer-events"),
+                nodeByPartition(assignments, members, "order-events"));
+        assertFalse(assignments.get("member-a1").partitions().isEmpty());
+        assertFalse(assignments.get("member-a2").partitions().isEmpty());
+    }
+
+    @Test
+    void shouldOnlyMovePartitionsOfTheNodeThatLeft() {
+        // given
+        Map<String, Subscription> three = Map.of(
+                "member-a", member(NODE_A), "member-b", member(NODE_B), "member-c", member(NODE_C));
+        Map<String, Subscription> two = Map.of("member-a", member(NODE_A), "member-b", member(NODE_B));
+        Map<Integer, String> before = nodeByPartition(assign(three), three, "customer-events");
+
+        // when
+        Map<Integer, String> after = nodeByPartition(assign(two), two, "customer-events");
+
+        // then
+        for (int partition = 0; partition < PARTITIONS; partition++) {
+            if (!before.get(partition).equals(NODE_C)) {
+                assertEquals(before.get(partition), after.get(partition), "partition " + partition);
+            }
+        }
+    }
+
+    @Test
+    void shouldPublishOwnersToPartitionOwnership() {
+        // given
+        PartitionOwnership ownership = new PartitionOwnership();
+        assignor.configure(Map.of(
+                ConsistentHashAssignor.OWNERSHIP_CONFIG, ownership,
+                ConsistentHashAssignor.NODE_URL_CONFIG, NODE_A));
+        Map<String, Subscription> members = Map.of("member-a", member(NODE_A), "member-b", member(NODE_B));
+        Map<String, Assignment> assignments = assign(members);
+        Map<Integer, String> nodes = nodeByPartition(assignments, members, "customer-events");
+
+        // when
+        assignor.onAssignment(assignments.get("member-a"), null);
+
+        // then
+        assertEquals(PARTITIONS, ownership.ownerUrls().size());
+        long accountId = 123456789L;
+        assertEquals(nodes.get(AccountKeys.partitionFor(accountId, PARTITIONS)), ownership.webSocketBaseUrl(accountId));
+        assertNull(ownership.webSocketBaseUrl(0));
+        assertEquals(NODE_A, StandardCharsets.UTF_8.decode(assignor.subscriptionUserData(Set.copyOf(TOPICS))).toString());
+    }
+}
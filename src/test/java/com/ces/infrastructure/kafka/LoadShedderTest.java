@@ -0,0 +1,125 @@
+package com.ces.infrastructure.kafka;
+
+import com.ces.infrastructure.websocket.OutboundBacklog;
+import com.google.protobuf.Timestamp;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header.MessageType;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LoadShedder and OverloadDetector.
+ */
+class LoadShedderTest {
+
+    private static final Instant NOW = Instant.parse("2025-10-01T18:45:00Z");
+
+    private SimpleMeterRegistry meterRegistry;
+    private OverloadDetector detector;
+    private LoadShedder shedder;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        detector = new OverloadDetector(
+                new OutboundBacklog(),
+                new OverloadThresholds(1000, 0.25, 0.9, Duration.ofSeconds(10)),
+                Duration.ofHours(1),
+                meterRegistry);
+        shedder = new LoadShedder(
+                detector,
+                Set.of("PropertyAudit", "Blocklist"),
+                Map.of("WalletTransaction", Duration.ofSeconds(30)),
+                Clock.fixed(NOW, ZoneOffset.UTC),
+                meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        shedder.close();
+    }
+
+    private static Header header(MessageType type, Instant createdAt) {
+        Header.Builder header = Header.newBuilder().setMessageType(type);
+        if (createdAt != null) {
+            header.setTimestamp(Timestamp.newBuilder()
+                    .setSeconds(createdAt.getEpochSecond())
+                    .setNanos(createdAt.getNano())
+                    .build());
+        }
+        return header.build();
+    }
+
+    private double shed(String reason, MessageType type) {
+        return meterRegistry.get("ces.kafka.shed").tag("reason", reason).tag("type", type.name()).counter().count();
+    }
+
+    @Test
+    void shouldKeepEverythingOutsideOverload() {
+        // when & then
+        assertFalse(detector.isOverloaded());
+        assertTrue(shedder.accepts(header(MessageType.PropertyAudit, NOW)));
+        assertTrue(shedder.accepts(header(MessageType.WalletTransaction, NOW.minusSeconds(3600))));
+        assertTrue(LoadShedder.disabled().accepts(header(MessageType.Blocklist, NOW)));
+    }
+
+    @Test
+    void shouldDropShedTypesAndStaleMessagesDuringOverload() {
+        // given
+        detector.update(1001, 0, 0, 0);
+
+        // when & then
+        assertTrue(detector.isOverloaded());
+        assertFalse(shedder.accepts(header(MessageType.PropertyAudit, NOW)));
+        assertFalse(shedder.accepts(header(MessageType.Blocklist, NOW)));
+        assertFalse(shedder.accepts(header(MessageType.WalletTransaction, NOW.minusSeconds(31))));
+        assertTrue(shedder.accepts(header(MessageType.WalletTransaction, NOW.minusSeconds(29))));
+        assertTrue(shedder.accepts(header(MessageType.WalletTransaction, null)));
+        assertTrue(shedder.accepts(header(MessageType.Login, NOW.minusSeconds(3600))));
+        assertEquals(1, shed(LoadShedder.REASON_TYPE, MessageType.PropertyAudit));
+        assertEquals(1, shed(LoadShedder.REASON_TYPE, MessageType.Blocklist));
+        assertEquals(1, shed(LoadShedder.REASON_STALE, MessageType.WalletTransaction));
+    }
+
+    @Test
+    void shouldEnterOverloadOnAnySignalAndLeaveAfterCooldown() {
+        // given
+        long start = System.nanoTime();
+        long cooldown = TimeUnit.SECONDS.toNanos(10);
+
+        // when & then
+        detector.update(0, 0.3, 0, start);
+        assertTrue(detector.isOverloaded());
+        detector.update(0, 0, 0, start + 1);
+        detector.update(0, 0, 0, start + cooldown);
+        assertTrue(detector.isOverloaded());
+        detector.update(0, 0, 0.95, start + cooldown + 2);
+        detector.update(0, 0, 0, start + cooldown + 3);
+        detector.update(0, 0, 0, start + 2 * cooldown + 2);
+        assertTrue(detector.isOverloaded());
+        detector.update(0, 0, 0, start + 2 * cooldown + 3);
+        assertFalse(detector.isOverloaded());
+        assertEquals(1, meterRegistry.get("ces.kafka.overload.episodes").counter().count());
+    }
+
+    @Test
+    void shouldRejectUnknownTypes() {
+        // when & then
+        assertThrows(IllegalArgumentException.class, () -> new LoadShedder(
+                detector, Set.of("NoSuchType"), Map.of(), Clock.systemUTC(), meterRegistry));
+        assertThrows(IllegalArgumentException.class, () -> new LoadShedder(
+                detector, Set.of(), Map.of("Login", Duration.ZERO), Clock.systemUTC(), meterRegistry));
+    }
+}
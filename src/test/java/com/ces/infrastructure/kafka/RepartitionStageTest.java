@@ -0,0 +1,130 @@
+package com.ces.infrastructure.kafka;
+
+import com.lnw.expressway.messages.v1.FeedMessageProto.BlocklistLogPayload;
+import com.lnw.expressway.messages.v1.FeedMessageProto.FeedMessage;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header;
+import com.lnw.expressway.messages.v1.FeedMessageProto.LoginPayload;
+import com.lnw.expressway.messages.v1.FeedMessageProto.PaymentTransPayload;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RepartitionStage and AccountIdReader, against an embedded broker.
+ */
+@EmbeddedKafka(partitions = RepartitionStageTest.PARTITIONS, topics = {
+        RepartitionStageTest.SOURCE_TOPIC, RepartitionStageTest.TARGET_TOPIC})
+class RepartitionStageTest {
+
+    static final int PARTITIONS = 4;
+    static final String SOURCE_TOPIC = "customer-events";
+    static final String TARGET_TOPIC = "ces-feed-by-account";
+
+    private static byte[] login(int accountId) {
+        return FeedMessage.newBuilder()
+                .setHeader(Header.newBuilder().setMessageType(Header.MessageType.Login).build())
+                .setLoginPayload(LoginPayload.newBuilder().setLoginId(42).setAccountId(accountId).build())
+                .build()
+                .toByteArray();
+    }
+
+    private static byte[] payment(int accountId) {
+        return FeedMessage.newBuilder()
+                .setHeader(Header.newBuilder().setMessageType(Header.MessageType.PaymentTransaction).build())
+                .setPaymentTransPayload(PaymentTransPayload.newBuilder().setAccountId(accountId).build())
+                .build()
+                .toByteArray();
+    }
+
+    private static byte[] blocklist() {
+        return FeedMessage.newBuilder()
+                .setHeader(Header.newBuilder().setMessageType(Header.MessageType.BlocklistLog).build())
+                .setBlockListLogPayload(BlocklistLogPayload.newBuilder().setOperatorName("operator").build())
+                .build()
+                .toByteArray();
+    }
+
+    @Test
+    void shouldReadAccountIdWithoutParsing() {
+        assertEquals(123456789L, AccountIdReader.accountIdOf(login(123456789)));
+        assertEquals(987654321L, AccountIdReader.accountIdOf(payment(987654321)));
+        assertEquals(0L, AccountIdReader.accountIdOf(blocklist()));
+        assertEquals(0L, AccountIdReader.accountIdOf(new byte[] {(byte) 0xFF, 0x01}));
+    }
+
+    @Test
+    void shouldRepublishOriginalBytesKeyedByAccount(EmbeddedKafkaBroker broker) {
+        // given
+        byte[] login = login(123456789);
+        byte[] payment = payment(987654321);
+        byte[] blocklist = blocklist();
+        KafkaTemplate<byte[], byte[]> upstream = new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(
+                KafkaTestUtils.producerProps(broker), new ByteArraySerializer(), new ByteArraySerializer()));
+        ProducerRecord<byte[], byte[]> withSession = new ProducerRecord<>(SOURCE_TOPIC, login);
+        withSession.headers().add("sessionId", "session-1".getBytes(StandardCharsets.UTF_8));
+        upstream.send(withSession);
+        upstream.send(SOURCE_TOPIC, payment);
+        upstream.send(SOURCE_TOPIC, blocklist);
+        upstream.flush();
+
+        Map<String, Object> consumerConfigs = KafkaTestUtils.consumerProps("ces-repartition", "false", broker);
+        Map<String, Object> producerConfigs = new HashMap<>(KafkaTestUtils.producerProps(broker));
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RepartitionStage stage = new RepartitionStage(
+                consumerConfigs, producerConfigs, List.of(SOURCE_TOPIC), TARGET_TOPIC, 1, meterRegistry);
+
+        Consumer<String, byte[]> verifier = new DefaultKafkaConsumerFactory<>(
+                KafkaTestUtils.consumerProps("verifier", "false", broker),
+                new StringDeserializer(), new ByteArrayDeserializer()).createConsumer();
+        broker.consumeFromAnEmbeddedTopic(verifier, TARGET_TOPIC);
+
+        // when
+        stage.start();
+        ConsumerRecords<String, byte[]> records;
+        try {
+            records = KafkaTestUtils.getRecords(verifier, Duration.ofSeconds(30), 3);
+        } finally {
+            stage.close();
+            verifier.close();
+        }
+
+        // then
+        Map<String, ConsumerRecord<String, byte[]>> byKey = new HashMap<>();
+        records.forEach(record -> byKey.put(record.key(), record));
+        assertEquals(3, records.count());
+
+        ConsumerRecord<String, byte[]> keyedLogin = byKey.get("123456789");
+        assertArrayEquals(login, keyedLogin.value());
+        assertEquals(AccountKeys.partitionFor(123456789L, PARTITIONS), keyedLogin.partition());
+        assertEquals("session-1",
+                new String(keyedLogin.headers().lastHeader("sessionId").value(), StandardCharsets.UTF_8));
+
+        ConsumerRecord<String, byte[]> keyedPayment = byKey.get("987654321");
+        assertArrayEquals(payment, keyedPayment.value());
+        assertEquals(AccountKeys.partitionFor(987654321L, PARTITIONS), keyedPayment.partition());
+
+        assertArrayEquals(blocklist, byKey.get(null).value());
+        assertEquals(2.0, meterRegistry.get("ces.kafka.repartition.records").tag("keyed", "true").counter().count());
+        assertEquals(1.0, meterRegistry.get("ces.kafka.repartition.records").tag("keyed", "false").counter().count());
+    }
+}
@@ -0,0 +1,108 @@
+package com.ces.infrastructure.kafka;
+
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header.Identifier.SequencingKey;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SequenceDeduplicator.
+ */
+class SequenceDeduplicatorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private SequenceDeduplicator deduplicator;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        deduplicator = new SequenceDeduplicator(128, meterRegistry);
+    }
+
+    private Header createHeader(SequencingKey key, long sequenceId) {
+        return Header.newBuilder()
+                .setIdentifier(Header.Identifier.newBuilder()
+                        .setKey(key)
+                        .setSequenceId(sequenceId)
+                        .build())
+                .build();
+    }
+
+    @Test
+    void shouldDropRepeatedSequenceIds() {
+        // when & then
+        assertFalse(deduplicator.isDuplicate(createHeader(SequencingKey.OPS_Account, 1000)));
+        assertFalse(deduplicator.isDuplicate(createHeader(SequencingKey.OPS_Account, 1001)));
+        assertTrue(deduplicator.isDuplicate(createHeader(SequencingKey.OPS_Account, 1000)));
+        assertTrue(deduplicator.isDuplicate(createHeader(SequencingKey.OPS_Account, 1001)));
+        assertEquals(2, meterRegistry.get("ces.kafka.dedup.dropped").counter().count());
+    }
+
+    @Test
+    void shouldAcceptOutOfOrderArrivalsWithinWindowOnce() {
+        // given
+        deduplicator.isDuplicate(createHeader(SequencingKey.OPS_Account, 1000));
+        deduplicator.isDuplicate(createHeader(SequencingKey.OPS_Account, 1050));
+
+        // when & then
+        assertFalse(deduplicator.isDuplicate(createHeader(SequencingKey.OPS_Account, 1020)));
+        assertTrue(deduplicator.isDuplicate(createHeader(SequencingKey.OPS_Account, 1020)));
+        assertFalse(deduplicator.isDuplicate(createHeader(SequencingKey.OPS_Account, 1049)));
+    }
+
+    @Test
+    void shouldAcceptForgottenSequenceIdAgain() {
+        // given
+        deduplicator.isDuplicate(createHeader(SequencingKey.OPS_Account, 1000));
+        deduplicator.isDuplicate(createHeader(SequencingKey.OPS_Account, 1001));
+
+        // when
+        deduplicator.forget(createHeader(SequencingKey.OPS_Account, 1001));
+
+        // then
+        assertFalse(deduplicator.isDuplicate(createHeader(SequencingKey.OPS_Account, 1001)));
+        assertTrue(deduplicator.isDuplicate(createHeader(SequencingKey.OPS_Account, 1001)));
+        assertTrue(deduplicator.isDuplicate(createHeader(SequencingKey.OPS_Account, 1000)));
+    }
+
+    @Test
+    void shouldReuseSlotsWhenWindowSlides() {
+        // given
+        deduplicator.isDuplicate(createHeader(SequencingKey.OPS_Account, 1000));
+        deduplicator.isDuplicate(createHeader(SequencingKey.OPS_Account, 1127));
+        assertTrue(deduplicator.isDuplicate(createHeader(SequencingKey.OPS_Account, 1000)));
+
+        // when - 1128 maps to the same slot as 1000
+        boolean duplicate = deduplicator.isDuplicate(createHeader(SequencingKey.OPS_Account, 1128));
+
+        // then
+        assertFalse(duplicate);
+        assertTrue(deduplicator.isDuplicate(createHeader(SequencingKey.OPS_Account, 1128)));
+        assertFalse(deduplicator.isDuplicate(createHeader(SequencingKey.OPS_Account, 1001)));
+    }
+
+    @Test
+    void shouldDeliverMessagesOlderThanWindow() {
+        // given
+        deduplicator.isDuplicate(createHeader(SequencingKey.OPS_Account, 1000));
+        deduplicator.isDuplicate(createHeader(SequencingKey.OPS_Account, 5000));
+
+        // when & then
+        assertFalse(deduplicator.isDuplicate(createHeader(SequencingKey.OPS_Account, 1000)));
+        assertEquals(1, meterRegistry.get("ces.kafka.dedup.unchecked").counter().count());
+    }
+
+    @Test
+    void shouldTrackSequencingKeysIndependently() {
+        // given
+        deduplicator.isDuplicate(createHeader(SequencingKey.OPS_Account, 7));
+
+        // when & then
+        assertFalse(deduplicator.isDuplicate(createHeader(SequencingKey.OPS_Payment, 7)));
+        assertFalse(deduplicator.isDuplicate(createHeader(SequencingKey.UnknownKey, 7)));
+        assertFalse(deduplicator.isDuplicate(createHeader(SequencingKey.UnknownKey, 7)));
+    }
+}
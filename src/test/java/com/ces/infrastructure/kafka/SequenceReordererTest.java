@@ -0,0 +1,217 @@
+package com.ces.infrastructure.kafka;
+
+import com.ces.domain.model.EventMessage;
+import com.ces.domain.model.SessionId;
+import com.lnw.expressway.messages.v1.FeedMessageProto.FeedMessage;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header.Identifier.SequencingKey;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for SequenceReorderer.
+ */
+class SequenceReordererTest {
+
+    private static final Set<SequencingKey> DENSE_KEYS = Set.of(SequencingKey.OPS_Account, SequencingKey.OPS_Payment);
+
+    private final List<Long> released = new CopyOnWriteArrayList<>();
+    private SimpleMeterRegistry meterRegistry;
+    private SequenceReorderer reorderer;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        reorderer = new SequenceReorderer(
+                message -> released.add(message.getFeedMessage().getHeader().getIdentifier().getSequenceId()),
+                DENSE_KEYS,
+                4,
+                Duration.ofMinutes(1),
+                meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        reorderer.close();
+    }
+
+    private EventMessage createTestMessage(SequencingKey key, long sequenceId) {
+        FeedMessage feedMessage = FeedMessage.newBuilder()
+                .setHeader(Header.newBuilder()
+                        .setIdentifier(Header.Identifier.newBuilder()
+                                .setKey(key)
+                                .setSequenceId(sequenceId)
+                                .build())
+                        .build())
+                .build();
+        return new EventMessage(SessionId.of("123456789"), feedMessage, "test-topic");
+    }
+
+    private void offer(long... sequenceIds) {
+        for (long sequenceId : sequenceIds) {
+            reorderer.offer(createTestMessage(SequencingKey.OPS_Account, sequenceId));
+        }
+    }
+
+    private double count(String name) {
+        return meterRegistry.get(name).tag("key", "OPS_Account").counter().count();
+    }
+
+    @Test
+    void shouldReleaseInOrderMessagesImmediately() {
+        // when
+        offer(10, 11, 12);
+
+        // then
+        assertEquals(List.of(10L, 11L, 12L), released);
+        assertEquals(0, count("ces.kafka.reorder.held"));
+    }
+
+    @Test
+    void shouldHoldMessagesUntilGapIsFilled() {
+        // when
+        offer(10, 12, 13);
+
+        // then
+        assertEquals(List.of(10L), released);
+
+        // when
+        offer(11);
+
+        // then
+        assertEquals(List.of(10L, 11L, 12L, 13L), released);
+        assertEquals(2, count("ces.kafka.reorder.held"));
+        assertEquals(0, count("ces.kafka.reorder.gaps"));
+    }
+
+    @Test
+    void shouldGiveUpOnGapWhenRingOverflows() {
+        // given - 11 is missing and the ring of four is full
+        offer(10, 12, 13, 14);
+        assertEquals(List.of(10L), released);
+
+        // when
+        offer(15);
+
+        // then
+        assertEquals(List.of(10L, 12L, 13L, 14L, 15L), released);
+        assertEquals(1, count("ces.kafka.reorder.gaps"));
+
+        // when - the lost message turns up after all
+        offer(11);
+
+        // then
+        assertEquals(List.of(10L, 12L, 13L, 14L, 15L, 11L), released);
+        assertEquals(1, count("ces.kafka.reorder.late"));
+    }
+
+    @Test
+    void shouldGiveUpOnGapAfterHoldTime() {
+        // given
+        reorderer.close();
+        meterRegistry = new SimpleMeterRegistry();
+        reorderer = new SequenceReorderer(
+                message -> released.add(message.getFeedMessage().getHeader().getIdentifier().getSequenceId()),
+                DENSE_KEYS,
+                16,
+                Duration.ofMillis(20),
+                meterRegistry);
+
+        // when
+        offer(10, 13, 14);
+
+        // then
+        await().atMost(Duration.ofSeconds(2)).until(() -> released.size() == 3);
+        assertEquals(List.of(10L, 13L, 14L), released);
+        assertEquals(2, count("ces.kafka.reorder.gaps"));
+    }
+
+    @Test
+    void shouldKeepSequencingKeysIndependent() {
+        // when
+        offer(10);
+        reorderer.offer(createTestMessage(SequencingKey.OPS_Payment, 500));
+        reorderer.offer(createTestMessage(SequencingKey.UnknownKey, 0));
+        offer(11);
+
+        // then
+        assertEquals(List.of(10L, 500L, 0L, 11L), released);
+    }
+
+    @Test
+    void shouldPassThroughKeysNotKnownToBeDense() {
+        // when
+        offer(10);
+        reorderer.offer(createTestMessage(SequencingKey.OPS_Wallet, 7));
+        reorderer.offer(createTestMessage(SequencingKey.OPS_Wallet, 5));
+        offer(12);
+
+        // then
+        assertEquals(List.of(10L, 7L, 5L), released);
+    }
+
+    @Test
+    void shouldRunCallbackWhenHeldMessageIsReleased() {
+        // given
+        List<Long> acknowledged = new CopyOnWriteArrayList<>();
+        reorderer.offer(createTestMessage(SequencingKey.OPS_Account, 10), () -> acknowledged.add(10L));
+        reorderer.offer(createTestMessage(SequencingKey.OPS_Account, 12), () -> acknowledged.add(12L));
+
+        // then
+        assertEquals(List.of(10L), acknowledged);
+
+        // when
+        reorderer.offer(createTestMessage(SequencingKey.OPS_Account, 11), () -> acknowledged.add(11L));
+
+        // then
+        assertEquals(List.of(10L, 11L, 12L), acknowledged);
+        assertEquals(List.of(10L, 11L, 12L), released);
+    }
+
+    @Test
+    void shouldTreatSkippedSequenceIdsAsConsumed() {
+        // given
+        List<Long> acknowledged = new CopyOnWriteArrayList<>();
+        offer(10, 12);
+
+        // when - 11 was dropped before the reorderer
+        reorderer.skip(SequencingKey.OPS_Account, 11, () -> acknowledged.add(11L));
+        reorderer.skip(SequencingKey.OPS_Account, 13, () -> acknowledged.add(13L));
+        offer(14);
+
+        // then - no gap is opened and nothing is delivered for the skipped IDs
+        assertEquals(List.of(10L, 12L, 14L), released);
+        assertEquals(List.of(11L, 13L), acknowledged);
+        assertEquals(0, count("ces.kafka.reorder.gaps"));
+    }
+
+    @Test
+    void shouldRunCallbackOfSkippedSequenceIdInItsTurn() {
+        // given
+        List<Long> acknowledged = new CopyOnWriteArrayList<>();
+        offer(10);
+
+        // when
+        reorderer.skip(SequencingKey.OPS_Account, 12, () -> acknowledged.add(12L));
+
+        // then
+        assertEquals(List.of(), acknowledged);
+
+        // when
+        reorderer.offer(createTestMessage(SequencingKey.OPS_Account, 11), () -> acknowledged.add(11L));
+
+        // then
+        assertEquals(List.of(11L, 12L), acknowledged);
+        assertEquals(List.of(10L, 11L), released);
+    }
+}
@@ -0,0 +1,121 @@
+package com.ces.infrastructure.websocket;
+
+import com.google.protobuf.Timestamp;
+import com.lnw.expressway.messages.v1.FeedMessageProto.ExtendSessionPayload;
+import com.lnw.expressway.messages.v1.FeedMessageProto.FeedMessage;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header;
+import com.lnw.expressway.messages.v1.FeedMessageProto.PaymentTransPayload;
+import com.lnw.expressway.messages.v1.FeedMessageProto.TransPayload;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ConflationPolicy.
+ */
+class ConflationPolicyTest {
+
+    private FeedMessage createTransMessage(String currency) {
+        return FeedMessage.newBuilder()
+                .setHeader(Header.newBuilder()
+                        .setMessageType(Header.MessageType.WalletTransaction)
+                        .build())
+                .setTransPayload(TransPayload.newBuilder()
+                        .setAccountId(123456789)
+                        .setCurrency(currency)
+                        .setBalCash(100.0)
+                        .build())
+                .build();
+    }
+
+    private FeedMessage createExtendSessionMessage(long loginId) {
+        return FeedMessage.newBuilder()
+                .setHeader(Header.newBuilder()
+                        .setMessageType(Header.MessageType.ExtendSession)
+                        .build())
+                .setExtendSessionPayload(ExtendSessionPayload.newBuilder()
+                        .setLoginId(loginId)
+                        .setAccountId(123456789)
+                        .setSessionEndTime(Timestamp.newBuilder().setSeconds(1_700_000_000L).build())
+                        .build())
+                .build();
+    }
+
+    @Test
+    void shouldBuildKeyFromConfiguredPayloadField() {
+        // given
+        ConflationPolicy policy = ConflationPolicy.of(Map.of("WalletTransaction", "currency"));
+
+        // when
+        String eurKey = policy.conflationKey(createTransMessage("EUR"));
+        String sekKey = policy.conflationKey(createTransMessage("SEK"));
+
+        // then
+        assertEquals("WalletTransaction:EUR", eurKey);
+        assertEquals("WalletTransaction:SEK", sekKey);
+    }
+
+    @Test
+    void shouldConflateByTypeWhenNoFieldConfigured() {
+        // given
+        ConflationPolicy policy = ConflationPolicy.of(Map.of("ExtendSession", ""));
+
+        // when & then
+        assertEquals("ExtendSession", policy.conflationKey(createExtendSessionMessage(1L)));
+        assertEquals("ExtendSession", policy.conflationKey(createExtendSessionMessage(2L)));
+    }
+
+    @Test
+    void shouldReturnNullForTypesWithoutConflationKey() {
+        // given
+        ConflationPolicy policy = ConflationPolicy.of(Map.of("ExtendSession", "login_id"));
+
+        // when & then
+        assertNull(policy.conflationKey(createTransMessage("EUR")));
+    }
+
+    @Test
+    void shouldNeverConflateWithNonePolicy() {
+        // when & then
+        assertFalse(ConflationPolicy.none().isEnabled());
+        assertNull(ConflationPolicy.none().conflationKey(createTransMessage("EUR")));
+    }
+
+    @Test
+    void shouldRejectNonConflatableMessageTypes() {
+        // when & then
+        assertThrows(IllegalArgumentException.class,
+                () -> ConflationPolicy.of(Map.of("PaymentTransaction", "")));
+        assertThrows(IllegalArgumentException.class,
+                () -> ConflationPolicy.of(Map.of("RealityCheck", "")));
+    }
+
+    @Test
+    void shouldRejectUnknownMessageTypeOrField() {
+        // when & then
+        assertThrows(IllegalArgumentException.class,
+                () -> ConflationPolicy.of(Map.of("NoSuchType", "")));
+        assertThrows(IllegalArgumentException.class,
+                () -> ConflationPolicy.of(Map.of("WalletTransaction", "no_such_field")));
+    }
+
+    @Test
+    void shouldNotConflatePaymentMessagesEvenWhenOtherTypesAreConfigured() {
+        // given
+        ConflationPolicy policy = ConflationPolicy.of(Map.of("WalletTransaction", "currency"));
+        FeedMessage payment = FeedMessage.newBuilder()
+                .setHeader(Header.newBuilder()
+                        .setMessageType(Header.MessageType.PaymentTransaction)
+                        .build())
+                .setPaymentTransPayload(PaymentTransPayload.newBuilder()
+                        .setAccountId(123456789)
+                        .setCurrency("EUR")
+                        .build())
+                .build();
+
+        // when & then
+        assertNull(policy.conflationKey(payment));
+    }
+}
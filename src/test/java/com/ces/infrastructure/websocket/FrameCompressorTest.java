@@ -0,0 +1,163 @@
+package com.ces.infrastructure.websocket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.zip.Inflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for FrameCompressor and the dictionary it can be configured with.
+ */
+class FrameCompressorTest {
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private byte[] createFrame(int repetitions) {
+        String body = "currency:EUR|operator_name:acme|channel:mobile|".repeat(repetitions);
+        byte[] bodyBytes = body.getBytes(StandardCharsets.UTF_8);
+        byte[] frame = new byte[bodyBytes.length + 1];
+        frame[0] = FrameCodec.BATCH;
+        System.arraycopy(bodyBytes, 0, frame, 1, bodyBytes.length);
+        return frame;
+    }
+
+    private byte[] inflate(byte[] compressedFrame, CompressionDictionary dictionary) throws Exception {
+        Inflater inflater = new Inflater();
+        inflater.setInput(compressedFrame, 1, compressedFrame.length - 1);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        while (!inflater.finished()) {
+            int count = inflater.inflate(buffer);
+            if (count == 0 && inflater.needsDictionary()) {
+                assertNotNull(dictionary, "Frame requires a dictionary");
+                assertEquals(dictionary.getId(), inflater.getAdler());
+                inflater.setDictionary(dictionary.bytes());
+            }
+            out.write(buffer, 0, count);
+        }
+        inflater.end();
+        return out.toByteArray();
+    }
+
+    @Test
+    void shouldCompressLargeFramesAndSetFlag() throws Exception {
+        // given
+        FrameCompressor compressor = new FrameCompressor(64, 6, null, null, meterRegistry);
+        byte[] frame = createFrame(50);
+
+        // when
+        byte[] compressed = compressor.compress(frame, new TestConnection(true, false));
+
+        // then
+        assertTrue(compressed.length < frame.length);
+        assertEquals((byte) (FrameCodec.BATCH | FrameCodec.COMPRESSED), compressed[0]);
+        assertArrayEquals(Arrays.copyOfRange(frame, 1, frame.length), inflate(compressed, null));
+        assertEquals(frame.length - 1,
+                meterRegistry.get("ces.websocket.compression.bytes").tag("stage", "in").tag("class", "mobile")
+                        .counter().count());
+    }
+
+    @Test
+    void shouldSkipFramesBelowThreshold() {
+        // given
+        FrameCompressor compressor = new FrameCompressor(4096, 6, null, null, meterRegistry);
+        byte[] frame = createFrame(2);
+
+        // when
+        byte[] result = compressor.compress(frame, new TestConnection(true, false));
+
+        // then
+        assertSame(frame, result);
+        assertEquals(1, meterRegistry.get("ces.websocket.compression.skipped").counter().count());
+    }
+
+    @Test
+    void shouldNotCompressForClientsWithoutSupport() {
+        // given
+        FrameCompressor compressor = new FrameCompressor(0, 6, null, null, meterRegistry);
+        byte[] frame = createFrame(50);
+
+        // when & then
+        assertSame(frame, compressor.compress(frame, new TestConnection(false, false)));
+        assertSame(frame, FrameCompressor.disabled().compress(frame, new TestConnection(true, true)));
+    }
+
+    @Test
+    void shouldPassFramesThroughAfterClose() {
+        // given
+        FrameCompressor compressor = new FrameCompressor(0, 6, null, null, meterRegistry);
+        byte[] frame = createFrame(50);
+        assertNotSame(frame, compressor.compress(frame, new TestConnection(true, false)));
+
+        // when
+        compressor.close();
+
+        // then
+        assertSame(frame, compressor.compress(frame, new TestConnection(true, false)));
+    }
+
+    @Test
+    void shouldCompressAgainstPresetDictionary() throws Exception {
+        // given
+        CompressionDictionary dictionary = new CompressionDictionary(
+                "currency:EUR|operator_name:acme|channel:mobile|".getBytes(StandardCharsets.UTF_8));
+        FrameCompressor compressor = new FrameCompressor(0, 6, dictionary, null, meterRegistry);
+        byte[] frame = createFrame(3);
+
+        // when
+        byte[] withDictionary = compressor.compress(frame, new TestConnection(true, true));
+        byte[] withoutDictionary = compressor.compress(frame, new TestConnection(true, false));
+
+        // then
+        assertTrue(withDictionary.length < withoutDictionary.length);
+        assertArrayEquals(Arrays.copyOfRange(frame, 1, frame.length), inflate(withDictionary, dictionary));
+    }
+
+    @Test
+    void shouldBuildDictionaryFromSampledFrames(@TempDir Path tempDir) {
+        // given
+        Path output = tempDir.resolve("ces.dict");
+        DictionarySampler sampler = new DictionarySampler(output, 1, 8);
+        FrameCompressor compressor = new FrameCompressor(0, 6, null, sampler, meterRegistry);
+
+        // when
+        compressor.compress(createFrame(10), new TestConnection(false, false));
+        compressor.close();
+
+        // then
+        CompressionDictionary dictionary = CompressionDictionary.load(output);
+        assertEquals(createFrame(10).length - 1, dictionary.size());
+    }
+
+    private record TestConnection(boolean supportsCompression, boolean supportsPresetDictionary)
+            implements WebSocketConnection {
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void sendBinary(ByteBuffer frame) {
+        }
+
+        @Override
+        public String connectionClass() {
+            return "mobile";
+        }
+    }
+}
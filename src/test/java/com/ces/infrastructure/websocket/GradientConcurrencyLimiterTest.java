@@ -0,0 +1,150 @@
+package com.ces.infrastructure.websocket;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for GradientConcurrencyLimiter.
+ */
+class GradientConcurrencyLimiterTest {
+
+    private static final int WINDOW = 10;
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long DEFER_DELAY = TimeUnit.MILLISECONDS.toNanos(2);
+
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private GradientConcurrencyLimiter limiter(int initialLimit) {
+        return new GradientConcurrencyLimiter(
+                new GradientConcurrencyLimiter.Settings(initialLimit, 4, 100, 1.5, 0.2, 0.5, WINDOW, DEFER_DELAY),
+                meterRegistry);
+    }
+
+    private static void window(GradientConcurrencyLimiter limiter, long rttNanos, int inflight) {
+        for (int i = 0; i < WINDOW; i++) {
+            limiter.onSample(rttNanos, inflight);
+        }
+    }
+
+    @Test
+    void shouldDeferLowPriorityFirstAndAlwaysAdmitHighPriority() {
+        // given
+        GradientConcurrencyLimiter limiter = limiter(4);
+
+        // when
+        GradientConcurrencyLimiter.Permit low1 = limiter.tryAcquire(DeliveryPriority.LOW);
+        GradientConcurrencyLimiter.Permit low2 = limiter.tryAcquire(DeliveryPriority.LOW);
+        GradientConcurrencyLimiter.Permit low3 = limiter.tryAcquire(DeliveryPriority.LOW);
+        GradientConcurrencyLimiter.Permit normal1 = limiter.tryAcquire(DeliveryPriority.NORMAL);
+        GradientConcurrencyLimiter.Permit normal2 = limiter.tryAcquire(DeliveryPriority.NORMAL);
+        GradientConcurrencyLimiter.Permit normal3 = limiter.tryAcquire(DeliveryPriority.NORMAL);
+        GradientConcurrencyLimiter.Permit high = limiter.tryAcquire(DeliveryPriority.HIGH);
+
+        // then
+        assertNotNull(low1);
+        assertNotNull(low2);
+        assertNull(low3);
+        assertNotNull(normal1);
+        assertNotNull(normal2);
+        assertNull(normal3);
+        assertNotNull(high);
+        assertEquals(5, limiter.inflight());
+        assertEquals(1.0, meterRegistry.get("ces.websocket.write.concurrency.deferred")
+                .tag("priority", "low").counter().count());
+        assertEquals(1.0, meterRegistry.get("ces.websocket.write.concurrency.deferred")
+                .tag("priority", "normal").counter().count());
+        assertEquals(5.0, meterRegistry.get("ces.websocket.write.concurrency.inflight").gauge().value());
+
+        // and when released
+        high.release();
+        normal1.release();
+        assertEquals(3, limiter.inflight());
+        assertNotNull(limiter.tryAcquire(DeliveryPriority.NORMAL));
+    }
+
+    @Test
+    void shouldGrowWhileLatencyStaysFlat() {
+        // given
+        GradientConcurrencyLimiter limiter = limiter(16);
+
+        // when
+        for (int i = 0; i < 5; i++) {
+            window(limiter, FAST, limiter.limit());
+        }
+
+        // then
+        assertTrue(limiter.limit() > 16, "limit was " + limiter.limit());
+        assertEquals(limiter.limit(), meterRegistry.get("ces.websocket.write.concurrency.limit").gauge().value());
+    }
+
+    @Test
+    void shouldShrinkWhenLatencyRises() {
+        // given
+        GradientConcurrencyLimiter limiter = limiter(32);
+        window(limiter, FAST, 32);
+        int before = limiter.limit();
+
+        // when
+        for (int i = 0; i < 30; i++) {
+            window(limiter, SLOW, limiter.limit());
+        }
+
+        // then
+        assertTrue(limiter.limit() < before / 2, "limit was " + limiter.limit());
+        assertTrue(limiter.limit() >= 4);
+    }
+
+    @Test
+    void shouldNotGrowWhileMostPermitsAreUnused() {
+        // given
+        GradientConcurrencyLimiter limiter = limiter(16);
+
+        // when
+        for (int i = 0; i < 5; i++) {
+            window(limiter, FAST, 2);
+        }
+
+        // then
+        assertEquals(16, limiter.limit());
+    }
+
+    @Test
+    void shouldAdmitEveryWriteWhenUnlimited() {
+        // given
+        GradientConcurrencyLimiter limiter = GradientConcurrencyLimiter.unlimited();
+
+        // when
+        GradientConcurrencyLimiter.Permit permit = limiter.tryAcquire(DeliveryPriority.LOW);
+
+        // then
+        assertFalse(limiter.isEnabled());
+        assertNotNull(permit);
+        permit.release();
+        assertEquals(0, limiter.inflight());
+        assertEquals(0L, limiter.deferDelayNanos());
+    }
+
+    @Test
+    void shouldRejectInconsistentSettings() {
+        // when & then
+        assertThrows(IllegalArgumentException.class, () ->
+                new GradientConcurrencyLimiter.Settings(2, 4, 100, 1.5, 0.2, 0.5, WINDOW, DEFER_DELAY));
+        assertThrows(IllegalArgumentException.class, () ->
+                new GradientConcurrencyLimiter.Settings(8, 4, 100, 0.5, 0.2, 0.5, WINDOW, DEFER_DELAY));
+        assertThrows(IllegalArgumentException.class, () ->
+                new GradientConcurrencyLimiter.Settings(8, 4, 100, 1.5, 0.2, 0, WINDOW, DEFER_DELAY));
+        assertThrows(IllegalArgumentException.class, () ->
+                new GradientConcurrencyLimiter.Settings(8, 4, 100, 1.5, 0.2, 0.5, WINDOW, 0));
+    }
+}
@@ -0,0 +1,469 @@
+package com.ces.infrastructure.websocket;
+
+import com.ces.domain.model.SessionId;
+import com.lnw.expressway.messages.v1.FeedMessageProto.FeedMessage;
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header;
+import com.lnw.expressway.messages.v1.FeedMessageProto.TransPayload;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for OutboundChannel micro-batching, conflation and correlation.
+ */
+class OutboundChannelTest {
+
+    private ScheduledExecutorService flushExecutor;
+    private RecordingConnection connection;
+
+    @BeforeEach
+    void setUp() {
+        flushExecutor = Executors.newSingleThreadScheduledExecutor();
+        connection = new RecordingConnection();
+    }
+
+    @AfterEach
+    void tearDown() {
+        flushExecutor.shutdownNow();
+    }
+
+    private OutboundMessage createMessage(long transId) {
+        return OutboundMessage.of(createFeedMessage(transId).toByteArray());
+    }
+
+    private FeedMessage createFeedMessage(long transId) {
+        return FeedMessage.newBuilder()
+                .setHeader(Header.newBuilder()
+                        .setMessageType(Header.MessageType.WalletTransaction)
+                        .build())
+                .setTransPayload(TransPayload.newBuilder()
+                        .setTransId(transId)
+                        .setAccountId(123456789)
+                        .setCurrency("EUR")
+                        .build())
+                .build();
+    }
+
+    private List<FeedMessage> decodeBatch(byte[] frame) throws IOException {
+        assertEquals(FrameCodec.BATCH, frame[0]);
+        ByteArrayInputStream in = new ByteArrayInputStream(frame, 1, frame.length - 1);
+        List<FeedMessage> messages = new ArrayList<>();
+        FeedMessage message;
+        while ((message = FeedMessage.parseDelimitedFrom(in)) != null) {
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    @Test
+    void shouldPackQueuedMessagesIntoOneFrameAfterMaxDelay() throws IOException {
+        // given
+        OutboundChannel channel = new OutboundChannel(SessionId.generate(), connection,
+                new BatchSettings(64, 16 * 1024, Duration.ofMillis(20)), FrameCompressor.disabled(),
+                CorrelationSettings.disabled(), flushExecutor);
+
+        // when
+        channel.enqueue(createMessage(1));
+        channel.enqueue(createMessage(2));
+        channel.enqueue(createMessage(3));
+
+        // then
+        await().atMost(Duration.ofSeconds(2)).until(() -> connection.frames.size() == 1);
+        List<FeedMessage> messages = decodeBatch(connection.frames.get(0));
+        assertEquals(3, messages.size());
+        assertEquals(1, messages.get(0).getTransPayload().getTransId());
+        assertEquals(2, messages.get(1).getTransPayload().getTransId());
+        assertEquals(3, messages.get(2).getTransPayload().getTransId());
+    }
+
+    @Test
+    void shouldReportQueuedPayloadsToBacklogUntilWritten() {
+        // given
+        OutboundBacklog backlog = new OutboundBacklog();
+        OutboundChannel channel = new OutboundChannel(SessionId.generate(), connection,
+                new BatchSettings(64, 16 * 1024, Duration.ofMillis(50)), FrameCompressor.disabled(),
+                CorrelationSettings.disabled(), flushExecutor, backlog);
+        OutboundMessage message = createMessage(1);
+
+        // when
+        channel.enqueue(message);
+        channel.enqueue(createMessage(2));
+
+        // then
+        assertEquals(2, backlog.pendingMessages());
+        assertEquals(2L * message.delimitedSize(), backlog.pendingBytes());
+        await().atMost(Duration.ofSeconds(2)).until(() -> connection.frames.size() == 1);
+        assertEquals(0, backlog.pendingMessages());
+        assertEquals(0, backlog.pendingBytes());
+    }
+
+    @Test
+    void shouldRemoveDiscardedPayloadsFromBacklogOnClose() {
+        // given
+        OutboundBacklog backlog = new OutboundBacklog();
+        OutboundChannel channel = new OutboundChannel(SessionId.generate(), connection,
+                new BatchSettings(64, 16 * 1024, Duration.ofMinutes(1)), FrameCompressor.disabled(),
+                CorrelationSettings.disabled(), flushExecutor, backlog);
+        channel.enqueue(createMessage(1));
+
+        // when
+        channel.close();
+
+        // then
+        assertEquals(0, backlog.pendingMessages());
+        assertEquals(0, backlog.pendingBytes());
+    }
+
+    @Test
+    void shouldWriteHighPriorityMessageAheadOfQueuedBulkMessages() throws IOException {
+        // given
+        ScheduledExecutorService priorityFlushExecutor = Executors.newSingleThreadScheduledExecutor();
+        OutboundChannel channel = new OutboundChannel(SessionId.generate(), connection,
+                new BatchSettings(64, 16 * 1024, Duration.ofMinutes(1)), FrameCompressor.disabled(),
+                CorrelationSettings.disabled(), flushExecutor, new OutboundBacklog(),
+                PriorityLanes.none(), priorityFlushExecutor);
+        channel.enqueue(createMessage(1));
+        channel.enqueue(createMessage(2));
+
+        // when
+        channel.enqueue(new OutboundMessage(
+                createFeedMessage(3).toByteArray(), null, null, DeliveryPriority.HIGH, 0L));
+
+        // then
+        try {
+            await().atMost(Duration.ofSeconds(2)).until(() -> connection.frames.size() == 1);
+            List<FeedMessage> messages = decodeBatch(connection.frames.get(0));
+            assertEquals(1, messages.size());
+            assertEquals(3, messages.get(0).getTransPayload().getTransId());
+            assertEquals(2, channel.pendingMessages());
+        } finally {
+            priorityFlushExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldKeepBatchDeadlineWhenPriorityFlushHandsLanesBack() throws Exception {
+        // given
+        CountDownLatch priorityWriteStarted = new CountDownLatch(1);
+        CountDownLatch releasePriorityWrite = new CountDownLatch(1);
+        RecordingConnection blocking = new RecordingConnection() {
+            @Override
+            public void sendBinary(ByteBuffer frame) throws IOException {
+                if (priorityWriteStarted.getCount() > 0) {
+                    priorityWriteStarted.countDown();
+                    try {
+                        releasePriorityWrite.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                super.sendBinary(frame);
+            }
+        };
+        ScheduledExecutorService priorityFlushExecutor = Executors.newSingleThreadScheduledExecutor();
+        OutboundChannel channel = new OutboundChannel(SessionId.generate(), blocking,
+                new BatchSettings(64, 16 * 1024, Duration.ofMillis(500)), FrameCompressor.disabled(),
+                CorrelationSettings.disabled(), flushExecutor, new OutboundBacklog(),
+                PriorityLanes.none(), priorityFlushExecutor);
+        channel.enqueue(createMessage(1));
+        channel.enqueue(new OutboundMessage(
+                createFeedMessage(2).toByteArray(), null, null, DeliveryPriority.HIGH, 0L));
+        assertTrue(priorityWriteStarted.await(2, TimeUnit.SECONDS));
+
+        // when the batch deadline passes while the priority frame is being written
+        Thread.sleep(700);
+        releasePriorityWrite.countDown();
+
+        // then the batch goes out at once instead of waiting another max delay
+        try {
+            await().atMost(Duration.ofMillis(300)).until(() -> blocking.frames.size() == 2);
+            assertEquals(1, decodeBatch(blocking.frames.get(1)).get(0).getTransPayload().getTransId());
+        } finally {
+            priorityFlushExecutor.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldFlushImmediatelyWhenMaxMessagesReached() throws IOException {
+        // given
+        OutboundChannel channel = new OutboundChannel(SessionId.generate(), connection,
+                new BatchSettings(2, 16 * 1024, Duration.ofMinutes(1)), FrameCompressor.disabled(),
+                CorrelationSettings.disabled(), flushExecutor);
+
+        // when
+        channel.enqueue(createMessage(1));
+        channel.enqueue(createMessage(2));
+
+        // then
+        await().atMost(Duration.ofSeconds(2)).until(() -> connection.frames.size() == 1);
+        assertEquals(2, decodeBatch(connection.frames.get(0)).size());
+        assertEquals(0, channel.pendingMessages());
+    }
+
+    @Test
+    void shouldSplitBatchesAtMaxBytes() throws IOException {
+        // given
+        int payloadSize = createMessage(1).delimitedSize();
+        OutboundChannel channel = new OutboundChannel(SessionId.generate(), connection,
+                new BatchSettings(64, payloadSize * 2, Duration.ofMinutes(1)), FrameCompressor.disabled(),
+                CorrelationSettings.disabled(), flushExecutor);
+
+        // when
+        for (int i = 1; i <= 4; i++) {
+            channel.enqueue(createMessage(i));
+        }
+
+        // then
+        await().atMost(Duration.ofSeconds(2)).until(() -> connection.frames.size() == 2);
+        assertEquals(2, decodeBatch(connection.frames.get(0)).size());
+        assertEquals(2, decodeBatch(connection.frames.get(1)).size());
+    }
+
+    @Test
+    void shouldWriteEveryMessageSeparatelyWhenBatchingDisabled() {
+        // given
+        OutboundChannel channel = new OutboundChannel(SessionId.generate(), connection,
+                BatchSettings.disabled(), FrameCompressor.disabled(),
+                CorrelationSettings.disabled(), flushExecutor);
+
+        // when
+        channel.enqueue(createMessage(1));
+        channel.enqueue(createMessage(2));
+
+        // then
+        await().atMost(Duration.ofSeconds(2)).until(() -> connection.frames.size() == 2);
+    }
+
+    @Test
+    void shouldDeferFlushWhileWriteLimitIsReached() throws InterruptedException {
+        // given
+        GradientConcurrencyLimiter writeLimiter = new GradientConcurrencyLimiter(
+                new GradientConcurrencyLimiter.Settings(1, 1, 1, 1.5, 0.2, 0.5, 250,
+                        TimeUnit.MILLISECONDS.toNanos(2)),
+                new SimpleMeterRegistry());
+        OutboundChannel channel = new OutboundChannel(SessionId.generate(), connection,
+                BatchSettings.disabled(), FrameCompressor.disabled(), CorrelationSettings.disabled(),
+                flushExecutor, new OutboundBacklog(), PriorityLanes.none(), flushExecutor, writeLimiter);
+        GradientConcurrencyLimiter.Permit otherWrite = writeLimiter.tryAcquire(DeliveryPriority.NORMAL);
+
+        // when
+        channel.enqueue(createMessage(1));
+        Thread.sleep(50);
+
+        // then
+        assertTrue(connection.frames.isEmpty());
+        assertEquals(1, channel.pendingMessages());
+
+        // and when the other write ends
+        otherWrite.release();
+        await().atMost(Duration.ofSeconds(2)).until(() -> connection.frames.size() == 1);
+    }
+
+    @Test
+    void shouldRejectPayloadsAfterClose() {
+        // given
+        OutboundChannel channel = new OutboundChannel(SessionId.generate(), connection,
+                BatchSettings.disabled(), FrameCompressor.disabled(),
+                CorrelationSettings.disabled(), flushExecutor);
+
+        // when
+        channel.close();
+
+        // then
+        assertFalse(channel.enqueue(createMessage(1)));
+        assertFalse(channel.isOpen());
+    }
+
+    @Test
+    void shouldCloseChannelWhenWriteFails() {
+        // given
+        connection.failWrites = true;
+        OutboundChannel channel = new OutboundChannel(SessionId.generate(), connection,
+                BatchSettings.disabled(), FrameCompressor.disabled(),
+                CorrelationSettings.disabled(), flushExecutor);
+
+        // when
+        channel.enqueue(createMessage(1));
+
+        // then
+        await().atMost(Duration.ofSeconds(2)).until(() -> !channel.isOpen());
+        assertFalse(channel.enqueue(createMessage(2)));
+    }
+
+    @Test
+    void shouldReplaceQueuedMessageWithSameConflationKeyInPlace() throws IOException {
+        // given
+        OutboundChannel channel = new OutboundChannel(SessionId.generate(), connection,
+                new BatchSettings(64, 16 * 1024, Duration.ofMillis(200)), FrameCompressor.disabled(),
+                CorrelationSettings.disabled(), flushExecutor);
+
+        // when
+        channel.enqueue(new OutboundMessage(createFeedMessage(1).toByteArray(), "WalletTransaction:EUR"));
+        channel.enqueue(createMessage(2));
+        channel.enqueue(new OutboundMessage(createFeedMessage(3).toByteArray(), "WalletTransaction:EUR"));
+
+        // then
+        assertEquals(2, channel.pendingMessages());
+        assertEquals(1, channel.conflatedMessages());
+        await().atMost(Duration.ofSeconds(2)).until(() -> connection.frames.size() == 1);
+        List<FeedMessage> messages = decodeBatch(connection.frames.get(0));
+        assertEquals(2, messages.size());
+        assertEquals(3, messages.get(0).getTransPayload().getTransId());
+        assertEquals(2, messages.get(1).getTransPayload().getTransId());
+    }
+
+    @Test
+    void shouldNotConflateMessagesWithDifferentKeys() {
+        // given
+        OutboundChannel channel = new OutboundChannel(SessionId.generate(), connection,
+                new BatchSettings(64, 16 * 1024, Duration.ofMinutes(1)), FrameCompressor.disabled(),
+                CorrelationSettings.disabled(), flushExecutor);
+
+        // when
+        channel.enqueue(new OutboundMessage(createFeedMessage(1).toByteArray(), "WalletTransaction:EUR"));
+        channel.enqueue(new OutboundMessage(createFeedMessage(2).toByteArray(), "WalletTransaction:SEK"));
+
+        // then
+        assertEquals(2, channel.pendingMessages());
+        assertEquals(0, channel.conflatedMessages());
+    }
+
+    @Test
+    void shouldMergeMessagesWithSameReferenceIntoOneCorrelatedFrame() throws IOException {
+        // given
+        OutboundChannel channel = new OutboundChannel(SessionId.generate(), connection,
+                new BatchSettings(64, 16 * 1024, Duration.ofMillis(5)), FrameCompressor.disabled(),
+                new CorrelationSettings(Duration.ofMinutes(1), 2), flushExecutor);
+
+        // when
+        channel.enqueue(new OutboundMessage(createFeedMessage(1).toByteArray(), null, "deposit-42"));
+        channel.enqueue(new OutboundMessage(createFeedMessage(2).toByteArray(), null, "deposit-42"));
+
+        // then
+        await().atMost(Duration.ofSeconds(2)).until(() -> connection.frames.size() == 1);
+        byte[] frame = connection.frames.get(0);
+        assertEquals(FrameCodec.CORRELATED, frame[0]);
+        ByteArrayInputStream in = new ByteArrayInputStream(frame, 1, frame.length - 1);
+        int referenceLength = in.read();
+        assertEquals("deposit-42", new String(in.readNBytes(referenceLength), StandardCharsets.UTF_8));
+        assertEquals(1, FeedMessage.parseDelimitedFrom(in).getTransPayload().getTransId());
+        assertEquals(2, FeedMessage.parseDelimitedFrom(in).getTransPayload().getTransId());
+        assertNull(FeedMessage.parseDelimitedFrom(in));
+        assertEquals(1, channel.correlatedFrames());
+    }
+
+    @Test
+    void shouldReleaseUnmatchedReferenceAsBatchAfterWindow() throws IOException {
+        // given
+        OutboundChannel channel = new OutboundChannel(SessionId.generate(), connection,
+                new BatchSettings(64, 16 * 1024, Duration.ofMillis(5)), FrameCompressor.disabled(),
+                new CorrelationSettings(Duration.ofMillis(20), 8), flushExecutor);
+
+        // when
+        channel.enqueue(new OutboundMessage(createFeedMessage(1).toByteArray(), null, "deposit-42"));
+
+        // then
+        assertEquals(0, channel.pendingMessages());
+        await().atMost(Duration.ofSeconds(2)).until(() -> connection.frames.size() == 1);
+        List<FeedMessage> messages = decodeBatch(connection.frames.get(0));
+        assertEquals(1, messages.size());
+        assertEquals(0, channel.correlatedFrames());
+    }
+
+    @Test
+    void shouldQueueHeldGroupsAheadOfLaterMessagesWithoutReference() throws IOException {
+        // given
+        OutboundChannel channel = new OutboundChannel(SessionId.generate(), connection,
+                new BatchSettings(64, 16 * 1024, Duration.ofMillis(5)), FrameCompressor.disabled(),
+                new CorrelationSettings(Duration.ofMinutes(1), 8), flushExecutor);
+        channel.enqueue(new OutboundMessage(createFeedMessage(1).toByteArray(), null, "deposit-42"));
+
+        // when
+        channel.enqueue(createMessage(2));
+
+        // then
+        await().atMost(Duration.ofSeconds(2)).until(() -> connection.frames.size() == 1);
+        List<FeedMessage> messages = decodeBatch(connection.frames.get(0));
+        assertEquals(List.of(1L, 2L), messages.stream().map(m -> m.getTransPayload().getTransId()).toList());
+    }
+
+    @Test
+    void shouldWriteReconnectFrameAfterQueuedMessages() throws IOException {
+        // given
+        OutboundChannel channel = new OutboundChannel(SessionId.generate(), connection,
+                new BatchSettings(64, 16 * 1024, Duration.ofMillis(5)), FrameCompressor.disabled(),
+                CorrelationSettings.disabled(), flushExecutor);
+        channel.enqueue(createMessage(1));
+        channel.enqueue(createMessage(2));
+
+        // when
+        channel.enqueue(OutboundMessage.reconnect("ws://node-2/ws/abc", "OPS_Account:42"));
+
+        // then
+        await().atMost(Duration.ofSeconds(2)).until(() -> connection.frames.size() == 2);
+        assertEquals(2, decodeBatch(connection.frames.get(0)).size());
+        byte[] frame = connection.frames.get(1);
+        assertEquals(FrameCodec.RECONNECT, frame[0]);
+        ByteArrayInputStream in = new ByteArrayInputStream(frame, 1, frame.length - 1);
+        assertEquals("ws://node-2/ws/abc", new String(in.readNBytes(in.read()), StandardCharsets.UTF_8));
+        assertEquals("OPS_Account:42", new String(in.readNBytes(in.read()), StandardCharsets.UTF_8));
+        assertEquals(0, in.available());
+    }
+
+    @Test
+    void shouldWriteHeldCorrelationGroupsBeforeReconnectFrame() {
+        // given
+        OutboundChannel channel = new OutboundChannel(SessionId.generate(), connection,
+                new BatchSettings(64, 16 * 1024, Duration.ofMillis(5)), FrameCompressor.disabled(),
+                new CorrelationSettings(Duration.ofMinutes(1), 8), flushExecutor);
+        channel.enqueue(new OutboundMessage(createFeedMessage(1).toByteArray(), null, "deposit-42"));
+        channel.enqueue(new OutboundMessage(createFeedMessage(2).toByteArray(), null, "deposit-42"));
+
+        // when
+        channel.enqueue(OutboundMessage.reconnect("ws://node-2/ws/abc", "OPS_Account:42"));
+
+        // then
+        await().atMost(Duration.ofSeconds(2)).until(() -> connection.frames.size() == 2);
+        assertEquals(FrameCodec.CORRELATED, connection.frames.get(0)[0]);
+        assertEquals(FrameCodec.RECONNECT, connection.frames.get(1)[0]);
+        assertEquals(1, channel.correlatedFrames());
+    }
+
+    private static class RecordingConnection implements WebSocketConnection {
+
+        private final List<byte[]> frames = new CopyOnWriteArrayList<>();
+        private volatile boolean failWrites;
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void sendBinary(ByteBuffer frame) throws IOException {
+            if (failWrites) {
+                throw new IOException("Connection reset");
+            }
+            byte[] copy = new byte[frame.remaining()];
+            frame.get(copy);
+            frames.add(copy);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.ces.infrastructure.websocket;
+
+import com.lnw.expressway.messages.v1.FeedMessageProto.Header.MessageType;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PriorityLanes.
+ */
+class PriorityLanesTest {
+
+    @Test
+    void shouldAssignConfiguredLanesAndNormalOtherwise() {
+        // given
+        PriorityLanes lanes = new PriorityLanes(
+                Map.of("RealityCheck", DeliveryPriority.HIGH, "Registration", DeliveryPriority.LOW),
+                Map.of(), 1, new SimpleMeterRegistry());
+
+        // when & then
+        assertEquals(DeliveryPriority.HIGH, lanes.laneOf(MessageType.RealityCheck));
+        assertEquals(DeliveryPriority.LOW, lanes.laneOf(MessageType.Registration));
+        assertEquals(DeliveryPriority.NORMAL, lanes.laneOf(MessageType.WalletTransaction));
+        assertEquals(DeliveryPriority.NORMAL, PriorityLanes.none().laneOf(MessageType.RealityCheck));
+    }
+
+    @Test
+    void shouldRecordDeliveryLatencyPerLane() {
+        // given
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        PriorityLanes lanes = new PriorityLanes(Map.of(),
+                Map.of(DeliveryPriority.HIGH, List.of(Duration.ofMillis(50))), 1, meterRegistry);
+        long now = System.currentTimeMillis();
+
+        // when
+        lanes.recordWritten(new OutboundMessage(new byte[1], null, null, DeliveryPriority.HIGH, now - 30), now);
+        lanes.recordWritten(new OutboundMessage(new byte[1], null, null, DeliveryPriority.NORMAL, now - 200), now);
+        lanes.recordWritten(OutboundMessage.of(new byte[1]), now);
+
+        // then
+        Timer high = meterRegistry.get("ces.websocket.delivery.latency").tag("priority", "high").timer();
+        Timer normal = meterRegistry.get("ces.websocket.delivery.latency").tag("priority", "normal").timer();
+        assertEquals(1, high.count());
+        assertEquals(30, high.totalTime(TimeUnit.MILLISECONDS), 0.001);
+        assertEquals(1, normal.count());
+    }
+
+    @Test
+    void shouldRejectUnknownMessageType() {
+        // when & then
+        assertThrows(IllegalArgumentException.class, () ->
+                new PriorityLanes(Map.of("NoSuchType", DeliveryPriority.HIGH), Map.of(), 1, new SimpleMeterRegistry()));
+    }
+}
@@ -4,9 +4,15 @@ import com.ces.application.port.input.DeliverMessageUseCase;
 import com.ces.application.port.input.RegisterSessionUseCase;
 import com.ces.application.port.input.RegisterSessionUseCase.SessionRegistrationResult;
 import com.ces.application.port.output.MessageSender;
+import com.ces.application.port.output.MessageTypeSubscriptions;
+import com.ces.application.port.output.OfflineMessageStore;
+import com.ces.application.port.output.RecentEventBuffer;
+import com.ces.application.port.output.SessionGroupIndex;
 import com.ces.application.port.output.SessionRepository;
 import com.ces.application.service.DeliverMessageService;
 import com.ces.application.service.RegisterSessionService;
+import com.ces.domain.filter.ContentFilterCompiler;
+import com.ces.domain.filter.FieldProjectionCompiler;
 import com.ces.domain.model.EventMessage;
 import com.ces.domain.model.Session;
 import com.ces.domain.model.SessionId;
@@ -45,6 +51,18 @@ class SessionManagementIntegrationTest {
     @Mock
     private MessageSender messageSender;
 
+    @Mock
+    private OfflineMessageStore offlineMessageStore;
+
+    @Mock
+    private RecentEventBuffer recentEventBuffer;
+
+    @Mock
+    private SessionGroupIndex sessionGroupIndex;
+
+    @Mock
+    private MessageTypeSubscriptions messageTypeSubscriptions;
+
     private RegisterSessionUseCase registerSessionUseCase;
     private DeliverMessageUseCase deliverMessageUseCase;
 
@@ -55,12 +73,18 @@ class SessionManagementIntegrationTest {
         registerSessionUseCase = new RegisterSessionService(
                 sessionRegistry, 
                 sessionRepository, 
+                messageTypeSubscriptions,
+                new ContentFilterCompiler(),
+                new FieldProjectionCompiler(),
                 WEBSOCKET_BASE_URL
         );
         
         deliverMessageUseCase = new DeliverMessageService(
                 sessionRegistry, 
-                messageSender
+                messageSender,
+                offlineMessageStore,
+                recentEventBuffer,
+                sessionGroupIndex
         );
     }
 
@@ -290,8 +314,9 @@ class SessionManagementIntegrationTest {
         EventMessage message2 = new EventMessage(sessionId, feedMessage2, "kafka-topic");
         deliverMessageUseCase.deliver(message2);
 
-        // then - message not delivered to disconnected session
+        // then - message queued for the disconnected session instead
         verify(messageSender, never()).sendToSession(sessionId, message2);
+        verify(offlineMessageStore).store(message2);
     }
 
     @Test
@@ -338,7 +363,7 @@ class SessionManagementIntegrationTest {
     void shouldValidateSessionIdFormat() {
         // given - null session ID
         // when
-        SessionRegistrationResult result = registerSessionUseCase.register(null);
+        SessionRegistrationResult result = registerSessionUseCase.register((SessionId) null);
 
         // then
         assertFalse(result.success());